@@ -25,9 +25,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.bonitasoft.web.toolkit.client.common.i18n.AbstractI18n;
 import org.bonitasoft.web.toolkit.client.common.texttemplate.Arg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
@@ -44,13 +47,30 @@ public class I18n extends AbstractI18n {
      */
     public static final String I18N_CUSTOM_DIR_PROPERTY = "org.bonitasoft.i18n.folder";
 
+    /**
+     * Property that can be set to load some locales at startup instead of on the first request using them.
+     * Comma separated list of locales (e.g. fr,es,pt_BR)
+     */
+    public static final String I18N_PRELOADED_LOCALES_PROPERTY = "org.bonitasoft.i18n.preload";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(I18n.class.getName());
+
+    /**
+     * the custom i18n folder is checked for changes at most once per interval
+     */
+    static final long CUSTOM_DIR_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
     private static File I18N_CUSTOM_DIR = getI18nCustomDirectory();
 
-    private I18n() {
+    private volatile long customDirLastCheck = System.currentTimeMillis();
+
+    private volatile long customDirStamp = getCustomDirectoryStamp();
+
+    I18n() {
         // Singleton
     }
 
-    public static I18n getInstance() {
+    public static synchronized I18n getInstance() {
         if (I18N_instance == null) {
             I18N_instance = new I18n();
         }
@@ -58,13 +78,14 @@ public class I18n extends AbstractI18n {
     }
 
     // For test matters only:
-    public static void setInstance(I18n instance) {
+    public static synchronized void setInstance(I18n instance) {
         I18N_instance = instance;
     }
 
     // For test matters only:
     public void refresh() {
         I18N_CUSTOM_DIR = getI18nCustomDirectory();
+        customDirStamp = getCustomDirectoryStamp();
     }
 
     private static File getI18nCustomDirectory() {
@@ -72,6 +93,43 @@ public class I18n extends AbstractI18n {
         return customI18nFolder != null ? new File(customI18nFolder) : null;
     }
 
+    @Override
+    public Map<String, String> getLocale(final LOCALE locale) {
+        reloadIfCustomDirectoryChanged(System.currentTimeMillis());
+        return super.getLocale(locale);
+    }
+
+    /**
+     * Forget the loaded locales if a .po file of the custom i18n folder has been added, removed or modified since the
+     * last check
+     */
+    void reloadIfCustomDirectoryChanged(final long now) {
+        if (I18N_CUSTOM_DIR == null || now - customDirLastCheck < CUSTOM_DIR_CHECK_INTERVAL) {
+            return;
+        }
+        customDirLastCheck = now;
+        final long stamp = getCustomDirectoryStamp();
+        if (stamp != customDirStamp) {
+            customDirStamp = stamp;
+            LOGGER.info("The custom i18n folder " + I18N_CUSTOM_DIR.getPath() + " has changed, translations will be reloaded");
+            clearLocales();
+        }
+    }
+
+    private static long getCustomDirectoryStamp() {
+        if (I18N_CUSTOM_DIR == null) {
+            return 0L;
+        }
+        long stamp = I18N_CUSTOM_DIR.lastModified();
+        final File[] poFiles = I18N_CUSTOM_DIR.listFiles((dir, name) -> name.endsWith(".po"));
+        if (poFiles != null) {
+            for (final File poFile : poFiles) {
+                stamp += poFile.lastModified() + 31 * poFile.length();
+            }
+        }
+        return stamp;
+    }
+
     @Override
     public void loadLocale(final LOCALE locale) {
         Map<String, String> results = loadLocale(getStreams(locale));
@@ -84,11 +142,33 @@ public class I18n extends AbstractI18n {
     private Map<String, String> loadLocale(List<InputStream> streams) {
         TreeMap<String, String> treeMap = new TreeMap<>();
         for (InputStream stream : streams) {
-            treeMap.putAll(parsePoResource(stream));
+            try (InputStream poStream = stream) {
+                treeMap.putAll(parsePoResource(poStream));
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close translation resource " + stream, e);
+            }
         }
         return treeMap;
     }
 
+    /**
+     * Load the locales listed in the {@link #I18N_PRELOADED_LOCALES_PROPERTY} system property, if any
+     */
+    public void preloadLocales() {
+        final String preloadedLocales = System.getProperty(I18N_PRELOADED_LOCALES_PROPERTY);
+        if (preloadedLocales == null) {
+            return;
+        }
+        for (final String localeName : preloadedLocales.split(",")) {
+            final LOCALE locale = stringToLocale(localeName.trim());
+            if (locale != null) {
+                getLocale(locale);
+            } else if (!localeName.isBlank()) {
+                LOGGER.warn("Unknown locale " + localeName + " in " + I18N_PRELOADED_LOCALES_PROPERTY + " property");
+            }
+        }
+    }
+
     private TreeMap<String, String> loadLocale(final LOCALE locale, List<File> files) {
         TreeMap<String, String> treeMap = new TreeMap<>();
         for (File file : getLocaleFiles(locale, files)) {
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Import or export run in background by the {@link JobManager}.
+ * A job belongs to the user who submitted it, and its status and result are kept for a while once it is done.
+ * It runs with the engine session of the user, so it is cancelled when this session is logged out.
+ */
+public class Job {
+
+    public enum State {
+        PENDING, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isDone() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+
+    private final String name;
+
+    private final long tenantId;
+
+    private final long userId;
+
+    private final long apiSessionId;
+
+    private final File resultsDirectory;
+
+    private final long submissionDate;
+
+    private volatile State state = State.PENDING;
+
+    private volatile int progress;
+
+    private final List<String> warnings = new ArrayList<>();
+
+    private volatile String error;
+
+    private volatile String result;
+
+    private volatile File resultFile;
+
+    private volatile String resultFileName;
+
+    private volatile long endDate = -1L;
+
+    private Future<?> future;
+
+    Job(final String id, final String name, final long tenantId, final long userId, final long apiSessionId,
+            final File resultsDirectory, final long submissionDate) {
+        this.id = id;
+        this.name = name;
+        this.tenantId = tenantId;
+        this.userId = userId;
+        this.apiSessionId = apiSessionId;
+        this.resultsDirectory = resultsDirectory;
+        this.submissionDate = submissionDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    long getTenantId() {
+        return tenantId;
+    }
+
+    long getUserId() {
+        return userId;
+    }
+
+    long getApiSessionId() {
+        return apiSessionId;
+    }
+
+    public long getSubmissionDate() {
+        return submissionDate;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the progress of the job, in percent
+     */
+    public int getProgress() {
+        return progress;
+    }
+
+    public void setProgress(final int progress) {
+        this.progress = Math.max(0, Math.min(100, progress));
+    }
+
+    public synchronized List<String> getWarnings() {
+        return new ArrayList<>(warnings);
+    }
+
+    public synchronized void addWarning(final String warning) {
+        warnings.add(warning);
+    }
+
+    public synchronized void addWarnings(final List<String> warnings) {
+        if (warnings != null) {
+            this.warnings.addAll(warnings);
+        }
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the result of an import (e.g. its status messages as JSON) or null
+     */
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(final String result) {
+        this.result = result;
+    }
+
+    /**
+     * Create the file in which an export writes its result, downloadable with the given name once the job has succeeded
+     */
+    public OutputStream openResultFile(final String fileName) throws IOException {
+        if (resultFile == null) {
+            resultFile = File.createTempFile("job_" + id + "_", ".result", resultsDirectory);
+        }
+        resultFileName = fileName;
+        return Files.newOutputStream(resultFile.toPath());
+    }
+
+    public File getResultFile() {
+        return state == State.SUCCEEDED ? resultFile : null;
+    }
+
+    public String getResultFileName() {
+        return resultFileName;
+    }
+
+    public boolean hasResultFile() {
+        return getResultFile() != null;
+    }
+
+    public long getEndDate() {
+        return endDate;
+    }
+
+    synchronized void setFuture(final Future<?> future) {
+        this.future = future;
+    }
+
+    synchronized boolean start() {
+        if (state != State.PENDING) {
+            return false;
+        }
+        state = State.RUNNING;
+        return true;
+    }
+
+    synchronized void succeed(final long date) {
+        if (state == State.RUNNING) {
+            progress = 100;
+            endDate = date;
+            state = State.SUCCEEDED;
+        }
+    }
+
+    synchronized void fail(final String error, final long date) {
+        if (state == State.RUNNING) {
+            this.error = error;
+            endDate = date;
+            state = State.FAILED;
+            deleteResultFile();
+        }
+    }
+
+    /**
+     * @return true if the job was not done yet
+     */
+    synchronized boolean cancel(final long date) {
+        if (state.isDone()) {
+            return false;
+        }
+        endDate = date;
+        state = State.CANCELLED;
+        if (future != null) {
+            future.cancel(true);
+        }
+        deleteResultFile();
+        return true;
+    }
+
+    synchronized void deleteResultFile() {
+        if (resultFile != null) {
+            FileUtils.deleteQuietly(resultFile);
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.job;
+
+import java.io.File;
+import java.time.Clock;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.console.common.server.preferences.constants.WebBonitaConstantsUtils;
+import org.bonitasoft.console.common.server.preferences.properties.ConsoleProperties;
+import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
+import org.bonitasoft.engine.session.APISession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the long imports and exports in background so that they neither hold a container thread nor depend on the
+ * client connection.
+ * A bounded number of jobs run at the same time and a bounded number wait for their turn: further submissions are
+ * rejected. Done jobs, with their result file, are kept until their time to live expires.
+ */
+public class JobManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobManager.class.getName());
+
+    static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String RESULTS_DIRECTORY_NAME = "jobs";
+
+    private static JobManager instance;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final File resultsDirectory;
+
+    private final Clock clock;
+
+    private final long resultTimeToLive;
+
+    private ScheduledExecutorService purgeExecutor;
+
+    JobManager(final int maxRunningJobs, final int maxPendingJobs, final File resultsDirectory, final Clock clock,
+            final long resultTimeToLive) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxRunningJobs, maxRunningJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPendingJobs), runnable -> {
+                    final Thread thread = new Thread(runnable, "bonita-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.resultsDirectory = resultsDirectory;
+        this.clock = clock;
+        this.resultTimeToLive = resultTimeToLive;
+    }
+
+    /**
+     * @return the job manager, started on its first call
+     */
+    public static synchronized JobManager getInstance() {
+        if (instance == null) {
+            final ConsoleProperties consoleProperties = PropertiesFactory.getConsoleProperties();
+            final File resultsDirectory = new File(WebBonitaConstantsUtils.getTenantInstance().getTempFolder(), RESULTS_DIRECTORY_NAME);
+            if (!resultsDirectory.exists() && !resultsDirectory.mkdirs()) {
+                LOGGER.warn("Unable to create the jobs results folder " + resultsDirectory.getPath());
+            }
+            instance = new JobManager(consoleProperties.getMaxRunningJobs(), consoleProperties.getMaxPendingJobs(),
+                    resultsDirectory, Clock.systemUTC(), TimeUnit.MINUTES.toMillis(consoleProperties.getJobResultTimeToLive()));
+            instance.startPurge();
+        }
+        return instance;
+    }
+
+    /**
+     * Cancel the jobs submitted with a session which is logged out: they cannot call the engine anymore
+     */
+    public static synchronized void sessionLoggedOut(final APISession apiSession) {
+        if (instance != null) {
+            instance.cancelJobsOf(apiSession);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    private void startPurge() {
+        purgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "bonita-jobs-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purgeExecutor.scheduleWithFixedDelay(this::purgeQuietly, PURGE_INTERVAL, PURGE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    void shutdown() {
+        if (purgeExecutor != null) {
+            purgeExecutor.shutdownNow();
+        }
+        executor.shutdownNow();
+        for (final Job job : jobs.values()) {
+            job.cancel(clock.millis());
+        }
+        jobs.clear();
+    }
+
+    /**
+     * Submit a job run with the session of the user
+     *
+     * @throws RejectedExecutionException if too many jobs are already running or waiting
+     */
+    public Job submit(final APISession apiSession, final String name, final JobTask task) {
+        final Job job = new Job(UUID.randomUUID().toString(), name, apiSession.getTenantId(), apiSession.getUserId(),
+                apiSession.getId(), resultsDirectory, clock.millis());
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> run(job, task)));
+        } catch (final RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    private void run(final Job job, final JobTask task) {
+        if (!job.start()) {
+            return;
+        }
+        try {
+            task.execute(job);
+            job.succeed(clock.millis());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Interrupted", clock.millis());
+        } catch (final Exception e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Job " + job.getName() + " (" + job.getId() + ") failed. " + e.getMessage(), e);
+            }
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getName(), clock.millis());
+        }
+    }
+
+    /**
+     * @return the job if it exists and belongs to the user of the session, null otherwise
+     */
+    public Job getJob(final String jobId, final APISession apiSession) {
+        final Job job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null || job.getTenantId() != apiSession.getTenantId() || job.getUserId() != apiSession.getUserId()) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Cancel a job: a pending job will not run and the thread of a running job is interrupted
+     *
+     * @return false if the job does not exist, does not belong to the user of the session or is already done
+     */
+    public boolean cancel(final String jobId, final APISession apiSession) {
+        final Job job = getJob(jobId, apiSession);
+        if (job == null || !job.cancel(clock.millis())) {
+            return false;
+        }
+        //free the place of a cancelled pending job in the queue
+        executor.purge();
+        return true;
+    }
+
+    /**
+     * Cancel the jobs which are not done yet and have been submitted with the session
+     */
+    void cancelJobsOf(final APISession apiSession) {
+        boolean cancelled = false;
+        for (final Job job : jobs.values()) {
+            if (job.getTenantId() == apiSession.getTenantId() && job.getApiSessionId() == apiSession.getId()
+                    && job.cancel(clock.millis())) {
+                cancelled = true;
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Job " + job.getName() + " (" + job.getId() + ") cancelled because its session has been logged out");
+                }
+            }
+        }
+        if (cancelled) {
+            executor.purge();
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to purge the expired jobs. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Forget the jobs done for longer than the time to live of their result and delete their result file
+     */
+    void purge() {
+        final long oldestAllowedEndDate = clock.millis() - resultTimeToLive;
+        jobs.values().removeIf(job -> {
+            if (job.getState().isDone() && job.getEndDate() < oldestAllowedEndDate) {
+                job.deleteResultFile();
+                return true;
+            }
+            return false;
+        });
+    }
+
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.job;
+
+/**
+ * Work run by a {@link Job}: an import or an export
+ */
+@FunctionalInterface
+public interface JobTask {
+
+    /**
+     * Run the task, reporting its progress, warnings and result through the job.
+     * The thread is interrupted when the job is cancelled.
+     */
+    void execute(Job job) throws Exception;
+
+}
@@ -15,14 +15,16 @@ package org.bonitasoft.console.common.server.page;
 
 import static org.apache.commons.io.FileUtils.deleteQuietly;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
@@ -39,7 +41,15 @@ import org.apache.commons.io.FileUtils;
  */
 public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoader implements VersionedClassloader {
 
-    protected final Map<String, byte[]> nonJarResources = new HashMap<>();
+    /**
+     * non jar resources of the page lib folder, by name. Their content is read from the file system on demand.
+     */
+    protected final Map<String, File> nonJarResources = new HashMap<>();
+
+    /**
+     * names of the classes which are not available in this classloader and are loaded by the parent
+     */
+    private final Set<String> parentDelegatedClassNames = ConcurrentHashMap.newKeySet();
 
     private boolean isActive = true;
 
@@ -64,6 +74,7 @@ public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoade
     public void addCustomPageResources() throws IOException {
         addBDMDependencies();
         addOtherDependencies();
+        parentDelegatedClassNames.clear();
     }
 
     private void addBDMDependencies() {
@@ -75,14 +86,13 @@ public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoade
     }
 
     private void addOtherDependencies() throws IOException {
-        final Map<String, byte[]> customPageDependencies = customPageDependenciesResolver.resolveCustomPageDependencies();
-        for (final Map.Entry<String, byte[]> resource : customPageDependencies.entrySet()) {
+        final Map<String, File> customPageDependencies = customPageDependenciesResolver.resolveCustomPageDependencies();
+        for (final Map.Entry<String, File> resource : customPageDependencies.entrySet()) {
             if (resource.getKey().matches(".*\\.jar") && !bdmDependenciesResolver.isABDMDependency(resource.getKey())) {
-                final byte[] data = resource.getValue();
                 final File file = File.createTempFile(resource.getKey(), null,
                         customPageDependenciesResolver.getTempFolder());
                 file.deleteOnExit();
-                FileUtils.writeByteArrayToFile(file, data);
+                FileUtils.copyFile(resource.getValue(), file);
                 addURL(new File(file.getAbsolutePath()).toURI().toURL());
             } else {
                 nonJarResources.put(resource.getKey(), resource.getValue());
@@ -105,9 +115,9 @@ public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoade
     }
 
     protected InputStream getResourceAsStreamInternal(final String name) {
-        final byte[] classData = loadProcessResource(name);
-        if (classData != null) {
-            return new ByteArrayInputStream(classData);
+        final InputStream processResource = loadProcessResource(name);
+        if (processResource != null) {
+            return processResource;
         }
         return getResourceAsStreamRegular(name);
     }
@@ -116,8 +126,17 @@ public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoade
         return super.getResourceAsStream(name);
     }
 
-    private byte[] loadProcessResource(final String resourceName) {
-        return nonJarResources.containsKey(resourceName) ? nonJarResources.get(resourceName) : null;
+    private InputStream loadProcessResource(final String resourceName) {
+        final File resourceFile = nonJarResources.get(resourceName);
+        if (resourceFile == null) {
+            return null;
+        }
+        try {
+            return new FileInputStream(resourceFile);
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to read the custom page resource " + resourceFile.getPath(), e);
+            return null;
+        }
     }
 
     @Override
@@ -129,11 +148,12 @@ public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoade
          */
         Class<?> c = null;
         c = findLoadedClass(name);
-        if (c == null) {
+        if (c == null && !parentDelegatedClassNames.contains(name)) {
             try {
                 c = findClass(name);
             } catch (final ClassNotFoundException e) {
-                // ignore
+                // remember it so that the next lookups go straight to the parent
+                parentDelegatedClassNames.add(name);
             } catch (final LinkageError le) {
                 // might be because of a duplicate loading (concurrency loading), retry to find it one time See BS-2483
                 c = findLoadedClass(name);
@@ -154,10 +174,23 @@ public class CustomPageChildFirstClassLoader extends MonoParentJarFileClassLoade
         return c;
     }
 
-    // never called. Is it normal?
+    /**
+     * Close the jars of this classloader and delete their temporary copies. Called once no request uses the page
+     * classloader anymore.
+     */
     public void release() {
-        deleteQuietly(customPageDependenciesResolver.getTempFolder());
         isActive = false;
+        destroy();
+        try {
+            close();
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to close the custom page classloader " + getName(), e);
+        }
+        try {
+            deleteQuietly(customPageDependenciesResolver.getTempFolder());
+        } catch (final IllegalStateException e) {
+            // no lib folder in the page: there is no temporary folder to delete
+        }
     }
 
     @Override
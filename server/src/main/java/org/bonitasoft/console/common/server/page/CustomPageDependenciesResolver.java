@@ -14,8 +14,6 @@
  */
 package org.bonitasoft.console.common.server.page;
 
-import static org.apache.commons.io.FileUtils.readFileToByteArray;
-
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
@@ -57,7 +55,11 @@ public class CustomPageDependenciesResolver {
         this.webBonitaConstantsUtils = webBonitaConstantsUtils;
     }
 
-    public Map<String, byte[]> resolveCustomPageDependencies() {
+    /**
+     * @return the files of the custom page lib folder, by file name. The content of the files is not read so that
+     *         it is loaded only when needed.
+     */
+    public Map<String, File> resolveCustomPageDependencies() {
         final File customPageLibDirectory = new File(pageDirectory, LIB_FOLDER_NAME);
         if (customPageLibDirectory.exists()) {
             this.libTempFolder = new File(this.webBonitaConstantsUtils.getTempFolder(), pageName
@@ -65,22 +67,22 @@ public class CustomPageDependenciesResolver {
             if (!this.libTempFolder.exists()) {
                 this.libTempFolder.mkdirs();
             }
-            removePageLibTempFolder(pageName);
+            //the folder of the previous classloader of the page is deleted when that classloader is closed
             PAGES_LIB_TMPDIR.put(pageName, this.libTempFolder);
             return loadLibraries(customPageLibDirectory);
         }
         return Collections.emptyMap();
     }
 
-    private Map<String, byte[]> loadLibraries(final File customPageLibDirectory) {
-        final Map<String, byte[]> result = new HashMap<>();
+    private Map<String, File> loadLibraries(final File customPageLibDirectory) {
+        final Map<String, File> result = new HashMap<>();
         try {
             Files.walkFileTree(customPageLibDirectory.toPath(), new SimpleFileVisitor<>() {
 
                 @Override
                 public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
                     final File currentFile = file.toFile();
-                    result.put(currentFile.getName(), readFileToByteArray(currentFile));
+                    result.put(currentFile.getName(), currentFile);
                     return super.visitFile(file, attrs);
                 }
 
@@ -106,6 +108,14 @@ public class CustomPageDependenciesResolver {
         return libTempFolder;
     }
 
+    /**
+     * Stop tracking the temporary lib folder of a page without deleting it: it is deleted by the classloader using it
+     * once no request uses it anymore.
+     */
+    public static File forgetPageLibTempFolder(final String pageName) {
+        return PAGES_LIB_TMPDIR.remove(pageName);
+    }
+
     public File getTempFolder() {
         if (libTempFolder == null) {
             throw new IllegalStateException("Custom page dependencies must be resolved first.");
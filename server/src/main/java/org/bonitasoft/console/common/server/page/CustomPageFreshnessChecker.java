@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.page;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.console.common.server.page.extension.PageResourceProviderImpl;
+import org.bonitasoft.console.common.server.utils.TenantsManagementUtils;
+import org.bonitasoft.engine.api.LoginAPI;
+import org.bonitasoft.engine.api.PageAPI;
+import org.bonitasoft.engine.api.TenantAPIAccessor;
+import org.bonitasoft.engine.exception.BonitaException;
+import org.bonitasoft.engine.page.Page;
+import org.bonitasoft.engine.page.PageSearchDescriptor;
+import org.bonitasoft.engine.search.Order;
+import org.bonitasoft.engine.search.SearchOptionsBuilder;
+import org.bonitasoft.engine.search.SearchResult;
+import org.bonitasoft.engine.session.APISession;
+import org.bonitasoft.web.extension.page.PageResourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks in background, for a tenant, whether the recently used custom pages and rest api extensions have been updated
+ * in the engine, so that the request threads only read the timestamps in memory and do not query the engine.
+ * All the pages are checked with a single page search sorted by last modification date, with a session of the tenant
+ * technical user owned by the checker. The content of an updated page is extracted in a staging folder which then
+ * replaces the page folder. The checker of a tenant is stopped when the tenant is paused.
+ */
+public class CustomPageFreshnessChecker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomPageFreshnessChecker.class.getName());
+
+    private static final ConcurrentMap<Long, CustomPageFreshnessChecker> TENANTS_CHECKERS = new ConcurrentHashMap<>();
+
+    /**
+     * pages which have not been used for this period are not checked anymore
+     */
+    static final long RECENTLY_USED_PAGE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+    static final int SEARCH_BATCH_SIZE = 100;
+
+    private final long tenantId;
+
+    private final CustomPageService customPageService;
+
+    private final Clock clock;
+
+    private final long checkInterval;
+
+    private final Map<String, UsedPage> usedPages = new ConcurrentHashMap<>();
+
+    /**
+     * session of the tenant technical user, only used by the checks
+     */
+    private APISession technicalSession;
+
+    private volatile long lastRefreshTimestamp = -1L;
+
+    private ScheduledExecutorService executor;
+
+    CustomPageFreshnessChecker(final long tenantId, final CustomPageService customPageService, final Clock clock,
+            final long checkInterval) {
+        this.tenantId = tenantId;
+        this.customPageService = customPageService;
+        this.clock = clock;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * @return the checker of the tenant, started on its first call
+     */
+    public static CustomPageFreshnessChecker getInstance(final long tenantId, final CustomPageService customPageService) {
+        return TENANTS_CHECKERS.computeIfAbsent(tenantId, id -> {
+            final CustomPageFreshnessChecker checker = new CustomPageFreshnessChecker(id, customPageService,
+                    Clock.systemUTC(), customPageService.getPageLastUpdateCheckInterval());
+            checker.start();
+            return checker;
+        });
+    }
+
+    /**
+     * Stop the checker of a tenant (e.g. when the tenant is paused). A new one is started by the next request.
+     */
+    public static void stop(final long tenantId) {
+        final CustomPageFreshnessChecker checker = TENANTS_CHECKERS.remove(tenantId);
+        if (checker != null) {
+            checker.stop();
+        }
+    }
+
+    public static void stopAll() {
+        for (final Long tenantId : TENANTS_CHECKERS.keySet()) {
+            stop(tenantId);
+        }
+    }
+
+    synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "bonita-custom-page-freshness-checker-" + tenantId);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::refreshQuietly, 0, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        logoutTechnicalSession();
+    }
+
+    /**
+     * Register a page as recently used so that it is checked by the next refreshes
+     */
+    public void pageUsed(final PageResourceProvider pageResourceProvider) {
+        final long now = clock.millis();
+        final UsedPage usedPage = usedPages.computeIfAbsent(pageResourceProvider.getFullPageName(),
+                fullPageName -> new UsedPage(pageResourceProvider, now));
+        usedPage.lastUse = now;
+    }
+
+    /**
+     * @return true if the pages have been checked recently enough for the request threads to rely on the timestamps in
+     *         memory
+     */
+    public boolean isUpToDate() {
+        final long lastRefresh = lastRefreshTimestamp;
+        return lastRefresh >= 0 && clock.millis() - lastRefresh <= 2 * checkInterval;
+    }
+
+    void refreshQuietly() {
+        try {
+            refresh();
+        } catch (final Exception e) {
+            //the session may have expired: log in again on the next refresh. Until then, the request threads check
+            //their page themselves
+            logoutTechnicalSession();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Unable to check the last update date of the custom pages. " + e.getMessage(), e);
+            }
+        }
+    }
+
+    void refresh() throws BonitaException, IOException {
+        final long refreshStart = clock.millis();
+        usedPages.values().removeIf(usedPage -> refreshStart - usedPage.lastUse > RECENTLY_USED_PAGE_PERIOD);
+        final Long oldestPageTimestamp = removeUnhealthyPagesAndGetOldestTimestamp();
+        if (oldestPageTimestamp != null) {
+            replaceUpdatedPages(customPageService.getPageAPI(getTechnicalSession()), oldestPageTimestamp);
+        }
+        lastRefreshTimestamp = refreshStart;
+    }
+
+    private synchronized APISession getTechnicalSession() throws BonitaException {
+        if (technicalSession == null) {
+            final APISession session = getLoginAPI().login(TenantsManagementUtils.getTechnicalUserUsername(),
+                    TenantsManagementUtils.getTechnicalUserPassword());
+            if (session.getTenantId() != tenantId) {
+                getLoginAPI().logout(session);
+                throw new BonitaException("The technical user is not a user of tenant " + tenantId);
+            }
+            technicalSession = session;
+        }
+        return technicalSession;
+    }
+
+    private synchronized void logoutTechnicalSession() {
+        if (technicalSession != null) {
+            try {
+                getLoginAPI().logout(technicalSession);
+            } catch (final Exception e) {
+                //the session has already expired
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Unable to log out the technical user session. " + e.getMessage(), e);
+                }
+            }
+            technicalSession = null;
+        }
+    }
+
+    protected LoginAPI getLoginAPI() throws BonitaException {
+        return TenantAPIAccessor.getLoginAPI();
+    }
+
+    private Long removeUnhealthyPagesAndGetOldestTimestamp() throws IOException {
+        Long oldestPageTimestamp = null;
+        for (final UsedPage usedPage : usedPages.values()) {
+            final String fullPageName = usedPage.pageResourceProvider.getFullPageName();
+            final Long pageTimestamp = customPageService.getPageTimestampFromMemoryCache(fullPageName);
+            if (pageTimestamp != null) {
+                if (!isPageFolderHealthy(usedPage.pageResourceProvider)) {
+                    //the page will be retrieved again by the next request
+                    synchronized (customPageService.getPageLock(fullPageName)) {
+                        customPageService.removePage(usedPage.pageResourceProvider, true);
+                    }
+                } else if (oldestPageTimestamp == null || pageTimestamp < oldestPageTimestamp) {
+                    oldestPageTimestamp = pageTimestamp;
+                }
+            }
+        }
+        return oldestPageTimestamp;
+    }
+
+    private boolean isPageFolderHealthy(final PageResourceProvider pageResourceProvider) {
+        final File pageFolder = pageResourceProvider.getPageDirectory();
+        final String[] pageFiles = pageFolder.list();
+        return pageFiles != null && pageFiles.length > 0;
+    }
+
+    private void replaceUpdatedPages(final PageAPI pageAPI, final long oldestPageTimestamp) throws BonitaException, IOException {
+        //pages are sorted from the most recently modified: stop when reaching pages older than all the ones in memory
+        int startIndex = 0;
+        boolean morePagesToCheck = true;
+        while (morePagesToCheck) {
+            final SearchResult<Page> searchResult = pageAPI.searchPages(new SearchOptionsBuilder(startIndex, SEARCH_BATCH_SIZE)
+                    .sort(PageSearchDescriptor.LAST_MODIFICATION_DATE, Order.DESC).done());
+            for (final Page page : searchResult.getResult()) {
+                final long lastModificationTimestamp = getLastModificationTimestamp(page);
+                if (lastModificationTimestamp <= oldestPageTimestamp) {
+                    morePagesToCheck = false;
+                    break;
+                }
+                replacePageIfUpdated(pageAPI, page, lastModificationTimestamp);
+            }
+            startIndex += SEARCH_BATCH_SIZE;
+            morePagesToCheck = morePagesToCheck && startIndex < searchResult.getCount();
+        }
+    }
+
+    private void replacePageIfUpdated(final PageAPI pageAPI, final Page page, final long lastModificationTimestamp)
+            throws BonitaException, IOException {
+        final String fullPageName = PageResourceProviderImpl.buildFullPageName(page.getName(), page.getProcessDefinitionId());
+        final UsedPage usedPage = usedPages.get(fullPageName);
+        if (usedPage != null) {
+            final Long pageTimestamp = customPageService.getPageTimestampFromMemoryCache(fullPageName);
+            if (pageTimestamp != null && pageTimestamp != lastModificationTimestamp) {
+                customPageService.replacePageFolder(pageAPI, usedPage.pageResourceProvider, page);
+            }
+        }
+    }
+
+    private long getLastModificationTimestamp(final Page page) {
+        return page.getLastModificationDate() != null ? page.getLastModificationDate().getTime() : 0L;
+    }
+
+    private static class UsedPage {
+
+        private final PageResourceProvider pageResourceProvider;
+
+        private volatile long lastUse;
+
+        private UsedPage(final PageResourceProvider pageResourceProvider, final long lastUse) {
+            this.pageResourceProvider = pageResourceProvider;
+            this.lastUse = lastUse;
+        }
+    }
+
+}
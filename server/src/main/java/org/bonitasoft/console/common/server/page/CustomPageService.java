@@ -18,13 +18,19 @@ import static java.util.Collections.emptySet;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import org.slf4j.LoggerFactory;
@@ -62,7 +68,7 @@ public class CustomPageService {
 
     public static final String PAGE_INDEX_FILENAME = "index.html";
 
-    private static final ConcurrentMap<String, GroovyClassLoader> PAGES_CLASSLOADERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, PageClassloaderHolder> PAGES_CLASSLOADERS = new ConcurrentHashMap<>();
 
     private static final ConcurrentMap<String, Long> PAGES_UPDATE_TIMESTAMPS = new ConcurrentHashMap<>();
 
@@ -70,17 +76,75 @@ public class CustomPageService {
 
     private static final ConcurrentMap<String, Object> PAGES_LOCKS = new ConcurrentHashMap<>();
 
+    static final int MAX_CACHED_PERMISSIONS = 1000;
+
+    /**
+     * permissions of the custom pages, least recently used first: tenantId:pageId:lastModificationDate -> permissions
+     */
+    private static final Map<String, Set<String>> PAGES_PERMISSIONS = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Set<String>> eldest) {
+            return size() > MAX_CACHED_PERMISSIONS;
+        }
+    };
+
+    /**
+     * permissions of the REST API resources declared by the custom pages, least recently used first:
+     * tenantId:resource -> permissions
+     */
+    private static final Map<String, Set<String>> RESOURCES_PERMISSIONS = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Set<String>> eldest) {
+            return size() > MAX_CACHED_PERMISSIONS;
+        }
+    };
+
     public static final String RESOURCES_PROPERTY = "resources";
     public static final String PROPERTY_CONTENT_TYPE = "contentType";
 
     public static final String NAME_PROPERTY = "name";
 
+    private static final String STAGING_FOLDER_SUFFIX = ".staging";
+
+    private static final String PREVIOUS_FOLDER_SUFFIX = ".previous";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomPageService.class.getName());
 
-    public GroovyClassLoader getPageClassloader(final APISession apiSession, final PageResourceProvider pageResourceProvider)
+    /**
+     * Get the page classloader and prevent it from being closed until the returned lease is closed, even if the page
+     * or the BDM is updated in the meantime.
+     */
+    public PageClassloaderHolder.Lease leasePageClassloader(final APISession apiSession, final PageResourceProvider pageResourceProvider)
             throws IOException, CompilationFailedException {
-        return buildPageClassloader(apiSession, pageResourceProvider.getFullPageName(),
-                pageResourceProvider.getPageDirectory());
+        return leasePageClassloader(apiSession, pageResourceProvider.getFullPageName(), pageResourceProvider.getPageDirectory());
+    }
+
+    protected PageClassloaderHolder.Lease leasePageClassloader(final APISession apiSession, final String pageName,
+            final File pageDirectory) throws IOException, CompilationFailedException {
+        PageClassloaderHolder.Lease lease = null;
+        while (lease == null) {
+            //the classloader may have been retired and closed between its retrieval and its acquisition
+            final PageClassloaderHolder pageClassloaderHolder = getPageClassloaderHolder(apiSession, pageName, pageDirectory);
+            lease = pageClassloaderHolder.acquire();
+            if (isPageInDebugMode()) {
+                //classloaders are not cached in debug mode: close it as soon as the request is over
+                pageClassloaderHolder.retire();
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * @return the number of page classloaders which have been created and are not closed yet
+     */
+    public static int getLivePageClassloadersCount() {
+        return PageClassloaderHolder.getLiveClassloadersCount();
     }
 
     public void ensurePageFolderIsPresent(final APISession apiSession, final PageResourceProvider pageResourceProvider)
@@ -94,6 +158,14 @@ public class CustomPageService {
     public void ensurePageFolderIsUpToDate(final APISession apiSession, final PageResourceProvider pageResourceProvider)
             throws BonitaException, IOException {
         final String fullPageName = pageResourceProvider.getFullPageName();
+        if (isPageLastUpdateCheckedInBackground()) {
+            final CustomPageFreshnessChecker pageFreshnessChecker = getPageFreshnessChecker(apiSession);
+            pageFreshnessChecker.pageUsed(pageResourceProvider);
+            if (pageFreshnessChecker.isUpToDate() && getPageTimestampFromMemoryCache(fullPageName) != null) {
+                //the page folder is kept up to date by the background checker
+                return;
+            }
+        }
         synchronized (getPageLock(fullPageName)) {
             final Long pageTimestampFromCache = getPageTimestampFromMemoryCache(fullPageName);
             if (pageTimestampFromCache != null) {
@@ -132,6 +204,49 @@ public class CustomPageService {
         return true;
     }
 
+    /**
+     * Extract the content of an updated page in a staging folder and swap it with the page folder
+     */
+    protected void replacePageFolder(final PageAPI pageAPI, final PageResourceProvider pageResourceProvider, final Page page)
+            throws BonitaException, IOException {
+        final String fullPageName = pageResourceProvider.getFullPageName();
+        final File pageDirectory = pageResourceProvider.getPageDirectory();
+        final File stagingDirectory = new File(pageDirectory.getParentFile(), pageDirectory.getName() + STAGING_FOLDER_SUFFIX);
+        FileUtils.deleteQuietly(stagingDirectory);
+        final byte[] pageContent = pageAPI.getPageContent(page.getId());
+        if (pageContent.length == 0) {
+            throw new BonitaException("No content available for page: " + page.getName());
+        }
+        final File stagingPageFile = File.createTempFile(fullPageName + STAGING_FOLDER_SUFFIX, ".zip",
+                getWebBonitaConstantsUtils().getTempFolder());
+        FileUtils.writeByteArrayToFile(stagingPageFile, pageContent);
+        UnzipUtil.unzip(stagingPageFile, stagingDirectory.getPath(), true);
+        final PageClassloaderHolder retiredClassloaderHolder;
+        final File previousDirectory;
+        synchronized (getPageLock(fullPageName)) {
+            //one folder per retired version as requests may still be using several of them
+            previousDirectory = new File(pageDirectory.getParentFile(), pageDirectory.getName() + PREVIOUS_FOLDER_SUFFIX + "-"
+                    + getPageTimestampFromMemoryCache(fullPageName));
+            FileUtils.deleteQuietly(previousDirectory);
+            if (pageDirectory.exists()) {
+                Files.move(pageDirectory.toPath(), previousDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(stagingDirectory.toPath(), pageDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            retiredClassloaderHolder = PAGES_CLASSLOADERS.remove(fullPageName);
+            //the lib temporary folder is deleted by the retired classloader when it is closed
+            CustomPageDependenciesResolver.forgetPageLibTempFolder(fullPageName);
+            addPageTimestampToMemoryCache(fullPageName, page.getLastModificationDate() != null ? page.getLastModificationDate().getTime() : 0L);
+            setTimePageUpdateWasCheckedInDB(fullPageName);
+        }
+        if (retiredClassloaderHolder != null) {
+            //requests still using the retired classloader may read the resources of the previous page folder
+            retiredClassloaderHolder.runOnClose(() -> FileUtils.deleteQuietly(previousDirectory));
+            retiredClassloaderHolder.retire();
+        } else {
+            removePageZipContent(previousDirectory, true);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public Class<?> registerPage(final GroovyClassLoader pageClassLoader, final PageResourceProvider pageResourceProvider)
             throws CompilationFailedException, IOException {
@@ -171,16 +286,12 @@ public class CustomPageService {
         final File pageControllerFile = getPageFile(tempPageDirectory, PAGE_CONTROLLER_FILENAME);
         if (pageControllerFile.exists()) {
             final String classloaderName = String.valueOf(System.currentTimeMillis());
-            final GroovyClassLoader pageClassLoader = buildPageClassloader(session, classloaderName, tempPageDirectory);
-            try {
-                pageClassLoader.parseClass(pageControllerFile);
+            try (PageClassloaderHolder.Lease lease = leasePageClassloader(session, classloaderName, tempPageDirectory)) {
+                lease.getClassloader().parseClass(pageControllerFile);
             } catch (final CompilationFailedException ex) {
                 LOGGER.error( "Failed to compile Index.groovy ", ex);
             } finally {
-                final GroovyClassLoader classLoader = PAGES_CLASSLOADERS.remove(classloaderName);
-                if (classLoader != null) {
-                    classLoader.close();
-                }
+                closeClassloader(classloaderName);
             }
         }
     }
@@ -199,7 +310,7 @@ public class CustomPageService {
         String fullPageName = pageResourceProvider.getFullPageName();
         closeClassloader(fullPageName);
         removePageZipContent(pageResourceProvider.getPageDirectory(), ignoreErrorOnPageDirectoryDelete);
-        CustomPageDependenciesResolver.removePageLibTempFolder(fullPageName);
+        CustomPageDependenciesResolver.forgetPageLibTempFolder(fullPageName);
         removePageTimestampsFromMemoryCache(fullPageName);
     }
 
@@ -211,6 +322,8 @@ public class CustomPageService {
     public void removePageLocally(final PageResourceProvider pageResourceProvider) throws IOException {
         removePage(pageResourceProvider, false);
         removePageLock(pageResourceProvider.getFullPageName());
+        //the page may have been mapped to forms or rest api extensions
+        PageMappingService.clearCachedPageReferences();
     }
 
     protected Object getPageLock(final String fullPageName) {
@@ -247,44 +360,45 @@ public class CustomPageService {
         PAGES_LAST_UPDATE_DB_CHECK.clear();
     }
 
-    private static void closeClassloader(final String pageName) throws IOException {
-        final GroovyClassLoader classloader = PAGES_CLASSLOADERS.remove(pageName);
-        if (classloader != null) {
-            classloader.clearCache();
-            classloader.close();
+    private static void closeClassloader(final String pageName) {
+        final PageClassloaderHolder pageClassloaderHolder = PAGES_CLASSLOADERS.remove(pageName);
+        if (pageClassloaderHolder != null) {
+            //requests still using the classloader finish with it, it is closed when the last one releases it
+            pageClassloaderHolder.retire();
         }
     }
 
-    protected GroovyClassLoader buildPageClassloader(final APISession apiSession, final String pageName,
-                                                     final File pageDirectory)
+    /**
+     * @return the holder of the page classloader. In debug mode, the holder is not cached and must be retired by the
+     *         caller once leased.
+     */
+    private PageClassloaderHolder getPageClassloaderHolder(final APISession apiSession, final String pageName,
+                                                             final File pageDirectory)
             throws CompilationFailedException, IOException {
         final BDMClientDependenciesResolver bdmDependenciesResolver = new BDMClientDependenciesResolver(apiSession);
         if (isPageInDebugMode()) {
             synchronized (CustomPageService.class) {//Handle multiple queries to create several classloaders at the same time
-                return createPageClassloader(pageName, pageDirectory, bdmDependenciesResolver);
+                return new PageClassloaderHolder(createPageClassloader(pageName, pageDirectory, bdmDependenciesResolver));
             }
         } else {
             //not putting the get in the synchronized block to avoid performance cost when the classloader is already in the map
-            GroovyClassLoader pageClassLoader = PAGES_CLASSLOADERS.get(pageName);
-            if (pageClassLoader == null || isOutdated(pageClassLoader, bdmDependenciesResolver)) {
+            PageClassloaderHolder pageClassloaderHolder = PAGES_CLASSLOADERS.get(pageName);
+            if (pageClassloaderHolder == null || isOutdated(pageClassloaderHolder.getClassloader(), bdmDependenciesResolver)) {
                 synchronized (CustomPageService.class) {//Handle multiple queries to create several classloaders at the same time
-                    if (pageClassLoader == null) {
-                        //double check in synchronize block to avoid creating the classloader twice if a creation is already in progress in another thread
-                        pageClassLoader = PAGES_CLASSLOADERS.get(pageName);
-                        if (pageClassLoader == null || isOutdated(pageClassLoader, bdmDependenciesResolver)) {
-                            pageClassLoader = createPageClassloader(pageName, pageDirectory, bdmDependenciesResolver);
-                            PAGES_CLASSLOADERS.put(pageName, pageClassLoader);
+                    //double check in synchronize block to avoid creating the classloader twice if a creation is already in progress in another thread
+                    pageClassloaderHolder = PAGES_CLASSLOADERS.get(pageName);
+                    if (pageClassloaderHolder == null || isOutdated(pageClassloaderHolder.getClassloader(), bdmDependenciesResolver)) {
+                        if (pageClassloaderHolder != null) {
+                            //classloader is outdated
+                            pageClassloaderHolder.retire();
                         }
-                    } else {
-                        //classloader is outdated
-                        pageClassLoader.clearCache();
-                        pageClassLoader.close();
-                        pageClassLoader = createPageClassloader(pageName, pageDirectory, bdmDependenciesResolver);
-                        PAGES_CLASSLOADERS.put(pageName, pageClassLoader);
+                        pageClassloaderHolder = new PageClassloaderHolder(
+                                createPageClassloader(pageName, pageDirectory, bdmDependenciesResolver));
+                        PAGES_CLASSLOADERS.put(pageName, pageClassloaderHolder);
                     }
                 }
             }
-            return pageClassLoader;
+            return pageClassloaderHolder;
         }
     }
 
@@ -314,6 +428,14 @@ public class CustomPageService {
         return PropertiesFactory.getConsoleProperties().getPageLastUpdateCheckInterval();
     }
 
+    public boolean isPageLastUpdateCheckedInBackground() {
+        return PropertiesFactory.getConsoleProperties().isPageLastUpdateCheckedInBackground();
+    }
+
+    protected CustomPageFreshnessChecker getPageFreshnessChecker(final APISession apiSession) {
+        return CustomPageFreshnessChecker.getInstance(apiSession.getTenantId(), this);
+    }
+
     protected WebBonitaConstantsUtils getWebBonitaConstantsUtils() {
         return WebBonitaConstantsUtils.getTenantInstance();
     }
@@ -430,12 +552,52 @@ public class CustomPageService {
         return properties;
     }
 
-    public Set<String> getCustomPagePermissions(final Properties pageProperties, APISession apiSession) throws BonitaException {
+    /**
+     * Get the permissions of an installed custom page. They are resolved once per page version.
+     */
+    public Set<String> getCustomPagePermissions(final Page page, final APISession apiSession) throws BonitaException {
+        final long lastModificationDate = page.getLastModificationDate() != null ? page.getLastModificationDate().getTime() : 0L;
+        final String cacheKey = apiSession.getTenantId() + ":" + page.getId() + ":" + lastModificationDate;
+        synchronized (PAGES_PERMISSIONS) {
+            final Set<String> cachedPermissions = PAGES_PERMISSIONS.get(cacheKey);
+            if (cachedPermissions != null) {
+                return new HashSet<>(cachedPermissions);
+            }
+        }
+        final PageAPI pageAPI = getPageAPI(apiSession);
+        final Properties pageProperties = pageAPI.getPageProperties(pageAPI.getPageContent(page.getId()), false);
+        final Set<String> permissions = getCustomPagePermissions(pageProperties, apiSession);
+        synchronized (PAGES_PERMISSIONS) {
+            PAGES_PERMISSIONS.put(cacheKey, Collections.unmodifiableSet(new HashSet<>(permissions)));
+        }
+        return permissions;
+    }
+
+    /**
+     * Get the permissions of the resources declared in the properties of a custom page (e.g. an uploaded page that is
+     * not installed yet)
+     */
+    public Set<String> getCustomPagePermissions(final Properties pageProperties, final APISession apiSession) throws BonitaException {
         final PropertiesWithSet pagePropertiesWithSet = new PropertiesWithSet(pageProperties);
-        final Set<String> pageRestResources = new HashSet<>(pagePropertiesWithSet.getPropertyAsSet(RESOURCES_PROPERTY));
+        final Set<String> pageRestResources = new TreeSet<>(pagePropertiesWithSet.getPropertyAsSet(RESOURCES_PROPERTY));
         final Set<String> permissions = new HashSet<>();
+        PermissionAPI permissionAPI = null;
         for (final String pageRestResource : pageRestResources) {
-            final Set<String> resourcePermissions = getPermissionAPI(apiSession).getResourcePermissions(pageRestResource);
+            final String cacheKey = apiSession.getTenantId() + ":" + pageRestResource;
+            Set<String> resourcePermissions;
+            synchronized (RESOURCES_PERMISSIONS) {
+                resourcePermissions = RESOURCES_PERMISSIONS.get(cacheKey);
+            }
+            if (resourcePermissions == null) {
+                //the engine only resolves the permissions of one resource at a time: each resource is resolved once per tenant
+                if (permissionAPI == null) {
+                    permissionAPI = getPermissionAPI(apiSession);
+                }
+                resourcePermissions = Collections.unmodifiableSet(new HashSet<>(permissionAPI.getResourcePermissions(pageRestResource)));
+                synchronized (RESOURCES_PERMISSIONS) {
+                    RESOURCES_PERMISSIONS.put(cacheKey, resourcePermissions);
+                }
+            }
             if (emptySet().equals(resourcePermissions)) {
                 permissions.add("<" + pageRestResource + ">");
             }
@@ -444,6 +606,20 @@ public class CustomPageService {
         return permissions;
     }
 
+    /**
+     * Clear the permissions resolved for the custom pages of a tenant (e.g. when its custom permissions mapping is
+     * updated)
+     */
+    public static void clearCachedPermissions(final long tenantId) {
+        final String tenantPrefix = tenantId + ":";
+        synchronized (PAGES_PERMISSIONS) {
+            PAGES_PERMISSIONS.keySet().removeIf(key -> key.startsWith(tenantPrefix));
+        }
+        synchronized (RESOURCES_PERMISSIONS) {
+            RESOURCES_PERMISSIONS.keySet().removeIf(key -> key.startsWith(tenantPrefix));
+        }
+    }
+
     public Page getPage(final APISession apiSession, final String pageName, final long processDefinitionId)
             throws BonitaException {
         return getPageAPI(apiSession).getPageByNameAndProcessDefinitionId(pageName, processDefinitionId);
@@ -24,8 +24,16 @@ import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import org.apache.xbean.classloader.NamedClassLoader;
@@ -36,12 +44,29 @@ import org.apache.xbean.classloader.UrlResourceFinder;
 /**
  * This class is highly inspired form JarFileClassLoader from xbean. The main difference is that
  * it inherits from NamedClassLoader instead of MultiParentClassLoader.
+ * Each URL gets its own resource finder and the entries of jar files are indexed when the URL is added, so that a
+ * resource lookup does not have to scan every jar of the classpath.
  */
 public class MonoParentJarFileClassLoader extends NamedClassLoader {
 
     private static final URL[] EMPTY_URLS = new URL[0];
 
-    private final UrlResourceFinder resourceFinder = new UrlResourceFinder();
+    /**
+     * one resource finder per URL, in classpath order
+     */
+    private final List<UrlResourceFinder> resourceFinders = new CopyOnWriteArrayList<>();
+
+    private final Map<String, UrlResourceFinder> resourceFindersByUrl = new ConcurrentHashMap<>();
+
+    /**
+     * resource name to the finder of the first jar containing it
+     */
+    private final Map<String, UrlResourceFinder> resourceIndex = new ConcurrentHashMap<>();
+
+    /**
+     * false as soon as an URL that cannot be indexed (directory, remote URL...) is added to the classpath
+     */
+    private volatile boolean fullyIndexed = true;
 
     private final AccessControlContext acc;
 
@@ -66,7 +91,11 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
      */
     @Override
     public URL[] getURLs() {
-        return resourceFinder.getUrls();
+        final List<URL> urls = new ArrayList<>();
+        for (final UrlResourceFinder resourceFinder : resourceFinders) {
+            Collections.addAll(urls, resourceFinder.getUrls());
+        }
+        return urls.toArray(EMPTY_URLS);
     }
 
     /**
@@ -75,7 +104,7 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
     @Override
     public void addURL(final URL url) {
         AccessController.doPrivileged((PrivilegedAction) () -> {
-            resourceFinder.addUrl(url);
+            addIndexedUrl(url);
             return null;
         }, acc);
     }
@@ -90,19 +119,104 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
         AccessController.doPrivileged((PrivilegedAction) () -> {
             if (urls != null && urls.length > 0) {
                 for (final URL url : urls) {
-                    resourceFinder.addUrl(url);
+                    addIndexedUrl(url);
                 }
             }
             return null;
         }, acc);
     }
 
+    private synchronized void addIndexedUrl(final URL url) {
+        final String urlKey = url.toExternalForm();
+        if (resourceFindersByUrl.containsKey(urlKey)) {
+            return;
+        }
+        final UrlResourceFinder resourceFinder = new UrlResourceFinder();
+        resourceFinder.addUrl(url);
+        resourceFindersByUrl.put(urlKey, resourceFinder);
+        resourceFinders.add(resourceFinder);
+        if (fullyIndexed && !indexJarEntries(url, resourceFinder)) {
+            fullyIndexed = false;
+            resourceIndex.clear();
+        }
+    }
+
+    private boolean indexJarEntries(final URL url, final UrlResourceFinder resourceFinder) {
+        if (!"file".equals(url.getProtocol())) {
+            return false;
+        }
+        final File file = new File(URI.create(url.toString()));
+        if (!file.isFile()) {
+            return false;
+        }
+        try (JarFile jarFile = new JarFile(file)) {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                // the first jar of the classpath containing a resource wins, as with a sequential scan
+                resourceIndex.putIfAbsent(entries.nextElement().getName(), resourceFinder);
+            }
+            return true;
+        } catch (final IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the handle of the resource in the first URL of the classpath containing it, or null if none contains it
+     */
+    private ResourceHandle getResourceHandle(final String resourceName) {
+        if (fullyIndexed) {
+            final UrlResourceFinder resourceFinder = resourceIndex.get(resourceName);
+            return resourceFinder == null ? null : resourceFinder.getResource(resourceName);
+        }
+        for (final UrlResourceFinder resourceFinder : resourceFinders) {
+            final ResourceHandle resourceHandle = resourceFinder.getResource(resourceName);
+            if (resourceHandle != null) {
+                return resourceHandle;
+            }
+        }
+        return null;
+    }
+
+    private URL getResourceURL(final String resourceName) {
+        if (fullyIndexed) {
+            final UrlResourceFinder resourceFinder = resourceIndex.get(resourceName);
+            return resourceFinder == null ? null : resourceFinder.findResource(resourceName);
+        }
+        for (final UrlResourceFinder resourceFinder : resourceFinders) {
+            final URL resourceURL = resourceFinder.findResource(resourceName);
+            if (resourceURL != null) {
+                return resourceURL;
+            }
+        }
+        return null;
+    }
+
+    private Enumeration<URL> getResourceURLs(final String resourceName) {
+        final List<URL> resourceURLs = new ArrayList<>();
+        if (fullyIndexed && !resourceIndex.containsKey(resourceName)) {
+            return Collections.enumeration(resourceURLs);
+        }
+        for (final UrlResourceFinder resourceFinder : resourceFinders) {
+            final Enumeration<URL> urls = resourceFinder.findResources(resourceName);
+            while (urls.hasMoreElements()) {
+                resourceURLs.add(urls.nextElement());
+            }
+        }
+        return Collections.enumeration(resourceURLs);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void destroy() {
-        resourceFinder.destroy();
+        for (final UrlResourceFinder resourceFinder : resourceFinders) {
+            resourceFinder.destroy();
+        }
+        resourceFinders.clear();
+        resourceFindersByUrl.clear();
+        resourceIndex.clear();
         super.destroy();
     }
 
@@ -111,7 +225,7 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
      */
     @Override
     public URL findResource(final String resourceName) {
-        return (URL) AccessController.doPrivileged((PrivilegedAction) () -> resourceFinder.findResource(resourceName), acc);
+        return (URL) AccessController.doPrivileged((PrivilegedAction) () -> getResourceURL(resourceName), acc);
     }
 
     /**
@@ -124,7 +238,7 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
         final Enumeration<?> parentResources = super.findResources(resourceName);
 
         // get the classes from my urls
-        final Enumeration myResources = (Enumeration) AccessController.doPrivileged((PrivilegedAction) () -> resourceFinder.findResources(resourceName), acc);
+        final Enumeration myResources = (Enumeration) AccessController.doPrivileged((PrivilegedAction) () -> getResourceURLs(resourceName), acc);
 
         // join the two together
         return new UnionEnumeration(parentResources, myResources);
@@ -152,7 +266,7 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
         }
 
         // get a resource handle to the library
-        final ResourceHandle resourceHandle = (ResourceHandle) AccessController.doPrivileged((PrivilegedAction) () -> resourceFinder.getResource(resourceName), acc);
+        final ResourceHandle resourceHandle = (ResourceHandle) AccessController.doPrivileged((PrivilegedAction) () -> getResourceHandle(resourceName), acc);
 
         if (resourceHandle == null) {
             return null;
@@ -215,7 +329,7 @@ public class MonoParentJarFileClassLoader extends NamedClassLoader {
                     final String resourceName = className.replace('.', '/') + ".class";
 
                     // find the class file resource
-                    final ResourceHandle resourceHandle = resourceFinder.getResource(resourceName);
+                    final ResourceHandle resourceHandle = getResourceHandle(resourceName);
                     if (resourceHandle == null) {
                         throw new ClassNotFoundException(className);
                     }
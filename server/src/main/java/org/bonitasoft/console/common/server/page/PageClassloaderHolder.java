@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.page;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import groovy.lang.GroovyClassLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reference counter of a page classloader.
+ * The classloader cache holds one reference until the classloader is retired (page update, BDM update...) and each
+ * request using the classloader holds one through a {@link Lease}. The classloader, its jars and its parent
+ * {@link CustomPageChildFirstClassLoader} are closed once the last reference is released.
+ */
+public class PageClassloaderHolder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageClassloaderHolder.class.getName());
+
+    private static final AtomicInteger LIVE_CLASSLOADERS = new AtomicInteger();
+
+    private final GroovyClassLoader classloader;
+
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private final AtomicBoolean retired = new AtomicBoolean(false);
+
+    /**
+     * cleanup of the files the classloader may still read (previous page folder...), run once it is closed
+     */
+    private final List<Runnable> closeTasks = new CopyOnWriteArrayList<>();
+
+    PageClassloaderHolder(final GroovyClassLoader classloader) {
+        this.classloader = classloader;
+        LIVE_CLASSLOADERS.incrementAndGet();
+    }
+
+    public GroovyClassLoader getClassloader() {
+        return classloader;
+    }
+
+    /**
+     * @return a lease on the classloader or null if the classloader has already been closed
+     */
+    Lease acquire() {
+        int currentReferences;
+        do {
+            currentReferences = references.get();
+            if (currentReferences == 0) {
+                return null;
+            }
+        } while (!references.compareAndSet(currentReferences, currentReferences + 1));
+        return new Lease(this);
+    }
+
+    /**
+     * Release the reference held by the classloader cache. The classloader is closed right away if no request is using
+     * it, otherwise when the last lease is released.
+     */
+    void retire() {
+        if (retired.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * Run a task once the classloader is closed, right away if it is already closed
+     */
+    void runOnClose(final Runnable task) {
+        closeTasks.add(task);
+        if (isClosed()) {
+            runCloseTasks();
+        }
+    }
+
+    boolean isClosed() {
+        return references.get() == 0;
+    }
+
+    private void release() {
+        if (references.decrementAndGet() == 0) {
+            close();
+        }
+    }
+
+    private void close() {
+        LIVE_CLASSLOADERS.decrementAndGet();
+        classloader.clearCache();
+        try {
+            classloader.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to close the page classloader " + classloader, e);
+        }
+        final ClassLoader parent = classloader.getParent();
+        if (parent instanceof CustomPageChildFirstClassLoader) {
+            ((CustomPageChildFirstClassLoader) parent).release();
+        }
+        runCloseTasks();
+    }
+
+    private void runCloseTasks() {
+        for (final Runnable task : closeTasks) {
+            //the task may be run concurrently by runOnClose: only the thread removing it runs it
+            if (closeTasks.remove(task)) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * @return the number of page classloaders created and not closed yet
+     */
+    static int getLiveClassloadersCount() {
+        return LIVE_CLASSLOADERS.get();
+    }
+
+    /**
+     * Reference on a page classloader held for the time of a request
+     */
+    public static class Lease implements AutoCloseable {
+
+        private final PageClassloaderHolder holder;
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(final PageClassloaderHolder holder) {
+            this.holder = holder;
+        }
+
+        public GroovyClassLoader getClassloader() {
+            return holder.getClassloader();
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                holder.release();
+            }
+        }
+    }
+
+}
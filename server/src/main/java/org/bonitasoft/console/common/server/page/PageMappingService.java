@@ -19,10 +19,13 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
 import org.bonitasoft.engine.api.PageAPI;
 import org.bonitasoft.engine.api.TenantAPIAccessor;
 import org.bonitasoft.engine.exception.BonitaException;
@@ -35,8 +38,36 @@ import org.bonitasoft.engine.session.APISession;
 
 public class PageMappingService {
 
+    /**
+     * page ids of the mappings resolved without authorization rules, by tenant and mapping key
+     */
+    private static final ConcurrentMap<String, ResolvedPageId> RESOLVED_PAGE_IDS = new ConcurrentHashMap<>();
+
+    private static final int RESOLVED_PAGE_IDS_CACHE_MAX_SIZE = 10000;
+
     public PageReference getPage(final HttpServletRequest request, final APISession apiSession, final String mappingKey, final Locale locale,
             final boolean executeAuthorizationRules) throws BonitaException {
+        //mappings with authorization rules or resolved to an URL depend on the request (user, parameters, locale...)
+        if (executeAuthorizationRules) {
+            return resolvePage(request, apiSession, mappingKey, locale, true);
+        }
+        final String cacheKey = apiSession.getTenantId() + ":" + mappingKey;
+        final ResolvedPageId resolvedPageId = RESOLVED_PAGE_IDS.get(cacheKey);
+        if (resolvedPageId != null && System.currentTimeMillis() - resolvedPageId.resolutionTimestamp <= getCacheTimeToLive()) {
+            return new PageReference(resolvedPageId.pageId, null);
+        }
+        final PageReference pageReference = resolvePage(request, apiSession, mappingKey, locale, false);
+        if (pageReference.getURL() == null && pageReference.getPageId() != null) {
+            if (RESOLVED_PAGE_IDS.size() >= RESOLVED_PAGE_IDS_CACHE_MAX_SIZE) {
+                RESOLVED_PAGE_IDS.clear();
+            }
+            RESOLVED_PAGE_IDS.put(cacheKey, new ResolvedPageId(pageReference.getPageId()));
+        }
+        return pageReference;
+    }
+
+    protected PageReference resolvePage(final HttpServletRequest request, final APISession apiSession, final String mappingKey, final Locale locale,
+            final boolean executeAuthorizationRules) throws BonitaException {
         final Map<String, Serializable> context = new HashMap<>();
         //clone the request parameters map to a HashMap to avoid deserialization exceptions when calling a remote engine
         //see BS-16992 (the parameters map implementation is specific to the servlet container). 
@@ -50,8 +81,34 @@ public class PageMappingService {
         return new PageReference(pageURL.getPageId(), pageURL.getUrl());
     }
 
+    /**
+     * Clear the resolved mappings. To be called when processes, pages or form mappings are deployed, updated or deleted.
+     */
+    public static void clearCachedPageReferences() {
+        RESOLVED_PAGE_IDS.clear();
+    }
+
+    /**
+     * @return the time during which a resolved mapping is reused, in milliseconds. The mappings can be updated from
+     *         another node, so they are checked as often as the custom pages.
+     */
+    protected long getCacheTimeToLive() {
+        return PropertiesFactory.getConsoleProperties().getPageLastUpdateCheckInterval();
+    }
+
     protected PageAPI getPageAPI(final APISession apiSession) throws BonitaHomeNotSetException, ServerAPIException,
             UnknownAPITypeException {
         return TenantAPIAccessor.getCustomPageAPI(apiSession);
     }
+
+    private static class ResolvedPageId {
+
+        private final Long pageId;
+
+        private final long resolutionTimestamp = System.currentTimeMillis();
+
+        private ResolvedPageId(final Long pageId) {
+            this.pageId = pageId;
+        }
+    }
 }
@@ -117,8 +117,8 @@ public class PageRenderer {
         response.setContentType("text/html");
         response.setCharacterEncoding("UTF-8");
         final ClassLoader originalClassloader = Thread.currentThread().getContextClassLoader();
-        final GroovyClassLoader pageClassloader = customPageService.getPageClassloader(apiSession, pageResourceProvider);
-        try {
+        try (PageClassloaderHolder.Lease pageClassloaderLease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+            final GroovyClassLoader pageClassloader = pageClassloaderLease.getClassloader();
             Thread.currentThread().setContextClassLoader(pageClassloader);
             pageResourceProvider.setResourceClassLoader(pageClassloader);
             final Class<?> pageClass = customPageService.registerPage(pageClassloader, pageResourceProvider);
@@ -68,8 +68,8 @@ public class RestApiRenderer {
             String mappingKey)
             throws CompilationFailedException, InstantiationException, IllegalAccessException, IOException, BonitaException {
         final ClassLoader originalClassloader = Thread.currentThread().getContextClassLoader();
-        final GroovyClassLoader pageClassloader = customPageService.getPageClassloader(apiSession, pageResourceProvider);
-        try {
+        try (PageClassloaderHolder.Lease pageClassloaderLease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+            final GroovyClassLoader pageClassloader = pageClassloaderLease.getClassloader();
             Thread.currentThread().setContextClassLoader(pageClassloader);
             final Class<?> restApiControllerClass = customPageService.registerRestApiPage(pageClassloader,
                     pageResourceProvider, restApiControllerClassName, mappingKey);
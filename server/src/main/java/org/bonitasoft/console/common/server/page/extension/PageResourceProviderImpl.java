@@ -123,7 +123,7 @@ public class PageResourceProviderImpl implements PageResourceProvider {
         }
     }
 
-    private String buildFullPageName(final String pageName, final Long processDefinitionId) {
+    public static String buildFullPageName(final String pageName, final Long processDefinitionId) {
         final StringBuilder builder = new StringBuilder();
         if (processDefinitionId != null) {
             builder.append("p").append(processDefinitionId).append("_");
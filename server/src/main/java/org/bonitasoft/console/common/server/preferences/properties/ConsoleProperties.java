@@ -47,6 +47,55 @@ public class ConsoleProperties {
     //Default time between two database check of custom page and rest api last update date in milliseconds
     private static final int DEFAULT_PAGE_LAST_UPDATE_CHECK_INTERVAL_MILLIS = 3000;
 
+    /**
+     * check custom page and rest api last update date in a background thread instead of the request threads
+     */
+    private static final String PAGE_LAST_UPDATE_BACKGROUND_CHECK = "custom.page.lastupdate.background.check";
+
+    /**
+     * maximum number of exports (organization, applications...) running at the same time
+     */
+    private static final String EXPORT_MAX_CONCURRENT = "export.max.concurrent";
+
+    private static final int DEFAULT_EXPORT_MAX_CONCURRENT = 4;
+
+    /**
+     * maximum number of background import and export jobs running at the same time
+     */
+    private static final String JOB_MAX_RUNNING = "job.max.running";
+
+    private static final int DEFAULT_JOB_MAX_RUNNING = 2;
+
+    /**
+     * maximum number of background import and export jobs waiting for a running job to end
+     */
+    private static final String JOB_MAX_PENDING = "job.max.pending";
+
+    private static final int DEFAULT_JOB_MAX_PENDING = 10;
+
+    /**
+     * time during which the status and result of a done job are kept, in minutes
+     */
+    private static final String JOB_RESULT_TTL_MINUTES = "job.result.ttl.minutes";
+
+    private static final long DEFAULT_JOB_RESULT_TTL_MINUTES = 60;
+
+    /**
+     * time during which the profiles of a session user are kept to authorize the access to living applications, in
+     * seconds
+     */
+    private static final String USER_PROFILES_CACHE_TTL_SECONDS = "user.profiles.cache.ttl.seconds";
+
+    private static final long DEFAULT_USER_PROFILES_CACHE_TTL_SECONDS = 60;
+
+    /**
+     * time during which the lookups of business data by id of a session are merged into a single command, in
+     * milliseconds (0 to disable)
+     */
+    private static final String BDM_LOOKUP_BATCH_WINDOW_MILLIS = "bdm.lookup.batch.window.milliseconds";
+
+    private static final long DEFAULT_BDM_LOOKUP_BATCH_WINDOW_MILLIS = 2;
+
     private static final String PROPERTIES_FILE = "console-config.properties";
     
     private static Map<String, Optional<String>> consoleProperties;
@@ -84,6 +133,59 @@ public class ConsoleProperties {
         return DEFAULT_PAGE_LAST_UPDATE_CHECK_INTERVAL_MILLIS;
     }
 
+    public boolean isPageLastUpdateCheckedInBackground() {
+        final String backgroundCheck = this.getProperty(PAGE_LAST_UPDATE_BACKGROUND_CHECK);
+        return backgroundCheck == null || Boolean.parseBoolean(backgroundCheck);
+    }
+
+    public int getMaxConcurrentExports() {
+        final String maxConcurrentExports = this.getProperty(EXPORT_MAX_CONCURRENT);
+        if (maxConcurrentExports != null) {
+            return Integer.valueOf(maxConcurrentExports);
+        }
+        return DEFAULT_EXPORT_MAX_CONCURRENT;
+    }
+
+    public int getMaxRunningJobs() {
+        final String maxRunningJobs = this.getProperty(JOB_MAX_RUNNING);
+        if (maxRunningJobs != null) {
+            return Integer.valueOf(maxRunningJobs);
+        }
+        return DEFAULT_JOB_MAX_RUNNING;
+    }
+
+    public int getMaxPendingJobs() {
+        final String maxPendingJobs = this.getProperty(JOB_MAX_PENDING);
+        if (maxPendingJobs != null) {
+            return Integer.valueOf(maxPendingJobs);
+        }
+        return DEFAULT_JOB_MAX_PENDING;
+    }
+
+    public long getJobResultTimeToLive() {
+        final String jobResultTimeToLive = this.getProperty(JOB_RESULT_TTL_MINUTES);
+        if (jobResultTimeToLive != null) {
+            return Long.valueOf(jobResultTimeToLive);
+        }
+        return DEFAULT_JOB_RESULT_TTL_MINUTES;
+    }
+
+    public long getUserProfilesCacheTimeToLive() {
+        final String userProfilesCacheTimeToLive = this.getProperty(USER_PROFILES_CACHE_TTL_SECONDS);
+        if (userProfilesCacheTimeToLive != null) {
+            return Long.valueOf(userProfilesCacheTimeToLive);
+        }
+        return DEFAULT_USER_PROFILES_CACHE_TTL_SECONDS;
+    }
+
+    public long getBusinessDataLookupBatchWindow() {
+        final String businessDataLookupBatchWindow = this.getProperty(BDM_LOOKUP_BATCH_WINDOW_MILLIS);
+        if (businessDataLookupBatchWindow != null) {
+            return Long.valueOf(businessDataLookupBatchWindow);
+        }
+        return DEFAULT_BDM_LOOKUP_BATCH_WINDOW_MILLIS;
+    }
+
     public String getProperty(String propertyName) {
         if (consoleProperties == null) {
             consoleProperties = new ConcurrentHashMap<>();
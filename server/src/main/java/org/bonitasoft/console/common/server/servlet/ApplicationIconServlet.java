@@ -35,6 +35,34 @@ import org.bonitasoft.web.toolkit.client.data.APIID;
 
 public class ApplicationIconServlet extends IconServlet {
 
+    static final String ICON_TYPE = "application";
+
+    /**
+     * parameter holding the last update date of the application, added to the icon URL by the application item
+     */
+    static final String ICON_VERSION_PARAM = "t";
+
+    /**
+     * Remove the cached icons of an application after its icon has been updated
+     */
+    public static void evictApplicationIcon(final long applicationId) {
+        evictCachedIcons(ICON_TYPE, applicationId);
+    }
+
+    @Override
+    protected String getIconType() {
+        return ICON_TYPE;
+    }
+
+    /**
+     * The URL contains the id of the application: its icon can only be cached when the URL also contains the last
+     * update date of the application
+     */
+    @Override
+    protected String getIconVersion(final HttpServletRequest request) {
+        return request.getParameter(ICON_VERSION_PARAM);
+    }
+
     @Override
     protected Optional<IconContent> retrieveIcon(Long iconId, APISession apiSession) {
         ApplicationAPI applicationApi = getApplicationApi(apiSession);
@@ -57,6 +85,7 @@ public class ApplicationIconServlet extends IconServlet {
         updater.setIcon(null, null);
         try {
             applicationApi.updateApplication(entityId, updater);
+            evictApplicationIcon(entityId);
         } catch (ApplicationNotFoundException e) {
             throw new APIItemNotFoundException(Application.class.getName(), APIID.makeAPIID(entityId));
         } catch (UpdateException | AlreadyExistsException e) {
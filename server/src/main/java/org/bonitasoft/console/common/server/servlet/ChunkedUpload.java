@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.servlet;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * File uploaded in several chunks, possibly sent out of order, more than once or across several connections.
+ * Each chunk is written at its offset in a staged file of the upload folder. Once all the bytes have been received and
+ * the checksum of the staged file is verified, the staged file becomes a regular uploaded file.
+ * An upload belongs to the HTTP session and to the servlet which started it: it cannot be accessed from another
+ * session or another servlet.
+ */
+public class ChunkedUpload {
+
+    static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    private static final String STAGED_FILE_SUFFIX = ".part";
+
+    private static final Map<String, ChunkedUpload> CHUNKED_UPLOADS = new ConcurrentHashMap<>();
+
+    private final String uploadId;
+
+    /**
+     * servlet which started the upload
+     */
+    private final Object servlet;
+
+    /**
+     * id of the HTTP session which started the upload
+     */
+    private final String sessionId;
+
+    private final String fileName;
+
+    private final String contentType;
+
+    private final long size;
+
+    private final File stagedFile;
+
+    /**
+     * ranges of bytes received: start offset -> end offset (exclusive)
+     */
+    private final TreeMap<Long, Long> receivedRanges = new TreeMap<>();
+
+    private ChunkedUpload(final String uploadId, final Object servlet, final String sessionId, final String fileName,
+            final String contentType, final long size, final File stagedFile) {
+        this.uploadId = uploadId;
+        this.servlet = servlet;
+        this.sessionId = sessionId;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.stagedFile = stagedFile;
+    }
+
+    /**
+     * Start a chunked upload of a file in the given folder, for the given servlet and HTTP session
+     */
+    public static ChunkedUpload create(final File uploadDirectory, final Object servlet, final String sessionId,
+            final String fileName, final String contentType, final long size) throws IOException {
+        //uploads whose staged file has been deleted by the reaper are forgotten
+        CHUNKED_UPLOADS.values().removeIf(chunkedUpload -> !chunkedUpload.stagedFile.exists());
+        final String uploadId = UUID.randomUUID().toString();
+        final File stagedFile = File.createTempFile(FileUploadServlet.UPLOADED_FILE_PREFIX + "chunks_", STAGED_FILE_SUFFIX,
+                uploadDirectory);
+        final ChunkedUpload chunkedUpload = new ChunkedUpload(uploadId, servlet, sessionId, fileName, contentType, size,
+                stagedFile);
+        CHUNKED_UPLOADS.put(uploadId, chunkedUpload);
+        return chunkedUpload;
+    }
+
+    /**
+     * @return the upload or null if it does not exist, is already complete, has been abandoned for too long or has been
+     *         started by another servlet or HTTP session
+     */
+    public static ChunkedUpload get(final String uploadId, final Object servlet, final String sessionId) {
+        if (uploadId == null) {
+            return null;
+        }
+        final ChunkedUpload chunkedUpload = CHUNKED_UPLOADS.get(uploadId);
+        if (chunkedUpload == null) {
+            return null;
+        }
+        if (!chunkedUpload.stagedFile.exists()) {
+            CHUNKED_UPLOADS.remove(uploadId);
+            return null;
+        }
+        if (chunkedUpload.servlet != servlet || !chunkedUpload.sessionId.equals(sessionId)) {
+            return null;
+        }
+        return chunkedUpload;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    File getStagedFile() {
+        return stagedFile;
+    }
+
+    /**
+     * Write the bytes [start, end] of the file. The range is only recorded as received once the whole chunk has been
+     * written, so that an interrupted chunk is sent again.
+     *
+     * @throws EOFException if the chunk content is shorter than its range
+     */
+    public void writeChunk(final long start, final long end, final InputStream content) throws IOException {
+        if (start < 0 || end < start || end >= size) {
+            throw new IllegalArgumentException("Invalid chunk range " + start + "-" + end + " for a file of " + size + " bytes");
+        }
+        final byte[] buffer = new byte[FileUploadServlet.UPLOAD_BUFFER_SIZE];
+        try (FileChannel channel = FileChannel.open(stagedFile.toPath(), StandardOpenOption.WRITE)) {
+            long position = start;
+            while (position <= end) {
+                final int read = content.read(buffer, 0, (int) Math.min(buffer.length, end - position + 1));
+                if (read == -1) {
+                    throw new EOFException("Chunk " + start + "-" + end + " of upload " + uploadId + " is incomplete");
+                }
+                final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+        }
+        addReceivedRange(start, end + 1);
+    }
+
+    private synchronized void addReceivedRange(final long start, final long endExclusive) {
+        long mergedStart = start;
+        long mergedEnd = endExclusive;
+        final Map.Entry<Long, Long> previousRange = receivedRanges.floorEntry(start);
+        if (previousRange != null && previousRange.getValue() >= start) {
+            mergedStart = previousRange.getKey();
+            mergedEnd = Math.max(mergedEnd, previousRange.getValue());
+        }
+        Map.Entry<Long, Long> nextRange = receivedRanges.ceilingEntry(mergedStart);
+        while (nextRange != null && nextRange.getKey() <= mergedEnd) {
+            mergedEnd = Math.max(mergedEnd, nextRange.getValue());
+            receivedRanges.remove(nextRange.getKey());
+            nextRange = receivedRanges.ceilingEntry(mergedStart);
+        }
+        receivedRanges.put(mergedStart, mergedEnd);
+    }
+
+    /**
+     * @return the received ranges of bytes as [start, end] offsets, end included
+     */
+    public synchronized List<long[]> getReceivedRanges() {
+        final List<long[]> ranges = new ArrayList<>();
+        for (final Map.Entry<Long, Long> range : receivedRanges.entrySet()) {
+            ranges.add(new long[] { range.getKey(), range.getValue() - 1 });
+        }
+        return ranges;
+    }
+
+    public synchronized boolean isComplete() {
+        final Long receivedEnd = receivedRanges.get(0L);
+        return size == 0 || receivedEnd != null && receivedEnd == size;
+    }
+
+    /**
+     * @return true if the SHA-256 checksum (hexadecimal) of the received file is the given one
+     */
+    public boolean hasChecksum(final String checksum) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[FileUploadServlet.UPLOAD_BUFFER_SIZE];
+        try (InputStream stagedContent = Files.newInputStream(stagedFile.toPath())) {
+            int read;
+            while ((read = stagedContent.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final StringBuilder hexChecksum = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            hexChecksum.append(String.format("%02x", b));
+        }
+        return hexChecksum.toString().equalsIgnoreCase(checksum);
+    }
+
+    /**
+     * Move the staged file to the uploaded file and forget the upload
+     */
+    public void complete(final File uploadedFile) throws IOException {
+        Files.move(stagedFile.toPath(), uploadedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        CHUNKED_UPLOADS.remove(uploadId);
+    }
+
+    /**
+     * Delete the staged file and forget the upload
+     */
+    public void discard() {
+        CHUNKED_UPLOADS.remove(uploadId);
+        FileUtils.deleteQuietly(stagedFile);
+    }
+
+}
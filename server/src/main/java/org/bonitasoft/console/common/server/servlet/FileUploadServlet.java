@@ -14,26 +14,37 @@
  */
 package org.bonitasoft.console.common.server.servlet;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
-import org.apache.commons.fileupload.FileItem;
-import org.apache.commons.fileupload.FileItemFactory;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadBase.FileSizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadBase.FileUploadIOException;
 import org.apache.commons.fileupload.FileUploadBase.SizeLimitExceededException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.bonitasoft.engine.session.SessionNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +54,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Servlet allowing to upload a File.
+ * A large file can also be uploaded in chunks, which allows to resume an interrupted upload:
+ * <ul>
+ * <li>POST with chunks=init, fileName and size parameters returns an upload id</li>
+ * <li>PUT with the uploadId parameter and a Content-Range header sends a chunk of the file, in any order</li>
+ * <li>GET with the uploadId parameter returns the ranges of bytes already received</li>
+ * <li>POST with chunks=finalize, uploadId and checksum (SHA-256) parameters returns the uploaded file as a single
+ * request upload does</li>
+ * </ul>
+ * The other requests of a chunked upload must come from the HTTP session which started it and be sent to the same
+ * servlet, otherwise the upload is unknown (404).
  *
  * @author Julien Mege
  */
@@ -87,6 +108,36 @@ public abstract class FileUploadServlet extends HttpServlet {
 
     public static final int KILOBYTE = 1024;
 
+    /**
+     * prefix of the uploaded files names, used to identify them in the temp folders
+     */
+    public static final String UPLOADED_FILE_PREFIX = "tmp_";
+
+    protected static final int UPLOAD_BUFFER_SIZE = 8 * KILOBYTE;
+
+    /**
+     * parameter of the chunked upload requests: {@value #CHUNKS_INIT_ACTION} or {@value #CHUNKS_FINALIZE_ACTION}
+     */
+    protected static final String CHUNKS_PARAM = "chunks";
+
+    protected static final String CHUNKS_INIT_ACTION = "init";
+
+    protected static final String CHUNKS_FINALIZE_ACTION = "finalize";
+
+    protected static final String UPLOAD_ID_PARAM = "uploadId";
+
+    protected static final String FILE_NAME_PARAM = "fileName";
+
+    protected static final String FILE_SIZE_PARAM = "size";
+
+    protected static final String CHECKSUM_PARAM = "checksum";
+
+    protected static final String UPLOAD_ID_RESPONSE_ATTRIBUTE = "uploadId";
+
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
     protected String[] supportedExtensionsList = new String[0];
 
     protected boolean returnFullPathInResponse = false;
@@ -127,69 +178,68 @@ public abstract class FileUploadServlet extends HttpServlet {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void doPost(final HttpServletRequest request, final HttpServletResponse response)
             throws ServletException, IOException {
         response.setContentType("text/plain;charset=UTF-8");
         PrintWriter responsePW = null;
         try {
             defineUploadDirectoryPath(request);
+            final String chunksAction = request.getParameter(CHUNKS_PARAM);
+            if (CHUNKS_INIT_ACTION.equals(chunksAction)) {
+                responsePW = response.getWriter();
+                initChunkedUpload(request, response, responsePW);
+                return;
+            } else if (CHUNKS_FINALIZE_ACTION.equals(chunksAction)) {
+                responsePW = response.getWriter();
+                finalizeChunkedUpload(request, response, responsePW);
+                return;
+            }
             if (!ServletFileUpload.isMultipartContent(request)) {
                 return;
             }
 
-            final File targetDirectory = new File(uploadDirectoryPath);
-            if (!targetDirectory.exists()) {
-                targetDirectory.mkdirs();
-            }
+            final File targetDirectory = getTargetDirectory();
 
             responsePW = response.getWriter();
 
-            final FileItemFactory fileItemFactory = new DiskFileItemFactory();
-            final ServletFileUpload serviceFileUpload = createServletFileUpload(fileItemFactory);
+            final ServletFileUpload serviceFileUpload = createServletFileUpload();
             setUploadMaxSize(serviceFileUpload, request);
-            List<FileItem> items;
             try {
-                items = serviceFileUpload.parseRequest(request);
-            } catch (final OutOfMemoryError e) {
-                throw new SizeLimitExceededException("The file exceeds its maximum permitted size.", 0L, 0);
-            }
-
-            for (final FileItem item : items) {
-                if (item.isFormField()) {
-                    continue;
-                }
-
-                final String fileName = item.getName();
-
-                // Check if extension is allowed
-                if (!isSupportedExtension(fileName)) {
-                    outputMediaTypeError(response, responsePW);
-                    return;
-                }
-
-                // Make unique file name
-                final File uploadedFile = makeUniqueFilename(targetDirectory, fileName);
-
-                // Upload file
-                item.write(uploadedFile);
-                if (LOGGER.isTraceEnabled()) {
-                    LOGGER.trace("File uploaded : " + uploadedFile.getPath());
+                final FileItemIterator items = serviceFileUpload.getItemIterator(request);
+                while (items.hasNext()) {
+                    final FileItemStream item = items.next();
+                    if (item.isFormField()) {
+                        continue;
+                    }
+
+                    final String fileName = item.getName();
+
+                    // Check if extension is allowed
+                    if (!isSupportedExtension(fileName)) {
+                        outputMediaTypeError(response, responsePW);
+                        return;
+                    }
+
+                    // Make unique file name
+                    final File uploadedFile = makeUniqueFilename(targetDirectory, fileName);
+
+                    // Upload file
+                    writeUploadedFile(item, uploadedFile);
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("File uploaded : " + uploadedFile.getPath());
+                    }
+
+                    // Response
+                    outputUploadedFile(request, responsePW, fileName, item.getContentType(), uploadedFile);
                 }
-                uploadedFile.deleteOnExit();
-
-                // Response
-                final String responseString;
-                if (JSON_CONTENT_TYPE.equals(responseContentType)) {
-                    responseString = generateResponseJson(fileName, item.getContentType(), uploadedFile);
-                } else if (TEXT_CONTENT_TYPE.equals(responseContentType)) {
-                    responseString = generateResponseString(request, fileName, uploadedFile);
-                } else {
-                    throw new ServletException(
-                            "Unsupported content type in servlet configuration : " + responseContentType);
+            } catch (final FileUploadIOException e) {
+                // the size limits are checked while the request is read
+                if (e.getCause() instanceof FileUploadException) {
+                    throw (FileUploadException) e.getCause();
                 }
-                responsePW.print(responseString);
-                responsePW.flush();
+                throw e;
+            } catch (final OutOfMemoryError e) {
+                throw new SizeLimitExceededException("The file exceeds its maximum permitted size.", 0L, 0);
             }
         } catch (SessionNotFoundException e) {
             final String message = "Session expired";
@@ -216,6 +266,231 @@ public abstract class FileUploadServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Get the status of a chunked upload: the ranges of bytes already received
+     */
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        try {
+            defineUploadDirectoryPath(request);
+            final ChunkedUpload chunkedUpload = getChunkedUpload(request);
+            if (chunkedUpload == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown upload");
+                return;
+            }
+            final List<Map<String, Long>> receivedRanges = new ArrayList<>();
+            for (final long[] range : chunkedUpload.getReceivedRanges()) {
+                final Map<String, Long> receivedRange = new HashMap<>();
+                receivedRange.put("start", range[0]);
+                receivedRange.put("end", range[1]);
+                receivedRanges.add(receivedRange);
+            }
+            final Map<String, Object> status = new HashMap<>();
+            status.put(UPLOAD_ID_RESPONSE_ATTRIBUTE, chunkedUpload.getUploadId());
+            status.put("size", chunkedUpload.getSize());
+            status.put("received", receivedRanges);
+            status.put("complete", chunkedUpload.isComplete());
+            response.setContentType("application/json;charset=UTF-8");
+            final PrintWriter responsePW = response.getWriter();
+            responsePW.print(objectMapper.writeValueAsString(status));
+            responsePW.flush();
+        } catch (final SessionNotFoundException e) {
+            final String message = "Session expired";
+            LOGGER.debug(message);
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+        }
+    }
+
+    /**
+     * Receive a chunk of a chunked upload. The Content-Range header gives the position of the chunk in the file.
+     */
+    @Override
+    protected void doPut(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        try {
+            defineUploadDirectoryPath(request);
+            final ChunkedUpload chunkedUpload = getChunkedUpload(request);
+            if (chunkedUpload == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown upload");
+                return;
+            }
+            final String contentRange = request.getHeader(CONTENT_RANGE_HEADER);
+            final Matcher contentRangeMatcher = contentRange != null ? CONTENT_RANGE_PATTERN.matcher(contentRange.trim()) : null;
+            if (contentRangeMatcher == null || !contentRangeMatcher.matches()
+                    || Long.parseLong(contentRangeMatcher.group(3)) != chunkedUpload.getSize()) {
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+                        "Invalid Content-Range " + contentRange + ", expected bytes <start>-<end>/" + chunkedUpload.getSize());
+                return;
+            }
+            chunkedUpload.writeChunk(Long.parseLong(contentRangeMatcher.group(1)), Long.parseLong(contentRangeMatcher.group(2)),
+                    request.getInputStream());
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } catch (final SessionNotFoundException e) {
+            final String message = "Session expired";
+            LOGGER.debug(message);
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+        } catch (final IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, e.getMessage());
+        } catch (final EOFException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(e.getMessage());
+            }
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Start a chunked upload. The file name and size are checked right away and an upload id is returned.
+     */
+    protected void initChunkedUpload(final HttpServletRequest request, final HttpServletResponse response,
+            final PrintWriter responsePW) throws IOException, FileSizeLimitExceededException, SessionNotFoundException {
+        final String sessionId = getSessionId(request);
+        final String fileName = request.getParameter(FILE_NAME_PARAM);
+        if (fileName == null || fileName.isBlank()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Parameter " + FILE_NAME_PARAM + " is mandatory");
+            return;
+        }
+        final long size;
+        try {
+            size = Long.parseLong(request.getParameter(FILE_SIZE_PARAM));
+        } catch (final NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Parameter " + FILE_SIZE_PARAM + " should be a number");
+            return;
+        }
+        if (size < 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Parameter " + FILE_SIZE_PARAM + " should not be negative");
+            return;
+        }
+        if (!isAcceptedChunkedUploadFile(request, response, responsePW, fileName, size)) {
+            return;
+        }
+        final ChunkedUpload chunkedUpload = ChunkedUpload.create(getTargetDirectory(), this, sessionId,
+                fileName, request.getParameter(CONTENT_TYPE_ATTRIBUTE), size);
+        response.setStatus(HttpServletResponse.SC_CREATED);
+        if (JSON_CONTENT_TYPE.equals(responseContentType)) {
+            final Map<String, String> responseMap = new HashMap<>();
+            responseMap.put(UPLOAD_ID_RESPONSE_ATTRIBUTE, chunkedUpload.getUploadId());
+            responsePW.print(objectMapper.writeValueAsString(responseMap));
+        } else {
+            responsePW.print(chunkedUpload.getUploadId());
+        }
+        responsePW.flush();
+    }
+
+    /**
+     * Complete a chunked upload once all its chunks are received and its checksum is verified. The response is the same
+     * as for a single request upload.
+     */
+    protected void finalizeChunkedUpload(final HttpServletRequest request, final HttpServletResponse response,
+            final PrintWriter responsePW) throws Exception {
+        final ChunkedUpload chunkedUpload = getChunkedUpload(request);
+        if (chunkedUpload == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown upload");
+            return;
+        }
+        final String fileName = chunkedUpload.getFileName();
+        try {
+            //the configuration of the servlet may have changed since the upload started
+            if (!isAcceptedChunkedUploadFile(request, response, responsePW, fileName, chunkedUpload.getSize())) {
+                chunkedUpload.discard();
+                return;
+            }
+        } catch (final FileSizeLimitExceededException e) {
+            chunkedUpload.discard();
+            throw e;
+        }
+        if (!chunkedUpload.isComplete()) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "Some chunks of the file have not been received");
+            return;
+        }
+        final String checksum = request.getParameter(CHECKSUM_PARAM);
+        if (checksum == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Parameter " + CHECKSUM_PARAM + " is mandatory");
+            return;
+        }
+        if (!chunkedUpload.hasChecksum(checksum)) {
+            //the corrupted chunks cannot be identified: the file has to be uploaded again
+            chunkedUpload.discard();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "The " + ChunkedUpload.CHECKSUM_ALGORITHM + " checksum of the uploaded file does not match, the upload has been discarded");
+            return;
+        }
+        final File uploadedFile = makeUniqueFilename(getTargetDirectory(), fileName);
+        chunkedUpload.complete(uploadedFile);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("File uploaded : " + uploadedFile.getPath());
+        }
+        outputUploadedFile(request, responsePW, fileName, chunkedUpload.getContentType(), uploadedFile);
+    }
+
+    /**
+     * @return the chunked upload of the request parameter or null if it does not exist or has been started by another
+     *         servlet or HTTP session
+     */
+    protected ChunkedUpload getChunkedUpload(final HttpServletRequest request) throws SessionNotFoundException {
+        return ChunkedUpload.get(request.getParameter(UPLOAD_ID_PARAM), this, getSessionId(request));
+    }
+
+    /**
+     * @return the id of the HTTP session the chunked uploads are restricted to
+     * @throws SessionNotFoundException if the request has no HTTP session: chunked uploads are never started nor resumed
+     *         without one
+     */
+    protected String getSessionId(final HttpServletRequest request) throws SessionNotFoundException {
+        final HttpSession session = request.getSession(false);
+        if (session == null) {
+            throw new SessionNotFoundException("No HTTP session for the chunked upload");
+        }
+        return session.getId();
+    }
+
+    /**
+     * Check the extension and the size of a file uploaded in chunks, as for a single request upload
+     *
+     * @return false if the extension is not supported, in which case the error is already sent
+     * @throws FileSizeLimitExceededException if the file exceeds the maximum size
+     */
+    protected boolean isAcceptedChunkedUploadFile(final HttpServletRequest request, final HttpServletResponse response,
+            final PrintWriter responsePW, final String fileName, final long size) throws FileSizeLimitExceededException {
+        if (!isSupportedExtension(fileName)) {
+            outputMediaTypeError(response, responsePW);
+            return false;
+        }
+        final ServletFileUpload serviceFileUpload = createServletFileUpload();
+        setUploadMaxSize(serviceFileUpload, request);
+        final long fileSizeMax = serviceFileUpload.getFileSizeMax();
+        if (fileSizeMax >= 0 && size > fileSizeMax) {
+            final FileSizeLimitExceededException exception = new FileSizeLimitExceededException(
+                    "The file exceeds its maximum permitted size.", size, fileSizeMax);
+            exception.setFileName(fileName);
+            throw exception;
+        }
+        return true;
+    }
+
+    protected File getTargetDirectory() {
+        final File targetDirectory = new File(uploadDirectoryPath);
+        if (!targetDirectory.exists()) {
+            targetDirectory.mkdirs();
+        }
+        UploadedFilesReaper.getInstance().watch(targetDirectory);
+        return targetDirectory;
+    }
+
+    protected void outputUploadedFile(final HttpServletRequest request, final PrintWriter responsePW, final String fileName,
+            final String contentType, final File uploadedFile) throws Exception {
+        final String responseString;
+        if (JSON_CONTENT_TYPE.equals(responseContentType)) {
+            responseString = generateResponseJson(fileName, contentType, uploadedFile);
+        } else if (TEXT_CONTENT_TYPE.equals(responseContentType)) {
+            responseString = generateResponseString(request, fileName, uploadedFile);
+        } else {
+            throw new ServletException(
+                    "Unsupported content type in servlet configuration : " + responseContentType);
+        }
+        responsePW.print(responseString);
+        responsePW.flush();
+    }
+
     private void generateFileTooBigError(final HttpServletResponse response, final PrintWriter responsePW,
             final String message) throws JsonProcessingException {
         response.setStatus(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
@@ -230,8 +505,22 @@ public abstract class FileUploadServlet extends HttpServlet {
     }
 
     //for test purpose
-    protected ServletFileUpload createServletFileUpload(final FileItemFactory fileItemFactory) {
-        return new ServletFileUpload(fileItemFactory);
+    protected ServletFileUpload createServletFileUpload() {
+        return new ServletFileUpload();
+    }
+
+    /**
+     * Copy the uploaded content to the file while it is read from the request, the partially written file is deleted if
+     * the upload fails (size limit exceeded, connection lost...)
+     */
+    protected void writeUploadedFile(final FileItemStream item, final File uploadedFile) throws IOException {
+        try (InputStream inputStream = item.openStream();
+                OutputStream outputStream = new FileOutputStream(uploadedFile)) {
+            IOUtils.copyLarge(inputStream, outputStream, new byte[UPLOAD_BUFFER_SIZE]);
+        } catch (final IOException e) {
+            FileUtils.deleteQuietly(uploadedFile);
+            throw e;
+        }
     }
 
     protected String generateResponseString(final HttpServletRequest request, final String fileName,
@@ -264,9 +553,7 @@ public abstract class FileUploadServlet extends HttpServlet {
     }
 
     protected File makeUniqueFilename(final File targetDirectory, final String fileName) throws IOException {
-        final File uploadedFile = File.createTempFile("tmp_", getExtension(fileName), targetDirectory);
-        uploadedFile.deleteOnExit();
-        return uploadedFile;
+        return File.createTempFile(UPLOADED_FILE_PREFIX, getExtension(fileName), targetDirectory);
     }
 
     protected String getExtension(final String fileName) {
@@ -5,6 +5,10 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.servlet.ServletException;
@@ -19,9 +23,34 @@ import org.bonitasoft.web.toolkit.client.common.exception.http.ServerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Serves the icons stored in the engine.
+ * Each response carries an ETag computed from the icon content so that the browser can revalidate it. When the icon
+ * behind the URL cannot change (see {@link #getIconVersion(HttpServletRequest)}), the response is cacheable for good
+ * and the icon is also kept in a bounded in-memory cache so that revalidations and other users do not reach the engine.
+ */
 public abstract class IconServlet extends HttpServlet {
     private static final Logger LOGGER = LoggerFactory.getLogger(IconServlet.class.getName());
 
+    static final int MAX_CACHED_ICONS = 500;
+
+    static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    static final String REVALIDATE_CACHE_CONTROL = "private, no-cache";
+
+    /**
+     * icons of immutable URLs, least recently used first: type:entityId:version:tenantId -> icon
+     */
+    private static final Map<String, CachedIcon> CACHED_ICONS = new LinkedHashMap<String, CachedIcon>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedIcon> eldest) {
+            return size() > MAX_CACHED_ICONS;
+        }
+    };
+
     @Override
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException {
         String iconIdPath = request.getPathInfo();
@@ -34,13 +63,31 @@ public abstract class IconServlet extends HttpServlet {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return;
         }
-        Optional<IconContent> iconContent = retrieveIcon(iconId,
-                (APISession) request.getSession().getAttribute("apiSession"));
-        if (!iconContent.isPresent()) {
-            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        final APISession apiSession = (APISession) request.getSession().getAttribute("apiSession");
+        final String iconVersion = getIconVersion(request);
+        final String cacheKey = iconVersion != null && apiSession != null
+                ? buildCacheKey(getIconType(), iconId, iconVersion, apiSession.getTenantId())
+                : null;
+        CachedIcon cachedIcon = cacheKey != null ? getCachedIcon(cacheKey) : null;
+        if (cachedIcon == null) {
+            Optional<IconContent> iconContent = retrieveIcon(iconId, apiSession);
+            if (!iconContent.isPresent()) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            cachedIcon = new CachedIcon(iconContent.get());
+            if (cacheKey != null) {
+                putCachedIcon(cacheKey, cachedIcon);
+            }
+        }
+        response.setHeader("ETag", cachedIcon.eTag);
+        response.setHeader("Cache-Control", iconVersion != null ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        if (matchesETag(request.getHeader("If-None-Match"), cachedIcon.eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             return;
         }
-        response.setContentType(iconContent.get().getMimeType());
+        final IconContent iconContent = cachedIcon.iconContent;
+        response.setContentType(iconContent.getMimeType());
         response.setCharacterEncoding("UTF-8");
         try {
             setHeaders(request, response, iconId);
@@ -48,8 +95,8 @@ public abstract class IconServlet extends HttpServlet {
             logAndThrowException(e, "Error while generating the headers.");
         }
         try (OutputStream out = response.getOutputStream()) {
-            response.setContentLength(iconContent.get().getContent().length);
-            out.write(iconContent.get().getContent());
+            response.setContentLength(iconContent.getContent().length);
+            out.write(iconContent.getContent());
         } catch (final IOException e) {
             logAndThrowException(e, "Error while generating the response.");
         }
@@ -92,6 +139,65 @@ public abstract class IconServlet extends HttpServlet {
 
     protected abstract void deleteIcon(Long entityId, APISession apiSession, HttpServletRequest request) throws ServerException;
 
+    /**
+     * @return the name of the icons served, used to isolate them in the icons cache
+     */
+    protected abstract String getIconType();
+
+    /**
+     * @return a version identifying the content of the requested icon if the icon behind the URL never changes, null
+     *         if it may change and must not be cached. By default, the URL contains the id of an immutable icon.
+     */
+    protected String getIconVersion(final HttpServletRequest request) {
+        return "";
+    }
+
+    /**
+     * Remove from the icons cache all the versions of the icon of an entity, after its icon has been updated
+     */
+    protected static void evictCachedIcons(final String iconType, final long entityId) {
+        final String entityKeyPrefix = iconType + ":" + entityId + ":";
+        synchronized (CACHED_ICONS) {
+            CACHED_ICONS.keySet().removeIf(key -> key.startsWith(entityKeyPrefix));
+        }
+    }
+
+    static void clearCachedIcons() {
+        synchronized (CACHED_ICONS) {
+            CACHED_ICONS.clear();
+        }
+    }
+
+    private static CachedIcon getCachedIcon(final String cacheKey) {
+        synchronized (CACHED_ICONS) {
+            return CACHED_ICONS.get(cacheKey);
+        }
+    }
+
+    private static void putCachedIcon(final String cacheKey, final CachedIcon cachedIcon) {
+        synchronized (CACHED_ICONS) {
+            CACHED_ICONS.put(cacheKey, cachedIcon);
+        }
+    }
+
+    private static String buildCacheKey(final String iconType, final long entityId, final String iconVersion,
+            final long tenantId) {
+        return iconType + ":" + entityId + ":" + iconVersion + ":" + tenantId;
+    }
+
+    private boolean matchesETag(final String ifNoneMatch, final String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String requestedETag : ifNoneMatch.split(",")) {
+            final String trimmedETag = requestedETag.trim();
+            if ("*".equals(trimmedETag) || eTag.equals(trimmedETag) || ("W/" + eTag).equals(trimmedETag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private Long parseLong(String iconIdPath) {
         try {
             return Long.valueOf(iconIdPath.substring(1));
@@ -115,4 +221,28 @@ public abstract class IconServlet extends HttpServlet {
                     + encodedFileName);
         }
     }
+
+    private static class CachedIcon {
+
+        private final IconContent iconContent;
+
+        private final String eTag;
+
+        private CachedIcon(final IconContent iconContent) {
+            this.iconContent = iconContent;
+            this.eTag = computeETag(iconContent.getContent());
+        }
+
+        private static String computeETag(final byte[] content) {
+            try {
+                final StringBuilder eTag = new StringBuilder("\"");
+                for (final byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                    eTag.append(String.format("%02x", b));
+                }
+                return eTag.append('"').toString();
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.servlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bonitasoft.console.common.server.job.Job;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.console.common.server.utils.SessionUtil;
+import org.bonitasoft.engine.session.APISession;
+
+/**
+ * Status, result and cancellation of the background import and export jobs of the current user. The jobs of other
+ * users are answered as not found:
+ * <ul>
+ * <li>GET /{jobId}: status of the job as JSON (state, progress, warnings, error, result)</li>
+ * <li>GET /{jobId}/result: file exported by the job, once it has succeeded</li>
+ * <li>DELETE /{jobId}: cancel the job</li>
+ * </ul>
+ */
+public class JobServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 4286475372907356386L;
+
+    private static final String RESULT_PATH_SUFFIX = "/result";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        final APISession apiSession = getApiSession(request);
+        if (apiSession == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Session expired");
+            return;
+        }
+        final String pathInfo = request.getPathInfo();
+        final boolean resultRequested = pathInfo != null && pathInfo.endsWith(RESULT_PATH_SUFFIX);
+        final String jobId = getJobId(resultRequested ? pathInfo.substring(0, pathInfo.length() - RESULT_PATH_SUFFIX.length()) : pathInfo);
+        final Job job = getJobManager().getJob(jobId, apiSession);
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Job not found");
+            return;
+        }
+        if (resultRequested) {
+            sendResultFile(request, response, job);
+        } else {
+            sendStatus(response, job);
+        }
+    }
+
+    @Override
+    protected void doDelete(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        final APISession apiSession = getApiSession(request);
+        if (apiSession == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Session expired");
+            return;
+        }
+        if (getJobManager().cancel(getJobId(request.getPathInfo()), apiSession)) {
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Job not found or already done");
+        }
+    }
+
+    private void sendStatus(final HttpServletResponse response, final Job job) throws IOException {
+        final Map<String, Object> status = new HashMap<>();
+        status.put("id", job.getId());
+        status.put("name", job.getName());
+        status.put("state", job.getState().name());
+        status.put("progress", job.getProgress());
+        status.put("warnings", job.getWarnings());
+        status.put("error", job.getError());
+        status.put("result", job.getResult());
+        status.put("hasResultFile", job.hasResultFile());
+        status.put("submissionDate", job.getSubmissionDate());
+        status.put("endDate", job.getEndDate() >= 0 ? job.getEndDate() : null);
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().print(objectMapper.writeValueAsString(status));
+        response.getWriter().flush();
+    }
+
+    private void sendResultFile(final HttpServletRequest request, final HttpServletResponse response, final Job job) throws IOException {
+        final File resultFile = job.getResultFile();
+        if (resultFile == null) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "The job has no result to download (" + job.getState() + ")");
+            return;
+        }
+        response.setContentType("application/octet-stream");
+        final String encodedFileName = URLEncoder.encode(job.getResultFileName(), StandardCharsets.UTF_8);
+        final String userAgent = request.getHeader("User-Agent");
+        if (userAgent != null && userAgent.contains("Firefox")) {
+            response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encodedFileName);
+        } else {
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + encodedFileName.replaceAll("\\+", " ") + "\"; filename*=UTF-8''"
+                    + encodedFileName);
+        }
+        response.setContentLengthLong(resultFile.length());
+        try (OutputStream out = response.getOutputStream()) {
+            Files.copy(resultFile.toPath(), out);
+        }
+    }
+
+    private String getJobId(final String pathInfo) {
+        if (pathInfo == null || pathInfo.length() <= 1) {
+            return null;
+        }
+        return pathInfo.substring(1);
+    }
+
+    private APISession getApiSession(final HttpServletRequest request) {
+        final HttpSession session = request.getSession(false);
+        return session != null ? (APISession) session.getAttribute(SessionUtil.API_SESSION_PARAM_KEY) : null;
+    }
+
+    protected JobManager getJobManager() {
+        return JobManager.getInstance();
+    }
+
+}
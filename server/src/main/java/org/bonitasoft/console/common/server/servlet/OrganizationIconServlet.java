@@ -38,6 +38,17 @@ import java.util.Optional;
  */
 public class OrganizationIconServlet extends IconServlet {
 
+    static final String ICON_TYPE = "organization";
+
+    /**
+     * The URL contains the id of the icon, and the engine creates a new icon each time the icon of a user, group or
+     * role is updated: the icons served never change and need no eviction
+     */
+    @Override
+    protected String getIconType() {
+        return ICON_TYPE;
+    }
+
     @Override
     protected Optional<IconContent> retrieveIcon(Long iconId, APISession apiSession) {
         IdentityAPI identityAPI = getIdentityApi(apiSession);
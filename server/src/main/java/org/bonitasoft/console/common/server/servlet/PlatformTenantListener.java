@@ -20,8 +20,14 @@ import org.slf4j.Logger;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
+import org.bonitasoft.console.common.server.i18n.I18n;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.console.common.server.page.CustomPageFreshnessChecker;
+import org.bonitasoft.console.common.server.page.CustomPageService;
 import org.bonitasoft.console.common.server.preferences.constants.WebBonitaConstantsUtils;
+import org.bonitasoft.console.common.server.utils.ContractDefinitionCache;
 import org.bonitasoft.console.common.server.utils.PlatformManagementUtils;
+import org.bonitasoft.console.common.server.utils.TenantLifecycleHooks;
 import org.bonitasoft.engine.exception.BonitaException;
 
 /**
@@ -49,10 +55,20 @@ public class PlatformTenantListener implements ServletContextListener {
                 LOGGER.error( "Error while retrieving configuration", e);
             }
         }
+        I18n.getInstance().preloadLocales();
+        TenantLifecycleHooks.onTenantPaused(CustomPageFreshnessChecker::stop);
+        //processes may be deleted or redeployed while the tenant is paused
+        TenantLifecycleHooks.onTenantPaused(ContractDefinitionCache::clearCachedContracts);
+        //the custom permissions mapping of a tenant is updated while it is paused
+        TenantLifecycleHooks.onTenantResumed(CustomPageService::clearCachedPermissions);
     }
 
     @Override
     public void contextDestroyed(final ServletContextEvent sce) {
+        TenantLifecycleHooks.clear();
+        CustomPageFreshnessChecker.stopAll();
+        UploadedFilesReaper.stop();
+        JobManager.stop();
     }
 
 }
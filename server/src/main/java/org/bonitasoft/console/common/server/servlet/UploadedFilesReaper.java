@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.servlet;
+
+import java.io.File;
+import java.time.Clock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes the uploaded files which have not been consumed after a while.
+ * It replaces {@link File#deleteOnExit()} which keeps a reference to every uploaded file until the JVM stops.
+ */
+public class UploadedFilesReaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UploadedFilesReaper.class.getName());
+
+    /**
+     * uploaded files older than this age are deleted
+     */
+    static final long UPLOADED_FILE_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    static final long REAP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private static UploadedFilesReaper instance;
+
+    private final Set<File> uploadDirectories = ConcurrentHashMap.newKeySet();
+
+    private final Clock clock;
+
+    private final long maxAge;
+
+    private ScheduledExecutorService executor;
+
+    UploadedFilesReaper(final Clock clock, final long maxAge) {
+        this.clock = clock;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return the reaper, started on its first call
+     */
+    public static synchronized UploadedFilesReaper getInstance() {
+        if (instance == null) {
+            instance = new UploadedFilesReaper(Clock.systemUTC(), UPLOADED_FILE_MAX_AGE);
+            instance.start();
+        }
+        return instance;
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.executor.shutdownNow();
+            instance = null;
+        }
+    }
+
+    private void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "bonita-uploaded-files-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::reapQuietly, REAP_INTERVAL, REAP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register a directory in which files are uploaded
+     */
+    public void watch(final File uploadDirectory) {
+        uploadDirectories.add(uploadDirectory);
+    }
+
+    private void reapQuietly() {
+        try {
+            reap();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to delete the old uploaded files. " + e.getMessage(), e);
+        }
+    }
+
+    void reap() {
+        final long oldestAllowedModification = clock.millis() - maxAge;
+        for (final File uploadDirectory : uploadDirectories) {
+            final File[] uploadedFiles = uploadDirectory
+                    .listFiles(file -> file.isFile() && file.getName().startsWith(FileUploadServlet.UPLOADED_FILE_PREFIX));
+            if (uploadedFiles != null) {
+                for (final File uploadedFile : uploadedFiles) {
+                    if (uploadedFile.lastModified() < oldestAllowedModification && !uploadedFile.delete()
+                            && uploadedFile.exists() && LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Unable to delete the uploaded file " + uploadedFile.getPath());
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.utils;
+
+import java.util.Map;
+
+import org.bonitasoft.engine.bpm.contract.ContractDefinition;
+
+/**
+ * Contract definition prepared once for the conversion of the inputs submitted for it.
+ * Instances are immutable and can be shared between requests.
+ */
+public class CompiledContract {
+
+    private final ContractDefinition contractDefinition;
+
+    /**
+     * input name -> converter of the values submitted for the input
+     */
+    private final Map<String, ContractInputConverter> inputConverters;
+
+    CompiledContract(final ContractDefinition contractDefinition, final Map<String, ContractInputConverter> inputConverters) {
+        this.contractDefinition = contractDefinition;
+        this.inputConverters = inputConverters;
+    }
+
+    public ContractDefinition getContractDefinition() {
+        return contractDefinition;
+    }
+
+    /**
+     * @return the converter of the input, which leaves the values unchanged for an input that is not in the contract
+     */
+    ContractInputConverter getInputConverter(final String inputName) {
+        return inputConverters.getOrDefault(inputName, ContractInputConverter.UNCHANGED);
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.contract.ContractDefinition;
+import org.bonitasoft.engine.bpm.flownode.ActivityInstanceNotFoundException;
+import org.bonitasoft.engine.bpm.flownode.HumanTaskInstance;
+import org.bonitasoft.engine.bpm.flownode.UserTaskNotFoundException;
+import org.bonitasoft.engine.bpm.process.ProcessDefinitionNotFoundException;
+import org.bonitasoft.engine.session.APISession;
+
+/**
+ * Compiled contracts of the process definitions and of their user task definitions.
+ * The contract of a deployed process definition cannot change, so it is retrieved from the engine once and kept until
+ * the process definition is deleted, until its tenant is paused or until it is one of the least recently used ones.
+ * The contracts are kept per tenant as the ids of the definitions of different tenants may be the same.
+ */
+public class ContractDefinitionCache {
+
+    static final int MAX_CACHED_CONTRACTS = 1000;
+
+    /**
+     * flow node definition id used for the contract of the process instantiation
+     */
+    private static final long PROCESS_INSTANTIATION = -1L;
+
+    private static final Map<ContractKey, CompiledContract> CONTRACTS = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<ContractKey, CompiledContract> eldest) {
+            return size() > MAX_CACHED_CONTRACTS;
+        }
+    };
+
+    private ContractDefinitionCache() {
+        // utility class
+    }
+
+    public static CompiledContract getProcessContract(final ProcessAPI processAPI, final APISession apiSession,
+            final long processDefinitionId) throws ProcessDefinitionNotFoundException {
+        final ContractKey key = new ContractKey(apiSession.getTenantId(), processDefinitionId, PROCESS_INSTANTIATION);
+        CompiledContract contract = getCachedContract(key);
+        if (contract == null) {
+            contract = ContractTypeConverter.compile(processAPI.getProcessContract(processDefinitionId));
+            cacheContract(key, contract);
+        }
+        return contract;
+    }
+
+    /**
+     * Only the definition of the task is retrieved from the engine once the contract of the task definition is cached
+     */
+    public static CompiledContract getUserTaskContract(final ProcessAPI processAPI, final APISession apiSession,
+            final long taskId) throws UserTaskNotFoundException {
+        final HumanTaskInstance task;
+        try {
+            task = processAPI.getHumanTaskInstance(taskId);
+        } catch (final ActivityInstanceNotFoundException e) {
+            throw new UserTaskNotFoundException(e.getMessage());
+        }
+        final ContractKey key = new ContractKey(apiSession.getTenantId(), task.getProcessDefinitionId(),
+                task.getFlownodeDefinitionId());
+        CompiledContract contract = getCachedContract(key);
+        if (contract == null) {
+            final ContractDefinition contractDefinition = processAPI.getUserTaskContract(taskId);
+            contract = ContractTypeConverter.compile(contractDefinition);
+            cacheContract(key, contract);
+        }
+        return contract;
+    }
+
+    /**
+     * Forget the contracts of a deleted process definition, in all the tenants as the tenant of the deletion is not known
+     */
+    public static void invalidateProcess(final long processDefinitionId) {
+        synchronized (CONTRACTS) {
+            CONTRACTS.keySet().removeIf(key -> key.processDefinitionId == processDefinitionId);
+        }
+    }
+
+    /**
+     * Forget the contracts of a tenant (e.g. when it is paused)
+     */
+    public static void clearCachedContracts(final long tenantId) {
+        synchronized (CONTRACTS) {
+            CONTRACTS.keySet().removeIf(key -> key.tenantId == tenantId);
+        }
+    }
+
+    public static void clearCachedContracts() {
+        synchronized (CONTRACTS) {
+            CONTRACTS.clear();
+        }
+    }
+
+    static int getCachedContractsCount() {
+        synchronized (CONTRACTS) {
+            return CONTRACTS.size();
+        }
+    }
+
+    private static CompiledContract getCachedContract(final ContractKey key) {
+        synchronized (CONTRACTS) {
+            return CONTRACTS.get(key);
+        }
+    }
+
+    private static void cacheContract(final ContractKey key, final CompiledContract contract) {
+        synchronized (CONTRACTS) {
+            CONTRACTS.put(key, contract);
+        }
+    }
+
+    private static class ContractKey {
+
+        private final long tenantId;
+
+        private final long processDefinitionId;
+
+        private final long flowNodeDefinitionId;
+
+        private ContractKey(final long tenantId, final long processDefinitionId, final long flowNodeDefinitionId) {
+            this.tenantId = tenantId;
+            this.processDefinitionId = processDefinitionId;
+            this.flowNodeDefinitionId = flowNodeDefinitionId;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ContractKey)) {
+                return false;
+            }
+            final ContractKey other = (ContractKey) o;
+            return tenantId == other.tenantId && processDefinitionId == other.processDefinitionId
+                    && flowNodeDefinitionId == other.flowNodeDefinitionId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, processDefinitionId, flowNodeDefinitionId);
+        }
+    }
+
+}
@@ -0,0 +1,383 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.utils;
+
+import static org.bonitasoft.engine.bpm.contract.InputDefinition.FILE_INPUT_ID;
+
+import java.io.FileNotFoundException;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.beanutils.ConversionException;
+import org.bonitasoft.engine.bpm.contract.InputDefinition;
+import org.bonitasoft.engine.bpm.contract.Type;
+
+/**
+ * Converter of the value submitted for a contract input, built once from the input definition.
+ * The converters of the common types parse the values directly and follow the rules of the commons-beanutils converters
+ * previously used. The values of unusual classes are still converted with commons-beanutils.
+ * Converters are stateless and can be shared between threads.
+ */
+abstract class ContractInputConverter {
+
+    static final ContractInputConverter UNCHANGED = new ContractInputConverter() {
+
+        @Override
+        Serializable convert(final Serializable value, final ContractTypeConverter typeConverter) {
+            return value;
+        }
+    };
+
+    private static final String[] TRUE_STRINGS = { "true", "yes", "y", "on", "1" };
+
+    private static final String[] FALSE_STRINGS = { "false", "no", "n", "off", "0" };
+
+    private static final SimpleInputConverter TEXT = new SimpleInputConverter(String.class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            if (value instanceof String) {
+                return value;
+            }
+            return typeConverter.convertWithBeanUtils(value, String.class);
+        }
+    };
+
+    private static final SimpleInputConverter BOOLEAN = new SimpleInputConverter(Boolean.class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            if (value instanceof Boolean) {
+                return value;
+            } else if (value instanceof String) {
+                final String stringValue = ((String) value).toLowerCase();
+                for (final String trueString : TRUE_STRINGS) {
+                    if (trueString.equals(stringValue)) {
+                        return Boolean.TRUE;
+                    }
+                }
+                for (final String falseString : FALSE_STRINGS) {
+                    if (falseString.equals(stringValue)) {
+                        return Boolean.FALSE;
+                    }
+                }
+                throw new ConversionException("Can't convert value '" + value + "' to a Boolean");
+            }
+            return typeConverter.convertWithBeanUtils(value, Boolean.class);
+        }
+    };
+
+    private static final SimpleInputConverter INTEGER = new NumberInputConverter(Integer.class) {
+
+        @Override
+        Number parse(final String value) {
+            return Integer.valueOf(value);
+        }
+
+        @Override
+        Number toNumber(final Number value) {
+            final long longValue = value.longValue();
+            if (longValue > Integer.MAX_VALUE || longValue < Integer.MIN_VALUE) {
+                throw new ConversionException("Value '" + value + "' is out of the range of an Integer");
+            }
+            return value.intValue();
+        }
+    };
+
+    private static final SimpleInputConverter LONG = new NumberInputConverter(Long.class) {
+
+        @Override
+        Number parse(final String value) {
+            return Long.valueOf(value);
+        }
+
+        @Override
+        Number toNumber(final Number value) {
+            return value.longValue();
+        }
+    };
+
+    private static final SimpleInputConverter DECIMAL = new NumberInputConverter(Double.class) {
+
+        @Override
+        Number parse(final String value) {
+            return Double.valueOf(value);
+        }
+
+        @Override
+        Number toNumber(final Number value) {
+            return value.doubleValue();
+        }
+    };
+
+    private static final SimpleInputConverter DATE = new SimpleInputConverter(Date.class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            //Also support Integer as DATE contract input (as deserialization is handled by jackson it can be mapped to an integer instead of a long when it is a small number)
+            if (value instanceof Long || value instanceof Integer) {
+                return new Date(((Number) value).longValue());
+            } else if (value instanceof String) {
+                final String stringValue = ((String) value).trim();
+                if (stringValue.isEmpty()) {
+                    throw new ConversionException("No value specified for 'Date'");
+                }
+                return typeConverter.parseDate(stringValue);
+            }
+            return typeConverter.convertWithBeanUtils(value, Date.class);
+        }
+    };
+
+    private static final SimpleInputConverter BYTE_ARRAY = new SimpleInputConverter(Byte[].class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            return typeConverter.convertWithBeanUtils(value, Byte[].class);
+        }
+    };
+
+    private static final SimpleInputConverter LOCAL_DATE = new SimpleInputConverter(LocalDate.class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            String stringValue = value.toString();
+            //We drop useless info received from the widget ex: 2010-12-04T18:42:10Z, we drop T18:42:10Z to allow conversion
+            if (stringValue.length() > 10) {
+                ContractTypeConverter.LOGGER.debug("The string " + stringValue
+                        + " contains information that will be dropped to convert it to a LocalDate (most likely time and timezone information which are not relevant).");
+                stringValue = stringValue.substring(0, 10);
+            }
+            return LocalDate.parse(stringValue);
+        }
+    };
+
+    private static final SimpleInputConverter LOCAL_DATE_TIME = new SimpleInputConverter(LocalDateTime.class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            final String stringValue = value.toString();
+            try {
+                return LocalDateTime.parse(stringValue);
+            } catch (final DateTimeParseException e) {
+                ContractTypeConverter.LOGGER.debug("The string " + stringValue
+                        + " contains information that will be dropped to convert it to a LocalDateTime (most likely time and timezone information which are not relevant).");
+                //We drop the timezone info from the String:
+                return ZonedDateTime.parse(stringValue).toLocalDateTime();
+            }
+        }
+    };
+
+    private static final SimpleInputConverter OFFSET_DATE_TIME = new SimpleInputConverter(OffsetDateTime.class) {
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            return ZonedDateTime.parse(value.toString()).toOffsetDateTime();
+        }
+    };
+
+    private static final ContractInputConverter FILE = new ContractInputConverter() {
+
+        @Override
+        Serializable convert(final Serializable value, final ContractTypeConverter typeConverter) throws FileNotFoundException {
+            if (value instanceof Map) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Serializable> mapOfValues = (Map<String, Serializable>) value;
+                if (mapOfValues.containsKey(InputDefinition.FILE_INPUT_FILENAME)
+                        && mapOfValues.containsKey(ContractTypeConverter.FILE_TEMP_PATH)) {
+                    return typeConverter.createFileInputValue((String) mapOfValues.get(InputDefinition.FILE_INPUT_FILENAME),
+                            (String) mapOfValues.get(ContractTypeConverter.CONTENT_TYPE),
+                            (String) mapOfValues.get(ContractTypeConverter.FILE_TEMP_PATH),
+                            (String) mapOfValues.get(FILE_INPUT_ID));
+                }
+            }
+            return value;
+        }
+    };
+
+    /**
+     * @return the converted value, or the value itself if it cannot be converted
+     */
+    abstract Serializable convert(Serializable value, ContractTypeConverter typeConverter) throws FileNotFoundException;
+
+    /**
+     * @return input name -> converter of the values submitted for the input
+     */
+    static Map<String, ContractInputConverter> compile(final List<InputDefinition> inputDefinitions) {
+        final Map<String, ContractInputConverter> inputConverters = new HashMap<>();
+        for (final InputDefinition inputDefinition : inputDefinitions) {
+            inputConverters.put(inputDefinition.getName(), new InputValuesConverter(compileValueConverter(inputDefinition)));
+        }
+        return inputConverters;
+    }
+
+    private static ContractInputConverter compileValueConverter(final InputDefinition inputDefinition) {
+        if (Type.FILE.equals(inputDefinition.getType())) {
+            return FILE;
+        } else if (inputDefinition.hasChildren()) {
+            return new ComplexInputConverter(compile(inputDefinition.getInputs()));
+        } else if (inputDefinition.getType() == null) {
+            return UNCHANGED;
+        }
+        return forType(inputDefinition.getType());
+    }
+
+    static SimpleInputConverter forType(final Type type) {
+        switch (type) {
+            case BOOLEAN:
+                return BOOLEAN;
+            case DATE:
+                return DATE;
+            case INTEGER:
+                return INTEGER;
+            case DECIMAL:
+                return DECIMAL;
+            case BYTE_ARRAY:
+                return BYTE_ARRAY;
+            case LONG:
+                return LONG;
+            case LOCALDATE:
+                return LOCAL_DATE;
+            case LOCALDATETIME:
+                return LOCAL_DATE_TIME;
+            case OFFSETDATETIME:
+                return OFFSET_DATE_TIME;
+            default:
+                return TEXT;
+        }
+    }
+
+    /**
+     * Converter of a single value or of each value of a list
+     */
+    private static class InputValuesConverter extends ContractInputConverter {
+
+        private final ContractInputConverter valueConverter;
+
+        private InputValuesConverter(final ContractInputConverter valueConverter) {
+            this.valueConverter = valueConverter;
+        }
+
+        @Override
+        Serializable convert(final Serializable value, final ContractTypeConverter typeConverter) throws FileNotFoundException {
+            if (value == null) {
+                return null;
+            } else if (value instanceof List) {
+                @SuppressWarnings("unchecked")
+                final List<Serializable> listOfValues = (List<Serializable>) value;
+                final List<Serializable> convertedListOfValues = new ArrayList<>(listOfValues.size());
+                for (final Serializable listValue : listOfValues) {
+                    convertedListOfValues.add(listValue == null ? null : valueConverter.convert(listValue, typeConverter));
+                }
+                return (Serializable) convertedListOfValues;
+            }
+            return valueConverter.convert(value, typeConverter);
+        }
+    }
+
+    private static class ComplexInputConverter extends ContractInputConverter {
+
+        private final Map<String, ContractInputConverter> childConverters;
+
+        private ComplexInputConverter(final Map<String, ContractInputConverter> childConverters) {
+            this.childConverters = childConverters;
+        }
+
+        @Override
+        Serializable convert(final Serializable value, final ContractTypeConverter typeConverter) throws FileNotFoundException {
+            if (!(value instanceof Map)) {
+                return value;
+            }
+            @SuppressWarnings("unchecked")
+            final Map<String, Serializable> mapOfValues = (Map<String, Serializable>) value;
+            final Map<String, Serializable> convertedMapOfValues = new HashMap<>((int) (mapOfValues.size() / 0.75f) + 1);
+            for (final Entry<String, Serializable> valueEntry : mapOfValues.entrySet()) {
+                final ContractInputConverter childConverter = childConverters.getOrDefault(valueEntry.getKey(), UNCHANGED);
+                convertedMapOfValues.put(valueEntry.getKey(), childConverter.convert(valueEntry.getValue(), typeConverter));
+            }
+            return (Serializable) convertedMapOfValues;
+        }
+    }
+
+    /**
+     * Converter of a value to a simple type. The value is returned as it is when it cannot be parsed.
+     */
+    abstract static class SimpleInputConverter extends ContractInputConverter {
+
+        private final Class<?> targetClass;
+
+        private SimpleInputConverter(final Class<?> targetClass) {
+            this.targetClass = targetClass;
+        }
+
+        @Override
+        Serializable convert(final Serializable value, final ContractTypeConverter typeConverter) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return (Serializable) convertValue(value, typeConverter);
+            } catch (final ConversionException | DateTimeParseException | NumberFormatException e) {
+                ContractTypeConverter.LOGGER.info("unable to parse '" + value + "' to type " + targetClass.getName(), e);
+                return value;
+            }
+        }
+
+        abstract Object convertValue(Serializable value, ContractTypeConverter typeConverter);
+    }
+
+    /**
+     * Strings are trimmed and parsed, other numbers are converted with the range checks of commons-beanutils
+     */
+    private abstract static class NumberInputConverter extends SimpleInputConverter {
+
+        private final Class<? extends Number> numberClass;
+
+        private NumberInputConverter(final Class<? extends Number> numberClass) {
+            super(numberClass);
+            this.numberClass = numberClass;
+        }
+
+        @Override
+        Object convertValue(final Serializable value, final ContractTypeConverter typeConverter) {
+            if (numberClass.isInstance(value)) {
+                return value;
+            } else if (value instanceof Number) {
+                return toNumber((Number) value);
+            } else if (value instanceof String) {
+                final String stringValue = ((String) value).trim();
+                if (stringValue.isEmpty()) {
+                    throw new ConversionException("No value specified for '" + numberClass.getSimpleName() + "'");
+                }
+                return parse(stringValue);
+            }
+            return typeConverter.convertWithBeanUtils(value, numberClass);
+        }
+
+        abstract Number parse(String value);
+
+        abstract Number toNumber(Number value);
+    }
+
+}
@@ -13,18 +13,15 @@
  */
 package org.bonitasoft.console.common.server.utils;
 
-import static org.bonitasoft.engine.bpm.contract.InputDefinition.FILE_INPUT_ID;
-
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeParseException;
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -67,44 +64,47 @@ public class ContractTypeConverter {
 
     protected BonitaHomeFolderAccessor bonitaHomeFolderAccessor = new BonitaHomeFolderAccessor();
 
-    private final ConvertUtilsBean convertUtilsBean;
+    /**
+     * date formats of the current thread, by pattern
+     */
+    private static final ThreadLocal<Map<String, DateFormat>> DATE_FORMATS = ThreadLocal.withInitial(HashMap::new);
+
+    private final String[] datePatterns;
+
+    private ConvertUtilsBean convertUtilsBean;
 
     private long maxSizeForTenant;
 
     public ContractTypeConverter(final String[] datePatterns) {
-        convertUtilsBean = new ConvertUtilsBean();
-        convertUtilsBean.register(true, false, 0);
-        final DateConverter dateConverter = new DateConverter();
-        dateConverter.setPatterns(datePatterns);
-        dateConverter.setTimeZone(TimeZone.getTimeZone("GMT"));
-        convertUtilsBean.register(dateConverter, Date.class);
+        this.datePatterns = datePatterns;
     }
 
     Object convertToType(final Type type, final Serializable parameterValue) {
-        final Class<? extends Serializable> clazz = getClassFromType(type);
-        Serializable preprocessedParameterValue = preprocessInputs(type, parameterValue);
-        return convertToType(clazz, preprocessedParameterValue);
+        return ContractInputConverter.forType(type).convert(parameterValue, this);
     }
 
-    private Serializable preprocessInputs(final Type type, final Serializable parameterValue) {
-        //Also support Integer as DATE contract input (as deserialization is handled by jackson it can be mapped to an integer instead of a long when it is a small number)
-        if (Type.DATE.equals(type) && parameterValue instanceof Integer) {
-            return Long.valueOf((Integer) parameterValue);
-        }
-        return parameterValue;
+    /**
+     * Prepare a contract for the conversion of its inputs. The result can be kept and shared between requests.
+     */
+    public static CompiledContract compile(final ContractDefinition contract) {
+        final Map<String, ContractInputConverter> inputConverters = contract == null ? Collections.emptyMap()
+                : Collections.unmodifiableMap(ContractInputConverter.compile(contract.getInputs()));
+        return new CompiledContract(contract, inputConverters);
     }
 
     public Map<String, Serializable> getProcessedInput(final ContractDefinition processContract, final Map<String, Serializable> inputs,
                                                        final long maxSizeForTenant) throws FileNotFoundException {
+        return processInputs(compile(processContract), inputs, maxSizeForTenant);
+    }
+
+    public Map<String, Serializable> processInputs(final CompiledContract contract, final Map<String, Serializable> inputs,
+            final long maxSizeForTenant) throws FileNotFoundException {
         this.maxSizeForTenant = maxSizeForTenant;
         final Map<String, Serializable> processedInputs = new HashMap<>();
-        final Map<String, Serializable> contractDefinitionMap = processContract == null ? Collections.emptyMap()
-                : createContractInputMap(processContract.getInputs());
         if (inputs != null) {
             for (final Entry<String, Serializable> inputEntry : inputs.entrySet()) {
                 processedInputs.put(inputEntry.getKey(),
-                        convertInputToExpectedType(inputEntry.getValue(),
-                                contractDefinitionMap.get(inputEntry.getKey())));
+                        contract.getInputConverter(inputEntry.getKey()).convert(inputEntry.getValue(), this));
             }
         }
         return processedInputs;
@@ -141,84 +141,9 @@ public class ContractTypeConverter {
 
     }
 
-    private Serializable convertInputToExpectedType(final Serializable inputValue, final Serializable inputDefinition)
-            throws FileNotFoundException {
-        if (inputValue == null) {
-            return null;
-        } else if (inputValue instanceof List) {
-            return convertMultipleInputToExpectedType(inputValue, inputDefinition);
-        } else {
-            return convertSingleInputToExpectedType(inputValue, inputDefinition);
-        }
-    }
-
-    private Serializable convertMultipleInputToExpectedType(final Serializable inputValue,
-            final Serializable inputDefinition)
-            throws FileNotFoundException {
-        @SuppressWarnings("unchecked")
-        final List<Serializable> listOfValues = (List<Serializable>) inputValue;
-        final List<Serializable> convertedListOfValues = new ArrayList<>();
-        for (final Serializable value : listOfValues) {
-            Serializable convertedValue = null;
-            if (value != null) {
-                convertedValue = convertSingleInputToExpectedType(value, inputDefinition);
-            }
-            convertedListOfValues.add(convertedValue);
-        }
-        return (Serializable) convertedListOfValues;
-    }
-
-    private Serializable convertSingleInputToExpectedType(final Serializable inputValue,
-            final Serializable inputDefinition)
-            throws FileNotFoundException {
-        if (inputDefinition == null) {
-            return inputValue;
-        } else if (inputDefinition instanceof Map) {
-            @SuppressWarnings("unchecked")
-            final Map<String, Serializable> mapOfInputDefinition = (Map<String, Serializable>) inputDefinition;
-            return convertComplexInputToExpectedType(inputValue, mapOfInputDefinition);
-        } else {
-            final InputDefinition simpleInputDefinition = (InputDefinition) inputDefinition;
-            if (Type.FILE.equals(simpleInputDefinition.getType())) {
-                return convertFileInputToExpectedType(inputValue);
-            } else {
-                return (Serializable) convertToType(simpleInputDefinition.getType(), inputValue);
-            }
-        }
-    }
-
-    private Serializable convertComplexInputToExpectedType(final Serializable inputValue,
-            final Map<String, Serializable> mapOfInputDefinition) throws FileNotFoundException {
-        if (inputValue instanceof Map) {
-            @SuppressWarnings("unchecked")
-            final Map<String, Serializable> mapOfValues = (Map<String, Serializable>) inputValue;
-            final Map<String, Serializable> convertedMapOfValues = new HashMap<>();
-            for (final Entry<String, Serializable> valueEntry : mapOfValues.entrySet()) {
-                final Serializable childInputDefinition = mapOfInputDefinition.get(valueEntry.getKey());
-                final Serializable convertedValue = convertInputToExpectedType(valueEntry.getValue(),
-                        childInputDefinition);
-                convertedMapOfValues.put(valueEntry.getKey(), convertedValue);
-            }
-            return (Serializable) convertedMapOfValues;
-        } else {
-            return inputValue;
-        }
-    }
-
-    private Serializable convertFileInputToExpectedType(final Serializable inputValue) throws FileNotFoundException {
-        if (inputValue instanceof Map) {
-            @SuppressWarnings("unchecked")
-            final Map<String, Serializable> mapOfValues = (Map<String, Serializable>) inputValue;
-            if (mapOfValues.containsKey(InputDefinition.FILE_INPUT_FILENAME) && mapOfValues.containsKey(FILE_TEMP_PATH)) {
-                final String filename = (String) mapOfValues.get(InputDefinition.FILE_INPUT_FILENAME);
-                return new FileInputValue(
-                        filename,
-                        (String) mapOfValues.get(CONTENT_TYPE),
-                        retrieveFileAndGetContent((String) mapOfValues.get(FILE_TEMP_PATH)),
-                        (String) mapOfValues.get(FILE_INPUT_ID));
-            }
-        }
-        return inputValue;
+    FileInputValue createFileInputValue(final String filename, final String contentType, final String fileTempPath,
+            final String fileInputId) throws FileNotFoundException {
+        return new FileInputValue(filename, contentType, retrieveFileAndGetContent(fileTempPath), fileInputId);
     }
 
     private byte[] retrieveFileAndGetContent(final String fileTempPath) throws FileNotFoundException {
@@ -260,19 +185,6 @@ public class ContractTypeConverter {
         }
     }
 
-    private Map<String, Serializable> createContractInputMap(final List<InputDefinition> inputDefinitions) {
-        final Map<String, Serializable> contractDefinitionMap = new HashMap<>();
-        for (final InputDefinition inputDefinition : inputDefinitions) {
-            if (inputDefinition.hasChildren() && !Type.FILE.equals(inputDefinition.getType())) {
-                contractDefinitionMap.put(inputDefinition.getName(),
-                        (Serializable) createContractInputMap(inputDefinition.getInputs()));
-            } else {
-                contractDefinitionMap.put(inputDefinition.getName(), inputDefinition);
-            }
-        }
-        return contractDefinitionMap;
-    }
-
     public ContractDefinition getAdaptedContractDefinition(final ContractDefinition contract) {
         if (contract == null) {
             return null;
@@ -325,63 +237,42 @@ public class ContractTypeConverter {
         return contractDefinition;
     }
 
-    private Object convertToType(final Class<? extends Serializable> clazz, final Serializable parameterValue) {
-        if (parameterValue == null) {
-            return null;
+    /**
+     * Parse a date with the first matching pattern, in GMT
+     */
+    Date parseDate(final String value) {
+        if (datePatterns == null) {
+            return (Date) convertWithBeanUtils(value, Date.class);
         }
-        String paramValueString = parameterValue.toString();
-        try {
-            if (clazz == LocalDate.class) {
-                //We drop useless info received from the widget ex: 2010-12-04T18:42:10Z, we drop T18:42:10Z to allow conversion
-                if (paramValueString.length() > 10) {
-                    LOGGER.debug( "The string " + paramValueString
-                            + " contains information that will be dropped to convert it to a LocalDate (most likely time and timezone information which are not relevant).");
-                    paramValueString = paramValueString.substring(0, 10);
-                }
-                return LocalDate.parse(paramValueString);
-            } else if (clazz == LocalDateTime.class) {
-                try {
-                    return LocalDateTime.parse(paramValueString);
-                } catch (DateTimeParseException e) {
-                    LOGGER.debug( "The string " + paramValueString
-                            + " contains information that will be dropped to convert it to a LocalDateTime (most likely time and timezone information which are not relevant).");
-                    //We drop the timezone info from the String:
-                    return ZonedDateTime.parse(paramValueString).toLocalDateTime();
-                }
-            } else if (clazz == OffsetDateTime.class) {
-                ZonedDateTime zonedDateTime = ZonedDateTime.parse(paramValueString);
-                return zonedDateTime.toOffsetDateTime();
-            } else {
-                return convertUtilsBean.convert(parameterValue, clazz);
+        final Map<String, DateFormat> dateFormats = DATE_FORMATS.get();
+        for (final String datePattern : datePatterns) {
+            final DateFormat dateFormat = dateFormats.computeIfAbsent(datePattern, pattern -> {
+                final DateFormat format = new SimpleDateFormat(pattern);
+                format.setTimeZone(TimeZone.getTimeZone("GMT"));
+                format.setLenient(false);
+                return format;
+            });
+            final ParsePosition position = new ParsePosition(0);
+            final Date date = dateFormat.parse(value, position);
+            if (date != null && position.getErrorIndex() < 0 && position.getIndex() == value.length()) {
+                return date;
             }
-        } catch (final ConversionException | DateTimeParseException e) {
-           LOGGER.info("unable to parse '" + parameterValue + "' to type " + clazz.getName(), e);
-            return parameterValue;
         }
+        throw new ConversionException("Error converting '" + value + "' to a Date using the patterns " + Arrays.toString(datePatterns));
     }
 
-    private Class<? extends Serializable> getClassFromType(final Type type) {
-        switch (type) {
-            case BOOLEAN:
-                return Boolean.class;
-            case DATE:
-                return Date.class;
-            case INTEGER:
-                return Integer.class;
-            case DECIMAL:
-                return Double.class;
-            case BYTE_ARRAY:
-                return Byte[].class;
-            case LONG:
-                return Long.class;
-            case LOCALDATE:
-                return LocalDate.class;
-            case LOCALDATETIME:
-                return LocalDateTime.class;
-            case OFFSETDATETIME:
-                return OffsetDateTime.class;
-            default:
-                return String.class;
+    /**
+     * Conversion of the values for which there is no direct parsing
+     */
+    Object convertWithBeanUtils(final Object value, final Class<?> clazz) {
+        if (convertUtilsBean == null) {
+            convertUtilsBean = new ConvertUtilsBean();
+            convertUtilsBean.register(true, false, 0);
+            final DateConverter dateConverter = new DateConverter();
+            dateConverter.setPatterns(datePatterns);
+            dateConverter.setTimeZone(TimeZone.getTimeZone("GMT"));
+            convertUtilsBean.register(dateConverter, Date.class);
         }
+        return convertUtilsBean.convert(value, clazz);
     }
 }
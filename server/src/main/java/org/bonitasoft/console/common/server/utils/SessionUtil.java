@@ -18,6 +18,7 @@ package org.bonitasoft.console.common.server.utils;
 
 import javax.servlet.http.HttpSession;
 
+import org.bonitasoft.console.common.server.job.JobManager;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.model.user.User;
 
@@ -53,6 +54,11 @@ public class SessionUtil {
     }
     
     public static void sessionLogout(final HttpSession session, final boolean invalidateHTTPSession) {
+        final Object apiSession = session.getAttribute(API_SESSION_PARAM_KEY);
+        if (apiSession instanceof APISession) {
+            UserProfilesCache.getInstance().invalidate((APISession) apiSession);
+            JobManager.sessionLoggedOut((APISession) apiSession);
+        }
         session.removeAttribute(API_SESSION_PARAM_KEY);
         session.removeAttribute(USERNAME_SESSION_PARAM);
         session.removeAttribute(USER_SESSION_PARAM_KEY);
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Callbacks run when a tenant is paused or resumed through the web application, so that the caches and background
+ * tasks of the tenant are cleared or stopped without the tenant administration code depending on them.
+ */
+public class TenantLifecycleHooks {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TenantLifecycleHooks.class.getName());
+
+    private static final List<LongConsumer> PAUSE_HOOKS = new CopyOnWriteArrayList<>();
+
+    private static final List<LongConsumer> RESUME_HOOKS = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param hook
+     *        called with the id of the tenant once it is paused
+     */
+    public static void onTenantPaused(final LongConsumer hook) {
+        PAUSE_HOOKS.add(hook);
+    }
+
+    /**
+     * @param hook
+     *        called with the id of the tenant once it is resumed
+     */
+    public static void onTenantResumed(final LongConsumer hook) {
+        RESUME_HOOKS.add(hook);
+    }
+
+    public static void tenantPaused(final long tenantId) {
+        runHooks(PAUSE_HOOKS, tenantId);
+    }
+
+    public static void tenantResumed(final long tenantId) {
+        runHooks(RESUME_HOOKS, tenantId);
+    }
+
+    public static void clear() {
+        PAUSE_HOOKS.clear();
+        RESUME_HOOKS.clear();
+    }
+
+    private static void runHooks(final List<LongConsumer> hooks, final long tenantId) {
+        for (final LongConsumer hook : hooks) {
+            try {
+                hook.accept(tenantId);
+            } catch (final RuntimeException e) {
+                //the tenant status has already changed: a failing hook must not fail the request
+                LOGGER.warn("Error while running a hook on the status change of tenant " + tenantId, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.utils;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
+import org.bonitasoft.engine.api.ProfileAPI;
+import org.bonitasoft.engine.profile.Profile;
+import org.bonitasoft.engine.profile.ProfileCriterion;
+import org.bonitasoft.engine.session.APISession;
+
+/**
+ * Ids of the profiles of the user of each API session, kept for a limited time so that authorization checks do not
+ * retrieve the profiles of the user on each request.
+ * All the entries are invalidated when a profile member or a user membership is added or removed, or when an
+ * organization is imported, through the web application. Other changes (group or role deleted, changes made directly
+ * through the engine APIs) are taken into account once the entries expire.
+ */
+public class UserProfilesCache {
+
+    /**
+     * above this number of sessions, expired entries are removed when a new entry is added
+     */
+    static final int PURGE_THRESHOLD = 1000;
+
+    private static UserProfilesCache instance;
+
+    private final Map<Long, CachedProfileIds> profileIdsBySession = new ConcurrentHashMap<>();
+
+    /**
+     * incremented on each invalidation so that profiles retrieved before an invalidation are not cached
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Clock clock;
+
+    private final long timeToLive;
+
+    public UserProfilesCache(final Clock clock, final long timeToLive) {
+        this.clock = clock;
+        this.timeToLive = timeToLive;
+    }
+
+    public static synchronized UserProfilesCache getInstance() {
+        if (instance == null) {
+            instance = new UserProfilesCache(Clock.systemUTC(),
+                    TimeUnit.SECONDS.toMillis(PropertiesFactory.getConsoleProperties().getUserProfilesCacheTimeToLive()));
+        }
+        return instance;
+    }
+
+    /**
+     * @return the ids of the profiles of the session user, retrieved from the engine at most once per time to live
+     */
+    public Set<Long> getProfileIds(final APISession apiSession, final ProfileAPI profileApi) {
+        final long now = clock.millis();
+        final CachedProfileIds cachedProfileIds = profileIdsBySession.get(apiSession.getId());
+        if (cachedProfileIds != null && cachedProfileIds.isValid(apiSession.getUserId(), generation.get(), now)) {
+            return cachedProfileIds.profileIds;
+        }
+        final long currentGeneration = generation.get();
+        final List<Profile> profiles = profileApi.getProfilesForUser(apiSession.getUserId(), 0, Integer.MAX_VALUE,
+                ProfileCriterion.ID_ASC);
+        final Set<Long> profileIds = new HashSet<>(profiles.size() * 4 / 3 + 1);
+        for (final Profile profile : profiles) {
+            profileIds.add(profile.getId());
+        }
+        if (profileIdsBySession.size() >= PURGE_THRESHOLD) {
+            profileIdsBySession.values().removeIf(cached -> cached.expirationDate <= now);
+        }
+        final Set<Long> unmodifiableProfileIds = Collections.unmodifiableSet(profileIds);
+        profileIdsBySession.put(apiSession.getId(),
+                new CachedProfileIds(apiSession.getUserId(), unmodifiableProfileIds, currentGeneration, now + timeToLive));
+        return unmodifiableProfileIds;
+    }
+
+    /**
+     * Forget the profiles of a session (e.g. on logout)
+     */
+    public void invalidate(final APISession apiSession) {
+        profileIdsBySession.remove(apiSession.getId());
+    }
+
+    /**
+     * Forget the profiles of all the sessions (e.g. when a profile member is added or removed)
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        profileIdsBySession.clear();
+    }
+
+    private static class CachedProfileIds {
+
+        private final long userId;
+
+        private final Set<Long> profileIds;
+
+        private final long generation;
+
+        private final long expirationDate;
+
+        private CachedProfileIds(final long userId, final Set<Long> profileIds, final long generation, final long expirationDate) {
+            this.userId = userId;
+            this.profileIds = profileIds;
+            this.generation = generation;
+            this.expirationDate = expirationDate;
+        }
+
+        private boolean isValid(final long userId, final long currentGeneration, final long now) {
+            return this.userId == userId && generation == currentGeneration && now < expirationDate;
+        }
+    }
+
+}
@@ -15,13 +15,12 @@
 package org.bonitasoft.console.server.service;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 
-import org.apache.commons.io.IOUtils;
 import org.bonitasoft.console.common.server.utils.BonitaHomeFolderAccessor;
 import org.bonitasoft.engine.exception.AlreadyExistsException;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
@@ -61,8 +60,17 @@ abstract class BonitaImportService extends ConsoleService {
 
         try {
             final JacksonSerializer serializer = new JacksonSerializer();
+            if (isAsynchronous()) {
+                return submitJob(getToken(), job -> {
+                    final ImportStatusMessages importStatusMessages = importFileContent(readImportFile(xmlFile), importPolicyAsString);
+                    job.setResult(serializer.serialize(importStatusMessages));
+                });
+            }
             final ImportStatusMessages importStatusMessages = importFileContent(readImportFile(xmlFile), importPolicyAsString);
             return serializer.serialize(importStatusMessages);
+        } catch (final RejectedExecutionException e) {
+            getHttpResponse().setStatus(SC_TOO_MANY_REQUESTS);
+            throw new ServiceException(getToken(), AbstractI18n.t_("Too many imports and exports in progress. Please try again later."), e);
         } catch (final InvalidSessionException e) {
             if (getLogger().isInfoEnabled()) {
                 getLogger().info(AbstractI18n.t_("Session expired. Please log in again."), e);
@@ -92,24 +100,12 @@ abstract class BonitaImportService extends ConsoleService {
     }
 
     protected byte[] readImportFile(final File xmlFile) {
-        InputStream xmlStream = null;
-        byte[] content;
+        //the array is allocated once with the size of the file instead of growing while reading
         try {
-            xmlStream = new FileInputStream(xmlFile);
-            content = IOUtils.toByteArray(xmlStream);
+            return Files.readAllBytes(xmlFile.toPath());
         } catch (final Exception e) {
             throw new ServiceException(getFileReadingError(), e);
-        } finally {
-            if (xmlStream != null) {
-                try {
-                    xmlStream.close();
-                } catch (final IOException e) {
-                    xmlStream = null;
-                }
-            }
         }
-
-        return content;
     }
 
     protected BonitaHomeFolderAccessor getTenantFolder() {
@@ -16,6 +16,13 @@
  */
 package org.bonitasoft.console.server.service;
 
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.bonitasoft.console.common.server.job.Job;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.console.common.server.job.JobTask;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.toolkit.server.Service;
 
@@ -25,6 +32,13 @@ import org.bonitasoft.web.toolkit.server.Service;
  */
 public abstract class ConsoleService extends Service {
 
+    /**
+     * request parameter asking to run the service as a background job
+     */
+    public static final String ASYNC_PARAM_NAME = "async";
+
+    public static final int SC_TOO_MANY_REQUESTS = 429;
+
     private APISession sessionSingleton = null;
 
     /**
@@ -37,4 +51,25 @@ public abstract class ConsoleService extends Service {
         return this.sessionSingleton;
     }
 
+    protected boolean isAsynchronous() {
+        return Boolean.parseBoolean(getParameter(ASYNC_PARAM_NAME));
+    }
+
+    /**
+     * Run the task as a background job of the current user. Everything the task needs from the request must have been
+     * read beforehand, as the request is over when the task runs.
+     *
+     * @return the id of the job, as JSON, to poll its status
+     * @throws RejectedExecutionException if too many jobs are already running or waiting
+     */
+    protected String submitJob(final String name, final JobTask task) {
+        final Job job = getJobManager().submit(getSession(), name, task);
+        getHttpResponse().setStatus(HttpServletResponse.SC_ACCEPTED);
+        return "{\"jobId\":\"" + job.getId() + "\"}";
+    }
+
+    protected JobManager getJobManager() {
+        return JobManager.getInstance();
+    }
+
 }
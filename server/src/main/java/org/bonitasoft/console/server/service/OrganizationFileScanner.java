@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.server.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.input.BOMInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads an organization file with a streaming parser, without loading it in memory, to check that it is a well-formed
+ * UTF-8 XML document and to count the entities it contains.
+ */
+public class OrganizationFileScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrganizationFileScanner.class.getName());
+
+    /**
+     * the scan progress is logged each time this number of entities has been read
+     */
+    static final long PROGRESS_STEP = 10000;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
+    private static XMLInputFactory createXMLInputFactory() {
+        final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return xmlInputFactory;
+    }
+
+    /**
+     * @throws XMLStreamException if the file is not a well-formed XML document
+     * @throws java.nio.charset.CharacterCodingException if the file is not encoded in UTF-8
+     */
+    public OrganizationFileSummary scan(final File organizationFile) throws IOException, XMLStreamException {
+        try (Reader reader = openReader(organizationFile)) {
+            return scan(reader);
+        }
+    }
+
+    OrganizationFileSummary scan(final Reader reader) throws XMLStreamException {
+        final OrganizationFileSummary summary = new OrganizationFileSummary();
+        final XMLStreamReader xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(reader);
+        try {
+            scan(xmlReader, summary);
+        } finally {
+            xmlReader.close();
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Organization file checked: " + summary.getUsers() + " users, " + summary.getGroups() + " groups, "
+                    + summary.getRoles() + " roles, " + summary.getMemberships() + " memberships");
+        }
+        return summary;
+    }
+
+    /**
+     * @return a reader decoding the organization file as UTF-8 while it is read, without byte order mark. The decoder
+     *         reports malformed input instead of replacing it.
+     */
+    static Reader openReader(final File organizationFile) throws IOException {
+        final InputStream inputStream = new BOMInputStream(Files.newInputStream(organizationFile.toPath()));
+        return new InputStreamReader(inputStream, StandardCharsets.UTF_8.newDecoder());
+    }
+
+    private void scan(final XMLStreamReader xmlReader, final OrganizationFileSummary summary) throws XMLStreamException {
+        final Deque<String> parentElements = new ArrayDeque<>();
+        while (xmlReader.hasNext()) {
+            final int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                final String elementName = xmlReader.getLocalName();
+                if (countEntity(parentElements.peek(), elementName, summary) && summary.getEntities() % PROGRESS_STEP == 0
+                        && LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Organization file check in progress: " + summary.getEntities() + " entities read");
+                }
+                parentElements.push(elementName);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                parentElements.pop();
+            }
+        }
+    }
+
+    private boolean countEntity(final String parentElement, final String elementName, final OrganizationFileSummary summary) {
+        if ("users".equals(parentElement) && "user".equals(elementName)) {
+            summary.addUser();
+        } else if ("groups".equals(parentElement) && "group".equals(elementName)) {
+            summary.addGroup();
+        } else if ("roles".equals(parentElement) && "role".equals(elementName)) {
+            summary.addRole();
+        } else if ("memberships".equals(parentElement) && "membership".equals(elementName)) {
+            summary.addMembership();
+        } else if ("customUserInfoDefinitions".equals(parentElement) && "customUserInfoDefinition".equals(elementName)) {
+            summary.addCustomUserInfoDefinition();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+}
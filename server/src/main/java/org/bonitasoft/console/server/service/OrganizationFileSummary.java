@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.server.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content of an organization file, as counted before its import, and warnings of the import
+ */
+public class OrganizationFileSummary {
+
+    private long users;
+
+    private long groups;
+
+    private long roles;
+
+    private long memberships;
+
+    private long customUserInfoDefinitions;
+
+    private List<String> warnings = new ArrayList<>();
+
+    public long getUsers() {
+        return users;
+    }
+
+    public long getGroups() {
+        return groups;
+    }
+
+    public long getRoles() {
+        return roles;
+    }
+
+    public long getMemberships() {
+        return memberships;
+    }
+
+    public long getCustomUserInfoDefinitions() {
+        return customUserInfoDefinitions;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public void setWarnings(final List<String> warnings) {
+        this.warnings = warnings != null ? warnings : new ArrayList<>();
+    }
+
+    void addUser() {
+        users++;
+    }
+
+    void addGroup() {
+        groups++;
+    }
+
+    void addRole() {
+        roles++;
+    }
+
+    void addMembership() {
+        memberships++;
+    }
+
+    void addCustomUserInfoDefinition() {
+        customUserInfoDefinitions++;
+    }
+
+    /**
+     * @return the number of entities (users, groups, roles, memberships and custom user info definitions) counted so far
+     */
+    public long getEntities() {
+        return users + groups + roles + memberships + customUserInfoDefinitions;
+    }
+
+}
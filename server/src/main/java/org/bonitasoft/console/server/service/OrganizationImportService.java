@@ -16,16 +16,19 @@
  */
 package org.bonitasoft.console.server.service;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.xml.stream.XMLStreamException;
 
-import org.apache.commons.io.IOUtils;
 import org.bonitasoft.console.common.server.utils.BonitaHomeFolderAccessor;
+import org.bonitasoft.console.common.server.utils.UserProfilesCache;
 import org.bonitasoft.engine.api.IdentityAPI;
 import org.bonitasoft.engine.api.TenantAPIAccessor;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
@@ -34,6 +37,7 @@ import org.bonitasoft.engine.exception.UnknownAPITypeException;
 import org.bonitasoft.engine.identity.ImportPolicy;
 import org.bonitasoft.engine.identity.InvalidOrganizationFileFormatException;
 import org.bonitasoft.engine.session.InvalidSessionException;
+import org.bonitasoft.web.rest.server.framework.json.JacksonSerializer;
 import org.bonitasoft.web.toolkit.client.common.i18n.AbstractI18n;
 import org.bonitasoft.web.toolkit.server.ServiceException;
 
@@ -59,12 +63,43 @@ public class OrganizationImportService extends ConsoleService {
      */
     private static final String IMPORT_POLICY_PARAM_NAME = "importPolicy";
 
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private static final int MAX_CONTENT_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * The organization file is checked and its entities are counted with a streaming parser before anything is sent to
+     * the engine. Its content is then decoded as a UTF-8 string once, while the file is read, right before the import.
+     * When the import is asynchronous, the check is still done before answering, and the import runs as a background job.
+     * Once imported, the cached profiles of the users are invalidated as the import may change their profile mappings.
+     *
+     * @return the counts of entities of the file and the import warnings, as JSON, or the id of the import job
+     */
     @Override
     public Object run() {
         final BonitaHomeFolderAccessor tenantFolder = new BonitaHomeFolderAccessor();
         try {
-            final byte[] organizationContent = getOrganizationContent(tenantFolder);
-            getIdentityAPI().importOrganizationWithWarnings(new String(organizationContent), getImportPolicy());
+            final File organizationFile = getOrganizationFile(tenantFolder);
+            final OrganizationFileSummary summary = new OrganizationFileScanner().scan(organizationFile);
+            final ImportPolicy importPolicy = getImportPolicy();
+            final IdentityAPI identityAPI = getIdentityAPI();
+            if (isAsynchronous()) {
+                return submitJob(TOKEN, job -> {
+                    job.setProgress(10);
+                    final String organizationContent = readOrganizationContent(organizationFile);
+                    job.setProgress(20);
+                    summary.setWarnings(identityAPI.importOrganizationWithWarnings(organizationContent, importPolicy));
+                    getUserProfilesCache().invalidateAll();
+                    job.addWarnings(summary.getWarnings());
+                    job.setResult(new JacksonSerializer().serialize(summary));
+                });
+            }
+            summary.setWarnings(identityAPI.importOrganizationWithWarnings(readOrganizationContent(organizationFile), importPolicy));
+            getUserProfilesCache().invalidateAll();
+            return new JacksonSerializer().serialize(summary);
+        } catch (final RejectedExecutionException e) {
+            getHttpResponse().setStatus(SC_TOO_MANY_REQUESTS);
+            throw new ServiceException(TOKEN, AbstractI18n.t_("Too many imports and exports in progress. Please try again later."), e);
         } catch (final InvalidSessionException e) {
             getHttpResponse().setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             String message = AbstractI18n.t_("Session expired. Please log in again.");
@@ -72,7 +107,7 @@ public class OrganizationImportService extends ConsoleService {
                 LOGGER.info( message, e.getMessage());
             }
             throw new ServiceException(TOKEN, message, e);
-        } catch (InvalidOrganizationFileFormatException | IllegalArgumentException e) {
+        } catch (InvalidOrganizationFileFormatException | IllegalArgumentException | XMLStreamException | CharacterCodingException e) {
             getHttpResponse().setStatus(HttpServletResponse.SC_BAD_REQUEST);
             String message = AbstractI18n.t_("Can't import organization. Please check that your file is well-formed.");
             if (LOGGER.isInfoEnabled()) {
@@ -85,7 +120,6 @@ public class OrganizationImportService extends ConsoleService {
             }
             throw new ServiceException(TOKEN, AbstractI18n.t_("Can't import organization"), e);
         }
-        return "";
     }
 
     private ImportPolicy getImportPolicy() {
@@ -97,17 +131,43 @@ public class OrganizationImportService extends ConsoleService {
         return importPolicy;
     }
 
-    public byte[] getOrganizationContent(final BonitaHomeFolderAccessor tenantFolder) throws IOException {
-        try (InputStream xmlStream = new FileInputStream(tenantFolder.getTempFile(getFileUploadParameter()))) {
-            return IOUtils.toByteArray(xmlStream);
+    protected File getOrganizationFile(final BonitaHomeFolderAccessor tenantFolder) throws IOException {
+        return tenantFolder.getTempFile(getFileUploadParameter());
+    }
+
+    /**
+     * The engine only imports an organization given as a string: the file is decoded while it is read, so that its
+     * bytes are never held in memory besides its content.
+     *
+     * @return the content of the organization file decoded as UTF-8, without byte order mark
+     */
+    protected String readOrganizationContent(final File organizationFile) throws IOException {
+        try (Reader reader = OrganizationFileScanner.openReader(organizationFile)) {
+            return readOrganizationContent(reader, organizationFile.length());
         }
     }
 
+    /**
+     * @param expectedLength the expected number of characters, so that the content is not copied while it grows
+     */
+    String readOrganizationContent(final Reader reader, final long expectedLength) throws IOException {
+        final StringBuilder organizationContent = new StringBuilder((int) Math.min(expectedLength, MAX_CONTENT_LENGTH));
+        final char[] buffer = new char[READ_BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            organizationContent.append(buffer, 0, read);
+        }
+        return organizationContent.toString();
+    }
 
     protected IdentityAPI getIdentityAPI() throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException, UnknownAPITypeException {
         return TenantAPIAccessor.getIdentityAPI(getSession());
     }
 
+    protected UserProfilesCache getUserProfilesCache() {
+        return UserProfilesCache.getInstance();
+    }
+
     protected String getFileUploadParameter() {
         return getParameter(FILE_UPLOAD);
     }
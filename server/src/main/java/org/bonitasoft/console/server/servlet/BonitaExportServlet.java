@@ -20,6 +20,9 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 
@@ -28,15 +31,27 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.bonitasoft.console.common.server.job.Job;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.console.common.server.job.JobTask;
+import org.bonitasoft.console.common.server.preferences.properties.ConsoleProperties;
+import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
+import org.bonitasoft.console.common.server.utils.SessionUtil;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
 import org.bonitasoft.engine.exception.ExecutionException;
 import org.bonitasoft.engine.exception.ExportException;
 import org.bonitasoft.engine.exception.ServerAPIException;
 import org.bonitasoft.engine.exception.UnknownAPITypeException;
+import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.engine.session.InvalidSessionException;
 
 /**
  * Export Resources as XML file
+ * The export is streamed to the response without content length (chunked transfer encoding), gzipped on the fly when
+ * the client accepts it. The number of exports running at the same time is limited: when the limit is reached, the
+ * export is refused with a 429 status.
+ * With the parameter async=true, exports supporting it run as a background job instead, whose result is downloadable
+ * from the job servlet.
  *
  * @author Cuisha Gai, Anthony Birembaut
  */
@@ -47,45 +62,184 @@ abstract class BonitaExportServlet extends HttpServlet {
      */
     private static final long serialVersionUID = 1800666571090128789L;
 
+    static final int SC_TOO_MANY_REQUESTS = 429;
+
+    static final String RETRY_AFTER_SECONDS = "10";
+
+    static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    static final String ASYNC_PARAM_NAME = "async";
+
+    private static volatile Semaphore exportPermits;
+
     @Override
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
 
-        OutputStream out = null;
+        if (Boolean.parseBoolean(request.getParameter(ASYNC_PARAM_NAME)) && submitExportJob(request, response)) {
+            return;
+        }
+        final Semaphore permits = getExportPermits();
+        if (!permits.tryAcquire()) {
+            response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            response.sendError(SC_TOO_MANY_REQUESTS, "Too many exports in progress. Please try again later.");
+            return;
+        }
         try {
-            final byte[] resourceBytes = exportResources(request);
-
             // Set response headers
             setResponseHeaders(request, response);
-            out = response.getOutputStream();
-            out.write(resourceBytes);
-            out.flush();
+            //the stream is not closed when the export fails so that the response is not committed
+            final ExportOutputStream out = new ExportOutputStream(response, acceptsGzip(request));
+            exportResources(request, out);
+            out.finish();
 
         } catch (final InvalidSessionException e) {
             String message = "Session expired. Please log in again.";
             if (getLogger().isDebugEnabled()) {
                 getLogger().debug(message, e);
             }
-            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+            sendError(response, HttpServletResponse.SC_UNAUTHORIZED, message, e);
         } catch (final FileNotFoundException e) {
             String message = "There is no BDM Access control installed.";
             if (getLogger().isInfoEnabled()) {
                 getLogger().info(message);
             }
-            response.sendError(HttpServletResponse.SC_NOT_FOUND, message);
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, message, e);
         } catch (final Exception e) {
             if (getLogger().isErrorEnabled()) {
                 getLogger().error(e.getMessage(), e);
             }
+            if (!response.isCommitted()) {
+                //so that the error is not downloaded as the export file
+                response.reset();
+            }
             throw new ServletException(e.getMessage(), e);
         } finally {
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (final IOException e) {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return false if the export cannot run as a background job
+     */
+    private boolean submitExportJob(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        final APISession apiSession = (APISession) request.getSession().getAttribute(SessionUtil.API_SESSION_PARAM_KEY);
+        if (apiSession == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Session expired. Please log in again.");
+            return true;
+        }
+        final JobTask exportTask;
+        try {
+            exportTask = createExportJobTask(request);
+        } catch (final RuntimeException e) {
+            if (getLogger().isErrorEnabled()) {
                 getLogger().error(e.getMessage(), e);
             }
+            throw new ServletException(e.getMessage(), e);
+        }
+        if (exportTask == null) {
+            return false;
+        }
+        try {
+            final Job job = getJobManager().submit(apiSession, getFileExportName(), exportTask);
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().print("{\"jobId\":\"" + job.getId() + "\"}");
+            response.getWriter().flush();
+        } catch (final RejectedExecutionException e) {
+            response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            response.sendError(SC_TOO_MANY_REQUESTS, "Too many imports and exports in progress. Please try again later.");
+        }
+        return true;
+    }
+
+    /**
+     * Read from the request everything the export needs and create the task running it as a background job, which
+     * writes the export with {@link org.bonitasoft.console.common.server.job.Job#openResultFile(String)}.
+     *
+     * @return the export task or null if the export cannot run in background
+     */
+    protected JobTask createExportJobTask(final HttpServletRequest request) {
+        return null;
+    }
+
+    protected JobManager getJobManager() {
+        return JobManager.getInstance();
+    }
+
+    /**
+     * Write the export to the output stream. Exports whose content can be produced progressively should write it as it
+     * is produced so that the whole content is never held in memory.
+     */
+    protected abstract void exportResources(final HttpServletRequest request, final OutputStream out) throws BonitaHomeNotSetException,
+            ServerAPIException, UnknownAPITypeException, ExportException, FileNotFoundException, ExecutionException, IOException;
+
+    private void sendError(final HttpServletResponse response, final int status, final String message, final Exception e)
+            throws ServletException, IOException {
+        if (response.isCommitted()) {
+            //part of the export has already been sent: the download can only be interrupted
+            throw new ServletException(message, e);
+        }
+        response.reset();
+        response.sendError(status, message);
+    }
+
+    /**
+     * @return true if the Accept-Encoding header accepts gzip with a non-zero quality value, explicitly or through *
+     */
+    static boolean acceptsGzip(final HttpServletRequest request) {
+        final String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double wildcardQuality = null;
+        for (final String encoding : acceptEncoding.split(",")) {
+            final String[] encodingParts = encoding.split(";");
+            final String coding = encodingParts[0].trim().toLowerCase();
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                return getQuality(encodingParts) > 0;
+            } else if ("*".equals(coding)) {
+                wildcardQuality = getQuality(encodingParts);
+            }
         }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    /**
+     * @return the q parameter of an Accept-Encoding entry, 1 if it has none and 0 if it is not a valid number
+     */
+    private static double getQuality(final String[] encodingParts) {
+        for (int i = 1; i < encodingParts.length; i++) {
+            final String parameter = encodingParts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (final NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    Semaphore getExportPermits() {
+        if (exportPermits == null) {
+            synchronized (BonitaExportServlet.class) {
+                if (exportPermits == null) {
+                    exportPermits = new Semaphore(getConsoleProperties().getMaxConcurrentExports());
+                }
+            }
+        }
+        return exportPermits;
+    }
+
+    static void resetExportPermits() {
+        synchronized (BonitaExportServlet.class) {
+            exportPermits = null;
+        }
+    }
+
+    protected ConsoleProperties getConsoleProperties() {
+        return PropertiesFactory.getConsoleProperties();
     }
 
     protected void setResponseHeaders(final HttpServletRequest request, final HttpServletResponse response) throws UnsupportedEncodingException {
@@ -103,8 +257,63 @@ abstract class BonitaExportServlet extends HttpServlet {
 
     protected abstract String getFileExportName();
 
-    protected abstract byte[] exportResources(final HttpServletRequest request) throws BonitaHomeNotSetException, ServerAPIException, UnknownAPITypeException, ExportException, FileNotFoundException, ExecutionException;
-
     protected abstract Logger getLogger();
 
+    /**
+     * Output stream of the export, which opens the response output stream (gzipped if needed) on the first write only,
+     * so that an export failing before writing anything can still send an error status.
+     * Closing it does nothing: the response output stream is closed by {@link #finish()} once the export is done.
+     */
+    private static class ExportOutputStream extends OutputStream {
+
+        private final HttpServletResponse response;
+
+        private final boolean gzip;
+
+        private OutputStream responseOutputStream;
+
+        private ExportOutputStream(final HttpServletResponse response, final boolean gzip) {
+            this.response = response;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            open().write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            open().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (responseOutputStream != null) {
+                responseOutputStream.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            //closed by finish()
+        }
+
+        private void finish() throws IOException {
+            open().close();
+        }
+
+        private OutputStream open() throws IOException {
+            if (responseOutputStream == null) {
+                if (gzip) {
+                    response.setHeader("Content-Encoding", "gzip");
+                    responseOutputStream = new GZIPOutputStream(response.getOutputStream(), EXPORT_BUFFER_SIZE);
+                } else {
+                    responseOutputStream = response.getOutputStream();
+                }
+            }
+            return responseOutputStream;
+        }
+    }
+
 }
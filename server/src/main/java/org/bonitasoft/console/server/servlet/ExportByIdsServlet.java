@@ -15,9 +15,12 @@
 package org.bonitasoft.console.server.servlet;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.bonitasoft.console.common.server.job.JobTask;
 import org.bonitasoft.console.common.server.utils.SessionUtil;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
 import org.bonitasoft.engine.exception.ExecutionException;
@@ -39,10 +42,31 @@ public abstract class ExportByIdsServlet extends BonitaExportServlet {
     private static final String RESOURCES_PARAM_KEY = "id";
     
     @Override
-    protected byte[] exportResources(final HttpServletRequest request) throws BonitaHomeNotSetException, ServerAPIException, UnknownAPITypeException, ExportException, FileNotFoundException, ExecutionException {
+    protected void exportResources(final HttpServletRequest request, final OutputStream out) throws BonitaHomeNotSetException, ServerAPIException,
+            UnknownAPITypeException, ExportException, FileNotFoundException, ExecutionException, IOException {
         final APISession apiSession = (APISession) request.getSession().getAttribute(SessionUtil.API_SESSION_PARAM_KEY);
-        long[] resourcesIds = getResourcesAsList(request);
-        return exportResources(resourcesIds, apiSession);
+        exportResources(getResourcesAsList(request), apiSession, out);
+    }
+
+    @Override
+    protected JobTask createExportJobTask(final HttpServletRequest request) {
+        final APISession apiSession = (APISession) request.getSession().getAttribute(SessionUtil.API_SESSION_PARAM_KEY);
+        final long[] resourcesIds = getResourcesAsList(request);
+        final String fileExportName = getFileExportName();
+        return job -> {
+            try (OutputStream out = job.openResultFile(fileExportName)) {
+                exportResources(resourcesIds, apiSession, out);
+            }
+        };
+    }
+
+    /**
+     * Write the export of the resources to the output stream.
+     * By default, it writes the content returned by {@link #exportResources(long[], APISession)}.
+     */
+    protected void exportResources(final long[] ids, final APISession apiSession, final OutputStream out) throws BonitaHomeNotSetException,
+            ServerAPIException, UnknownAPITypeException, ExportException, FileNotFoundException, ExecutionException, IOException {
+        out.write(exportResources(ids, apiSession));
     }
     
     protected final long[] getResourcesAsList(final HttpServletRequest request) {
@@ -16,32 +16,36 @@
  */
 package org.bonitasoft.console.server.servlet;
 
+import java.io.IOException;
 import java.io.OutputStream;
-import java.net.URLEncoder;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
-import javax.servlet.ServletException;
-import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
 
+import org.bonitasoft.console.common.server.job.JobTask;
 import org.bonitasoft.console.common.server.utils.SessionUtil;
 import org.bonitasoft.engine.api.IdentityAPI;
 import org.bonitasoft.engine.api.TenantAPIAccessor;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
+import org.bonitasoft.engine.exception.ExecutionException;
 import org.bonitasoft.engine.exception.ServerAPIException;
 import org.bonitasoft.engine.exception.UnknownAPITypeException;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.engine.session.InvalidSessionException;
 
 /**
+ * Export the organization as XML file. The XML returned by the engine is encoded while it is written to the response,
+ * without being copied into a byte array first.
+ *
  * @author Chong Zhao
  *
  */
-public class OrganizationExportServlet extends HttpServlet {
+public class OrganizationExportServlet extends BonitaExportServlet {
 
     private static final String EXPORT_FILE_NAME = "Organization_Data.xml";
 
@@ -56,59 +60,46 @@ public class OrganizationExportServlet extends HttpServlet {
     private static final long serialVersionUID = 7203686892997001991L;
 
     @Override
-    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException {
+    protected String getFileExportName() {
+        return EXPORT_FILE_NAME;
+    }
 
+    @Override
+    protected void exportResources(final HttpServletRequest request, final OutputStream out) throws BonitaHomeNotSetException,
+            ServerAPIException, UnknownAPITypeException, ExecutionException, IOException {
         final APISession apiSession = (APISession) request.getSession().getAttribute(SessionUtil.API_SESSION_PARAM_KEY);
-        OutputStream out = null;
-        try {
-            final String organizationContent = getIdentityAPI(apiSession).exportOrganization();
-
-            // Set response headers
-            response.setCharacterEncoding("UTF-8");
-            response.setContentType("application/octet-stream");
-            final String encodedfileName = URLEncoder.encode(EXPORT_FILE_NAME, StandardCharsets.UTF_8);
-            final String userAgent = request.getHeader("User-Agent");
-            if (userAgent != null && userAgent.contains("Firefox")) {
-                response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encodedfileName);
-            } else {
-                response.setHeader("Content-Disposition", "attachment; filename=\"" + encodedfileName.replaceAll("\\_", " ") + "\"; filename*=UTF-8''"
-                        + encodedfileName);
-            }
-
-            out = response.getOutputStream();
+        exportOrganization(apiSession, out);
+    }
 
-            if (organizationContent == null) {
-                response.setContentLength(0);
-            } else {
-                response.setContentLength(organizationContent.getBytes().length);
+    @Override
+    protected JobTask createExportJobTask(final HttpServletRequest request) {
+        final APISession apiSession = (APISession) request.getSession().getAttribute(SessionUtil.API_SESSION_PARAM_KEY);
+        return job -> {
+            try (OutputStream out = job.openResultFile(EXPORT_FILE_NAME)) {
+                exportOrganization(apiSession, out);
             }
-            out.write(organizationContent.getBytes());
-            out.flush();
+        };
+    }
 
-        } catch (final InvalidSessionException e) {
-            final String message = "Session expired. Please log in again.";
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.info( message, e);
-            }
-            throw new ServletException(e.getMessage(), e);
-        } catch (final Exception e) {
-             if (LOGGER.isErrorEnabled()) {
-                LOGGER.error( e.getMessage(), e);
-            }
-            throw new ServletException(e.getMessage(), e);
-        } finally {
-            try {
-                out.close();
-            } catch (final Exception e) {
-                out = null;
-            }
+    private void exportOrganization(final APISession apiSession, final OutputStream out) throws BonitaHomeNotSetException,
+            ServerAPIException, UnknownAPITypeException, ExecutionException, IOException {
+        final String organizationContent = getIdentityAPI(apiSession).exportOrganization();
+        if (organizationContent != null) {
+            //not closed: the output stream is closed by the caller
+            final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(organizationContent);
+            writer.flush();
         }
-
     }
 
-    private IdentityAPI getIdentityAPI(final APISession apiSession) throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException,
+    protected IdentityAPI getIdentityAPI(final APISession apiSession) throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException,
             UnknownAPITypeException {
         return TenantAPIAccessor.getIdentityAPI(apiSession);
     }
 
+    @Override
+    protected Logger getLogger() {
+        return LOGGER;
+    }
+
 }
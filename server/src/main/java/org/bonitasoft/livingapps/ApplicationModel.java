@@ -1,5 +1,6 @@
 package org.bonitasoft.livingapps;
 
+import org.bonitasoft.console.common.server.utils.UserProfilesCache;
 import org.bonitasoft.engine.api.ApplicationAPI;
 import org.bonitasoft.engine.api.PageAPI;
 import org.bonitasoft.engine.api.ProfileAPI;
@@ -10,8 +11,6 @@ import org.bonitasoft.engine.business.application.ApplicationVisibility;
 import org.bonitasoft.engine.exception.SearchException;
 import org.bonitasoft.engine.page.Page;
 import org.bonitasoft.engine.page.PageNotFoundException;
-import org.bonitasoft.engine.profile.Profile;
-import org.bonitasoft.engine.profile.ProfileCriterion;
 import org.bonitasoft.engine.search.Order;
 import org.bonitasoft.engine.search.SearchOptionsBuilder;
 import org.bonitasoft.engine.session.APISession;
@@ -27,6 +26,7 @@ public class ApplicationModel {
     private final PageAPI pageApi;
     private final Application application;
     private final MenuFactory factory;
+    private final UserProfilesCache userProfilesCache;
 
     public ApplicationModel(
             final ApplicationAPI applicationApi,
@@ -34,11 +34,22 @@ public class ApplicationModel {
             final ProfileAPI profileApi,
             final Application application,
             final MenuFactory factory) {
+        this(applicationApi, pageApi, profileApi, application, factory, UserProfilesCache.getInstance());
+    }
+
+    public ApplicationModel(
+            final ApplicationAPI applicationApi,
+            final PageAPI pageApi,
+            final ProfileAPI profileApi,
+            final Application application,
+            final MenuFactory factory,
+            final UserProfilesCache userProfilesCache) {
         this.applicationApi = applicationApi;
         this.pageApi = pageApi;
         this.profileApi = profileApi;
         this.application = application;
         this.factory = factory;
+        this.userProfilesCache = userProfilesCache;
     }
 
     public long getId() {
@@ -76,13 +87,8 @@ public class ApplicationModel {
         } else if (ApplicationVisibility.TECHNICAL_USER.equals(application.getVisibility())) {
             return session.isTechnicalUser();
         } else {
-            for (final Profile userProfile : getUserProfiles(session)) {
-                if (userProfile.getId() == application.getProfileId()) {
-                    return true;
-                }
-            }
+            return userProfilesCache.getProfileIds(session, profileApi).contains(application.getProfileId());
         }
-        return false;
     }
 
     public boolean hasProfileMapped() {
@@ -92,14 +98,6 @@ public class ApplicationModel {
         return true;
     }
 
-    private List<Profile> getUserProfiles(final APISession session) {
-        return profileApi.getProfilesForUser(
-                session.getUserId(),
-                0,
-                Integer.MAX_VALUE,
-                ProfileCriterion.ID_ASC);
-    }
-
     public Page getCustomPage(final String pageToken) throws ApplicationPageNotFoundException, PageNotFoundException {
         return pageApi.getPage(applicationApi.getApplicationPage(application.getToken(), pageToken).getPageId());
     }
@@ -3,8 +3,6 @@ package org.bonitasoft.livingapps;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -38,7 +36,7 @@ public class ApplicationRouter {
             final ResourceRenderer resourceRenderer, final BonitaHomeFolderAccessor bonitaHomeFolderAccessor)
             throws CreationException, BonitaException, IOException, ServletException, IllegalAccessException, InstantiationException {
 
-        final ParsedRequest parsedRequest = parse(hsRequest.getContextPath(), hsRequest.getServletPath(), hsRequest.getPathInfo());
+        final ParsedRequest parsedRequest = ParsedRequest.parse(hsRequest.getContextPath(), hsRequest.getServletPath(), hsRequest.getPathInfo());
         //Test if url contain at least application name
         final List<String> pathSegments = resourceRenderer.getPathSegments(hsRequest.getPathInfo());
         if (pathSegments.isEmpty()) {
@@ -150,31 +148,86 @@ public class ApplicationRouter {
         return resourcePath.substring(pageToken.length() + 1);
     }
 
-    private ParsedRequest parse(final String context, final String servletPath, final String pathInfo) {
-        final Pattern pattern = Pattern.compile("^" + context + "/apps/(.*)$");
-        final Matcher matcher = pattern.matcher(context + servletPath + pathInfo);
-        if (!matcher.find()) {
-            throw new RuntimeException("URI badly formed.");
-        }
-        final String[] fragments = matcher.group(1).split("/");
-        String pageToken = null;
-        if (fragments.length > 1) {
-            pageToken = fragments[1];
-        }
-        return new ParsedRequest(fragments[0], pageToken);
-    }
+    /**
+     * Application and page tokens of a living application URL "{context}/apps/{applicationToken}/{pageToken}/...".
+     * The path is read in a single pass without regular expression. The tokens are the ones the path would give when
+     * split on "/" (String#split): empty tokens are kept, except the trailing ones.
+     */
+    static final class ParsedRequest {
 
-    private class ParsedRequest {
+        private static final String APPS_PATH = "/apps/";
 
         private final String applicationToken;
 
         private final String pageToken;
 
-        public ParsedRequest(final String applicationToken, final String pageToken) {
+        private ParsedRequest(final String applicationToken, final String pageToken) {
             this.applicationToken = applicationToken;
             this.pageToken = pageToken;
         }
 
+        static ParsedRequest parse(final String context, final String servletPath, final String pathInfo) {
+            final String path = context + servletPath + pathInfo;
+            final int start = context.length() + APPS_PATH.length();
+            if (!path.startsWith(APPS_PATH, context.length()) || !path.startsWith(context)) {
+                throw new RuntimeException("URI badly formed.");
+            }
+            final int end = getEndIgnoringFinalLineTerminator(path, start);
+            int applicationTokenEnd = path.indexOf('/', start);
+            if (applicationTokenEnd == -1 || applicationTokenEnd > end) {
+                applicationTokenEnd = end;
+            }
+            if (applicationTokenEnd == start && end > start && !hasNonSlashCharacter(path, start, end)) {
+                //nothing but slashes after "/apps/"
+                throw new RuntimeException("URI badly formed.");
+            }
+            final String applicationToken = path.substring(start, applicationTokenEnd);
+            String pageToken = null;
+            if (applicationTokenEnd < end) {
+                final int pageTokenStart = applicationTokenEnd + 1;
+                int pageTokenEnd = path.indexOf('/', pageTokenStart);
+                if (pageTokenEnd == -1 || pageTokenEnd > end) {
+                    pageTokenEnd = end;
+                }
+                if (pageTokenEnd > pageTokenStart || hasNonSlashCharacter(path, pageTokenEnd, end)) {
+                    pageToken = path.substring(pageTokenStart, pageTokenEnd);
+                }
+            }
+            return new ParsedRequest(applicationToken, pageToken);
+        }
+
+        /**
+         * Line terminators are not allowed in the tokens, except a final one which is ignored
+         */
+        private static int getEndIgnoringFinalLineTerminator(final String path, final int start) {
+            int end = path.length();
+            if (path.endsWith("\r\n") && end - 2 >= start) {
+                end -= 2;
+            } else if (end > start && isLineTerminator(path.charAt(end - 1))) {
+                end--;
+            }
+            for (int i = start; i < end; i++) {
+                if (isLineTerminator(path.charAt(i))) {
+                    throw new RuntimeException("URI badly formed.");
+                }
+            }
+            return end;
+        }
+
+        private static boolean isLineTerminator(final char character) {
+            return character == '\n' || character == '\r' || character == '\u0085' || character == '\u2028'
+                    || character == '\u2029';
+        }
+
+        private static boolean hasNonSlashCharacter(final String path, final int start, final int end) {
+            for (int i = start; i < end; i++) {
+                if (path.charAt(i) != '/') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         public String getApplicationName() {
             return applicationToken;
         }
@@ -1,46 +1,76 @@
 package org.bonitasoft.livingapps.menu;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.engine.api.ApplicationAPI;
 import org.bonitasoft.engine.business.application.ApplicationMenu;
+import org.bonitasoft.engine.business.application.ApplicationPage;
 import org.bonitasoft.engine.business.application.ApplicationPageNotFoundException;
+import org.bonitasoft.engine.business.application.ApplicationPageSearchDescriptor;
 import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.search.SearchOptionsBuilder;
 
 public class MenuFactory {
 
-    public interface Collector {
-
-        boolean isCollectible(ApplicationMenu item);
-    }
-
     private final ApplicationAPI applicationApi;
 
     public MenuFactory(final ApplicationAPI applicationApi) {
         this.applicationApi = applicationApi;
     }
 
+    /**
+     * Build the menu tree of an application. The menus are grouped by parent in a single pass and the page tokens of
+     * the links are retrieved with a single search of the application pages.
+     */
     public List<Menu> create(final List<ApplicationMenu> menuList) throws ApplicationPageNotFoundException, SearchException {
-        return collect(menuList, new RootMenuCollector());
-    }
-
-    private Menu create(final ApplicationMenu menu, final List<ApplicationMenu> menuList) throws ApplicationPageNotFoundException, SearchException {
-        if(menu.getApplicationPageId() == null) {
-            return new MenuContainer(menu,
-                    collect(menuList, new ChildrenMenuCollector(menu.getId())));
+        final Map<Long, List<ApplicationMenu>> menusByParentId = new HashMap<>();
+        Long linkedApplicationId = null;
+        for (final ApplicationMenu menu : menuList) {
+            menusByParentId.computeIfAbsent(menu.getParentId(), parentId -> new ArrayList<>()).add(menu);
+            if (menu.getApplicationPageId() != null) {
+                linkedApplicationId = menu.getApplicationId();
+            }
         }
-        return new MenuLink(menu, applicationApi.getApplicationPage(menu.getApplicationPageId()).getToken());
+        final Map<Long, String> pageTokens = linkedApplicationId != null ? getPageTokens(linkedApplicationId)
+                : Collections.<Long, String> emptyMap();
+        return create(menusByParentId.get(null), menusByParentId, pageTokens);
     }
 
-    private List<Menu> collect(final List<ApplicationMenu> items, final Collector collector)
-            throws ApplicationPageNotFoundException, SearchException {
+    private List<Menu> create(final List<ApplicationMenu> menus, final Map<Long, List<ApplicationMenu>> menusByParentId,
+            final Map<Long, String> pageTokens) throws ApplicationPageNotFoundException {
         final List<Menu> menuList = new ArrayList<>();
-        for (final ApplicationMenu item : items) {
-            if(collector.isCollectible(item)) {
-                menuList.add(create(item, items));
+        if (menus != null) {
+            for (final ApplicationMenu menu : menus) {
+                if (menu.getApplicationPageId() == null) {
+                    menuList.add(new MenuContainer(menu, create(menusByParentId.get(menu.getId()), menusByParentId, pageTokens)));
+                } else {
+                    menuList.add(new MenuLink(menu, getPageToken(menu.getApplicationPageId(), pageTokens)));
+                }
             }
         }
         return menuList;
     }
+
+    private Map<Long, String> getPageTokens(final long applicationId) throws SearchException {
+        final Map<Long, String> pageTokens = new HashMap<>();
+        for (final ApplicationPage applicationPage : applicationApi.searchApplicationPages(new SearchOptionsBuilder(0, Integer.MAX_VALUE)
+                .filter(ApplicationPageSearchDescriptor.APPLICATION_ID, applicationId).done()).getResult()) {
+            pageTokens.put(applicationPage.getId(), applicationPage.getToken());
+        }
+        return pageTokens;
+    }
+
+    private String getPageToken(final Long applicationPageId, final Map<Long, String> pageTokens)
+            throws ApplicationPageNotFoundException {
+        final String pageToken = pageTokens.get(applicationPageId);
+        if (pageToken != null) {
+            return pageToken;
+        }
+        //page of another application or deleted meanwhile
+        return applicationApi.getApplicationPage(applicationPageId).getToken();
+    }
 }
@@ -15,6 +15,7 @@ package org.bonitasoft.web.rest.server;
 
 import java.util.List;
 import java.util.logging.Level;
+import java.util.logging.LogManager;
 
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataFindByIdsResource;
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataModelResource;
@@ -92,6 +93,7 @@ public class BonitaRestletApplication extends Application {
 
     private final FinderFactory factory;
 
+    private Runnable loggingConfigurationListener;
 
     public BonitaRestletApplication(final FinderFactory finderFactory, ConverterHelper converterHelper) {
         super();
@@ -196,10 +198,38 @@ public class BonitaRestletApplication extends Application {
     }
 
     @Override
-    public void handle(final Request request, final Response response) {
-        request.setLoggable(false);
+    public synchronized void start() throws Exception {
+        if (isStopped()) {
+            configureLogging();
+            loggingConfigurationListener = this::configureLogging;
+            LogManager.getLogManager().addConfigurationListener(loggingConfigurationListener);
+            // the routes are built once, before the first request
+            getInboundRoot();
+        }
+        super.start();
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (loggingConfigurationListener != null) {
+            LogManager.getLogManager().removeConfigurationListener(loggingConfigurationListener);
+            loggingConfigurationListener = null;
+        }
+        super.stop();
+    }
+
+    /**
+     * Restlet engine logs are turned off when the application starts and each time the logging configuration is reloaded,
+     * not for each request: changing a level locks the whole tree of java.util.logging loggers.
+     */
+    protected void configureLogging() {
         Engine.setLogLevel(Level.OFF);
         Engine.setRestletLogLevel(Level.OFF);
+    }
+
+    @Override
+    public void handle(final Request request, final Response response) {
+        request.setLoggable(false);
         super.handle(request, response);
     }
 }
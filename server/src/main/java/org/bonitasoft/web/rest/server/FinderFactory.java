@@ -11,10 +11,18 @@
 package org.bonitasoft.web.rest.server;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataFindByIdsResource;
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataFindByIdsResourceFinder;
@@ -72,6 +80,21 @@ public class FinderFactory {
     protected final Map<Class<? extends ServerResource>, ResourceFinder> finders;
     final List<ResourceFinder> resourceFinders = new ArrayList<>();
 
+    /**
+     * finders of the context resources, by handled type
+     */
+    private final Map<Class<?>, ResourceFinder> resourceFindersByType = new HashMap<>();
+
+    /**
+     * finders which do not declare a handled type but decide for each context resource whether they handle it
+     */
+    final List<ResourceFinder> untypedResourceFinders = new ArrayList<>();
+
+    /**
+     * concrete class of context resource -> finder resolved from the handled types
+     */
+    private final ConcurrentMap<Class<?>, Optional<ResourceFinder>> resolvedResourceFinders = new ConcurrentHashMap<>();
+
     public FinderFactory() {
         finders = getDefaultFinders();
         createResourceFinderList(finders);
@@ -88,6 +111,20 @@ public class FinderFactory {
             final ResourceFinder resourceFinder = classFinderEntry.getValue();
             resourceFinders.add(resourceFinder);
             resourceFinder.setFinderFactory(this);
+            final Class<?> handledResourceType = resourceFinder.getHandledResourceType();
+            if (handledResourceType != null) {
+                resourceFindersByType.putIfAbsent(handledResourceType, resourceFinder);
+            } else if (overridesHandlesResource(resourceFinder)) {
+                untypedResourceFinders.add(resourceFinder);
+            }
+        }
+    }
+
+    private boolean overridesHandlesResource(final ResourceFinder resourceFinder) {
+        try {
+            return resourceFinder.getClass().getMethod("handlesResource", Serializable.class).getDeclaringClass() != ResourceFinder.class;
+        } catch (final NoSuchMethodException e) {
+            return true;
         }
     }
 
@@ -134,11 +171,45 @@ public class FinderFactory {
     }
 
     public ResourceFinder getResourceFinderFor(final Serializable object) {
-        for (final ResourceFinder resourceFinder : resourceFinders) {
+        if (object != null) {
+            final ResourceFinder resourceFinder = resolvedResourceFinders
+                    .computeIfAbsent(object.getClass(), resourceClass -> Optional.ofNullable(resolveResourceFinder(resourceClass)))
+                    .orElse(null);
+            if (resourceFinder != null && resourceFinder.handlesResource(object)) {
+                return resourceFinder;
+            }
+        }
+        for (final ResourceFinder resourceFinder : untypedResourceFinders) {
             if (resourceFinder.handlesResource(object)) {
                 return resourceFinder;
             }
+        }
+        return null;
+    }
 
+    /**
+     * The finder of the class itself is used first, then the finder of the closest super class, then the finder of the
+     * closest interface.
+     */
+    private ResourceFinder resolveResourceFinder(final Class<?> resourceClass) {
+        final Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> type = resourceClass; type != null; type = type.getSuperclass()) {
+            final ResourceFinder resourceFinder = resourceFindersByType.get(type);
+            if (resourceFinder != null) {
+                return resourceFinder;
+            }
+            interfaces.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        final Set<Class<?>> visitedInterfaces = new HashSet<>();
+        while (!interfaces.isEmpty()) {
+            final Class<?> type = interfaces.poll();
+            if (visitedInterfaces.add(type)) {
+                final ResourceFinder resourceFinder = resourceFindersByType.get(type);
+                if (resourceFinder != null) {
+                    return resourceFinder;
+                }
+                interfaces.addAll(Arrays.asList(type.getInterfaces()));
+            }
         }
         return null;
     }
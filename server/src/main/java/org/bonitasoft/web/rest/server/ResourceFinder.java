@@ -28,8 +28,16 @@ public abstract class ResourceFinder extends Finder {
 
     private FinderFactory finderFactory;
 
+    /**
+     * @return the type of the context resources converted by this finder, or null if it does not convert any
+     */
+    public Class<?> getHandledResourceType() {
+        return null;
+    }
+
     public boolean handlesResource(Serializable object){
-        return false;
+        final Class<?> handledResourceType = getHandledResourceType();
+        return handledResourceType != null && handledResourceType.isInstance(object);
     }
 
 
@@ -17,6 +17,7 @@ package org.bonitasoft.web.rest.server.api.bdm;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.api.CommandAPI;
@@ -33,15 +34,30 @@ public class BusinessDataFindByIdsResource extends CommonResource {
 
     private final CommandAPI commandAPI;
 
+    private final BusinessDataLookupBatcher lookupBatcher;
+
+    private final long sessionId;
+
     public BusinessDataFindByIdsResource(final CommandAPI commandAPI) {
+        this(commandAPI, null, -1L);
+    }
+
+    public BusinessDataFindByIdsResource(final CommandAPI commandAPI, final BusinessDataLookupBatcher lookupBatcher,
+            final long sessionId) {
         this.commandAPI = commandAPI;
+        this.lookupBatcher = lookupBatcher;
+        this.sessionId = sessionId;
     }
 
     @Get("json")
     public String getBusinessData() throws CommandNotFoundException, CommandExecutionException, CommandParameterizationException {
+        final List<Long> ids = getParameterAsLongList("ids");
+        if (ids != null && lookupBatcher != null && lookupBatcher.isEnabled()) {
+            return lookupBatcher.getBusinessDataByIds(commandAPI, sessionId, getPathParam("className"), ids);
+        }
         final Map<String, Serializable> parameters = new HashMap<>();
         parameters.put("entityClassName", getPathParam("className"));
-        parameters.put("businessDataIds", (Serializable) getParameterAsLongList("ids"));
+        parameters.put("businessDataIds", (Serializable) ids);
         parameters.put("businessDataURIPattern", BusinessDataFieldValue.URI_PATTERN);
     	return (String) commandAPI.execute("getBusinessDataByIds", parameters);
     }
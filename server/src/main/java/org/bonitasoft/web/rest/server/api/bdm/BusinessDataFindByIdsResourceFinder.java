@@ -15,6 +15,7 @@
  */
 package org.bonitasoft.web.rest.server.api.bdm;
 
+import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.server.ResourceFinder;
 import org.restlet.Request;
 import org.restlet.Response;
@@ -27,7 +28,9 @@ public class BusinessDataFindByIdsResourceFinder extends ResourceFinder {
 
 	@Override
     public ServerResource create(final Request request, final Response response) {
-        return new BusinessDataFindByIdsResource(getCommandAPI(request));
+        final APISession apiSession = getAPISession(request);
+        return new BusinessDataFindByIdsResource(getCommandAPI(request),
+                BusinessDataLookupBatcher.getInstance(apiSession.getTenantId()), apiSession.getId());
     }
 
 }
@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.rest.server.api.bdm;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
+import org.bonitasoft.engine.api.CommandAPI;
+import org.bonitasoft.engine.bpm.data.DataNotFoundException;
+import org.bonitasoft.engine.command.CommandExecutionException;
+import org.bonitasoft.engine.command.CommandNotFoundException;
+import org.bonitasoft.engine.command.CommandParameterizationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * Merges the business data lookups by id of a tenant which arrive within a short window, for the same entity class and
+ * API session, into a single getBusinessDataByIds command. The result of the command is then split back to each
+ * caller.
+ * The first lookup of a batch waits for the window, executes the command for all the ids of the batch and gives its
+ * result to the other lookups of the batch. When the command of a batch fails, each lookup of the batch retrieves its
+ * business data one id at a time with the getBusinessDataById command, so that the failure only affects the lookups
+ * of the business data which cannot be retrieved.
+ */
+public class BusinessDataLookupBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BusinessDataLookupBatcher.class.getName());
+
+    static final String COMMAND_NAME = "getBusinessDataByIds";
+
+    static final String BY_ID_COMMAND_NAME = "getBusinessDataById";
+
+    /**
+     * batches are executed before the end of the window once they contain this number of ids
+     */
+    static final int MAX_BATCH_SIZE = 100;
+
+    private static final ConcurrentMap<Long, BusinessDataLookupBatcher> TENANTS_BATCHERS = new ConcurrentHashMap<>();
+
+    /**
+     * the decimal numbers of the business data are kept as they are written by the engine when the result of a batch
+     * is split
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .setNodeFactory(JsonNodeFactory.withExactBigDecimals(true));
+
+    private final long window;
+
+    private final ConcurrentMap<BatchKey, Batch> pendingBatches = new ConcurrentHashMap<>();
+
+    BusinessDataLookupBatcher(final long window) {
+        this.window = window;
+    }
+
+    public static BusinessDataLookupBatcher getInstance(final long tenantId) {
+        return TENANTS_BATCHERS.computeIfAbsent(tenantId,
+                id -> new BusinessDataLookupBatcher(PropertiesFactory.getConsoleProperties().getBusinessDataLookupBatchWindow()));
+    }
+
+    /**
+     * @return true if the lookups are batched, false if they must be executed directly
+     */
+    public boolean isEnabled() {
+        return window > 0;
+    }
+
+    /**
+     * @return the JSON of the business data with the given id or null if it does not exist
+     */
+    public String getBusinessDataById(final CommandAPI commandAPI, final long sessionId, final String entityClassName,
+            final Long id) throws CommandNotFoundException, CommandParameterizationException, CommandExecutionException {
+        final List<Long> ids = new ArrayList<>(1);
+        ids.add(id);
+        final Map<Long, JsonNode> businessDataById = lookup(commandAPI, sessionId, entityClassName, ids);
+        if (businessDataById == null) {
+            //the business data which does not exist is reported by the command, as when the lookups are not batched
+            return executeGetBusinessDataById(commandAPI, entityClassName, id);
+        }
+        final JsonNode businessData = businessDataById.get(id);
+        return businessData != null ? toJson(businessData) : null;
+    }
+
+    /**
+     * @return the JSON array of the business data with the given ids, in the order of the ids, without the ids which
+     *         do not exist
+     */
+    public String getBusinessDataByIds(final CommandAPI commandAPI, final long sessionId, final String entityClassName,
+            final List<Long> ids) throws CommandNotFoundException, CommandParameterizationException, CommandExecutionException {
+        final Map<Long, JsonNode> businessDataById = lookup(commandAPI, sessionId, entityClassName, ids);
+        final ArrayNode businessDataArray = OBJECT_MAPPER.createArrayNode();
+        for (final Long id : new LinkedHashSet<>(ids)) {
+            final JsonNode businessData = businessDataById != null ? businessDataById.get(id)
+                    : getBusinessDataByIdIfExists(commandAPI, entityClassName, id);
+            if (businessData != null) {
+                businessDataArray.add(businessData);
+            }
+        }
+        return toJson(businessDataArray);
+    }
+
+    /**
+     * @return the business data of the batch of the ids by persistence id, or null if the command of the batch failed
+     */
+    private Map<Long, JsonNode> lookup(final CommandAPI commandAPI, final long sessionId, final String entityClassName,
+            final List<Long> ids) throws CommandExecutionException {
+        final BatchKey batchKey = new BatchKey(sessionId, entityClassName);
+        while (true) {
+            final Batch pendingBatch = pendingBatches.get(batchKey);
+            if (pendingBatch != null) {
+                if (pendingBatch.add(ids)) {
+                    return pendingBatch.getResult();
+                }
+                //the batch is being executed: a new one is needed
+                pendingBatches.remove(batchKey, pendingBatch);
+            } else {
+                final Batch batch = new Batch();
+                batch.add(ids);
+                if (pendingBatches.putIfAbsent(batchKey, batch) == null) {
+                    final Set<Long> batchIds = batch.awaitClose(window);
+                    pendingBatches.remove(batchKey, batch);
+                    batch.execute(commandAPI, entityClassName, batchIds);
+                    return batch.getResult();
+                }
+            }
+        }
+    }
+
+    private static String executeGetBusinessDataById(final CommandAPI commandAPI, final String entityClassName,
+            final Long id) throws CommandNotFoundException, CommandParameterizationException, CommandExecutionException {
+        final Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put("entityClassName", entityClassName);
+        parameters.put("businessDataId", id);
+        parameters.put("businessDataURIPattern", BusinessDataFieldValue.URI_PATTERN);
+        return (String) commandAPI.execute(BY_ID_COMMAND_NAME, parameters);
+    }
+
+    /**
+     * @return the business data with the given id or null if it does not exist
+     */
+    private static JsonNode getBusinessDataByIdIfExists(final CommandAPI commandAPI, final String entityClassName,
+            final Long id) throws CommandNotFoundException, CommandParameterizationException, CommandExecutionException {
+        final String businessData;
+        try {
+            businessData = executeGetBusinessDataById(commandAPI, entityClassName, id);
+        } catch (final CommandExecutionException e) {
+            if (e.getCause() instanceof DataNotFoundException) {
+                return null;
+            }
+            throw e;
+        }
+        try {
+            return businessData != null ? OBJECT_MAPPER.readTree(businessData) : null;
+        } catch (final IOException e) {
+            throw new CommandExecutionException(e);
+        }
+    }
+
+    private static String toJson(final JsonNode jsonNode) throws CommandExecutionException {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(jsonNode);
+        } catch (final IOException e) {
+            throw new CommandExecutionException(e);
+        }
+    }
+
+    private static class BatchKey {
+
+        private final long sessionId;
+
+        private final String entityClassName;
+
+        private BatchKey(final long sessionId, final String entityClassName) {
+            this.sessionId = sessionId;
+            this.entityClassName = entityClassName;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            final BatchKey batchKey = (BatchKey) o;
+            return sessionId == batchKey.sessionId && entityClassName.equals(batchKey.entityClassName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(sessionId) + entityClassName.hashCode();
+        }
+    }
+
+    private static class Batch {
+
+        private final Set<Long> ids = new LinkedHashSet<>();
+
+        private final CompletableFuture<Map<Long, JsonNode>> result = new CompletableFuture<>();
+
+        private boolean closed;
+
+        /**
+         * @return false if the batch is closed and cannot receive the ids anymore
+         */
+        private synchronized boolean add(final List<Long> idsToAdd) {
+            if (closed) {
+                return false;
+            }
+            ids.addAll(idsToAdd);
+            if (ids.size() >= MAX_BATCH_SIZE) {
+                closed = true;
+                notifyAll();
+            }
+            return true;
+        }
+
+        /**
+         * Wait for the end of the window, or for the batch to be full, and close the batch
+         *
+         * @return the ids of the batch
+         */
+        private synchronized Set<Long> awaitClose(final long window) {
+            final long end = System.currentTimeMillis() + window;
+            long remaining = window;
+            try {
+                while (!closed && remaining > 0) {
+                    wait(remaining);
+                    remaining = end - System.currentTimeMillis();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closed = true;
+            return new LinkedHashSet<>(ids);
+        }
+
+        private void execute(final CommandAPI commandAPI, final String entityClassName, final Set<Long> batchIds) {
+            try {
+                final Map<String, Serializable> parameters = new HashMap<>();
+                parameters.put("entityClassName", entityClassName);
+                parameters.put("businessDataIds", new ArrayList<>(batchIds));
+                parameters.put("businessDataURIPattern", BusinessDataFieldValue.URI_PATTERN);
+                final String jsonResult = (String) commandAPI.execute(COMMAND_NAME, parameters);
+                final Map<Long, JsonNode> businessDataById = new HashMap<>();
+                for (final JsonNode businessData : OBJECT_MAPPER.readTree(jsonResult)) {
+                    final JsonNode persistenceId = businessData.get("persistenceId");
+                    if (persistenceId != null && persistenceId.canConvertToLong()) {
+                        businessDataById.put(persistenceId.asLong(), businessData);
+                    }
+                }
+                result.complete(businessDataById);
+            } catch (final Exception e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Error while retrieving the business data " + batchIds + " of " + entityClassName
+                            + ", they are retrieved one at a time", e);
+                }
+                result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * @return the business data of the batch by persistence id, or null if the command of the batch failed
+         */
+        private Map<Long, JsonNode> getResult() throws CommandExecutionException {
+            try {
+                return result.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommandExecutionException(e);
+            } catch (final ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
+}
@@ -17,8 +17,13 @@ package org.bonitasoft.web.rest.server.api.bdm;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
@@ -30,7 +35,13 @@ import org.bonitasoft.engine.command.CommandNotFoundException;
 import org.bonitasoft.engine.command.CommandParameterizationException;
 import org.bonitasoft.web.rest.server.api.resource.CommonResource;
 import org.restlet.data.CharacterSet;
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.representation.ByteArrayRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 
@@ -41,6 +52,11 @@ public class BusinessDataQueryResource extends CommonResource {
 
     public static final String COMMAND_NAME = "getBusinessDataByQueryCommand";
 
+    /**
+     * smaller results are not worth compressing
+     */
+    static final int GZIP_MIN_SIZE = 1024;
+
     private final CommandAPI commandAPI;
 
     /**
@@ -50,13 +66,13 @@ public class BusinessDataQueryResource extends CommonResource {
     
     public BusinessDataQueryResource(final CommandAPI commandAPI) {
         this.commandAPI = commandAPI;
-        //Prevent Restlet from setting the status to 404
-        //HTTP conditional headers are not supported when setting the entity manually in the response (fix BS-18149)
+        //Prevent Restlet from setting the status to 404 (fix BS-18149)
+        //If-None-Match is checked against the ETag computed from the query result
         setConditional(false);
     }
 
     @Get("json")
-    public void getProcessBusinessDataQuery() throws CommandNotFoundException, CommandParameterizationException, CommandExecutionException, IOException {
+    public Representation getProcessBusinessDataQuery() throws CommandNotFoundException, CommandParameterizationException, CommandExecutionException, IOException {
         final Map<String, Serializable> parameters = new HashMap<>();
         final Integer searchPageNumber = getSearchPageNumber();
         final Integer searchPageSize = getSearchPageSize();
@@ -78,13 +94,56 @@ public class BusinessDataQueryResource extends CommonResource {
         
         BusinessDataQueryResult businessDataQueryResult = (BusinessDataQueryResult) commandAPI.execute(COMMAND_NAME, parameters);
 
-        Representation representation = getConverterService().toRepresentation(businessDataQueryResult.getJsonResults(), MediaType.APPLICATION_JSON);
-        representation.setCharacterSet(CharacterSet.UTF_8);
-        getResponse().setEntity(representation);
         final BusinessDataQueryMetadata businessDataQueryMetadata = businessDataQueryResult.getBusinessDataQueryMetadata();
         if (businessDataQueryMetadata != null) {
             setContentRange(searchPageNumber, searchPageSize, businessDataQueryMetadata.getCount());
         }
+        //the JSON results are encoded once and written as they are
+        final byte[] jsonResults = businessDataQueryResult.getJsonResults().getBytes(StandardCharsets.UTF_8);
+        final Tag tag = new Tag(hash(parameters, jsonResults), true);
+        getResponse().getDimensions().add(Dimension.ENCODING);
+        if (isMatchedBy(tag, getRequest().getConditions().getNoneMatch())) {
+            getResponse().setStatus(Status.REDIRECTION_NOT_MODIFIED);
+            return null;
+        }
+        final Representation jsonRepresentation = new ByteArrayRepresentation(jsonResults, MediaType.APPLICATION_JSON);
+        jsonRepresentation.setCharacterSet(CharacterSet.UTF_8);
+        jsonRepresentation.setTag(tag);
+        if (jsonResults.length >= GZIP_MIN_SIZE && acceptsGzipEncoding()) {
+            //compressed while it is written to the response
+            return new EncodeRepresentation(Encoding.GZIP, jsonRepresentation);
+        }
+        return jsonRepresentation;
+    }
+
+    private boolean isMatchedBy(final Tag tag, final List<Tag> noneMatchTags) {
+        for (final Tag noneMatchTag : noneMatchTags) {
+            if (Tag.ALL.equals(noneMatchTag) || tag.getName().equals(noneMatchTag.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hash of the query, of its parameters and of its result
+     */
+    private String hash(final Map<String, Serializable> parameters, final byte[] jsonResults) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final Map<String, Serializable> sortedParameters = new TreeMap<>(parameters);
+        sortedParameters.put("queryParameters", new TreeMap<>(getSearchFilters()));
+        digest.update(sortedParameters.toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(jsonResults);
+        final StringBuilder hash = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
     }
 
 }
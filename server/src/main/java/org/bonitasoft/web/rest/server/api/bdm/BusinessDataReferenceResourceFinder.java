@@ -36,8 +36,8 @@ public class BusinessDataReferenceResourceFinder extends ResourceFinder {
     }
 
     @Override
-    public boolean handlesResource(Serializable object) {
-        return object instanceof BusinessDataReference;
+    public Class<?> getHandledResourceType() {
+        return BusinessDataReference.class;
     }
 
     @Override
@@ -35,17 +35,35 @@ public class BusinessDataResource extends CommonResource {
 
     private final CommandAPI commandAPI;
 
+    private final BusinessDataLookupBatcher lookupBatcher;
+
+    private final long sessionId;
+
     public BusinessDataResource(final CommandAPI commandAPI) {
+        this(commandAPI, null, -1L);
+    }
+
+    public BusinessDataResource(final CommandAPI commandAPI, final BusinessDataLookupBatcher lookupBatcher, final long sessionId) {
         this.commandAPI = commandAPI;
+        this.lookupBatcher = lookupBatcher;
+        this.sessionId = sessionId;
     }
 
     @Get("json")
     public String getBusinessData() throws CommandNotFoundException, CommandExecutionException, CommandParameterizationException {
+        final String child = getPathParam("fieldName");
+        if (child == null && lookupBatcher != null && lookupBatcher.isEnabled()) {
+            final String businessData = lookupBatcher.getBusinessDataById(commandAPI, sessionId, getPathParam("className"),
+                    getPathParamAsLong("id"));
+            if (businessData == null) {
+                getResponse().setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+            }
+            return businessData;
+        }
         final Map<String, Serializable> parameters = new HashMap<>();
         parameters.put("entityClassName", getPathParam("className"));
         parameters.put("businessDataId", getPathParamAsLong("id"));
         parameters.put("businessDataURIPattern", BusinessDataFieldValue.URI_PATTERN);
-        final String child = getPathParam("fieldName");
         if (child != null) {
             parameters.put("businessDataChildName", child);
         }
@@ -16,6 +16,7 @@
 package org.bonitasoft.web.rest.server.api.bdm;
 
 import org.bonitasoft.engine.api.CommandAPI;
+import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.server.ResourceFinder;
 import org.restlet.Request;
 import org.restlet.Response;
@@ -29,6 +30,8 @@ public class BusinessDataResourceFinder extends ResourceFinder {
     @Override
     public ServerResource create(final Request request, final Response response) {
         final CommandAPI commandAPI = getCommandAPI(request);
-        return new BusinessDataResource(commandAPI);
+        final APISession apiSession = getAPISession(request);
+        return new BusinessDataResource(commandAPI, BusinessDataLookupBatcher.getInstance(apiSession.getTenantId()),
+                apiSession.getId());
     }
 }
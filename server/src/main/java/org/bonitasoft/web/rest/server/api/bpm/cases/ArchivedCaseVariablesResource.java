@@ -16,24 +16,41 @@
  */
 package org.bonitasoft.web.rest.server.api.bpm.cases;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.bonitasoft.engine.api.ProcessAPI;
 import org.bonitasoft.engine.bpm.data.ArchivedDataInstance;
+import org.bonitasoft.engine.search.Order;
 import org.bonitasoft.web.rest.model.bpm.cases.ArchivedCaseVariable;
 import org.bonitasoft.web.rest.model.bpm.cases.CaseVariableItem;
 import org.bonitasoft.web.rest.server.api.resource.CommonResource;
+import org.bonitasoft.web.rest.server.datastore.utils.Sort;
+import org.bonitasoft.web.rest.server.datastore.utils.Sorts;
 import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 
 public class ArchivedCaseVariablesResource extends CommonResource {
 
+    /**
+     * number of archived data instances retrieved per engine call when they have to be counted or sorted
+     */
+    static final int BATCH_SIZE = 1000;
+
+    private static final Map<String, Function<ArchivedDataInstance, String>> SORTABLE_ATTRIBUTES = Map.of(
+            CaseVariableItem.ATTRIBUTE_NAME, ArchivedDataInstance::getName,
+            CaseVariableItem.ATTRIBUTE_TYPE, ArchivedDataInstance::getClassName,
+            CaseVariableItem.ATTRIBUTE_DESCRIPTION, ArchivedDataInstance::getDescription);
+
     private final APICaseVariableAttributeChecker attributeChecker = new APICaseVariableAttributeChecker();
     private final ProcessAPI processAPI;
 
-    private List<ArchivedDataInstance> result;
+    private long count;
 
     private int searchPageNumber;
 
@@ -50,15 +67,111 @@ public class ArchivedCaseVariablesResource extends CommonResource {
         Map<String, String> searchFilters = getSearchFilters();
         attributeChecker.checkSearchFilters(searchFilters);
         long caseId = Long.parseLong(searchFilters.get(CaseVariableItem.ATTRIBUTE_CASE_ID));
-        result = processAPI.getArchivedProcessDataInstances(caseId, 0, Integer.MAX_VALUE);
-        return result.stream().skip(((long) searchPageNumber * searchPageSize)).limit(searchPageSize)
-                .map(ArchivedCaseVariable::create).collect(Collectors.toList());
+        Comparator<ArchivedDataInstance> comparator = buildComparator(getSearchOrder());
+        final long requestedStartIndex = (long) searchPageNumber * searchPageSize;
+        if (requestedStartIndex > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("query parameters p (page) and c (count) are too large");
+        }
+        final int startIndex = (int) requestedStartIndex;
+        List<ArchivedDataInstance> page;
+        if (comparator == null) {
+            page = processAPI.getArchivedProcessDataInstances(caseId, startIndex, searchPageSize);
+            count = countArchivedDataInstances(caseId, startIndex, page.size());
+        } else {
+            page = getSortedPage(caseId, comparator, startIndex);
+        }
+        return page.stream().map(ArchivedCaseVariable::create).collect(Collectors.toList());
+    }
+
+    /**
+     * The engine does not provide a count of the archived data instances of a case: when the page is full, the
+     * instances after it are walked through in batches without being kept nor converted.
+     */
+    private long countArchivedDataInstances(final long caseId, final int startIndex, final int pageResultSize) {
+        if (pageResultSize < searchPageSize) {
+            return pageResultSize > 0 || startIndex == 0 ? (long) startIndex + pageResultSize
+                    : countArchivedDataInstancesFrom(caseId, 0);
+        }
+        return countArchivedDataInstancesFrom(caseId, startIndex + pageResultSize);
+    }
+
+    private long countArchivedDataInstancesFrom(final long caseId, final int startIndex) {
+        int total = startIndex;
+        int batchResultSize;
+        do {
+            batchResultSize = processAPI.getArchivedProcessDataInstances(caseId, total, BATCH_SIZE).size();
+            total += batchResultSize;
+        } while (batchResultSize == BATCH_SIZE);
+        return total;
+    }
+
+    /**
+     * The engine does not sort archived data instances: they are walked through in batches and only the first ones
+     * in the requested order, up to the end of the page, are kept. Instances that compare equal keep the engine order.
+     */
+    private List<ArchivedDataInstance> getSortedPage(final long caseId, final Comparator<ArchivedDataInstance> comparator,
+            final int startIndex) {
+        final long pageEndIndex = (long) startIndex + searchPageSize;
+        final Comparator<RankedInstance> rankedComparator = Comparator
+                .<RankedInstance, ArchivedDataInstance> comparing(ranked -> ranked.instance, comparator)
+                .thenComparingInt(ranked -> ranked.rank);
+        //greatest first, so that the instance to drop when the page end is reached is the head
+        final PriorityQueue<RankedInstance> firstInstances = new PriorityQueue<>(rankedComparator.reversed());
+        int total = 0;
+        List<ArchivedDataInstance> batch;
+        do {
+            batch = processAPI.getArchivedProcessDataInstances(caseId, total, BATCH_SIZE);
+            for (final ArchivedDataInstance instance : batch) {
+                firstInstances.add(new RankedInstance(total++, instance));
+                if (firstInstances.size() > pageEndIndex) {
+                    firstInstances.poll();
+                }
+            }
+        } while (batch.size() == BATCH_SIZE);
+        count = total;
+        final List<RankedInstance> sortedInstances = new ArrayList<>(firstInstances);
+        sortedInstances.sort(rankedComparator);
+        return sortedInstances.subList(Math.min(startIndex, sortedInstances.size()), sortedInstances.size()).stream()
+                .map(ranked -> ranked.instance)
+                .collect(Collectors.toList());
+    }
+
+    private Comparator<ArchivedDataInstance> buildComparator(final String orders) {
+        Comparator<ArchivedDataInstance> comparator = null;
+        for (final Sort sort : new Sorts(orders).asList()) {
+            final Function<ArchivedDataInstance, String> attribute = SORTABLE_ATTRIBUTES.get(sort.getField());
+            if (attribute == null) {
+                throw new IllegalArgumentException("Archived case variables cannot be sorted by " + sort.getField()
+                        + ". Sortable attributes are " + SORTABLE_ATTRIBUTES.keySet());
+            }
+            Comparator<ArchivedDataInstance> attributeComparator = Comparator.comparing(attribute,
+                    Comparator.nullsFirst(Comparator.<String> naturalOrder()));
+            if (sort.getOrder() == Order.DESC) {
+                attributeComparator = attributeComparator.reversed();
+            }
+            comparator = comparator == null ? attributeComparator : comparator.thenComparing(attributeComparator);
+        }
+        return comparator;
+    }
+
+    private static final class RankedInstance {
+
+        private final int rank;
+
+        private final ArchivedDataInstance instance;
+
+        private RankedInstance(final int rank, final ArchivedDataInstance instance) {
+            this.rank = rank;
+            this.instance = instance;
+        }
     }
 
     @Override
     public Representation handle() {
         Representation representation = super.handle();
-        setContentRange(searchPageNumber, searchPageSize, result.size());
+        if (getResponse().getStatus().isSuccess()) {
+            setContentRange(searchPageNumber, searchPageSize, count);
+        }
         return representation;
     }
 
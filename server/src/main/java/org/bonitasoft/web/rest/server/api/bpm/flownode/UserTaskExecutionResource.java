@@ -18,9 +18,10 @@ import java.io.Serializable;
 import java.util.Map;
 
 import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
+import org.bonitasoft.console.common.server.utils.CompiledContract;
+import org.bonitasoft.console.common.server.utils.ContractDefinitionCache;
 import org.bonitasoft.console.common.server.utils.ContractTypeConverter;
 import org.bonitasoft.engine.api.ProcessAPI;
-import org.bonitasoft.engine.bpm.contract.ContractDefinition;
 import org.bonitasoft.engine.bpm.contract.ContractViolationException;
 import org.bonitasoft.engine.bpm.flownode.FlowNodeExecutionException;
 import org.bonitasoft.engine.bpm.flownode.UserTaskNotFoundException;
@@ -66,9 +67,9 @@ public class UserTaskExecutionResource extends CommonResource {
         final long taskId = getTaskIdParameter();
         boolean assign = Boolean.parseBoolean(getRequestParameter(ASSIGN));
         try {
-            final ContractDefinition taskContract = processAPI.getUserTaskContract(taskId);
+            final CompiledContract taskContract = ContractDefinitionCache.getUserTaskContract(processAPI, apiSession, taskId);
             final long maxSizeForTenant = PropertiesFactory.getConsoleProperties().getMaxSize();
-            final Map<String, Serializable> processedInputs = typeConverterUtil.getProcessedInput(taskContract, inputs,
+            final Map<String, Serializable> processedInputs = typeConverterUtil.processInputs(taskContract, inputs,
                     maxSizeForTenant);
             if (assign) {
                 processAPI.assignAndExecuteUserTask(userId, taskId, processedInputs);
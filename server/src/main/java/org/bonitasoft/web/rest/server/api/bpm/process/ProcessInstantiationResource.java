@@ -20,13 +20,15 @@ import java.util.Map;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
+import org.bonitasoft.console.common.server.utils.CompiledContract;
+import org.bonitasoft.console.common.server.utils.ContractDefinitionCache;
 import org.bonitasoft.console.common.server.utils.ContractTypeConverter;
 import org.bonitasoft.engine.api.ProcessAPI;
-import org.bonitasoft.engine.bpm.contract.ContractDefinition;
 import org.bonitasoft.engine.bpm.contract.ContractViolationException;
 import org.bonitasoft.engine.bpm.process.ProcessActivationException;
 import org.bonitasoft.engine.bpm.process.ProcessDefinitionNotFoundException;
 import org.bonitasoft.engine.bpm.process.ProcessExecutionException;
+import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.server.api.resource.CommonResource;
 import org.bonitasoft.web.toolkit.client.common.exception.api.APIException;
 import org.restlet.resource.Post;
@@ -48,10 +50,13 @@ public class ProcessInstantiationResource extends CommonResource {
 
     private final ProcessAPI processAPI;
 
+    private final APISession apiSession;
+
     protected ContractTypeConverter typeConverterUtil = new ContractTypeConverter(ContractTypeConverter.ISO_8601_DATE_PATTERNS);
 
-    public ProcessInstantiationResource(final ProcessAPI processAPI) {
+    public ProcessInstantiationResource(final ProcessAPI processAPI, final APISession apiSession) {
         this.processAPI = processAPI;
+        this.apiSession = apiSession;
     }
 
     @Post("json")
@@ -60,9 +65,9 @@ public class ProcessInstantiationResource extends CommonResource {
         final String userId = getRequestParameter(USER_PARAM);
         final long processDefinitionId = getProcessDefinitionIdParameter();
         try {
-            final ContractDefinition processContract = processAPI.getProcessContract(processDefinitionId);
+            final CompiledContract processContract = ContractDefinitionCache.getProcessContract(processAPI, apiSession, processDefinitionId);
             final long maxSizeForTenant = PropertiesFactory.getConsoleProperties().getMaxSize();
-            final Map<String, Serializable> processedInputs = typeConverterUtil.getProcessedInput(processContract, inputs, maxSizeForTenant);
+            final Map<String, Serializable> processedInputs = typeConverterUtil.processInputs(processContract, inputs, maxSizeForTenant);
             long processInstanceId;
             if (userId == null) {
                 processInstanceId = processAPI.startProcessWithInputs(processDefinitionId, processedInputs).getId();
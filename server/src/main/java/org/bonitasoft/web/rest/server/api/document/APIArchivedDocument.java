@@ -112,9 +112,7 @@ public class APIArchivedDocument extends ConsoleAPI<ArchivedDocumentItem> {
             }
             if (result != null) {
                 nbOfDocument = result.getCount();
-                for (final ArchivedDocument document : result.getResult()) {
-                    items.add(dataStore.mapToArchivedDocumentItem(document));
-                }
+                items.addAll(dataStore.mapToArchivedDocumentItems(result.getResult()));
             }
         } catch (final Exception e) {
             throw new APIException(e);
@@ -115,14 +115,13 @@ public class APIDocument extends ConsoleAPI<DocumentItem> {
             }
 
             SearchResult<Document> result = null;
+            final DocumentDatastore dataStore = getDataStore();
             if (viewType != null) {
-                result = getDataStore().searchDocuments(userId, viewType, builder);
+                result = dataStore.searchDocuments(userId, viewType, builder);
             }
             if (result != null) {
                 nbOfDocument = result.getCount();
-                for (final Document document : result.getResult()) {
-                    items.add(getDataStore().mapToDocumentItem(document));
-                }
+                items.addAll(dataStore.mapToDocumentItems(result.getResult()));
             }
         } catch (final Exception e) {
             throw new APIException(e);
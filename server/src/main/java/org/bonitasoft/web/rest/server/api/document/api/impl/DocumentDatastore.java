@@ -19,14 +19,21 @@ package org.bonitasoft.web.rest.server.api.document.api.impl;
 import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import javax.activation.FileTypeMap;
 import javax.activation.MimetypesFileTypeMap;
 import javax.servlet.ServletException;
 
+import org.bonitasoft.console.common.server.preferences.properties.ConsoleProperties;
 import org.bonitasoft.console.common.server.preferences.properties.PropertiesFactory;
 import org.bonitasoft.console.common.server.utils.BonitaHomeFolderAccessor;
 import org.bonitasoft.engine.api.ProcessAPI;
@@ -36,10 +43,13 @@ import org.bonitasoft.engine.bpm.document.Document;
 import org.bonitasoft.engine.bpm.document.DocumentAttachmentException;
 import org.bonitasoft.engine.bpm.document.DocumentException;
 import org.bonitasoft.engine.bpm.process.ArchivedProcessInstance;
+import org.bonitasoft.engine.bpm.process.ArchivedProcessInstancesSearchDescriptor;
 import org.bonitasoft.engine.bpm.process.ProcessDefinitionNotFoundException;
 import org.bonitasoft.engine.bpm.process.ProcessDeploymentInfo;
+import org.bonitasoft.engine.bpm.process.ProcessDeploymentInfoSearchDescriptor;
 import org.bonitasoft.engine.bpm.process.ProcessInstance;
 import org.bonitasoft.engine.bpm.process.ProcessInstanceNotFoundException;
+import org.bonitasoft.engine.bpm.process.ProcessInstanceSearchDescriptor;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
 import org.bonitasoft.engine.exception.NotFoundException;
 import org.bonitasoft.engine.exception.RetrieveException;
@@ -63,10 +73,24 @@ public class DocumentDatastore {
 
     private final APISession apiSession;
 
+    /**
+     * cases, archived cases and processes already retrieved by this datastore (null if not found)
+     */
+    private final Map<Long, ProcessInstance> processInstances = new HashMap<>();
+
+    private final Map<Long, ArchivedProcessInstance> archivedProcessInstances = new HashMap<>();
+
+    private final Map<Long, ProcessDeploymentInfo> processDeploymentInfos = new HashMap<>();
+
     public final static String CREATE_NEW_VERSION_DOCUMENT = "AddNewVersionDocument";
 
     public final static String CREATE_NEW_DOCUMENT = "AddNewDocument";
 
+    /**
+     * Mime types table, parsed once. It is never modified so it can be shared by all the requests.
+     */
+    private static final FileTypeMap FILE_TYPE_MAP = new MimetypesFileTypeMap();
+
     /**
      * Default constructor.
      */
@@ -112,25 +136,25 @@ public class DocumentDatastore {
         byte[] fileContent = null;
         final File theSourceFile = tenantFolder.getTempFile(path);
         if (theSourceFile.exists()) {
-            final long maxSize = PropertiesFactory.getConsoleProperties().getMaxSize();
+            final long maxSize = getConsoleProperties().getMaxSize();
             if (theSourceFile.length() > maxSize * 1048576) {
                 final String errorMessage = "This document is exceeded " + maxSize + "Mo";
                 throw new DocumentException(errorMessage);
             }
+            // the engine API only accepts the content as an array: it is read once, in an array of the file size
             fileContent = DocumentUtil.getArrayByteFromFile(theSourceFile);
             if (theSourceFile.isFile()) {
                 fileName = theSourceFile.getName();
-                final FileTypeMap mimetypesFileTypeMap = new MimetypesFileTypeMap();
-                mimeType = mimetypesFileTypeMap.getContentType(theSourceFile);
+                mimeType = getFileTypeMap().getContentType(theSourceFile);
             }
         }
         // Attach a new document to a case
         if (CREATE_NEW_DOCUMENT.equals(documentCreationType)) {
             final Document document = processAPI.attachDocument(processInstanceId, documentName, fileName, mimeType, fileContent);
-            item = mapToDocumentItem(document);
+            item = mapToDocumentItem(document, processAPI);
         } else if (CREATE_NEW_VERSION_DOCUMENT.equals(documentCreationType)) {
             final Document document = processAPI.attachNewDocumentVersion(processInstanceId, documentName, fileName, mimeType, fileContent);
-            item = mapToDocumentItem(document);
+            item = mapToDocumentItem(document, processAPI);
         }
         return item;
     }
@@ -139,6 +163,14 @@ public class DocumentDatastore {
         return TenantAPIAccessor.getProcessAPI(apiSession);
     }
 
+    protected ConsoleProperties getConsoleProperties() {
+        return PropertiesFactory.getConsoleProperties();
+    }
+
+    protected FileTypeMap getFileTypeMap() {
+        return FILE_TYPE_MAP;
+    }
+
     public DocumentItem createDocumentFromUrl(final long processInstanceId, final String documentName, final String documentCreationType, final String path)
             throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException, UnknownAPITypeException, ProcessInstanceNotFoundException,
             DocumentAttachmentException, IOException, RetrieveException, ProcessDefinitionNotFoundException {
@@ -151,10 +183,10 @@ public class DocumentDatastore {
             // Attach a new document to a case
             if (CREATE_NEW_DOCUMENT.equals(documentCreationType)) {
                 final Document document = processAPI.attachDocument(processInstanceId, documentName, fileName, mimeType, path);
-                item = mapToDocumentItem(document);
+                item = mapToDocumentItem(document, processAPI);
             } else if (CREATE_NEW_VERSION_DOCUMENT.equals(documentCreationType)) {
                 final Document document = processAPI.attachNewDocumentVersion(processInstanceId, documentName, fileName, mimeType, path);
-                item = mapToDocumentItem(document);
+                item = mapToDocumentItem(document, processAPI);
             }
         }
 
@@ -164,11 +196,16 @@ public class DocumentDatastore {
     public DocumentItem mapToDocumentItem(final Document document) throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException,
     UnknownAPITypeException, ProcessDefinitionNotFoundException, RetrieveException {
 
+        return mapToDocumentItem(document, getProcessAPI());
+    }
+
+    protected DocumentItem mapToDocumentItem(final Document document, final ProcessAPI processAPI) throws ProcessDefinitionNotFoundException,
+    RetrieveException {
+
         if (document == null) {
             throw new IllegalArgumentException("The document must be not null!");
         }
         DocumentItem item = new DocumentItem();
-        final ProcessAPI processAPI = getProcessAPI();
         ProcessInstance processInstance;
         String caseName = "";
         String processDisplayName = "";
@@ -189,6 +226,119 @@ public class DocumentDatastore {
 
     }
 
+    /**
+     * Map a page of documents. The cases and processes of all the documents are retrieved with one search each.
+     */
+    public List<DocumentItem> mapToDocumentItems(final List<Document> documents) throws BonitaHomeNotSetException, ServerAPIException,
+    UnknownAPITypeException, SearchException {
+        final ProcessAPI processAPI = getProcessAPI();
+        final Set<Long> caseIds = new LinkedHashSet<>();
+        for (final Document document : documents) {
+            caseIds.add(document.getProcessInstanceId());
+        }
+        loadProcessInstances(processAPI, caseIds);
+        final Set<Long> processDefinitionIds = new LinkedHashSet<>();
+        for (final Long caseId : caseIds) {
+            final ProcessInstance processInstance = processInstances.get(caseId);
+            if (processInstance != null) {
+                processDefinitionIds.add(processInstance.getProcessDefinitionId());
+            }
+        }
+        loadProcessDeploymentInfos(processAPI, processDefinitionIds);
+        final List<DocumentItem> items = new ArrayList<>(documents.size());
+        for (final Document document : documents) {
+            final ProcessInstance processInstance = processInstances.get(document.getProcessInstanceId());
+            if (processInstance == null) {
+                items.add(buildDocumentItem("", "", "", document));
+            } else {
+                final ProcessDeploymentInfo processDeploymentInfo = processDeploymentInfos.get(processInstance.getProcessDefinitionId());
+                items.add(buildDocumentItem(processInstance.getName(), getDisplayName(processDeploymentInfo), getVersion(processDeploymentInfo),
+                        document));
+            }
+        }
+        return items;
+    }
+
+    private void loadProcessInstances(final ProcessAPI processAPI, final Set<Long> caseIds) throws SearchException {
+        final List<Long> missingCaseIds = getMissingIds(caseIds, processInstances);
+        if (!missingCaseIds.isEmpty()) {
+            final SearchOptionsBuilder builder = filterOnIds(ProcessInstanceSearchDescriptor.ID, missingCaseIds, 0);
+            for (final ProcessInstance processInstance : processAPI.searchProcessInstances(builder.done()).getResult()) {
+                processInstances.put(processInstance.getId(), processInstance);
+            }
+            //remember the cases which are not found (archived cases) so that they are not searched again
+            for (final Long caseId : missingCaseIds) {
+                processInstances.putIfAbsent(caseId, null);
+            }
+        }
+    }
+
+    private void loadArchivedProcessInstances(final ProcessAPI processAPI, final Set<Long> caseIds) throws SearchException {
+        final List<Long> missingCaseIds = getMissingIds(caseIds, archivedProcessInstances);
+        if (!missingCaseIds.isEmpty()) {
+            //a case has one archived instance per state: page through them until all the cases are found
+            final Set<Long> notFoundCaseIds = new HashSet<>(missingCaseIds);
+            int startIndex = 0;
+            List<ArchivedProcessInstance> result;
+            do {
+                final SearchOptionsBuilder builder = filterOnIds(ArchivedProcessInstancesSearchDescriptor.SOURCE_OBJECT_ID, missingCaseIds,
+                        startIndex);
+                result = processAPI.searchArchivedProcessInstancesInAllStates(builder.done()).getResult();
+                for (final ArchivedProcessInstance archivedProcessInstance : result) {
+                    if (notFoundCaseIds.remove(archivedProcessInstance.getSourceObjectId())) {
+                        archivedProcessInstances.put(archivedProcessInstance.getSourceObjectId(), archivedProcessInstance);
+                    }
+                }
+                startIndex += missingCaseIds.size();
+            } while (!notFoundCaseIds.isEmpty() && result.size() == missingCaseIds.size());
+            for (final Long caseId : notFoundCaseIds) {
+                archivedProcessInstances.put(caseId, null);
+            }
+        }
+    }
+
+    private void loadProcessDeploymentInfos(final ProcessAPI processAPI, final Set<Long> processDefinitionIds) throws SearchException {
+        final List<Long> missingProcessDefinitionIds = getMissingIds(processDefinitionIds, processDeploymentInfos);
+        if (!missingProcessDefinitionIds.isEmpty()) {
+            final SearchOptionsBuilder builder = filterOnIds(ProcessDeploymentInfoSearchDescriptor.ID, missingProcessDefinitionIds, 0);
+            for (final ProcessDeploymentInfo processDeploymentInfo : processAPI.searchProcessDeploymentInfos(builder.done()).getResult()) {
+                processDeploymentInfos.put(processDeploymentInfo.getProcessId(), processDeploymentInfo);
+            }
+            for (final Long processDefinitionId : missingProcessDefinitionIds) {
+                processDeploymentInfos.putIfAbsent(processDefinitionId, null);
+            }
+        }
+    }
+
+    private List<Long> getMissingIds(final Set<Long> ids, final Map<Long, ?> resolvedObjects) {
+        final List<Long> missingIds = new ArrayList<>();
+        for (final Long id : ids) {
+            if (!resolvedObjects.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+        return missingIds;
+    }
+
+    private SearchOptionsBuilder filterOnIds(final String idField, final List<Long> ids, final int startIndex) {
+        final SearchOptionsBuilder builder = new SearchOptionsBuilder(startIndex, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                builder.or();
+            }
+            builder.filter(idField, ids.get(i));
+        }
+        return builder;
+    }
+
+    private String getDisplayName(final ProcessDeploymentInfo processDeploymentInfo) {
+        return processDeploymentInfo != null ? processDeploymentInfo.getDisplayName() : "";
+    }
+
+    private String getVersion(final ProcessDeploymentInfo processDeploymentInfo) {
+        return processDeploymentInfo != null ? processDeploymentInfo.getVersion() : "";
+    }
+
     private DocumentItem buildDocumentItem(final String caseName, final String processDisplayName, final String version, final Document document) {
         final DocumentItem item = new DocumentItem();
         item.setDocumentId(String.valueOf(document.getId()));
@@ -237,6 +387,40 @@ public class DocumentDatastore {
 
     }
 
+    /**
+     * Map a page of archived documents. The archived cases and processes of all the documents are retrieved with one
+     * search each.
+     */
+    public List<ArchivedDocumentItem> mapToArchivedDocumentItems(final List<ArchivedDocument> documents) throws BonitaHomeNotSetException,
+    ServerAPIException, UnknownAPITypeException, SearchException {
+        final ProcessAPI processAPI = getProcessAPI();
+        final Set<Long> caseIds = new LinkedHashSet<>();
+        for (final ArchivedDocument document : documents) {
+            caseIds.add(document.getProcessInstanceId());
+        }
+        loadArchivedProcessInstances(processAPI, caseIds);
+        final Set<Long> processDefinitionIds = new LinkedHashSet<>();
+        for (final Long caseId : caseIds) {
+            final ArchivedProcessInstance archivedProcessInstance = archivedProcessInstances.get(caseId);
+            if (archivedProcessInstance != null) {
+                processDefinitionIds.add(archivedProcessInstance.getProcessDefinitionId());
+            }
+        }
+        loadProcessDeploymentInfos(processAPI, processDefinitionIds);
+        final List<ArchivedDocumentItem> items = new ArrayList<>(documents.size());
+        for (final ArchivedDocument document : documents) {
+            final ArchivedProcessInstance archivedProcessInstance = archivedProcessInstances.get(document.getProcessInstanceId());
+            if (archivedProcessInstance == null) {
+                items.add(buildArchivedDocumentItem("", "", "", document));
+            } else {
+                final ProcessDeploymentInfo processDeploymentInfo = processDeploymentInfos.get(archivedProcessInstance.getProcessDefinitionId());
+                items.add(buildArchivedDocumentItem(archivedProcessInstance.getName(), getDisplayName(processDeploymentInfo),
+                        getVersion(processDeploymentInfo), document));
+            }
+        }
+        return items;
+    }
+
     private ArchivedDocumentItem buildArchivedDocumentItem(final String caseName, final String processDisplayName, final String version,
             final ArchivedDocument document) {
         final ArchivedDocumentItem item = new ArchivedDocumentItem();
@@ -6,11 +6,11 @@ package org.bonitasoft.web.rest.server.api.document.api.impl;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.FileNameMap;
 import java.net.URLConnection;
+import java.nio.file.Files;
 
 /**
  * @author Yongtao Guo
@@ -39,12 +39,8 @@ public class DocumentUtil {
             throw new IOException("File too big");
         }
 
-        final FileInputStream input = new FileInputStream(f);
-        try {
-            return getArrayByte(input, (int) length);
-        } finally {
-            input.close();
-        }
+        // read in an array of the file size instead of copying the buffer of a ByteArrayOutputStream
+        return Files.readAllBytes(f.toPath());
     }
 
     public static String getFileNameFromUrl(final String file) {
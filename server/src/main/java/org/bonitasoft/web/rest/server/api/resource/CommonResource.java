@@ -39,7 +39,9 @@ import org.bonitasoft.web.rest.server.datastore.utils.Sorts;
 import org.bonitasoft.web.rest.server.framework.APIServletCall;
 import org.bonitasoft.web.toolkit.client.common.exception.api.APIException;
 import org.restlet.data.CharacterSet;
+import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
 import org.restlet.ext.servlet.ServletUtils;
@@ -255,6 +257,18 @@ public class CommonResource extends ServerResource {
         return getAttribute(name);
     }
 
+    /**
+     * @return true if the client accepts the responses compressed with gzip
+     */
+    protected boolean acceptsGzipEncoding() {
+        for (final Preference<Encoding> acceptedEncoding : getRequest().getClientInfo().getAcceptedEncodings()) {
+            if (Encoding.GZIP.equals(acceptedEncoding.getMetadata()) && acceptedEncoding.getQuality() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected int getSearchPageNumber() {
         try {
             return getIntegerParameter(APIServletCall.PARAMETER_PAGE, true);
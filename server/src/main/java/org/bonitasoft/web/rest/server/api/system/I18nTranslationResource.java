@@ -14,47 +14,155 @@
 
 package org.bonitasoft.web.rest.server.api.system;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import org.bonitasoft.console.common.server.i18n.I18n;
 import org.bonitasoft.web.rest.server.api.resource.CommonResource;
 import org.bonitasoft.web.toolkit.client.common.i18n.AbstractI18n;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 
 /**
+ * Translations of a locale. The JSON content of each locale is serialized once, with its gzip variant, and sent again
+ * as long as the translations of the locale are not reloaded.
+ *
  * @author Julien Mege
  */
 public class I18nTranslationResource extends CommonResource {
 
+    private static final String GZIP_TAG_SUFFIX = "-gzip";
+
+    private static final Map<AbstractI18n.LOCALE, SerializedTranslations> SERIALIZED_TRANSLATIONS = new ConcurrentHashMap<>();
+
     private final I18n i18n;
 
     public I18nTranslationResource(I18n i18n) {
         this.i18n = i18n;
+        //If-None-Match is checked before building the entity
+        setConditional(false);
     }
 
     @Get("json")
-    public List<Translation> getI18nTranslation() {
-        List<Translation> items = new ArrayList<>();
-
+    public Representation getI18nTranslation() throws IOException {
         String locale = getLocale();
         if (locale == null) {
             getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST, "Request should contains 'locale' parameter.");
             return null;
         }
-        Map<String, String> translations = i18n.getLocale(AbstractI18n.stringToLocale(locale));
+        final AbstractI18n.LOCALE i18nLocale = AbstractI18n.stringToLocale(locale);
+        final SerializedTranslations serializedTranslations = getSerializedTranslations(i18nLocale,
+                i18n.getLocale(i18nLocale));
 
-        for (final Map.Entry<String, String> entry : translations.entrySet()) {
-            items.add(new Translation(entry.getKey(), entry.getValue()));
+        getResponse().getDimensions().add(Dimension.ENCODING);
+        if (serializedTranslations.isMatchedBy(getRequest().getConditions().getNoneMatch())) {
+            getResponse().setStatus(Status.REDIRECTION_NOT_MODIFIED);
+            return null;
         }
-
-        return items;
+        final Representation representation;
+        if (acceptsGzipEncoding()) {
+            representation = new ByteArrayRepresentation(serializedTranslations.gzipContent, MediaType.APPLICATION_JSON);
+            representation.getEncodings().add(Encoding.GZIP);
+            representation.setTag(new Tag(serializedTranslations.hash + GZIP_TAG_SUFFIX, false));
+        } else {
+            representation = new ByteArrayRepresentation(serializedTranslations.content, MediaType.APPLICATION_JSON);
+            representation.setTag(new Tag(serializedTranslations.hash, false));
+        }
+        representation.setCharacterSet(CharacterSet.UTF_8);
+        return representation;
     }
 
     private String getLocale() {
         return getSearchFilters() != null ? getSearchFilters().get("locale") : null;
     }
 
+    /**
+     * The translations of a locale are replaced by a new map when the locale is reloaded (e.g. the custom i18n folder
+     * has changed), in which case they are serialized again.
+     */
+    private SerializedTranslations getSerializedTranslations(final AbstractI18n.LOCALE locale,
+            final Map<String, String> translations) throws IOException {
+        final AbstractI18n.LOCALE cacheKey = locale != null ? locale : AbstractI18n.getDefaultLocale();
+        SerializedTranslations serializedTranslations = SERIALIZED_TRANSLATIONS.get(cacheKey);
+        if (serializedTranslations == null || serializedTranslations.translations != translations) {
+            serializedTranslations = new SerializedTranslations(translations, serialize(translations));
+            SERIALIZED_TRANSLATIONS.put(cacheKey, serializedTranslations);
+        }
+        return serializedTranslations;
+    }
+
+    private byte[] serialize(final Map<String, String> translations) throws IOException {
+        List<Translation> items = new ArrayList<>();
+        //translations are stored in an unordered map: keep the list sorted by key
+        for (final Map.Entry<String, String> entry : new TreeMap<>(translations).entrySet()) {
+            items.add(new Translation(entry.getKey(), entry.getValue()));
+        }
+        return getConverterService().toRepresentation(items, MediaType.APPLICATION_JSON).getText()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    // For test matters only:
+    static void clearSerializedTranslations() {
+        SERIALIZED_TRANSLATIONS.clear();
+    }
+
+    private static class SerializedTranslations {
+
+        private final Map<String, String> translations;
+
+        private final byte[] content;
+
+        private final byte[] gzipContent;
+
+        private final String hash;
+
+        private SerializedTranslations(final Map<String, String> translations, final byte[] content) throws IOException {
+            this.translations = translations;
+            this.content = content;
+            final ByteArrayOutputStream gzipOutputStream = new ByteArrayOutputStream(content.length / 4 + 64);
+            try (GZIPOutputStream gzipStream = new GZIPOutputStream(gzipOutputStream)) {
+                gzipStream.write(content);
+            }
+            this.gzipContent = gzipOutputStream.toByteArray();
+            this.hash = sha256(content);
+        }
+
+        private boolean isMatchedBy(final List<Tag> noneMatchTags) {
+            for (final Tag tag : noneMatchTags) {
+                if (Tag.ALL.equals(tag) || hash.equals(tag.getName()) || (hash + GZIP_TAG_SUFFIX).equals(tag.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String sha256(final byte[] content) {
+            final StringBuilder hash = new StringBuilder();
+            try {
+                for (final byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                    hash.append(String.format("%02x", b));
+                }
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            return hash.toString();
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ package org.bonitasoft.web.rest.server.datastore.application;
 import java.util.List;
 import java.util.Map;
 
+import org.bonitasoft.console.common.server.servlet.ApplicationIconServlet;
 import org.bonitasoft.engine.api.ApplicationAPI;
 import org.bonitasoft.engine.api.PageAPI;
 import org.bonitasoft.engine.business.application.Application;
@@ -114,6 +115,7 @@ DatastoreHasGet<ApplicationItem>,DatastoreHasSearch<ApplicationItem>, DatastoreH
         try {
             final ApplicationUpdater applicationUpdater = converter.toApplicationUpdater(attributes);
             final Application application = applicationAPI.updateApplication(id.toLong(), applicationUpdater);
+            ApplicationIconServlet.evictApplicationIcon(id.toLong());
             return converter.toApplicationItem(application);
         } catch (final Exception e) {
             throw new APIException(e);
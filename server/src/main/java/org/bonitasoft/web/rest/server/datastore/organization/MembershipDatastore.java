@@ -14,6 +14,7 @@
  */
 package org.bonitasoft.web.rest.server.datastore.organization;
 
+import org.bonitasoft.console.common.server.utils.UserProfilesCache;
 import org.bonitasoft.engine.api.IdentityAPI;
 import org.bonitasoft.engine.api.TenantAPIAccessor;
 import org.bonitasoft.engine.exception.AlreadyExistsException;
@@ -94,6 +95,9 @@ public class MembershipDatastore extends CommonDatastore<MembershipItem, UserMem
             }
         } catch (final Exception e) {
             throw new APIException(e);
+        } finally {
+            //profiles mapped to the group or the role of the deleted memberships may be revoked from their users
+            UserProfilesCache.getInstance().invalidateAll();
         }
     }
 
@@ -129,8 +133,10 @@ public class MembershipDatastore extends CommonDatastore<MembershipItem, UserMem
     @Override
     public MembershipItem add(final MembershipItem item) {
         try {
-            return convertEngineToConsoleItem(getIdentityAPI()
-                    .addUserMembership(item.getUserId().toLong(), item.getGroupId().toLong(), item.getRoleId().toLong()));
+            final UserMembership userMembership = getIdentityAPI()
+                    .addUserMembership(item.getUserId().toLong(), item.getGroupId().toLong(), item.getRoleId().toLong());
+            UserProfilesCache.getInstance().invalidateAll();
+            return convertEngineToConsoleItem(userMembership);
         } catch (AlreadyExistsException e) {
             throw new APIForbiddenException(new T_("This membership is already added to user"), e);
         } catch (final Exception e) {
@@ -18,6 +18,7 @@ package org.bonitasoft.web.rest.server.datastore.system;
 
 import java.util.Map;
 
+import org.bonitasoft.console.common.server.utils.TenantLifecycleHooks;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.model.system.TenantAdminItem;
 import org.bonitasoft.web.rest.server.engineclient.EngineAPIAccessor;
@@ -48,8 +49,10 @@ public class TenantAdminDatastore extends Datastore implements DatastoreHasUpdat
             final boolean doPause = Boolean.parseBoolean(attributes.get(TenantAdminItem.ATTRIBUTE_IS_PAUSED));
             if (!doPause) {
                 getTenantManagementEngineClient().resumeTenant();
+                TenantLifecycleHooks.tenantResumed(apiSession.getTenantId());
             } else {
                 getTenantManagementEngineClient().pauseTenant();
+                TenantLifecycleHooks.tenantPaused(apiSession.getTenantId());
             }
             tenantAdminItem.setIsPaused(doPause);
             return tenantAdminItem;
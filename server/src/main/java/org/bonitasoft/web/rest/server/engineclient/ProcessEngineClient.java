@@ -18,6 +18,8 @@ import java.util.List;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
+import org.bonitasoft.console.common.server.page.PageMappingService;
+import org.bonitasoft.console.common.server.utils.ContractDefinitionCache;
 import org.bonitasoft.engine.api.ProcessAPI;
 import org.bonitasoft.engine.bpm.bar.BusinessArchive;
 import org.bonitasoft.engine.bpm.data.DataDefinition;
@@ -80,7 +82,9 @@ public class ProcessEngineClient {
 
     public ProcessDefinition deploy(final BusinessArchive businessArchive) {
         try {
-            return getProcessApi().deploy(businessArchive);
+            final ProcessDefinition processDefinition = getProcessApi().deploy(businessArchive);
+            PageMappingService.clearCachedPageReferences();
+            return processDefinition;
         } catch (final AlreadyExistsException e) {
             final DesignProcessDefinition processDefinition = businessArchive.getProcessDefinition();
             throw new APIForbiddenException(new T_("Process %appName% in version %version% already exists", new Arg("appName", processDefinition.getName()), new Arg(
@@ -97,6 +101,7 @@ public class ProcessEngineClient {
     public void enableProcess(final long processId) {
         try {
             getProcessApi().enableProcess(processId);
+            PageMappingService.clearCachedPageReferences();
         } catch (final Exception e) {
             throw new APIException(new T_("Unable to enable process"), e);
         }
@@ -105,6 +110,7 @@ public class ProcessEngineClient {
     public void disableProcess(final long processId) {
         try {
             getProcessApi().disableProcess(processId);
+            PageMappingService.clearCachedPageReferences();
         } catch (final Exception e) {
             throw new APIException(new T_("Unable to disable process"), e);
         }
@@ -125,7 +131,9 @@ public class ProcessEngineClient {
                 deleteProcessInstancesByBunch(id, DELETE_PROCESS_BUNCH_SIZE, processIds);
                 deleteArchivedProcessInstancesByBunch(id, DELETE_PROCESS_BUNCH_SIZE, processIds);
                 getProcessApi().deleteProcessDefinition(id);
+                ContractDefinitionCache.invalidateProcess(id);
             }
+            PageMappingService.clearCachedPageReferences();
         } catch (final BonitaException e) {
             if (e.getCause() instanceof ProcessDefinitionNotFoundException) {
                 throw new APIItemNotFoundException(org.bonitasoft.web.rest.model.bpm.process.ProcessDefinition.TOKEN);
@@ -17,6 +17,7 @@
  */
 package org.bonitasoft.web.rest.server.engineclient;
 
+import org.bonitasoft.console.common.server.utils.UserProfilesCache;
 import org.bonitasoft.engine.api.ProfileAPI;
 import org.bonitasoft.engine.exception.AlreadyExistsException;
 import org.bonitasoft.engine.exception.CreationException;
@@ -58,7 +59,9 @@ public class ProfileMemberEngineClient {
 
     public ProfileMember createProfileMember(Long profileId, Long userId, Long groupId, Long roleId) {
         try {
-            return profileApi.createProfileMember(profileId, userId, groupId, roleId);
+            final ProfileMember profileMember = profileApi.createProfileMember(profileId, userId, groupId, roleId);
+            UserProfilesCache.getInstance().invalidateAll();
+            return profileMember;
         } catch (InvalidSessionException e) {
             throw new APISessionInvalidException(e);
         } catch (AlreadyExistsException e) {
@@ -71,6 +74,7 @@ public class ProfileMemberEngineClient {
     public void deleteProfileMember(Long id) {
         try {
             profileApi.deleteProfileMember(id);
+            UserProfilesCache.getInstance().invalidateAll();
         } catch (InvalidSessionException e) {
             throw new APISessionInvalidException(e);
         } catch (DeletionException e) {
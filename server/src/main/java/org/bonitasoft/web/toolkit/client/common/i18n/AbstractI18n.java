@@ -19,6 +19,8 @@ package org.bonitasoft.web.toolkit.client.common.i18n;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bonitasoft.web.toolkit.client.common.texttemplate.Arg;
 import org.bonitasoft.web.toolkit.client.common.texttemplate.TextTemplate;
@@ -495,7 +497,12 @@ public abstract class AbstractI18n {
 
     public LOCALE defaultLocale = LOCALE.en;
 
-    private final Map<LOCALE, Map<String, String>> locales = new HashMap<>();
+    private final ConcurrentMap<LOCALE, Map<String, String>> locales = new ConcurrentHashMap<>();
+
+    /**
+     * one lock per locale so that a locale is loaded only once while other locales are loaded concurrently
+     */
+    private final ConcurrentMap<LOCALE, Object> localeLocks = new ConcurrentHashMap<>();
 
     // //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // SINGLETON
@@ -979,19 +986,45 @@ public abstract class AbstractI18n {
         return locales;
     }
 
+    /**
+     * @return the translations of the locale, loaded on the first call. The returned map is immutable.
+     */
     public Map<String, String> getLocale(final LOCALE locale) {
         if (locale != null) {
-            if (!this.locales.containsKey(locale)) {
-                loadLocale(locale);
+            Map<String, String> translations = this.locales.get(locale);
+            if (translations == null) {
+                synchronized (this.localeLocks.computeIfAbsent(locale, l -> new Object())) {
+                    translations = this.locales.get(locale);
+                    if (translations == null) {
+                        loadLocale(locale);
+                        translations = this.locales.get(locale);
+                    }
+                }
             }
-            return this.locales.get(locale);
+            return translations;
         } else {
             return getLocale(getDefaultLocale());
         }
     }
 
+    /**
+     * Store an immutable copy of the translations of the locale. Translations without value are ignored.
+     */
     protected final void setLocale(final LOCALE locale, final Map<String, String> map) {
-        this.locales.put(locale, map);
+        final Map<String, String> translations = new HashMap<>(map.size() * 4 / 3 + 1);
+        for (final Map.Entry<String, String> translation : map.entrySet()) {
+            if (translation.getKey() != null && translation.getValue() != null) {
+                translations.put(translation.getKey(), translation.getValue());
+            }
+        }
+        this.locales.put(locale, Map.copyOf(translations));
+    }
+
+    /**
+     * Forget the loaded locales so that they are loaded again on their next use
+     */
+    protected final void clearLocales() {
+        this.locales.clear();
     }
 
     public abstract void loadLocale(LOCALE locale);
@@ -2,18 +2,33 @@ package org.bonitasoft.console.common.server.i18n;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bonitasoft.web.toolkit.client.common.i18n.AbstractI18n;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * @author Emmanuel Duchastenier
  */
 public class I18nTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void getStreams_should_read_from_classpath() {
         final List<InputStream> streams = I18n.getInstance().getStreams(AbstractI18n.LOCALE.fr);
@@ -86,4 +101,94 @@ public class I18nTest {
 
         System.clearProperty(I18n.I18N_CUSTOM_DIR_PROPERTY);
     }
+
+    @Test
+    public void getLocale_should_load_each_locale_once_when_called_concurrently() throws Exception {
+        System.setProperty(I18n.I18N_CUSTOM_DIR_PROPERTY, this.getClass().getResource("/custom_po_resource").getPath());
+        final Map<AbstractI18n.LOCALE, AtomicInteger> loadsCount = new ConcurrentHashMap<>();
+        final I18n i18n = new I18n() {
+
+            @Override
+            public List<InputStream> getStreams(final LOCALE locale) {
+                loadsCount.computeIfAbsent(locale, l -> new AtomicInteger()).incrementAndGet();
+                return super.getStreams(locale);
+            }
+        };
+        i18n.refresh();
+        final AbstractI18n.LOCALE[] locales = { AbstractI18n.LOCALE.fr, AbstractI18n.LOCALE.es, AbstractI18n.LOCALE.de,
+                AbstractI18n.LOCALE.pt_BR };
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            final CountDownLatch startSignal = new CountDownLatch(1);
+            final List<Future<Map<String, String>>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final AbstractI18n.LOCALE locale = locales[i % locales.length];
+                results.add(executor.submit(() -> {
+                    startSignal.await();
+                    return i18n.getLocale(locale);
+                }));
+            }
+            startSignal.countDown();
+
+            final I18n referenceI18n = new I18n();
+            for (int i = 0; i < results.size(); i++) {
+                final AbstractI18n.LOCALE locale = locales[i % locales.length];
+                assertThat(results.get(i).get()).isEqualTo(referenceI18n.getLocale(locale));
+            }
+            for (final AbstractI18n.LOCALE locale : locales) {
+                assertThat(loadsCount.get(locale).get()).isEqualTo(1);
+            }
+            assertThat(i18n.getLocale(AbstractI18n.LOCALE.fr).get("test key")).isEqualTo("Valeur modifiée");
+            assertThat(i18n.getLocale(AbstractI18n.LOCALE.fr).get("about")).isEqualTo("Copyright Bonitasoft 2016");
+        } finally {
+            executor.shutdownNow();
+            System.clearProperty(I18n.I18N_CUSTOM_DIR_PROPERTY);
+            i18n.refresh();
+        }
+    }
+
+    @Test
+    public void preloadLocales_should_load_configured_locales() {
+        System.setProperty(I18n.I18N_PRELOADED_LOCALES_PROPERTY, "fr, unknown,");
+        final Map<AbstractI18n.LOCALE, AtomicInteger> loadsCount = new ConcurrentHashMap<>();
+        final I18n i18n = new I18n() {
+
+            @Override
+            public List<InputStream> getStreams(final LOCALE locale) {
+                loadsCount.computeIfAbsent(locale, l -> new AtomicInteger()).incrementAndGet();
+                return super.getStreams(locale);
+            }
+        };
+        try {
+            i18n.preloadLocales();
+            i18n.getLocale(AbstractI18n.LOCALE.fr);
+
+            assertThat(loadsCount).containsOnlyKeys(AbstractI18n.LOCALE.fr);
+            assertThat(loadsCount.get(AbstractI18n.LOCALE.fr).get()).isEqualTo(1);
+        } finally {
+            System.clearProperty(I18n.I18N_PRELOADED_LOCALES_PROPERTY);
+        }
+    }
+
+    @Test
+    public void getLocale_should_reload_translations_when_custom_folder_changes() throws Exception {
+        final File customFolder = temporaryFolder.newFolder("custom_i18n");
+        final File poFile = new File(customFolder, "test_es.po");
+        Files.write(poFile.toPath(), "msgid \"test key\"\nmsgstr \"valor inicial\"\n".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(I18n.I18N_CUSTOM_DIR_PROPERTY, customFolder.getPath());
+        final I18n i18n = new I18n();
+        try {
+            i18n.refresh();
+            assertThat(i18n.getLocale(AbstractI18n.LOCALE.es).get("test key")).isEqualTo("valor inicial");
+
+            Files.write(poFile.toPath(), "msgid \"test key\"\nmsgstr \"valor modificado\"\n".getBytes(StandardCharsets.UTF_8));
+            poFile.setLastModified(poFile.lastModified() + 60000L);
+            i18n.reloadIfCustomDirectoryChanged(System.currentTimeMillis() + I18n.CUSTOM_DIR_CHECK_INTERVAL);
+
+            assertThat(i18n.getLocale(AbstractI18n.LOCALE.es).get("test key")).isEqualTo("valor modificado");
+        } finally {
+            System.clearProperty(I18n.I18N_CUSTOM_DIR_PROPERTY);
+            i18n.refresh();
+        }
+    }
 }
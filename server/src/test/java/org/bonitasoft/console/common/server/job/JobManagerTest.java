@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.engine.session.APISession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobManagerTest {
+
+    private static final long RESULT_TTL = 60000L;
+
+    @Mock
+    private APISession apiSession;
+
+    @Mock
+    private APISession otherUserSession;
+
+    @Mock
+    private APISession otherSessionOfTheUser;
+
+    @Mock
+    private Clock clock;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JobManager jobManager;
+
+    private final CountDownLatch releaseSlowTasks = new CountDownLatch(1);
+
+    private final AtomicInteger runningTasks = new AtomicInteger();
+
+    private final AtomicInteger maxRunningTasks = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        when(apiSession.getTenantId()).thenReturn(1L);
+        when(apiSession.getUserId()).thenReturn(10L);
+        when(apiSession.getId()).thenReturn(100L);
+        when(otherSessionOfTheUser.getTenantId()).thenReturn(1L);
+        when(otherSessionOfTheUser.getUserId()).thenReturn(10L);
+        when(otherSessionOfTheUser.getId()).thenReturn(101L);
+        when(otherUserSession.getTenantId()).thenReturn(1L);
+        when(otherUserSession.getUserId()).thenReturn(11L);
+        when(clock.millis()).thenReturn(1000L);
+        jobManager = new JobManager(2, 1, temporaryFolder.newFolder("jobs"), clock, RESULT_TTL);
+    }
+
+    @After
+    public void tearDown() {
+        releaseSlowTasks.countDown();
+        jobManager.shutdown();
+    }
+
+    private JobTask slowImport() {
+        return job -> {
+            final int running = runningTasks.incrementAndGet();
+            maxRunningTasks.accumulateAndGet(running, Math::max);
+            try {
+                job.setProgress(50);
+                releaseSlowTasks.await();
+            } finally {
+                runningTasks.decrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void should_return_a_pending_or_running_job_right_away() throws Exception {
+        final Job job = jobManager.submit(apiSession, "import", slowImport());
+
+        assertThat(job.getId()).isNotEmpty();
+        assertThat(job.getState()).isIn(Job.State.PENDING, Job.State.RUNNING);
+        assertThat(jobManager.getJob(job.getId(), apiSession)).isSameAs(job);
+    }
+
+    @Test
+    public void should_run_a_bounded_number_of_jobs_and_reject_jobs_beyond_the_queue() throws Exception {
+        final Job firstJob = jobManager.submit(apiSession, "import", slowImport());
+        final Job secondJob = jobManager.submit(apiSession, "import", slowImport());
+        awaitState(firstJob, Job.State.RUNNING);
+        awaitState(secondJob, Job.State.RUNNING);
+        final Job pendingJob = jobManager.submit(apiSession, "import", slowImport());
+
+        try {
+            jobManager.submit(apiSession, "import", slowImport());
+            fail("the job should be rejected when the queue is full");
+        } catch (final RejectedExecutionException e) {
+            assertThat(pendingJob.getState()).isEqualTo(Job.State.PENDING);
+        }
+
+        releaseSlowTasks.countDown();
+        awaitState(pendingJob, Job.State.SUCCEEDED);
+        awaitState(firstJob, Job.State.SUCCEEDED);
+        assertThat(maxRunningTasks.get()).isEqualTo(2);
+        assertThat(firstJob.getProgress()).isEqualTo(100);
+    }
+
+    @Test
+    public void should_interrupt_a_running_job_when_it_is_cancelled() throws Exception {
+        final Job job = jobManager.submit(apiSession, "import", slowImport());
+        awaitState(job, Job.State.RUNNING);
+
+        assertThat(jobManager.cancel(job.getId(), apiSession)).isTrue();
+
+        assertThat(job.getState()).isEqualTo(Job.State.CANCELLED);
+        awaitNoRunningTask();
+        assertThat(job.getState()).isEqualTo(Job.State.CANCELLED);
+    }
+
+    @Test
+    public void should_not_run_a_pending_job_when_it_is_cancelled() throws Exception {
+        jobManager.submit(apiSession, "import", slowImport());
+        jobManager.submit(apiSession, "import", slowImport());
+        final AtomicInteger pendingJobRuns = new AtomicInteger();
+        final Job pendingJob = jobManager.submit(apiSession, "import", job -> pendingJobRuns.incrementAndGet());
+
+        jobManager.cancel(pendingJob.getId(), apiSession);
+        //the place of the cancelled job in the queue is free
+        final Job nextJob = jobManager.submit(apiSession, "import", job -> {
+        });
+        releaseSlowTasks.countDown();
+        awaitState(nextJob, Job.State.SUCCEEDED);
+
+        assertThat(pendingJob.getState()).isEqualTo(Job.State.CANCELLED);
+        assertThat(pendingJobRuns.get()).isZero();
+    }
+
+    @Test
+    public void should_report_error_and_warnings_of_a_failed_job() throws Exception {
+        final Job job = jobManager.submit(apiSession, "import", runningJob -> {
+            runningJob.addWarning("user walter.bates already exists");
+            throw new IllegalStateException("engine unavailable");
+        });
+
+        awaitState(job, Job.State.FAILED);
+
+        assertThat(job.getError()).isEqualTo("engine unavailable");
+        assertThat(job.getWarnings()).containsExactly("user walter.bates already exists");
+    }
+
+    @Test
+    public void should_keep_result_file_of_a_job_until_its_time_to_live_expires() throws Exception {
+        final Job job = jobManager.submit(apiSession, "export", runningJob -> {
+            try (OutputStream out = runningJob.openResultFile("export.xml")) {
+                out.write("exported".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        awaitState(job, Job.State.SUCCEEDED);
+        final File resultFile = job.getResultFile();
+
+        when(clock.millis()).thenReturn(1000L + RESULT_TTL);
+        jobManager.purge();
+
+        assertThat(jobManager.getJob(job.getId(), apiSession)).isSameAs(job);
+        assertThat(new String(Files.readAllBytes(resultFile.toPath()), StandardCharsets.UTF_8)).isEqualTo("exported");
+        assertThat(job.getResultFileName()).isEqualTo("export.xml");
+
+        when(clock.millis()).thenReturn(1000L + RESULT_TTL + 1);
+        jobManager.purge();
+
+        assertThat(jobManager.getJob(job.getId(), apiSession)).isNull();
+        assertThat(resultFile).doesNotExist();
+    }
+
+    @Test
+    public void should_not_purge_jobs_which_are_not_done() throws Exception {
+        final Job job = jobManager.submit(apiSession, "import", slowImport());
+        when(clock.millis()).thenReturn(1000L + 10 * RESULT_TTL);
+
+        jobManager.purge();
+
+        assertThat(jobManager.getJob(job.getId(), apiSession)).isSameAs(job);
+    }
+
+    @Test
+    public void should_not_give_access_to_the_job_of_another_user() throws Exception {
+        final Job job = jobManager.submit(apiSession, "import", slowImport());
+
+        assertThat(jobManager.getJob(job.getId(), otherUserSession)).isNull();
+        assertThat(jobManager.cancel(job.getId(), otherUserSession)).isFalse();
+        assertThat(job.getState()).isNotEqualTo(Job.State.CANCELLED);
+    }
+
+    @Test
+    public void should_cancel_the_jobs_submitted_with_a_session_when_it_is_logged_out() throws Exception {
+        final Job job = jobManager.submit(apiSession, "import", slowImport());
+        final Job jobOfAnotherSession = jobManager.submit(otherSessionOfTheUser, "export", slowImport());
+        awaitState(job, Job.State.RUNNING);
+        awaitState(jobOfAnotherSession, Job.State.RUNNING);
+
+        jobManager.cancelJobsOf(apiSession);
+
+        assertThat(job.getState()).isEqualTo(Job.State.CANCELLED);
+        assertThat(jobOfAnotherSession.getState()).isEqualTo(Job.State.RUNNING);
+        assertThat(jobManager.getJob(job.getId(), otherSessionOfTheUser)).isSameAs(job);
+    }
+
+    private void awaitState(final Job job, final Job.State state) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (job.getState() != state && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(job.getState()).isEqualTo(state);
+    }
+
+    private void awaitNoRunningTask() throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (runningTasks.get() > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(runningTasks.get()).isZero();
+    }
+
+}
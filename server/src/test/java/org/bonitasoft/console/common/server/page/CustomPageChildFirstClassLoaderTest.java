@@ -15,20 +15,29 @@
 package org.bonitasoft.console.common.server.page;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -140,10 +149,100 @@ public class CustomPageChildFirstClassLoaderTest {
 
     }
 
-    private Map<String, byte[]> loadedResources(String... resourceNames) {
-        final Map<String, byte[]> resources = new HashMap<>();
+    @Test
+    public void should_read_non_jar_resources_from_the_file_system_when_requested() throws Exception {
+        classLoader = newClassloader();
+        final Map<String, File> resources = loadedResources("util.properties");
+        when(customPageDependenciesResolver.resolveCustomPageDependencies()).thenReturn(resources);
+        classLoader.addCustomPageResources();
+
+        FileUtils.writeStringToFile(resources.get("util.properties"), "key=updated", StandardCharsets.UTF_8);
+
+        try (InputStream inputStream = classLoader.getResourceAsStream("/util.properties")) {
+            assertThat(IOUtils.toString(inputStream, StandardCharsets.UTF_8)).isEqualTo("key=updated");
+        }
+    }
+
+    @Test
+    public void should_find_resources_of_the_first_jar_containing_them_using_the_jar_index() throws Exception {
+        classLoader = newClassloader();
+        final Map<String, File> resources = new HashMap<>();
+        resources.put("first.jar", jar("first.jar", "org/acme/shared.properties", "org/acme/first.properties"));
+        resources.put("second.jar", jar("second.jar", "org/acme/shared.properties", "org/acme/second.properties"));
+        when(customPageDependenciesResolver.resolveCustomPageDependencies()).thenReturn(resources);
+        classLoader.addCustomPageResources();
+
+        assertThat(classLoader.getURLs()).hasSize(2);
+        assertThat(classLoader.findResource("org/acme/first.properties")).isNotNull();
+        assertThat(classLoader.findResource("org/acme/second.properties")).isNotNull();
+        assertThat(classLoader.findResource("org/acme/unknown.properties")).isNull();
+        assertThat(classLoader.getResource("org/acme/shared.properties").toString()).contains("first.jar");
+    }
+
+    @Test
+    public void should_look_for_a_missing_class_only_once_before_delegating_to_parent() throws Exception {
+        classLoader = spy(newClassloader());
+        when(customPageDependenciesResolver.resolveCustomPageDependencies()).thenReturn(loadedResources("util.properties"));
+        classLoader.addCustomPageResources();
+
+        classLoader.loadClass(String.class.getName());
+        classLoader.loadClass(String.class.getName());
+
+        verify(classLoader, times(1)).findClass(anyString());
+    }
+
+    @Test
+    public void should_resolve_each_resource_of_a_page_with_50_jars_and_5000_resources_from_its_jar() throws Exception {
+        classLoader = newClassloader();
+        final Map<String, File> resources = new HashMap<>();
+        for (int jarIndex = 0; jarIndex < 50; jarIndex++) {
+            final String[] entries = new String[100];
+            for (int entryIndex = 0; entryIndex < entries.length; entryIndex++) {
+                entries[entryIndex] = "org/acme/jar" + jarIndex + "/resource" + entryIndex + ".properties";
+            }
+            resources.put("lib" + jarIndex + ".jar", jar("lib" + jarIndex + ".jar", entries));
+        }
+        final File largeResource = new File(tmpRule.newFolder(), "large.json");
+        FileUtils.writeByteArrayToFile(largeResource, new byte[5 * 1024 * 1024]);
+        resources.put("large.json", largeResource);
+        when(customPageDependenciesResolver.resolveCustomPageDependencies()).thenReturn(resources);
+
+        classLoader.addCustomPageResources();
+
+        assertThat(classLoader.getURLs()).hasSize(50);
+        //non jar resources are kept as file locations: their content is not held on the heap
+        assertThat(classLoader.nonJarResources).containsEntry("large.json", largeResource);
+        for (int jarIndex = 0; jarIndex < 50; jarIndex++) {
+            for (int entryIndex = 0; entryIndex < 100; entryIndex++) {
+                final URL resource = classLoader.findResource("org/acme/jar" + jarIndex + "/resource" + entryIndex + ".properties");
+                assertThat(resource.toString()).contains("lib" + jarIndex + ".jar");
+            }
+        }
+        assertThat(classLoader.findResource("org/acme/jar0/unknown.properties")).isNull();
+        try (InputStream inputStream = classLoader.getResourceAsStream("large.json")) {
+            assertThat(IOUtils.toByteArray(inputStream)).hasSize(5 * 1024 * 1024);
+        }
+    }
+
+    private File jar(final String jarName, final String... entries) throws IOException {
+        final File jarFile = new File(tmpRule.newFolder(), jarName);
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (final String entry : entries) {
+                jarOutputStream.putNextEntry(new JarEntry(entry));
+                jarOutputStream.write(entry.getBytes(StandardCharsets.UTF_8));
+                jarOutputStream.closeEntry();
+            }
+        }
+        return jarFile;
+    }
+
+    private Map<String, File> loadedResources(String... resourceNames) throws IOException {
+        final File libFolder = tmpRule.newFolder();
+        final Map<String, File> resources = new HashMap<>();
         for (final String resource : resourceNames) {
-            resources.put(resource, new byte[0]);
+            final File resourceFile = new File(libFolder, resource);
+            resourceFile.createNewFile();
+            resources.put(resource, resourceFile);
         }
         return resources;
     }
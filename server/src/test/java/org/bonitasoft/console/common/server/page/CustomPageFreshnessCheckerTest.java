@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.page;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.bonitasoft.engine.api.LoginAPI;
+import org.bonitasoft.engine.api.PageAPI;
+import org.bonitasoft.engine.page.Page;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.impl.SearchResultImpl;
+import org.bonitasoft.engine.session.APISession;
+import org.bonitasoft.engine.session.InvalidSessionException;
+import org.bonitasoft.web.extension.page.PageResourceProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CustomPageFreshnessCheckerTest {
+
+    private static final long CHECK_INTERVAL = 3000L;
+
+    private static final long TENANT_ID = 1L;
+
+    @Mock
+    private APISession apiSession;
+
+    @Mock
+    private PageAPI pageAPI;
+
+    @Mock
+    private LoginAPI loginAPI;
+
+    @Mock
+    private Clock clock;
+
+    @Mock
+    private PageResourceProvider pageResourceProvider;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private CustomPageService customPageService;
+
+    private CustomPageFreshnessChecker pageFreshnessChecker;
+
+    @Before
+    public void setUp() throws Exception {
+        customPageService = spy(new CustomPageService());
+        customPageService.clearPageTimestampsMemoryCache();
+        doReturn(pageAPI).when(customPageService).getPageAPI(apiSession);
+        doNothing().when(customPageService).replacePageFolder(any(PageAPI.class), any(PageResourceProvider.class), any(Page.class));
+        final File pageDirectory = temporaryFolder.newFolder("custompage_myPage");
+        new File(pageDirectory, "index.html").createNewFile();
+        when(pageResourceProvider.getFullPageName()).thenReturn("custompage_myPage");
+        when(pageResourceProvider.getPageDirectory()).thenReturn(pageDirectory);
+        when(clock.millis()).thenReturn(10000L);
+        when(apiSession.getTenantId()).thenReturn(TENANT_ID);
+        when(loginAPI.login(anyString(), anyString())).thenReturn(apiSession);
+        pageFreshnessChecker = spy(new CustomPageFreshnessChecker(TENANT_ID, customPageService, clock, CHECK_INTERVAL));
+        doReturn(loginAPI).when(pageFreshnessChecker).getLoginAPI();
+    }
+
+    @Test
+    public void should_not_be_up_to_date_before_first_refresh() throws Exception {
+        assertThat(pageFreshnessChecker.isUpToDate()).isFalse();
+
+        pageFreshnessChecker.refresh();
+
+        assertThat(pageFreshnessChecker.isUpToDate()).isTrue();
+    }
+
+    @Test
+    public void should_not_be_up_to_date_when_last_refresh_is_too_old() throws Exception {
+        pageFreshnessChecker.refresh();
+
+        when(clock.millis()).thenReturn(10000L + 2 * CHECK_INTERVAL + 1);
+
+        assertThat(pageFreshnessChecker.isUpToDate()).isFalse();
+    }
+
+    @Test
+    public void should_replace_used_page_updated_in_engine() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        final Page updatedPage = page("custompage_myPage", 5000L);
+        final Page olderPage = page("custompage_other", 500L);
+        when(pageAPI.searchPages(any(SearchOptions.class)))
+                .thenReturn(new SearchResultImpl<>(2, Arrays.asList(updatedPage, olderPage)));
+
+        pageFreshnessChecker.refresh();
+
+        verify(pageAPI, times(1)).searchPages(any(SearchOptions.class));
+        verify(customPageService).replacePageFolder(pageAPI, pageResourceProvider, updatedPage);
+    }
+
+    @Test
+    public void should_not_replace_page_not_updated_in_engine() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 5000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        final Page page = page("custompage_myPage", 5000L);
+        when(pageAPI.searchPages(any(SearchOptions.class)))
+                .thenReturn(new SearchResultImpl<>(1, Arrays.asList(page)));
+
+        pageFreshnessChecker.refresh();
+
+        verify(customPageService, never()).replacePageFolder(any(PageAPI.class), any(PageResourceProvider.class), any(Page.class));
+    }
+
+    @Test
+    public void should_not_check_pages_not_used_recently() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        when(clock.millis()).thenReturn(10000L + CustomPageFreshnessChecker.RECENTLY_USED_PAGE_PERIOD + 1);
+
+        pageFreshnessChecker.refresh();
+
+        verifyZeroInteractions(pageAPI);
+        assertThat(pageFreshnessChecker.isUpToDate()).isTrue();
+    }
+
+    @Test
+    public void should_remove_page_with_unhealthy_folder_so_that_it_is_retrieved_again() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        new File(pageResourceProvider.getPageDirectory(), "index.html").delete();
+
+        pageFreshnessChecker.refresh();
+
+        assertThat(customPageService.getPageTimestampFromMemoryCache("custompage_myPage")).isNull();
+        verifyZeroInteractions(pageAPI);
+    }
+
+    @Test
+    public void should_check_pages_with_a_session_of_the_technical_user_kept_between_refreshes() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        when(pageAPI.searchPages(any(SearchOptions.class))).thenReturn(new SearchResultImpl<>(0, Arrays.<Page> asList()));
+
+        pageFreshnessChecker.refresh();
+        pageFreshnessChecker.refresh();
+
+        verify(loginAPI, times(1)).login(anyString(), anyString());
+        verify(pageAPI, times(2)).searchPages(any(SearchOptions.class));
+    }
+
+    @Test
+    public void should_log_in_again_after_a_failed_refresh() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        when(pageAPI.searchPages(any(SearchOptions.class))).thenThrow(new InvalidSessionException("expired"))
+                .thenReturn(new SearchResultImpl<>(0, Arrays.<Page> asList()));
+
+        pageFreshnessChecker.refreshQuietly();
+
+        assertThat(pageFreshnessChecker.isUpToDate()).isFalse();
+        verify(loginAPI).logout(apiSession);
+
+        pageFreshnessChecker.refreshQuietly();
+
+        assertThat(pageFreshnessChecker.isUpToDate()).isTrue();
+        verify(loginAPI, times(2)).login(anyString(), anyString());
+    }
+
+    @Test
+    public void should_not_use_a_technical_session_of_another_tenant() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        when(apiSession.getTenantId()).thenReturn(TENANT_ID + 1);
+
+        pageFreshnessChecker.refreshQuietly();
+
+        assertThat(pageFreshnessChecker.isUpToDate()).isFalse();
+        verify(loginAPI).logout(apiSession);
+        verifyZeroInteractions(pageAPI);
+    }
+
+    @Test
+    public void should_log_out_the_technical_session_when_stopped() throws Exception {
+        customPageService.addPageTimestampToMemoryCache("custompage_myPage", 1000L);
+        pageFreshnessChecker.pageUsed(pageResourceProvider);
+        when(pageAPI.searchPages(any(SearchOptions.class))).thenReturn(new SearchResultImpl<>(0, Arrays.<Page> asList()));
+        pageFreshnessChecker.refresh();
+
+        pageFreshnessChecker.stop();
+
+        verify(loginAPI).logout(apiSession);
+    }
+
+    private Page page(final String name, final long lastModificationTimestamp) {
+        final Page page = mock(Page.class);
+        when(page.getName()).thenReturn(name);
+        when(page.getProcessDefinitionId()).thenReturn(null);
+        when(page.getLastModificationDate()).thenReturn(new Date(lastModificationTimestamp));
+        return page;
+    }
+
+}
@@ -19,22 +19,34 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.time.Clock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import javax.servlet.http.HttpServletRequest;
 
 import groovy.lang.GroovyClassLoader;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.bonitasoft.console.common.server.page.extension.PageResourceProviderImpl;
 import org.bonitasoft.console.common.server.preferences.constants.WebBonitaConstantsUtils;
@@ -106,7 +118,9 @@ public class CustomPageServiceTest {
     public void before() throws IOException, BonitaException {
         customPageService = spy(new CustomPageService());
         CustomPageService.clearCachedClassloaders();
+        CustomPageService.clearCachedPermissions(0L);
         doReturn(false).when(customPageService).isPageInDebugMode();
+        doReturn(false).when(customPageService).isPageLastUpdateCheckedInBackground();
         doReturn(webBonitaConstantUtils).when(customPageService).getWebBonitaConstantsUtils();
         doReturn(pageAPI).when(customPageService).getPageAPI(apiSession);
         doReturn(permissionAPI).when(customPageService).getPermissionAPI(apiSession);
@@ -130,12 +144,13 @@ public class CustomPageServiceTest {
         when(pageAPI.getPageByName("")).thenReturn(mockedPage);
 
         // When
-        final GroovyClassLoader classloader = customPageService.getPageClassloader(apiSession, pageResourceProvider);
-        final Class<?> pageClass = customPageService.registerPage(classloader, pageResourceProvider);
-        final PageController pageController = customPageService.loadPage((Class<PageController>) pageClass);
+        try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+            final Class<?> pageClass = customPageService.registerPage(lease.getClassloader(), pageResourceProvider);
+            final PageController pageController = customPageService.loadPage((Class<PageController>) pageClass);
 
-        // Then
-        assertNotNull(pageController);
+            // Then
+            assertNotNull(pageController);
+        }
     }
 
     @Test
@@ -156,14 +171,15 @@ public class CustomPageServiceTest {
         ControllerClassName controllerClassName = new ControllerClassName("IndexRestApi.groovy", true);
 
         // When
-        final GroovyClassLoader classloader = customPageService.getPageClassloader(apiSession, pageResourceProvider);
-        final Class<?> restApiControllerClass = customPageService.registerRestApiPage(classloader, pageResourceProvider,
-                controllerClassName, controllerClassName.getName());
-        final RestApiController restApiController = customPageService
-                .loadRestApiPage((Class<RestApiController>) restApiControllerClass);
-
-        // Then
-        assertNotNull(restApiController);
+        try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+            final Class<?> restApiControllerClass = customPageService.registerRestApiPage(lease.getClassloader(),
+                    pageResourceProvider, controllerClassName, controllerClassName.getName());
+            final RestApiController restApiController = customPageService
+                    .loadRestApiPage((Class<RestApiController>) restApiControllerClass);
+
+            // Then
+            assertNotNull(restApiController);
+        }
     }
 
     @Test
@@ -226,6 +242,80 @@ public class CustomPageServiceTest {
                 "Organization Management");
     }
 
+    @Test
+    public void should_resolve_Custom_Page_permissions_only_once_per_page_version() throws Exception {
+        // Given
+        final Properties pageProperties = new Properties();
+        pageProperties.setProperty("name", "customPage1");
+        pageProperties.setProperty("resources", "[GET|identity/user, PUT|identity/user]");
+        final byte[] pageContent = new byte[] { 1 };
+        doReturn(42L).when(mockedPage).getId();
+        doReturn(new Date(1000L)).when(mockedPage).getLastModificationDate();
+        doReturn(pageContent).when(pageAPI).getPageContent(42L);
+        doReturn(pageProperties).when(pageAPI).getPageProperties(pageContent, false);
+        doReturn(Set.of("Application Visualization")).when(permissionAPI).getResourcePermissions("GET|identity/user");
+        doReturn(Set.of("Organization Management")).when(permissionAPI).getResourcePermissions("PUT|identity/user");
+
+        // When
+        Set<String> customPagePermissions = null;
+        for (int i = 0; i < 10; i++) {
+            customPagePermissions = customPageService.getCustomPagePermissions(mockedPage, apiSession);
+        }
+
+        // Then
+        assertThat(customPagePermissions).containsOnly("Application Visualization", "Organization Management");
+        verify(pageAPI, times(1)).getPageContent(42L);
+        verify(permissionAPI, times(1)).getResourcePermissions("GET|identity/user");
+        verify(permissionAPI, times(1)).getResourcePermissions("PUT|identity/user");
+    }
+
+    @Test
+    public void should_resolve_Custom_Page_permissions_again_when_the_page_is_updated() throws Exception {
+        // Given
+        final Properties pageProperties = new Properties();
+        pageProperties.setProperty("resources", "[GET|identity/user]");
+        final Properties updatedPageProperties = new Properties();
+        updatedPageProperties.setProperty("resources", "[GET|identity/user, PUT|identity/user]");
+        final byte[] pageContent = new byte[] { 1 };
+        final byte[] updatedPageContent = new byte[] { 2 };
+        doReturn(42L).when(mockedPage).getId();
+        doReturn(new Date(1000L), new Date(2000L)).when(mockedPage).getLastModificationDate();
+        doReturn(pageContent, updatedPageContent).when(pageAPI).getPageContent(42L);
+        doReturn(pageProperties).when(pageAPI).getPageProperties(pageContent, false);
+        doReturn(updatedPageProperties).when(pageAPI).getPageProperties(updatedPageContent, false);
+        doReturn(Set.of("Application Visualization")).when(permissionAPI).getResourcePermissions("GET|identity/user");
+        doReturn(Set.of("Organization Management")).when(permissionAPI).getResourcePermissions("PUT|identity/user");
+
+        // When
+        customPageService.getCustomPagePermissions(mockedPage, apiSession);
+        final Set<String> customPagePermissions = customPageService.getCustomPagePermissions(mockedPage, apiSession);
+
+        // Then
+        assertThat(customPagePermissions).containsOnly("Application Visualization", "Organization Management");
+        verify(pageAPI, times(2)).getPageContent(42L);
+        //the permissions of a resource are resolved once for all the pages of the tenant
+        verify(permissionAPI, times(1)).getResourcePermissions("GET|identity/user");
+        verify(permissionAPI, times(1)).getResourcePermissions("PUT|identity/user");
+    }
+
+    @Test
+    public void should_resolve_Custom_Page_permissions_again_only_when_the_permissions_of_the_tenant_are_cleared() throws Exception {
+        // Given
+        final Properties pageProperties = new Properties();
+        pageProperties.setProperty("resources", "[GET|identity/user]");
+        doReturn(Set.of("Application Visualization")).when(permissionAPI).getResourcePermissions("GET|identity/user");
+        customPageService.getCustomPagePermissions(pageProperties, apiSession);
+
+        // When
+        CustomPageService.clearCachedPermissions(1L);
+        customPageService.getCustomPagePermissions(pageProperties, apiSession);
+        CustomPageService.clearCachedPermissions(0L);
+        customPageService.getCustomPagePermissions(pageProperties, apiSession);
+
+        // Then
+        verify(permissionAPI, times(2)).getResourcePermissions("GET|identity/user");
+    }
+
     @Test
     public void should_get_Custom_Page_permissions_to_CompoundPermissions_with_empty_list() throws Exception {
         // Given
@@ -361,21 +451,23 @@ public class CustomPageServiceTest {
     public void should_register_restApiPage() throws Exception {
         // Given
         File pageDirectory = new File("target/bonita/home/client/tenants/1/pages/page2");
-        final GroovyClassLoader pageClassloader = initializePageMocks(pageDirectory);
+        initializePageMocks(pageDirectory);
         ControllerClassName controllerClassName = new ControllerClassName("RestResource.groovy", true);
 
         // When
         customPageService.retrievePageZipContent(apiSession, pageResourceProvider);
-        final Class<?> restApiControllerClass = customPageService.registerRestApiPage(pageClassloader, pageResourceProvider,
-                controllerClassName, controllerClassName.getName());
-
-        // then
-        final org.bonitasoft.web.extension.rest.RestApiController restApiController = (org.bonitasoft.web.extension.rest.RestApiController) restApiControllerClass
-                .newInstance();
-        final RestApiResponse restApiResponse = restApiController.doHandle(request, new RestApiResponseBuilder(),
-                restAPIContext);
-        RestApiResponseAssert.assertThat(restApiResponse).as("should return result").hasResponse("RestResource.groovy!")
-                .hasNoAdditionalCookies().hasHttpStatus(200);
+        try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+            final Class<?> restApiControllerClass = customPageService.registerRestApiPage(lease.getClassloader(),
+                    pageResourceProvider, controllerClassName, controllerClassName.getName());
+
+            // then
+            final org.bonitasoft.web.extension.rest.RestApiController restApiController = (org.bonitasoft.web.extension.rest.RestApiController) restApiControllerClass
+                    .newInstance();
+            final RestApiResponse restApiResponse = restApiController.doHandle(request, new RestApiResponseBuilder(),
+                    restAPIContext);
+            RestApiResponseAssert.assertThat(restApiResponse).as("should return result").hasResponse("RestResource.groovy!")
+                    .hasNoAdditionalCookies().hasHttpStatus(200);
+        }
     }
    
     @Test
@@ -454,7 +546,100 @@ public class CustomPageServiceTest {
         verify(customPageService, never()).getPageLastUpdateDateFromEngine(apiSession, pageResourceProvider);
     }
 
-    protected GroovyClassLoader initializePageMocks(File pageDirectory) throws BonitaException, IOException {
+    @Test
+    public void should_not_query_engine_on_request_thread_when_pages_are_checked_in_background() throws Exception {
+        final CustomPageFreshnessChecker pageFreshnessChecker = mock(CustomPageFreshnessChecker.class);
+        doReturn(true).when(customPageService).isPageLastUpdateCheckedInBackground();
+        doReturn(pageFreshnessChecker).when(customPageService).getPageFreshnessChecker(apiSession);
+        when(pageFreshnessChecker.isUpToDate()).thenReturn(true);
+        customPageService.addPageTimestampToMemoryCache(fullPageName, databaseLastUpdateDate.getTime() - 1000);
+
+        customPageService.ensurePageFolderIsUpToDate(apiSession, pageResourceProvider);
+
+        verify(pageFreshnessChecker).pageUsed(pageResourceProvider);
+        verify(customPageService, never()).getPageLastUpdateDateFromEngine(apiSession, pageResourceProvider);
+        verify(customPageService, never()).retrievePageZipContent(apiSession, pageResourceProvider);
+        verifyZeroInteractions(pageAPI);
+    }
+
+    @Test
+    public void should_not_call_page_api_on_request_thread_while_background_checks_are_recent() throws Exception {
+        final Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(10000L);
+        final CustomPageFreshnessChecker pageFreshnessChecker = new CustomPageFreshnessChecker(1L, customPageService, clock, 3000L);
+        doReturn(true).when(customPageService).isPageLastUpdateCheckedInBackground();
+        doReturn(pageFreshnessChecker).when(customPageService).getPageFreshnessChecker(apiSession);
+        when(pageResourceProvider.getPageDirectory()).thenReturn(temporaryFolder.newFolder());
+        customPageService.addPageTimestampToMemoryCache(fullPageName, databaseLastUpdateDate.getTime());
+        //background check with no page used yet
+        pageFreshnessChecker.refresh();
+
+        for (long requestTime = 10000L; requestTime <= 16000L; requestTime += 500L) {
+            when(clock.millis()).thenReturn(requestTime);
+            customPageService.ensurePageFolderIsUpToDate(apiSession, pageResourceProvider);
+        }
+
+        verify(customPageService, never()).getPageAPI(apiSession);
+        verify(customPageService, never()).getPageLastUpdateDateFromEngine(apiSession, pageResourceProvider);
+        verifyZeroInteractions(pageAPI);
+    }
+
+    @Test
+    public void should_check_page_on_request_thread_when_background_check_is_late() throws Exception {
+        final CustomPageFreshnessChecker pageFreshnessChecker = mock(CustomPageFreshnessChecker.class);
+        doReturn(true).when(customPageService).isPageLastUpdateCheckedInBackground();
+        doReturn(pageFreshnessChecker).when(customPageService).getPageFreshnessChecker(apiSession);
+        when(pageFreshnessChecker.isUpToDate()).thenReturn(false);
+        File pageDirectory = temporaryFolder.newFolder();
+        initializePageMocks(pageDirectory);
+        customPageService.addPageTimestampToMemoryCache(fullPageName, databaseLastUpdateDate.getTime() - 1000);
+
+        customPageService.ensurePageFolderIsUpToDate(apiSession, pageResourceProvider);
+
+        verify(customPageService).getPageLastUpdateDateFromEngine(apiSession, pageResourceProvider);
+        verify(customPageService).retrievePageZipContent(apiSession, pageResourceProvider);
+    }
+
+    @Test
+    public void should_replace_page_folder_with_updated_page_content() throws Exception {
+        final File pagesFolder = temporaryFolder.newFolder();
+        final File pageDirectory = new File(pagesFolder, fullPageName);
+        pageDirectory.mkdirs();
+        final File previousFile = new File(pageDirectory, "previous.txt");
+        previousFile.createNewFile();
+        when(pageResourceProvider.getPageDirectory()).thenReturn(pageDirectory);
+        when(mockedPage.getId()).thenReturn(1L);
+        when(mockedPage.getLastModificationDate()).thenReturn(databaseLastUpdateDate);
+        when(pageAPI.getPageContent(1L)).thenReturn(IOUtils.toByteArray(getClass().getResourceAsStream("page.zip")));
+
+        customPageService.replacePageFolder(pageAPI, pageResourceProvider, mockedPage);
+
+        assertThat(previousFile).doesNotExist();
+        assertThat(pageDirectory.listFiles()).isNotEmpty();
+        assertThat(pagesFolder.list()).containsOnly(fullPageName);
+        assertThat(customPageService.getPageTimestampFromMemoryCache(fullPageName)).isEqualTo(databaseLastUpdateDate.getTime());
+    }
+
+    @Test
+    public void should_keep_previous_page_folder_until_the_retired_classloader_is_released() throws Exception {
+        final File pagesFolder = temporaryFolder.newFolder();
+        final File pageDirectory = new File(pagesFolder, fullPageName);
+        FileUtils.copyDirectory(new File(getClass().getResource("/ARootPageFolder").getFile()), pageDirectory);
+        when(pageResourceProvider.getPageDirectory()).thenReturn(pageDirectory);
+        customPageService.addPageTimestampToMemoryCache(fullPageName, 1000L);
+        when(mockedPage.getId()).thenReturn(1L);
+        when(mockedPage.getLastModificationDate()).thenReturn(databaseLastUpdateDate);
+        when(pageAPI.getPageContent(1L)).thenReturn(IOUtils.toByteArray(getClass().getResourceAsStream("page.zip")));
+        final PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider);
+
+        customPageService.replacePageFolder(pageAPI, pageResourceProvider, mockedPage);
+
+        assertThat(pagesFolder.list()).containsOnly(fullPageName, fullPageName + ".previous-1000");
+        lease.close();
+        assertThat(pagesFolder.list()).containsOnly(fullPageName);
+    }
+
+    protected void initializePageMocks(File pageDirectory) throws BonitaException, IOException {
         final Page mockedPage = mock(Page.class);
         when(mockedPage.getId()).thenReturn(1L);
         when(mockedPage.getName()).thenReturn("page2");
@@ -466,27 +651,102 @@ public class CustomPageServiceTest {
         when(pageResourceProvider.getTempPageFile()).thenReturn(new File("target/bonita/home/client/tenant/1/temp"));
         when(pageResourceProvider.getPageDirectory()).thenReturn(pageDirectory);
         when(customPageService.isPageInDebugMode()).thenReturn(true);
-
-        return customPageService.getPageClassloader(apiSession, pageResourceProvider);
     }
     
     @Test
     public void should_add_page_root_folder_in_classpath() throws Exception {
         final File pageDir = new File(getClass().getResource("/ARootPageFolder").getFile());
-        final GroovyClassLoader classloader = customPageService.buildPageClassloader(apiSession, "pageName", pageDir);
-        assertThat(classloader.loadClass("AbstractIndex")).isNotNull();
-        assertThat(classloader.loadClass("Index")).isNotNull();
-        assertThat(classloader.loadClass("org.company.test.Util")).isNotNull();
-        assertThat(classloader.getResource("org/company/test/config.properties")).isNotNull();
+        try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, "pageName", pageDir)) {
+            final GroovyClassLoader classloader = lease.getClassloader();
+            assertThat(classloader.loadClass("AbstractIndex")).isNotNull();
+            assertThat(classloader.loadClass("Index")).isNotNull();
+            assertThat(classloader.loadClass("org.company.test.Util")).isNotNull();
+            assertThat(classloader.getResource("org/company/test/config.properties")).isNotNull();
+        }
     }
 
     @Test
     public void should_add_rest_api_jar_in_classpath() throws Exception {
         final File restAPIDir = new File(
                 getClass().getResource("/myRestAPI-1.0.0-SNAPSHOT/").getFile());
-        final GroovyClassLoader classloader = customPageService.buildPageClassloader(apiSession, "custompage_myRestAPI",
-                restAPIDir);
-        assertThat(classloader.loadClass("com.compagny.rest.api.MyController")).isNotNull();
+        try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, "custompage_myRestAPI",
+                restAPIDir)) {
+            assertThat(lease.getClassloader().loadClass("com.compagny.rest.api.MyController")).isNotNull();
+        }
+    }
+
+    @Test
+    public void should_keep_superseded_classloader_open_until_its_last_lease_is_released() throws Exception {
+        final File pageDir = new File(getClass().getResource("/ARootPageFolder").getFile());
+        when(pageResourceProvider.getPageDirectory()).thenReturn(pageDir);
+        final int initialLiveClassloaders = CustomPageService.getLivePageClassloadersCount();
+
+        final PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider);
+        CustomPageService.clearCachedClassloaders();
+
+        assertThat(CustomPageService.getLivePageClassloadersCount()).isEqualTo(initialLiveClassloaders + 1);
+        assertThat(lease.getClassloader().loadClass("org.company.test.Util")).isNotNull();
+        lease.close();
+        assertThat(CustomPageService.getLivePageClassloadersCount()).isEqualTo(initialLiveClassloaders);
+    }
+
+    @Test
+    public void should_not_leak_classloaders_nor_jar_handles_when_page_is_redeployed_many_times_under_load() throws Exception {
+        assumeTrue("open file descriptors are listed in /proc/self/fd", new File("/proc/self/fd").isDirectory());
+        final File restAPIDir = new File(getClass().getResource("/myRestAPI-1.0.0-SNAPSHOT/").getFile());
+        when(pageResourceProvider.getPageDirectory()).thenReturn(restAPIDir);
+        final int initialLiveClassloaders = CustomPageService.getLivePageClassloadersCount();
+        final long initialOpenPageJars = countOpenFilesIn(webBonitaConstantUtils.getTempFolder());
+        final AtomicBoolean redeploying = new AtomicBoolean(true);
+        final ExecutorService requests = Executors.newFixedThreadPool(8);
+        final List<Future<Integer>> requestResults = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            requestResults.add(requests.submit(() -> {
+                int servedRequests = 0;
+                while (redeploying.get()) {
+                    try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+                        assertThat(lease.getClassloader().loadClass("com.compagny.rest.api.MyController")).isNotNull();
+                    }
+                    servedRequests++;
+                }
+                return servedRequests;
+            }));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            try (PageClassloaderHolder.Lease lease = customPageService.leasePageClassloader(apiSession, pageResourceProvider)) {
+                //page redeployed while requests are using its classloader
+                CustomPageService.clearCachedClassloaders();
+                assertThat(lease.getClassloader().loadClass("com.compagny.rest.api.MyController")).isNotNull();
+            }
+        }
+        redeploying.set(false);
+        requests.shutdown();
+        assertThat(requests.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        for (final Future<Integer> requestResult : requestResults) {
+            assertThat(requestResult.get()).isPositive();
+        }
+        CustomPageService.clearCachedClassloaders();
+
+        assertThat(CustomPageService.getLivePageClassloadersCount()).isEqualTo(initialLiveClassloaders);
+        assertThat(countOpenFilesIn(webBonitaConstantUtils.getTempFolder())).isEqualTo(initialOpenPageJars);
+    }
+
+    /**
+     * @return the number of files of the folder opened by this process
+     */
+    private long countOpenFilesIn(final File folder) throws IOException {
+        final String folderPath = folder.getCanonicalPath() + File.separator;
+        try (Stream<Path> fileDescriptors = Files.list(Paths.get("/proc/self/fd"))) {
+            return fileDescriptors.filter(fileDescriptor -> {
+                try {
+                    return Files.readSymbolicLink(fileDescriptor).toString().startsWith(folderPath);
+                } catch (final IOException e) {
+                    //the file descriptor has been closed meanwhile
+                    return false;
+                }
+            }).count();
+        }
     }
 
     @Test
@@ -51,6 +51,8 @@ public class PageMappingServiceTest {
         Map<String, String[]> params = new HashMap<>();
         params.put("key", new String[]{"value"});
         when(hsRequest.getParameterMap()).thenReturn(params);
+        doReturn(60000L).when(pageMappingService).getCacheTimeToLive();
+        PageMappingService.clearCachedPageReferences();
     }
 
     @SuppressWarnings("unchecked")
@@ -75,4 +77,57 @@ public class PageMappingServiceTest {
         assertEquals("/externalURL", returnedPageReference.getURL());
     }
 
+    @Test
+    public void should_resolve_page_mapping_without_authorization_rules_only_once() throws Exception {
+        final PageURL pageURL = mock(PageURL.class);
+        when(pageURL.getPageId()).thenReturn(42L);
+        when(pageAPI.resolvePageOrURL(eq("apiExtension|GET|myApi"), anyMap(), eq(false))).thenReturn(pageURL);
+
+        PageReference returnedPageReference = null;
+        for (int i = 0; i < 100; i++) {
+            returnedPageReference = pageMappingService.getPage(hsRequest, apiSession, "apiExtension|GET|myApi", new Locale("en"), false);
+        }
+
+        verify(pageAPI, times(1)).resolvePageOrURL(eq("apiExtension|GET|myApi"), anyMap(), eq(false));
+        assertEquals(Long.valueOf(42L), returnedPageReference.getPageId());
+        assertNull(returnedPageReference.getURL());
+    }
+
+    @Test
+    public void should_always_resolve_page_mapping_with_authorization_rules() throws Exception {
+        final PageURL pageURL = mock(PageURL.class);
+        when(pageURL.getPageId()).thenReturn(42L);
+        when(pageAPI.resolvePageOrURL(eq("process/processName/processVersion"), anyMap(), eq(true))).thenReturn(pageURL);
+
+        pageMappingService.getPage(hsRequest, apiSession, "process/processName/processVersion", new Locale("en"), true);
+        pageMappingService.getPage(hsRequest, apiSession, "process/processName/processVersion", new Locale("en"), true);
+
+        verify(pageAPI, times(2)).resolvePageOrURL(eq("process/processName/processVersion"), anyMap(), eq(true));
+    }
+
+    @Test
+    public void should_always_resolve_page_mapping_to_an_url() throws Exception {
+        final PageURL pageURL = mock(PageURL.class);
+        when(pageURL.getUrl()).thenReturn("/externalURL");
+        when(pageAPI.resolvePageOrURL(eq("process/processName/processVersion"), anyMap(), eq(false))).thenReturn(pageURL);
+
+        pageMappingService.getPage(hsRequest, apiSession, "process/processName/processVersion", new Locale("en"), false);
+        pageMappingService.getPage(hsRequest, apiSession, "process/processName/processVersion", new Locale("en"), false);
+
+        verify(pageAPI, times(2)).resolvePageOrURL(eq("process/processName/processVersion"), anyMap(), eq(false));
+    }
+
+    @Test
+    public void should_resolve_page_mapping_again_after_cache_is_cleared() throws Exception {
+        final PageURL pageURL = mock(PageURL.class);
+        when(pageURL.getPageId()).thenReturn(42L);
+        when(pageAPI.resolvePageOrURL(eq("apiExtension|GET|myApi"), anyMap(), eq(false))).thenReturn(pageURL);
+
+        pageMappingService.getPage(hsRequest, apiSession, "apiExtension|GET|myApi", new Locale("en"), false);
+        PageMappingService.clearCachedPageReferences();
+        pageMappingService.getPage(hsRequest, apiSession, "apiExtension|GET|myApi", new Locale("en"), false);
+
+        verify(pageAPI, times(2)).resolvePageOrURL(eq("apiExtension|GET|myApi"), anyMap(), eq(false));
+    }
+
 }
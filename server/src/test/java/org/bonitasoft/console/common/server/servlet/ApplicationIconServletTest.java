@@ -20,6 +20,7 @@ import org.bonitasoft.engine.business.application.ApplicationUpdater;
 import org.bonitasoft.engine.business.application.impl.IconImpl;
 import org.bonitasoft.engine.exception.NotFoundException;
 import org.bonitasoft.engine.exception.UpdateException;
+import org.bonitasoft.engine.session.APISession;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -52,9 +53,12 @@ public class ApplicationIconServletTest {
     private MockHttpServletResponse httpServletResponse = new MockHttpServletResponse();
     @Mock
     private ApplicationAPI applicationAPI;
+    @Mock
+    private APISession apiSession;
 
     @Before
     public void before() throws Exception {
+        IconServlet.clearCachedIcons();
         doReturn(applicationAPI).when(applicationIconServlet).getApplicationApi(any());
     }
 
@@ -184,4 +188,79 @@ public class ApplicationIconServletTest {
         applicationIconServlet.doDelete(httpServletRequest, httpServletResponse);
         assertThat(httpServletResponse.getStatus()).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
     }
+
+    @Test
+    public void should_not_cache_icon_when_url_does_not_contain_the_application_version() throws Exception {
+        havingIcon(APPLICATION_ID, "content".getBytes());
+
+        doGetIcon(null, null);
+        final MockHttpServletResponse response = doGetIcon(null, null);
+
+        assertThat(response.getContentAsByteArray()).isEqualTo("content".getBytes());
+        assertThat(response.getHeader("Cache-Control")).isEqualTo(IconServlet.REVALIDATE_CACHE_CONTROL);
+        verify(applicationAPI, times(2)).getIconOfApplication(APPLICATION_ID);
+    }
+
+    @Test
+    public void should_return_not_modified_when_unversioned_icon_did_not_change() throws Exception {
+        havingIcon(APPLICATION_ID, "content".getBytes());
+        final String eTag = doGetIcon(null, null).getHeader("ETag");
+
+        final MockHttpServletResponse response = doGetIcon(null, eTag);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void should_return_not_modified_without_calling_the_engine_when_versioned_icon_is_requested_again() throws Exception {
+        havingIcon(APPLICATION_ID, "content".getBytes());
+        final MockHttpServletResponse firstResponse = doGetIcon("1234", null);
+
+        final MockHttpServletResponse response = doGetIcon("1234", firstResponse.getHeader("ETag"));
+
+        assertThat(firstResponse.getHeader("Cache-Control")).isEqualTo(IconServlet.IMMUTABLE_CACHE_CONTROL);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(applicationAPI, times(1)).getIconOfApplication(APPLICATION_ID);
+    }
+
+    @Test
+    public void should_retrieve_icon_again_once_it_has_been_evicted() throws Exception {
+        havingIcon(APPLICATION_ID, "content".getBytes());
+        doGetIcon("1234", null);
+        havingIcon(APPLICATION_ID, "new content".getBytes());
+
+        ApplicationIconServlet.evictApplicationIcon(APPLICATION_ID);
+        final MockHttpServletResponse response = doGetIcon("1234", null);
+
+        assertThat(response.getContentAsByteArray()).isEqualTo("new content".getBytes());
+        verify(applicationAPI, times(2)).getIconOfApplication(APPLICATION_ID);
+    }
+
+    @Test
+    public void should_evict_cached_icon_when_deleting_icon() throws Exception {
+        havingIcon(APPLICATION_ID, "content".getBytes());
+        doGetIcon("1234", null);
+        httpServletRequest.setPathInfo("/" + APPLICATION_ID);
+        httpServletRequest.setMethod("DELETE");
+
+        applicationIconServlet.doDelete(httpServletRequest, httpServletResponse);
+        doGetIcon("1234", null);
+
+        verify(applicationAPI, times(2)).getIconOfApplication(APPLICATION_ID);
+    }
+
+    private MockHttpServletResponse doGetIcon(final String version, final String ifNoneMatch) throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.getSession().setAttribute("apiSession", apiSession);
+        request.setPathInfo("/" + APPLICATION_ID);
+        if (version != null) {
+            request.setParameter("t", version);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        applicationIconServlet.doGet(request, response);
+        return response;
+    }
 }
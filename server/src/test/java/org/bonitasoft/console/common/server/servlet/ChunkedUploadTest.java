@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkedUploadTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    private static final Object SERVLET = new Object();
+
+    private static final String SESSION_ID = "sessionId";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ChunkedUpload chunkedUpload;
+
+    @Before
+    public void setUp() throws Exception {
+        chunkedUpload = ChunkedUpload.create(tempFolder.getRoot(), SERVLET, SESSION_ID, "process.bar", "application/octet-stream",
+                CONTENT.length());
+    }
+
+    @Test
+    public void should_assemble_chunks_received_out_of_order() throws Exception {
+        writeChunk(10, 19);
+        writeChunk(0, 4);
+        assertThat(chunkedUpload.isComplete()).isFalse();
+        writeChunk(5, 9);
+
+        assertThat(chunkedUpload.isComplete()).isTrue();
+        assertThat(chunkedUpload.getReceivedRanges()).containsExactly(new long[] { 0, 19 });
+        assertThat(FileUtils.readFileToString(chunkedUpload.getStagedFile(), StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void should_ignore_duplicate_and_overlapping_chunks() throws Exception {
+        writeChunk(0, 9);
+        writeChunk(0, 9);
+        writeChunk(5, 14);
+
+        assertThat(chunkedUpload.getReceivedRanges()).containsExactly(new long[] { 0, 14 });
+        assertThat(chunkedUpload.isComplete()).isFalse();
+    }
+
+    @Test
+    public void should_not_record_an_interrupted_chunk_as_received() throws Exception {
+        writeChunk(0, 4);
+
+        assertThrows(EOFException.class, () -> chunkedUpload.writeChunk(5, 19,
+                new ByteArrayInputStream(CONTENT.substring(5, 12).getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(chunkedUpload.getReceivedRanges()).containsExactly(new long[] { 0, 4 });
+        writeChunk(5, 19);
+        assertThat(chunkedUpload.isComplete()).isTrue();
+    }
+
+    @Test
+    public void should_reject_chunk_outside_of_the_file() {
+        assertThrows(IllegalArgumentException.class, () -> chunkedUpload.writeChunk(15, 20,
+                new ByteArrayInputStream("fghij0".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void should_verify_the_checksum_of_the_received_file() throws Exception {
+        writeChunk(0, 19);
+
+        assertThat(chunkedUpload.hasChecksum(sha256("another content"))).isFalse();
+        assertThat(chunkedUpload.hasChecksum(sha256(CONTENT))).isTrue();
+    }
+
+    @Test
+    public void should_only_give_upload_to_the_servlet_and_session_which_started_it() {
+        assertThat(ChunkedUpload.get(chunkedUpload.getUploadId(), SERVLET, SESSION_ID)).isSameAs(chunkedUpload);
+        assertThat(ChunkedUpload.get(chunkedUpload.getUploadId(), SERVLET, "anotherSessionId")).isNull();
+        assertThat(ChunkedUpload.get(chunkedUpload.getUploadId(), new Object(), SESSION_ID)).isNull();
+    }
+
+    @Test
+    public void should_forget_upload_once_completed() throws Exception {
+        writeChunk(0, 19);
+        final File uploadedFile = new File(tempFolder.getRoot(), "tmp_uploaded.bar");
+
+        chunkedUpload.complete(uploadedFile);
+
+        assertThat(uploadedFile).hasContent(CONTENT);
+        assertThat(chunkedUpload.getStagedFile()).doesNotExist();
+        assertThat(ChunkedUpload.get(chunkedUpload.getUploadId(), SERVLET, SESSION_ID)).isNull();
+    }
+
+    @Test
+    public void should_forget_upload_when_its_staged_file_has_been_reaped() throws Exception {
+        chunkedUpload.getStagedFile().delete();
+
+        assertThat(ChunkedUpload.get(chunkedUpload.getUploadId(), SERVLET, SESSION_ID)).isNull();
+    }
+
+    private void writeChunk(final int start, final int end) throws Exception {
+        chunkedUpload.writeChunk(start, end,
+                new ByteArrayInputStream(CONTENT.substring(start, end + 1).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String sha256(final String content) throws Exception {
+        final StringBuilder checksum = new StringBuilder();
+        for (final byte b : MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8))) {
+            checksum.append(String.format("%02x", b));
+        }
+        return checksum.toString();
+    }
+
+}
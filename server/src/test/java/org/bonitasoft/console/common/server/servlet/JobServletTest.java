@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.bonitasoft.console.common.server.job.Job;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.engine.session.APISession;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobServletTest {
+
+    private static final String JOB_ID = "3b1c0d6e";
+
+    @Mock
+    private JobManager jobManager;
+
+    @Mock
+    private APISession apiSession;
+
+    @Mock
+    private Job job;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JobServlet jobServlet;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Before
+    public void setUp() {
+        jobServlet = spy(new JobServlet());
+        doReturn(jobManager).when(jobServlet).getJobManager();
+        request.getSession().setAttribute("apiSession", apiSession);
+        when(jobManager.getJob(JOB_ID, apiSession)).thenReturn(job);
+        when(job.getId()).thenReturn(JOB_ID);
+        when(job.getName()).thenReturn("/organization/import");
+        when(job.getState()).thenReturn(Job.State.RUNNING);
+        when(job.getProgress()).thenReturn(20);
+        when(job.getWarnings()).thenReturn(Arrays.asList("a warning"));
+        when(job.getEndDate()).thenReturn(-1L);
+    }
+
+    @Test
+    public void should_return_the_status_of_the_job() throws Exception {
+        request.setPathInfo("/" + JOB_ID);
+
+        jobServlet.doGet(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).contains("\"id\":\"" + JOB_ID + "\"", "\"state\":\"RUNNING\"", "\"progress\":20",
+                "\"warnings\":[\"a warning\"]");
+    }
+
+    @Test
+    public void should_return_not_found_for_unknown_job_or_job_of_another_user() throws Exception {
+        request.setPathInfo("/unknown");
+
+        jobServlet.doGet(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    public void should_return_unauthorized_without_session() throws Exception {
+        final MockHttpServletRequest requestWithoutSession = new MockHttpServletRequest();
+        requestWithoutSession.setPathInfo("/" + JOB_ID);
+
+        jobServlet.doGet(requestWithoutSession, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_UNAUTHORIZED);
+        assertThat(requestWithoutSession.getSession(false)).isNull();
+    }
+
+    @Test
+    public void should_download_the_result_file_of_a_succeeded_job() throws Exception {
+        final File resultFile = temporaryFolder.newFile();
+        Files.write(resultFile.toPath(), "<applications/>".getBytes(StandardCharsets.UTF_8));
+        when(job.getResultFile()).thenReturn(resultFile);
+        when(job.getResultFileName()).thenReturn("applicationDescriptorFile.xml");
+        request.setPathInfo("/" + JOB_ID + "/result");
+
+        jobServlet.doGet(request, response);
+
+        assertThat(response.getContentAsString()).isEqualTo("<applications/>");
+        assertThat(response.getHeader("Content-Disposition")).contains("applicationDescriptorFile.xml");
+    }
+
+    @Test
+    public void should_return_conflict_when_job_has_no_result_file() throws Exception {
+        request.setPathInfo("/" + JOB_ID + "/result");
+
+        jobServlet.doGet(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_CONFLICT);
+    }
+
+    @Test
+    public void should_cancel_the_job() throws Exception {
+        when(jobManager.cancel(JOB_ID, apiSession)).thenReturn(true);
+        request.setPathInfo("/" + JOB_ID);
+
+        jobServlet.doDelete(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    @Test
+    public void should_return_not_found_when_cancelling_a_job_already_done() throws Exception {
+        when(jobManager.cancel(JOB_ID, apiSession)).thenReturn(false);
+        request.setPathInfo("/" + JOB_ID);
+
+        jobServlet.doDelete(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+}
@@ -20,6 +20,7 @@ import org.bonitasoft.engine.exception.UpdateException;
 import org.bonitasoft.engine.identity.UserNotFoundException;
 import org.bonitasoft.engine.identity.UserUpdater;
 import org.bonitasoft.engine.identity.impl.IconImpl;
+import org.bonitasoft.engine.session.APISession;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,9 +54,12 @@ public class OrganizationIconServletTest {
     private MockHttpServletResponse httpServletResponse = new MockHttpServletResponse();
     @Mock
     private IdentityAPI identityAPI;
+    @Mock
+    private APISession apiSession;
 
     @Before
     public void before() throws Exception {
+        IconServlet.clearCachedIcons();
         doReturn(identityAPI).when(organizationIconServlet).getIdentityApi(any());
     }
 
@@ -198,4 +202,65 @@ public class OrganizationIconServletTest {
         organizationIconServlet.doDelete(httpServletRequest, httpServletResponse);
         assertThat(httpServletResponse.getStatus()).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
     }
+
+    @Test
+    public void should_set_etag_and_immutable_cache_control() throws Exception {
+        havingIcon(ICON_ID, "content".getBytes());
+        httpServletRequest.setPathInfo("/" + String.valueOf(ICON_ID));
+
+        organizationIconServlet.doGet(httpServletRequest, httpServletResponse);
+
+        assertThat(httpServletResponse.getHeader("ETag")).matches("\"[0-9a-f]{64}\"");
+        assertThat(httpServletResponse.getHeader("Cache-Control")).isEqualTo(IconServlet.IMMUTABLE_CACHE_CONTROL);
+    }
+
+    @Test
+    public void should_return_not_modified_without_calling_the_engine_when_icon_is_requested_again() throws Exception {
+        havingIcon(ICON_ID, "content".getBytes());
+        httpServletRequest.getSession().setAttribute("apiSession", apiSession);
+        httpServletRequest.setPathInfo("/" + String.valueOf(ICON_ID));
+        organizationIconServlet.doGet(httpServletRequest, httpServletResponse);
+        final String eTag = httpServletResponse.getHeader("ETag");
+
+        final MockHttpServletRequest secondRequest = new MockHttpServletRequest();
+        secondRequest.getSession().setAttribute("apiSession", apiSession);
+        secondRequest.setPathInfo("/" + String.valueOf(ICON_ID));
+        secondRequest.addHeader("If-None-Match", eTag);
+        final MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+        organizationIconServlet.doGet(secondRequest, secondResponse);
+
+        assertThat(secondResponse.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(secondResponse.getContentAsByteArray()).isEmpty();
+        assertThat(secondResponse.getHeader("ETag")).isEqualTo(eTag);
+        verify(identityAPI, times(1)).getIcon(ICON_ID);
+    }
+
+    @Test
+    public void should_serve_cached_icon_content_without_calling_the_engine() throws Exception {
+        havingIcon(ICON_ID, "content".getBytes());
+        httpServletRequest.getSession().setAttribute("apiSession", apiSession);
+        httpServletRequest.setPathInfo("/" + String.valueOf(ICON_ID));
+        organizationIconServlet.doGet(httpServletRequest, httpServletResponse);
+
+        final MockHttpServletRequest secondRequest = new MockHttpServletRequest();
+        secondRequest.getSession().setAttribute("apiSession", apiSession);
+        secondRequest.setPathInfo("/" + String.valueOf(ICON_ID));
+        final MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+        organizationIconServlet.doGet(secondRequest, secondResponse);
+
+        assertThat(secondResponse.getContentAsByteArray()).isEqualTo("content".getBytes());
+        verify(identityAPI, times(1)).getIcon(ICON_ID);
+    }
+
+    @Test
+    public void should_return_icon_content_when_etag_does_not_match() throws Exception {
+        havingIcon(ICON_ID, "content".getBytes());
+        httpServletRequest.setPathInfo("/" + String.valueOf(ICON_ID));
+        httpServletRequest.addHeader("If-None-Match", "\"anotherIcon\"");
+
+        organizationIconServlet.doGet(httpServletRequest, httpServletResponse);
+
+        assertThat(httpServletResponse.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(httpServletResponse.getContentAsByteArray()).isEqualTo("content".getBytes());
+    }
 }
@@ -22,21 +22,33 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import org.apache.commons.fileupload.FileItemFactory;
 import org.apache.commons.fileupload.FileUploadBase.FileSizeLimitExceededException;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.io.FileUtils;
 import org.bonitasoft.console.common.server.preferences.properties.ConsoleProperties;
 import org.bonitasoft.engine.session.APISession;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -45,10 +57,16 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
 
 @RunWith(MockitoJUnitRunner.class)
 public class TenantFileUploadServletTest {
 
+    private static final String BOUNDARY = "uploadBoundary";
+
     @Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
@@ -57,6 +75,11 @@ public class TenantFileUploadServletTest {
     private ConsoleProperties consoleProperties;
     private HttpServletRequest request;
 
+    /**
+     * HTTP session of the chunked upload requests
+     */
+    private final MockHttpSession httpSession = new MockHttpSession();
+
     @Before
     public void setUp() throws Exception {
         request = mock(HttpServletRequest.class);
@@ -71,6 +94,11 @@ public class TenantFileUploadServletTest {
         fileUploadServlet.checkUploadedImageSize = false;
     }
 
+    @After
+    public void tearDown() {
+        UploadedFilesReaper.stop();
+    }
+
     @Test
     public void should_set_maxFileSize_with_conf_value() throws Exception {
         final ServletFileUpload serviceFileUpload = mock(ServletFileUpload.class);
@@ -101,9 +129,9 @@ public class TenantFileUploadServletTest {
         fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
         fileUploadServlet.checkUploadedFileSize = true;
         doNothing().when(fileUploadServlet).defineUploadDirectoryPath(request);
-        doReturn(serviceFileUpload).when(fileUploadServlet).createServletFileUpload(any(FileItemFactory.class));
+        doReturn(serviceFileUpload).when(fileUploadServlet).createServletFileUpload();
 
-        when(serviceFileUpload.parseRequest(request)).thenThrow(new OutOfMemoryError());
+        when(serviceFileUpload.getItemIterator(request)).thenThrow(new OutOfMemoryError());
         when(request.getMethod()).thenReturn("post");
         when(request.getContentType()).thenReturn("multipart/");
         when(response.getWriter()).thenReturn(printer);
@@ -124,14 +152,14 @@ public class TenantFileUploadServletTest {
         //manage spy
         fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
         doNothing().when(fileUploadServlet).defineUploadDirectoryPath(request);
-        doReturn(serviceFileUpload).when(fileUploadServlet).createServletFileUpload(any(FileItemFactory.class));
+        doReturn(serviceFileUpload).when(fileUploadServlet).createServletFileUpload();
 
         final FileSizeLimitExceededException exception = new FileSizeLimitExceededException(
                 format("The field %s exceeds its maximum permitted size of %s bytes.",
                         "uploadedFile.zip", Long.valueOf(0)),
                 20 * FileUploadServlet.MEGABYTE, 0);
         exception.setFileName("uploadedFile.zip");
-        when(serviceFileUpload.parseRequest(request)).thenThrow(exception);
+        when(serviceFileUpload.getItemIterator(request)).thenThrow(exception);
         when(request.getMethod()).thenReturn("post");
         when(request.getContentType()).thenReturn("multipart/");
         when(response.getWriter()).thenReturn(printer);
@@ -154,14 +182,14 @@ public class TenantFileUploadServletTest {
         fileUploadServlet.checkUploadedFileSize = true;
         fileUploadServlet.responseContentType = "json";
         doNothing().when(fileUploadServlet).defineUploadDirectoryPath(request);
-        doReturn(serviceFileUpload).when(fileUploadServlet).createServletFileUpload(any(FileItemFactory.class));
+        doReturn(serviceFileUpload).when(fileUploadServlet).createServletFileUpload();
 
         final FileSizeLimitExceededException exception = new FileSizeLimitExceededException(
                 format("The field %s exceeds its maximum permitted size of %s bytes.",
                         "uploadedFile.zip", Long.valueOf(0)),
                 20 * FileUploadServlet.MEGABYTE, 0);
         exception.setFileName("uploadedFile.zip");
-        when(serviceFileUpload.parseRequest(request)).thenThrow(exception);
+        when(serviceFileUpload.getItemIterator(request)).thenThrow(exception);
         when(request.getMethod()).thenReturn("post");
         when(request.getContentType()).thenReturn("multipart/");
         when(response.getWriter()).thenReturn(printer);
@@ -177,4 +205,331 @@ public class TenantFileUploadServletTest {
         .contains("\"type\":\"EntityTooLarge\"");
         verify(printer).flush();
     }
+
+    @Test
+    public void should_stream_uploaded_files_to_the_upload_directory() throws Exception {
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        final StringWriter responseContent = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(responseContent));
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(request);
+        givenMultipartRequest(new ByteArrayInputStream(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"process.bar\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n"
+                + "bar content\r\n"
+                + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8)));
+
+        fileUploadServlet.doPost(request, response);
+
+        final File uploadedFile = new File(tempFolder.getRoot(), responseContent.toString());
+        assertThat(uploadedFile.getName()).startsWith(FileUploadServlet.UPLOADED_FILE_PREFIX).endsWith(".bar");
+        assertThat(FileUtils.readFileToString(uploadedFile, StandardCharsets.UTF_8)).isEqualTo("bar content");
+    }
+
+    @Test
+    public void should_abort_upload_as_soon_as_the_file_exceeds_the_max_size() throws Exception {
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(mock(PrintWriter.class));
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        fileUploadServlet.checkUploadedFileSize = true;
+        when(consoleProperties.getMaxSize()).thenReturn(1L);
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(request);
+        final AtomicLong readBytes = new AtomicLong();
+        final long fileSize = 100L * FileUploadServlet.MEGABYTE;
+        final InputStream fileContent = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return readBytes.getAndIncrement() < fileSize ? 'a' : -1;
+            }
+        };
+        givenMultipartRequest(new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream(("--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"file\"; filename=\"process.bar\"\r\n\r\n")
+                                .getBytes(StandardCharsets.UTF_8)),
+                fileContent,
+                new ByteArrayInputStream(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8))))));
+
+        fileUploadServlet.doPost(request, response);
+
+        verify(response).setStatus(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+        assertThat(readBytes.get()).isLessThan(2L * FileUploadServlet.MEGABYTE);
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_upload_a_file_in_chunks_sent_out_of_order() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        assertThat(putChunk(uploadId, content, 10, 19).getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+        assertThat(putChunk(uploadId, content, 0, 9).getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+        assertThat(putChunk(uploadId, content, 0, 9).getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+        final MockHttpServletResponse response = finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256(content));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        final File uploadedFile = new File(tempFolder.getRoot(), response.getContentAsString());
+        assertThat(uploadedFile.getName()).startsWith(FileUploadServlet.UPLOADED_FILE_PREFIX).endsWith(".bar");
+        assertThat(uploadedFile).hasContent(content);
+        assertThat(ChunkedUpload.get(uploadId, fileUploadServlet, httpSession.getId())).isNull();
+    }
+
+    @Test
+    public void should_report_received_ranges_to_resume_an_interrupted_upload() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        putChunk(uploadId, content, 0, 9);
+        //connection lost in the middle of the second chunk
+        final MockHttpServletRequest abortedChunkRequest = chunkRequest(uploadId, 10, 19, content.length());
+        abortedChunkRequest.setContent(content.substring(10, 15).getBytes(StandardCharsets.UTF_8));
+        final MockHttpServletResponse abortedChunkResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPut(abortedChunkRequest, abortedChunkResponse);
+        assertThat(abortedChunkResponse.getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+
+        final MockHttpServletRequest statusRequest = new MockHttpServletRequest("GET", "/API/formFileUpload");
+        statusRequest.setSession(httpSession);
+        statusRequest.setParameter(FileUploadServlet.UPLOAD_ID_PARAM, uploadId);
+        final MockHttpServletResponse statusResponse = new MockHttpServletResponse();
+        fileUploadServlet.doGet(statusRequest, statusResponse);
+
+        assertThat(statusResponse.getContentAsString()).contains("\"received\":[{").contains("\"start\":0")
+                .contains("\"end\":9").contains("\"complete\":false");
+        assertThat(finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256(content)).getStatus())
+                .isEqualTo(HttpServletResponse.SC_CONFLICT);
+        putChunk(uploadId, content, 10, 19);
+        assertThat(finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256(content)).getStatus())
+                .isEqualTo(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    public void should_discard_chunked_upload_when_checksum_does_not_match() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        putChunk(uploadId, content, 0, 19);
+
+        final MockHttpServletResponse response = finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256("other content"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+        assertThat(ChunkedUpload.get(uploadId, fileUploadServlet, httpSession.getId())).isNull();
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_refuse_chunked_upload_of_a_file_exceeding_the_max_size() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        fileUploadServlet.checkUploadedFileSize = true;
+        when(consoleProperties.getMaxSize()).thenReturn(1L);
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+
+        final MockHttpServletResponse response = initChunkedUpload("process.bar", 2L * FileUploadServlet.MEGABYTE);
+
+        assertThat(response.getStatus()).isEqualTo(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_not_give_access_to_a_chunked_upload_from_another_session() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        putChunk(uploadId, content, 0, 19);
+        final MockHttpSession anotherSession = new MockHttpSession();
+
+        final MockHttpServletRequest chunkRequest = chunkRequest(uploadId, 0, 19, content.length());
+        chunkRequest.setSession(anotherSession);
+        chunkRequest.setContent(content.getBytes(StandardCharsets.UTF_8));
+        final MockHttpServletResponse chunkResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPut(chunkRequest, chunkResponse);
+        final MockHttpServletRequest statusRequest = new MockHttpServletRequest("GET", "/API/formFileUpload");
+        statusRequest.setSession(anotherSession);
+        statusRequest.setParameter(FileUploadServlet.UPLOAD_ID_PARAM, uploadId);
+        final MockHttpServletResponse statusResponse = new MockHttpServletResponse();
+        fileUploadServlet.doGet(statusRequest, statusResponse);
+        final MockHttpServletRequest finalizeRequest = finalizeRequest(uploadId, ChunkedUploadTest.sha256(content));
+        finalizeRequest.setSession(anotherSession);
+        final MockHttpServletResponse finalizeResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPost(finalizeRequest, finalizeResponse);
+
+        assertThat(chunkResponse.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(statusResponse.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(finalizeResponse.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256(content)).getStatus())
+                .isEqualTo(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    public void should_not_give_access_to_a_chunked_upload_from_another_servlet() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        putChunk(uploadId, content, 0, 19);
+        final TenantFileUploadServlet anotherServlet = spy(new TenantFileUploadServlet());
+        anotherServlet.uploadDirectoryPath = tempFolder.newFolder("anotherServlet").getAbsolutePath();
+        doNothing().when(anotherServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+
+        final MockHttpServletResponse finalizeResponse = new MockHttpServletResponse();
+        anotherServlet.doPost(finalizeRequest(uploadId, ChunkedUploadTest.sha256(content)), finalizeResponse);
+
+        assertThat(finalizeResponse.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    public void should_check_the_servlet_configuration_again_when_finalizing_a_chunked_upload() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        putChunk(uploadId, content, 0, 19);
+        fileUploadServlet.supportedExtensionsList = new String[] { "zip" };
+
+        final MockHttpServletResponse response = finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256(content));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+        assertThat(ChunkedUpload.get(uploadId, fileUploadServlet, httpSession.getId())).isNull();
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_refuse_to_finalize_a_chunked_upload_exceeding_the_max_size() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+        putChunk(uploadId, content, 0, 19);
+        fileUploadServlet.checkUploadedImageSize = true;
+        when(consoleProperties.getImageMaxSizeInKB()).thenReturn(0L);
+
+        final MockHttpServletResponse response = finalizeChunkedUpload(uploadId, ChunkedUploadTest.sha256(content));
+
+        assertThat(response.getStatus()).isEqualTo(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_refuse_chunked_upload_requests_without_http_session() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+        final String content = "0123456789abcdefghij";
+        final String uploadId = initChunkedUpload("process.bar", content.length()).getContentAsString();
+
+        final MockHttpServletRequest initRequest = new MockHttpServletRequest("POST", "/API/formFileUpload");
+        initRequest.setParameter(FileUploadServlet.CHUNKS_PARAM, FileUploadServlet.CHUNKS_INIT_ACTION);
+        initRequest.setParameter(FileUploadServlet.FILE_NAME_PARAM, "process.bar");
+        initRequest.setParameter(FileUploadServlet.FILE_SIZE_PARAM, "20");
+        final MockHttpServletResponse initResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPost(initRequest, initResponse);
+        final MockHttpServletRequest chunkRequest = chunkRequest(uploadId, 0, 19, content.length());
+        chunkRequest.setSession(null);
+        chunkRequest.setContent(content.getBytes(StandardCharsets.UTF_8));
+        final MockHttpServletResponse chunkResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPut(chunkRequest, chunkResponse);
+        final MockHttpServletRequest finalizeRequest = finalizeRequest(uploadId, ChunkedUploadTest.sha256(content));
+        finalizeRequest.setSession(null);
+        final MockHttpServletResponse finalizeResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPost(finalizeRequest, finalizeResponse);
+
+        assertThat(initResponse.getStatus()).isEqualTo(HttpServletResponse.SC_UNAUTHORIZED);
+        assertThat(chunkResponse.getStatus()).isEqualTo(HttpServletResponse.SC_UNAUTHORIZED);
+        assertThat(finalizeResponse.getStatus()).isEqualTo(HttpServletResponse.SC_UNAUTHORIZED);
+        assertThat(initRequest.getSession(false)).isNull();
+        assertThat(ChunkedUpload.get(uploadId, fileUploadServlet, httpSession.getId()).getReceivedRanges()).isEmpty();
+    }
+
+    @Test
+    public void should_respond_400_when_chunked_upload_file_name_is_missing() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+
+        final MockHttpServletResponse response = initChunkedUpload(null, "20");
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_respond_400_when_chunked_upload_size_is_negative() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+
+        final MockHttpServletResponse response = initChunkedUpload("process.bar", "-1");
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void should_respond_400_when_chunked_upload_size_is_not_a_number() throws Exception {
+        fileUploadServlet.uploadDirectoryPath = tempFolder.getRoot().getAbsolutePath();
+        doNothing().when(fileUploadServlet).defineUploadDirectoryPath(any(HttpServletRequest.class));
+
+        assertThat(initChunkedUpload("process.bar", "twenty").getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+        assertThat(initChunkedUpload("process.bar", null).getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+        assertThat(tempFolder.getRoot().list()).isEmpty();
+    }
+
+    private MockHttpServletResponse initChunkedUpload(final String fileName, final long size) throws Exception {
+        return initChunkedUpload(fileName, String.valueOf(size));
+    }
+
+    private MockHttpServletResponse initChunkedUpload(final String fileName, final String size) throws Exception {
+        final MockHttpServletRequest initRequest = new MockHttpServletRequest("POST", "/API/formFileUpload");
+        initRequest.setSession(httpSession);
+        initRequest.setParameter(FileUploadServlet.CHUNKS_PARAM, FileUploadServlet.CHUNKS_INIT_ACTION);
+        if (fileName != null) {
+            initRequest.setParameter(FileUploadServlet.FILE_NAME_PARAM, fileName);
+        }
+        if (size != null) {
+            initRequest.setParameter(FileUploadServlet.FILE_SIZE_PARAM, size);
+        }
+        final MockHttpServletResponse initResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPost(initRequest, initResponse);
+        return initResponse;
+    }
+
+    private MockHttpServletResponse putChunk(final String uploadId, final String content, final int start, final int end)
+            throws Exception {
+        final MockHttpServletRequest chunkRequest = chunkRequest(uploadId, start, end, content.length());
+        chunkRequest.setContent(content.substring(start, end + 1).getBytes(StandardCharsets.UTF_8));
+        final MockHttpServletResponse chunkResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPut(chunkRequest, chunkResponse);
+        return chunkResponse;
+    }
+
+    private MockHttpServletRequest chunkRequest(final String uploadId, final int start, final int end, final int size) {
+        final MockHttpServletRequest chunkRequest = new MockHttpServletRequest("PUT", "/API/formFileUpload");
+        chunkRequest.setSession(httpSession);
+        chunkRequest.setParameter(FileUploadServlet.UPLOAD_ID_PARAM, uploadId);
+        chunkRequest.addHeader("Content-Range", "bytes " + start + "-" + end + "/" + size);
+        return chunkRequest;
+    }
+
+    private MockHttpServletResponse finalizeChunkedUpload(final String uploadId, final String checksum) throws Exception {
+        final MockHttpServletResponse finalizeResponse = new MockHttpServletResponse();
+        fileUploadServlet.doPost(finalizeRequest(uploadId, checksum), finalizeResponse);
+        return finalizeResponse;
+    }
+
+    private MockHttpServletRequest finalizeRequest(final String uploadId, final String checksum) {
+        final MockHttpServletRequest finalizeRequest = new MockHttpServletRequest("POST", "/API/formFileUpload");
+        finalizeRequest.setSession(httpSession);
+        finalizeRequest.setParameter(FileUploadServlet.CHUNKS_PARAM, FileUploadServlet.CHUNKS_FINALIZE_ACTION);
+        finalizeRequest.setParameter(FileUploadServlet.UPLOAD_ID_PARAM, uploadId);
+        finalizeRequest.setParameter(FileUploadServlet.CHECKSUM_PARAM, checksum);
+        return finalizeRequest;
+    }
+
+    private void givenMultipartRequest(final InputStream content) throws IOException {
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getContentType()).thenReturn("multipart/form-data; boundary=" + BOUNDARY);
+        when(request.getContentLength()).thenReturn(-1);
+        when(request.getInputStream()).thenReturn(new DelegatingServletInputStream(content));
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.time.Clock;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UploadedFilesReaperTest {
+
+    private static final long MAX_AGE = 60000L;
+
+    private static final long NOW = 1000000L;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mock
+    private Clock clock;
+
+    private UploadedFilesReaper uploadedFilesReaper;
+
+    @Before
+    public void setUp() {
+        when(clock.millis()).thenReturn(NOW);
+        uploadedFilesReaper = new UploadedFilesReaper(clock, MAX_AGE);
+        uploadedFilesReaper.watch(tempFolder.getRoot());
+    }
+
+    @Test
+    public void should_delete_uploaded_files_older_than_max_age() throws Exception {
+        final File oldUploadedFile = uploadedFile("tmp_old.bar", NOW - MAX_AGE - 1);
+        final File recentUploadedFile = uploadedFile("tmp_recent.bar", NOW - MAX_AGE + 1);
+
+        uploadedFilesReaper.reap();
+
+        assertThat(oldUploadedFile).doesNotExist();
+        assertThat(recentUploadedFile).exists();
+    }
+
+    @Test
+    public void should_not_delete_other_files_of_the_upload_directory() throws Exception {
+        final File otherFile = uploadedFile("custompage_myPage.zip", NOW - MAX_AGE - 1);
+        final File folder = tempFolder.newFolder("tmp_folder");
+        folder.setLastModified(NOW - MAX_AGE - 1);
+
+        uploadedFilesReaper.reap();
+
+        assertThat(otherFile).exists();
+        assertThat(folder).exists();
+    }
+
+    private File uploadedFile(final String name, final long lastModified) throws Exception {
+        final File file = tempFolder.newFile(name);
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+}
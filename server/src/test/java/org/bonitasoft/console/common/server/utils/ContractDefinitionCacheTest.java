@@ -0,0 +1,132 @@
+package org.bonitasoft.console.common.server.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.contract.ContractDefinition;
+import org.bonitasoft.engine.bpm.contract.InputDefinition;
+import org.bonitasoft.engine.bpm.flownode.ActivityInstanceNotFoundException;
+import org.bonitasoft.engine.bpm.flownode.HumanTaskInstance;
+import org.bonitasoft.engine.bpm.flownode.UserTaskNotFoundException;
+import org.bonitasoft.engine.session.APISession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ContractDefinitionCacheTest {
+
+    @Mock
+    private ProcessAPI processAPI;
+
+    @Mock
+    private ContractDefinition contractDefinition;
+
+    @Mock
+    private HumanTaskInstance humanTaskInstance;
+
+    @Mock
+    private APISession apiSession;
+
+    @Mock
+    private APISession otherTenantSession;
+
+    @Before
+    public void setUp() throws Exception {
+        ContractDefinitionCache.clearCachedContracts();
+        when(apiSession.getTenantId()).thenReturn(1L);
+        when(otherTenantSession.getTenantId()).thenReturn(2L);
+        when(contractDefinition.getInputs()).thenReturn(Collections.<InputDefinition> emptyList());
+        when(processAPI.getProcessContract(1L)).thenReturn(contractDefinition);
+        when(processAPI.getUserTaskContract(5L)).thenReturn(contractDefinition);
+        when(processAPI.getUserTaskContract(6L)).thenReturn(contractDefinition);
+        when(humanTaskInstance.getProcessDefinitionId()).thenReturn(1L);
+        when(humanTaskInstance.getFlownodeDefinitionId()).thenReturn(2L);
+        when(processAPI.getHumanTaskInstance(5L)).thenReturn(humanTaskInstance);
+        when(processAPI.getHumanTaskInstance(6L)).thenReturn(humanTaskInstance);
+    }
+
+    @Test
+    public void should_retrieve_the_contract_of_a_process_once() throws Exception {
+        final CompiledContract contract = ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L);
+
+        assertThat(ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L)).isSameAs(contract);
+        assertThat(contract.getContractDefinition()).isSameAs(contractDefinition);
+        verify(processAPI, times(1)).getProcessContract(1L);
+    }
+
+    @Test
+    public void should_share_the_contract_between_the_instances_of_a_task_definition() throws Exception {
+        final CompiledContract contract = ContractDefinitionCache.getUserTaskContract(processAPI, apiSession, 5L);
+
+        assertThat(ContractDefinitionCache.getUserTaskContract(processAPI, apiSession, 6L)).isSameAs(contract);
+        verify(processAPI, times(1)).getUserTaskContract(5L);
+        verify(processAPI, times(0)).getUserTaskContract(6L);
+    }
+
+    @Test(expected = UserTaskNotFoundException.class)
+    public void should_throw_task_not_found_when_the_task_instance_does_not_exist() throws Exception {
+        when(processAPI.getHumanTaskInstance(7L)).thenThrow(new ActivityInstanceNotFoundException(7L));
+
+        ContractDefinitionCache.getUserTaskContract(processAPI, apiSession, 7L);
+    }
+
+    @Test
+    public void should_forget_the_contracts_of_a_deleted_process() throws Exception {
+        ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L);
+        ContractDefinitionCache.getUserTaskContract(processAPI, apiSession, 5L);
+
+        ContractDefinitionCache.invalidateProcess(1L);
+
+        assertThat(ContractDefinitionCache.getCachedContractsCount()).isZero();
+        ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L);
+        verify(processAPI, times(2)).getProcessContract(1L);
+    }
+
+    @Test
+    public void should_not_share_the_contracts_between_tenants() throws Exception {
+        final CompiledContract contract = ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L);
+        final ContractDefinition otherTenantContractDefinition = mock(ContractDefinition.class);
+        final ProcessAPI otherTenantProcessAPI = mock(ProcessAPI.class);
+        when(otherTenantProcessAPI.getProcessContract(1L)).thenReturn(otherTenantContractDefinition);
+
+        final CompiledContract otherTenantContract = ContractDefinitionCache.getProcessContract(otherTenantProcessAPI,
+                otherTenantSession, 1L);
+
+        assertThat(otherTenantContract).isNotSameAs(contract);
+        assertThat(otherTenantContract.getContractDefinition()).isSameAs(otherTenantContractDefinition);
+        assertThat(ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L)).isSameAs(contract);
+    }
+
+    @Test
+    public void should_forget_only_the_contracts_of_a_paused_tenant() throws Exception {
+        ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L);
+        ContractDefinitionCache.getUserTaskContract(processAPI, apiSession, 5L);
+        final CompiledContract otherTenantContract = ContractDefinitionCache.getProcessContract(processAPI, otherTenantSession, 1L);
+
+        ContractDefinitionCache.clearCachedContracts(1L);
+
+        assertThat(ContractDefinitionCache.getCachedContractsCount()).isEqualTo(1);
+        assertThat(ContractDefinitionCache.getProcessContract(processAPI, otherTenantSession, 1L)).isSameAs(otherTenantContract);
+        ContractDefinitionCache.getProcessContract(processAPI, apiSession, 1L);
+        verify(processAPI, times(3)).getProcessContract(1L);
+    }
+
+    @Test
+    public void should_keep_a_bounded_number_of_contracts() throws Exception {
+        for (long processDefinitionId = 1; processDefinitionId <= ContractDefinitionCache.MAX_CACHED_CONTRACTS + 10; processDefinitionId++) {
+            ContractDefinitionCache.getProcessContract(processAPI, apiSession, processDefinitionId);
+        }
+
+        assertThat(ContractDefinitionCache.getCachedContractsCount()).isEqualTo(ContractDefinitionCache.MAX_CACHED_CONTRACTS);
+    }
+
+}
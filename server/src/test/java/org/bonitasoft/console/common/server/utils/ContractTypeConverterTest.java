@@ -14,6 +14,7 @@ import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -581,4 +582,80 @@ public class ContractTypeConverterTest {
                 .contains("The string 1987-10-11T19:32Z contains information that will be dropped to " +
                         "convert it to a LocalDateTime (most likely time and timezone information which are not relevant).");
     }
+
+    @Test
+    public void convertToType_should_keep_the_lenient_conversion_rules() {
+        final Object[][] conversions = {
+                { Type.TEXT, "text", "text" },
+                { Type.TEXT, 12, "12" },
+                { Type.BOOLEAN, "TRUE", true },
+                { Type.BOOLEAN, "yes", true },
+                { Type.BOOLEAN, "on", true },
+                { Type.BOOLEAN, "0", false },
+                { Type.BOOLEAN, "n", false },
+                { Type.BOOLEAN, false, false },
+                { Type.BOOLEAN, " true", " true" },
+                { Type.INTEGER, " 12 ", 12 },
+                { Type.INTEGER, "+7", 7 },
+                { Type.INTEGER, 12L, 12 },
+                { Type.INTEGER, 2.9, 2 },
+                { Type.INTEGER, 5000000000L, 5000000000L },
+                { Type.INTEGER, "1.5", "1.5" },
+                { Type.INTEGER, "", "" },
+                { Type.LONG, 5, 5L },
+                { Type.LONG, "9223372036854775807", Long.MAX_VALUE },
+                { Type.LONG, "hello", "hello" },
+                { Type.DECIMAL, 3, 3.0 },
+                { Type.DECIMAL, "1e3", 1000.0 },
+                { Type.DECIMAL, "12.8", 12.8 },
+                { Type.DATE, DATE_01_01_1970_13H_AS_STRING_GMT, new Date(DATE_01_01_1970_13H_AS_LONG_GMT) },
+                { Type.DATE, "1970-01-01T13:00:00Z", new Date(DATE_01_01_1970_13H_AS_LONG_GMT) },
+                { Type.DATE, "1970-01-01T13:00:00", new Date(DATE_01_01_1970_13H_AS_LONG_GMT) },
+                { Type.DATE, "1970-01-02", new Date(86400000L) },
+                { Type.DATE, 86400000, new Date(86400000L) },
+                { Type.DATE, DATE_01_01_1970_13H_AS_LONG_GMT, new Date(DATE_01_01_1970_13H_AS_LONG_GMT) },
+                { Type.DATE, "1970-13-45", "1970-13-45" },
+                { Type.LOCALDATE, "2012-04-21T17:42:29Z", testLocalDate },
+                { Type.LOCALDATETIME, "2012-04-21T17:42:29+02:00", testLocalDateTime },
+                { Type.OFFSETDATETIME, "2012-04-21T17:42:29Z", OffsetDateTime.of(testLocalDateTime, ZoneOffset.UTC) },
+                { Type.OFFSETDATETIME, "2012-04", "2012-04" },
+        };
+
+        for (final Object[] conversion : conversions) {
+            assertThat(contractTypeConverter.convertToType((Type) conversion[0], (Serializable) conversion[1]))
+                    .as("%s %s", conversion[0], conversion[1]).isEqualTo(conversion[2]);
+        }
+    }
+
+    @Test
+    public void should_convert_the_inputs_of_a_large_complex_contract_compiled_once() throws Exception {
+        final List<InputDefinition> childInputDefinitions = new ArrayList<>();
+        final Map<String, Serializable> complexInput = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            childInputDefinitions.add(new InputDefinitionImpl("text" + i, Type.TEXT, "", false));
+            childInputDefinitions.add(new InputDefinitionImpl("boolean" + i, Type.BOOLEAN, "", false));
+            childInputDefinitions.add(new InputDefinitionImpl("integer" + i, Type.INTEGER, "", false));
+            childInputDefinitions.add(new InputDefinitionImpl("date" + i, Type.DATE, "", false));
+            childInputDefinitions.add(new InputDefinitionImpl("localDate" + i, Type.LOCALDATE, "", true));
+            complexInput.put("text" + i, "text");
+            complexInput.put("boolean" + i, "true");
+            complexInput.put("integer" + i, "125686181");
+            complexInput.put("date" + i, DATE_01_01_1970_13H_AS_STRING_GMT);
+            complexInput.put("localDate" + i, new ArrayList<>(Arrays.asList(testLocalDate.toString(), null)));
+        }
+        final ContractDefinitionImpl contract = new ContractDefinitionImpl();
+        contract.addInput(new InputDefinitionImpl("inputComplex", "", false, null, childInputDefinitions));
+        final CompiledContract compiledContract = ContractTypeConverter.compile(contract);
+
+        for (int i = 0; i < 10; i++) {
+            final Map<String, Serializable> processedInput = contractTypeConverter.processInputs(compiledContract,
+                    Collections.singletonMap("inputComplex", (Serializable) complexInput), maxSizeForTenant);
+
+            final Map<String, Serializable> processedComplexInput = (Map<String, Serializable>) processedInput.get("inputComplex");
+            assertThat(processedComplexInput).hasSize(500)
+                    .contains(entry("text42", "text"), entry("boolean42", true), entry("integer42", 125686181),
+                            entry("date42", new Date(DATE_01_01_1970_13H_AS_LONG_GMT)),
+                            entry("localDate42", Arrays.asList(testLocalDate, null)));
+        }
+    }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.common.server.utils;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+
+import org.bonitasoft.engine.api.ProfileAPI;
+import org.bonitasoft.engine.profile.Profile;
+import org.bonitasoft.engine.profile.ProfileCriterion;
+import org.bonitasoft.engine.profile.impl.ProfileImpl;
+import org.bonitasoft.engine.session.APISession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserProfilesCacheTest {
+
+    private static final long TIME_TO_LIVE = 60000L;
+
+    @Mock
+    private ProfileAPI profileApi;
+
+    @Mock
+    private Clock clock;
+
+    @Mock
+    private APISession session;
+
+    @Mock
+    private APISession otherSession;
+
+    private UserProfilesCache userProfilesCache;
+
+    @Before
+    public void setUp() throws Exception {
+        when(clock.millis()).thenReturn(1000L);
+        when(session.getId()).thenReturn(10L);
+        when(session.getUserId()).thenReturn(1L);
+        when(otherSession.getId()).thenReturn(20L);
+        when(otherSession.getUserId()).thenReturn(1L);
+        when(profileApi.getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC))
+                .thenReturn(asList(profile(3L), profile(5L)));
+        userProfilesCache = new UserProfilesCache(clock, TIME_TO_LIVE);
+    }
+
+    @Test
+    public void should_retrieve_the_profiles_once_per_session_within_the_time_to_live() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertThat(userProfilesCache.getProfileIds(session, profileApi)).containsOnly(3L, 5L);
+        }
+        when(clock.millis()).thenReturn(1000L + TIME_TO_LIVE - 1);
+        userProfilesCache.getProfileIds(session, profileApi);
+
+        verify(profileApi, times(1)).getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC);
+    }
+
+    @Test
+    public void should_retrieve_the_profiles_again_once_the_time_to_live_is_over() throws Exception {
+        userProfilesCache.getProfileIds(session, profileApi);
+        when(clock.millis()).thenReturn(1000L + TIME_TO_LIVE);
+
+        userProfilesCache.getProfileIds(session, profileApi);
+
+        verify(profileApi, times(2)).getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC);
+    }
+
+    @Test
+    public void should_retrieve_the_profiles_for_each_session() throws Exception {
+        userProfilesCache.getProfileIds(session, profileApi);
+        userProfilesCache.getProfileIds(otherSession, profileApi);
+        userProfilesCache.getProfileIds(otherSession, profileApi);
+
+        verify(profileApi, times(2)).getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC);
+    }
+
+    @Test
+    public void should_retrieve_the_profiles_again_when_a_profile_member_changes() throws Exception {
+        userProfilesCache.getProfileIds(session, profileApi);
+        when(profileApi.getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC))
+                .thenReturn(asList(profile(3L)));
+
+        userProfilesCache.invalidateAll();
+
+        assertThat(userProfilesCache.getProfileIds(session, profileApi)).containsOnly(3L);
+    }
+
+    @Test
+    public void should_retrieve_the_profiles_again_after_logout() throws Exception {
+        userProfilesCache.getProfileIds(session, profileApi);
+
+        userProfilesCache.invalidate(session);
+        userProfilesCache.getProfileIds(session, profileApi);
+
+        verify(profileApi, times(2)).getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC);
+    }
+
+    private Profile profile(final long id) {
+        final ProfileImpl profile = new ProfileImpl("profile" + id);
+        profile.setId(id);
+        return profile;
+    }
+
+}
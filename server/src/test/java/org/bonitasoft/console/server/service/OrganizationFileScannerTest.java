@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.console.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OrganizationFileScannerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final OrganizationFileScanner organizationFileScanner = new OrganizationFileScanner();
+
+    @Test
+    public void should_count_the_entities_of_the_organization_file() throws Exception {
+        final File organizationFile = organizationFile("<organization:Organization xmlns:organization=\"http://documentation.bonitasoft.com/organization-xml-schema/1.1\">"
+                + "<customUserInfoDefinitions><customUserInfoDefinition><name>skill</name></customUserInfoDefinition></customUserInfoDefinitions>"
+                + "<users><user userName=\"walter.bates\"><manager>helen.kelly</manager></user><user userName=\"helen.kelly\"/></users>"
+                + "<roles><role name=\"member\"/></roles>"
+                + "<groups><group name=\"acme\"/><group name=\"hr\" parentPath=\"/acme\"/><group name=\"it\" parentPath=\"/acme\"/></groups>"
+                + "<memberships><membership><userName>walter.bates</userName><roleName>member</roleName><groupName>hr</groupName></membership></memberships>"
+                + "</organization:Organization>");
+
+        final OrganizationFileSummary summary = organizationFileScanner.scan(organizationFile);
+
+        assertThat(summary.getUsers()).isEqualTo(2);
+        assertThat(summary.getGroups()).isEqualTo(3);
+        assertThat(summary.getRoles()).isEqualTo(1);
+        assertThat(summary.getMemberships()).isEqualTo(1);
+        assertThat(summary.getCustomUserInfoDefinitions()).isEqualTo(1);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void should_fail_when_organization_file_is_malformed() throws Exception {
+        organizationFileScanner.scan(organizationFile("<organization:Organization><users><user userName=\"walter.bates\"></users>"));
+    }
+
+    @Test
+    public void should_scan_the_organization_while_it_is_read() throws Exception {
+        final GeneratedOrganizationReader reader = new GeneratedOrganizationReader(20000);
+
+        final OrganizationFileSummary summary = organizationFileScanner.scan(reader);
+
+        assertThat(summary.getUsers()).isEqualTo(20000);
+    }
+
+    private File organizationFile(final String content) throws Exception {
+        final File organizationFile = temporaryFolder.newFile();
+        Files.write(organizationFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return organizationFile;
+    }
+
+    /**
+     * Organization whose users are generated as they are read, so that it is never held in memory
+     */
+    private static class GeneratedOrganizationReader extends Reader {
+
+        private static final String HEADER = "<organization:Organization xmlns:organization=\"http://documentation.bonitasoft.com/organization-xml-schema/1.1\"><users>";
+
+        private static final String USER = "<user userName=\"user\"><firstName>Firstname</firstName><lastName>Lastname</lastName></user>";
+
+        private static final String FOOTER = "</users></organization:Organization>";
+
+        private final int users;
+
+        private int generatedUsers;
+
+        private String pending = HEADER;
+
+        private GeneratedOrganizationReader(final int users) {
+            this.users = users;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) {
+            if (pending.isEmpty()) {
+                if (generatedUsers < users) {
+                    generatedUsers++;
+                    pending = USER;
+                } else if (generatedUsers == users) {
+                    generatedUsers++;
+                    pending = FOOTER;
+                } else {
+                    return -1;
+                }
+            }
+            final int read = Math.min(length, pending.length());
+            pending.getChars(0, read, buffer, offset);
+            pending = pending.substring(read);
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -1,24 +1,44 @@
 package org.bonitasoft.console.server.service;
 
 import org.bonitasoft.console.common.server.i18n.I18n;
+import org.bonitasoft.console.common.server.job.Job;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.console.common.server.job.JobTask;
+import org.bonitasoft.console.common.server.utils.UserProfilesCache;
 import org.bonitasoft.engine.api.IdentityAPI;
 import org.bonitasoft.engine.identity.ImportPolicy;
 import org.bonitasoft.engine.identity.InvalidOrganizationFileFormatException;
+import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.engine.session.InvalidSessionException;
 import org.bonitasoft.web.toolkit.server.ServiceException;
+import org.bonitasoft.web.toolkit.server.ServiceServletCall;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -26,11 +46,27 @@ import static org.mockito.Mockito.*;
  */
 @RunWith(MockitoJUnitRunner.class)
 public class OrganizationImportServiceTest {
-    
+
+    private static final String ORGANIZATION_CONTENT = "<organization:Organization xmlns:organization=\"http://documentation.bonitasoft.com/organization-xml-schema/1.1\">"
+            + "<customUserInfoDefinitions/>"
+            + "<users><user userName=\"walter.bates\"><firstName>Walter</firstName><manager>helen.kelly</manager></user>"
+            + "<user userName=\"helen.kelly\"><firstName>Hélène</firstName></user></users>"
+            + "<roles><role name=\"member\"/></roles>"
+            + "<groups><group name=\"acme\"/><group name=\"hr\" parentPath=\"/acme\"/></groups>"
+            + "<memberships><membership><userName>walter.bates</userName><roleName>member</roleName><groupName>acme</groupName></membership></memberships>"
+            + "</organization:Organization>";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     IdentityAPI identityAPI;
     @Mock
     HttpServletResponse httpServletResponse;
+    @Mock
+    JobManager jobManager;
+    @Mock
+    UserProfilesCache userProfilesCache;
     private OrganizationImportService organizationImportService;
 
     @BeforeClass
@@ -43,6 +79,9 @@ public class OrganizationImportServiceTest {
         organizationImportService = spy(new OrganizationImportService());
         doReturn(httpServletResponse).when(organizationImportService).getHttpResponse();
         doReturn(identityAPI).when(organizationImportService).getIdentityAPI();
+        doReturn(jobManager).when(organizationImportService).getJobManager();
+        doReturn(userProfilesCache).when(organizationImportService).getUserProfilesCache();
+        doReturn(null).when(organizationImportService).getParameter("async");
     }
 
     @Test
@@ -56,9 +95,15 @@ public class OrganizationImportServiceTest {
         }
     }
     
+    private void havingOrganizationFile(final byte[] content) throws Exception {
+        final File organizationFile = temporaryFolder.newFile();
+        Files.write(organizationFile.toPath(), content);
+        doReturn(organizationFile).when(organizationImportService).getOrganizationFile(any());
+    }
+
     @Test(expected=ServiceException.class)
     public void should_genrate_401_when_session_expires() throws Exception {
-        doReturn(new byte[0]).when(organizationImportService).getOrganizationContent(any());
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
         doReturn("MERGE_DUPLICATES").when(organizationImportService).getParameter(anyString());
 
         doThrow(new InvalidSessionException("session expired")).when(identityAPI).importOrganizationWithWarnings(anyString(), any());
@@ -72,7 +117,7 @@ public class OrganizationImportServiceTest {
 
     @Test(expected=ServiceException.class)
     public void should_genrate_400_when_file_is_invalid() throws Exception {
-        doReturn(new byte[0]).when(organizationImportService).getOrganizationContent(any());
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
         doReturn("MERGE_DUPLICATES").when(organizationImportService).getParameter(anyString());
         doThrow(new InvalidOrganizationFileFormatException("invalid format")).when(identityAPI).importOrganizationWithWarnings(anyString(), any());
 
@@ -85,27 +130,27 @@ public class OrganizationImportServiceTest {
 
     @Test
     public void should_import_organization_with_specified_policy() throws Exception {
-        doReturn("organizationXmlContent".getBytes()).when(organizationImportService).getOrganizationContent(any());
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
         doReturn("IGNORE_DUPLICATES").when(organizationImportService).getParameter("importPolicy");
 
         organizationImportService.run();
 
-        verify(identityAPI).importOrganizationWithWarnings("organizationXmlContent", ImportPolicy.IGNORE_DUPLICATES);
+        verify(identityAPI).importOrganizationWithWarnings(ORGANIZATION_CONTENT, ImportPolicy.IGNORE_DUPLICATES);
     }
 
     @Test
     public void should_import_organization_with_default_policy() throws Exception {
-        doReturn("organizationXmlContent".getBytes()).when(organizationImportService).getOrganizationContent(any());
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
         doReturn(null).when(organizationImportService).getParameter("importPolicy");
 
         organizationImportService.run();
 
-        verify(identityAPI).importOrganizationWithWarnings("organizationXmlContent", ImportPolicy.MERGE_DUPLICATES);
+        verify(identityAPI).importOrganizationWithWarnings(ORGANIZATION_CONTENT, ImportPolicy.MERGE_DUPLICATES);
     }
 
     @Test(expected=ServiceException.class)
     public void should_throw_an_error_when_provided_policy_is_not_valid() throws Exception {
-        doReturn("organizationXmlContent".getBytes()).when(organizationImportService).getOrganizationContent(any());
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
         doReturn("INVALID").when(organizationImportService).getParameter("importPolicy");
 
         try {
@@ -114,4 +159,184 @@ public class OrganizationImportServiceTest {
             verify(httpServletResponse).setStatus(HttpServletResponse.SC_BAD_REQUEST);
         }
     }
+
+    @Test
+    public void should_return_the_counts_of_the_organization_file_and_the_import_warnings() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+        doReturn(Arrays.asList("a warning")).when(identityAPI).importOrganizationWithWarnings(anyString(), any());
+
+        final Object response = organizationImportService.run();
+
+        assertThat((String) response).contains("\"users\":2", "\"groups\":2", "\"roles\":1", "\"memberships\":1",
+                "\"warnings\":[\"a warning\"]");
+    }
+
+    @Test
+    public void should_fail_with_400_before_calling_the_engine_when_file_is_malformed() throws Exception {
+        havingOrganizationFile("<organization:Organization><users><user userName=\"walter.bates\"></users>".getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+
+        try {
+            organizationImportService.run();
+            fail("a malformed organization file should not be imported");
+        } catch (final ServiceException e) {
+            verify(httpServletResponse).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            verifyZeroInteractions(identityAPI);
+        }
+    }
+
+    @Test
+    public void should_fail_with_400_before_calling_the_engine_when_file_is_not_encoded_in_utf8() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.ISO_8859_1));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+
+        try {
+            organizationImportService.run();
+            fail("an organization file which is not encoded in UTF-8 should not be imported");
+        } catch (final ServiceException e) {
+            verify(httpServletResponse).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            verifyZeroInteractions(identityAPI);
+        }
+    }
+
+    @Test
+    public void should_read_organization_content_once_as_utf8_without_byte_order_mark() throws Exception {
+        final byte[] content = ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8);
+        final byte[] contentWithBom = new byte[content.length + 3];
+        contentWithBom[0] = (byte) 0xEF;
+        contentWithBom[1] = (byte) 0xBB;
+        contentWithBom[2] = (byte) 0xBF;
+        System.arraycopy(content, 0, contentWithBom, 3, content.length);
+        havingOrganizationFile(contentWithBom);
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+
+        organizationImportService.run();
+
+        verify(organizationImportService, times(1)).readOrganizationContent(any(File.class));
+        verify(identityAPI).importOrganizationWithWarnings(ORGANIZATION_CONTENT, ImportPolicy.MERGE_DUPLICATES);
+    }
+
+    @Test
+    public void should_decode_organization_content_while_the_file_is_read() throws Exception {
+        //a multi-byte character split between two reads of the file
+        final String content = "a".repeat(8191) + "é" + ORGANIZATION_CONTENT;
+        final File organizationFile = temporaryFolder.newFile();
+        Files.write(organizationFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(organizationImportService.readOrganizationContent(organizationFile)).isEqualTo(content);
+    }
+
+    @Test
+    public void should_read_organization_content_from_a_reader_returning_a_few_characters_at_a_time() throws Exception {
+        final Reader reader = new Reader() {
+
+            private int position;
+
+            @Override
+            public int read(final char[] buffer, final int offset, final int length) {
+                if (position == ORGANIZATION_CONTENT.length()) {
+                    return -1;
+                }
+                final int read = Math.min(Math.min(length, 3), ORGANIZATION_CONTENT.length() - position);
+                ORGANIZATION_CONTENT.getChars(position, position + read, buffer, offset);
+                position += read;
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertThat(organizationImportService.readOrganizationContent(reader, 10)).isEqualTo(ORGANIZATION_CONTENT);
+    }
+
+    @Test
+    public void should_run_import_as_a_background_job_when_asynchronous() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+        doReturn("true").when(organizationImportService).getParameter("async");
+        final APISession apiSession = mock(APISession.class);
+        final ServiceServletCall caller = mock(ServiceServletCall.class);
+        final HttpSession httpSession = mock(HttpSession.class);
+        when(caller.getHttpSession()).thenReturn(httpSession);
+        when(httpSession.getAttribute("apiSession")).thenReturn(apiSession);
+        organizationImportService.setCaller(caller);
+        final Job job = mock(Job.class);
+        when(job.getId()).thenReturn("importJobId");
+        final ArgumentCaptor<JobTask> importTask = ArgumentCaptor.forClass(JobTask.class);
+        when(jobManager.submit(eq(apiSession), anyString(), importTask.capture())).thenReturn(job);
+
+        final Object response = organizationImportService.run();
+
+        assertThat(response).isEqualTo("{\"jobId\":\"importJobId\"}");
+        verify(httpServletResponse).setStatus(HttpServletResponse.SC_ACCEPTED);
+        verifyZeroInteractions(identityAPI);
+
+        importTask.getValue().execute(job);
+
+        verify(identityAPI).importOrganizationWithWarnings(ORGANIZATION_CONTENT, ImportPolicy.MERGE_DUPLICATES);
+        verify(job).setResult(contains("\"users\":2"));
+        verify(userProfilesCache).invalidateAll();
+    }
+
+    @Test
+    public void should_not_invalidate_cached_user_profiles_before_the_background_import_ran() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+        doReturn("true").when(organizationImportService).getParameter("async");
+        final ServiceServletCall caller = mock(ServiceServletCall.class);
+        when(caller.getHttpSession()).thenReturn(mock(HttpSession.class));
+        organizationImportService.setCaller(caller);
+        when(jobManager.submit(any(), anyString(), any(JobTask.class))).thenReturn(mock(Job.class));
+
+        organizationImportService.run();
+
+        verifyZeroInteractions(userProfilesCache);
+    }
+
+    @Test
+    public void should_invalidate_cached_user_profiles_once_organization_is_imported() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+
+        organizationImportService.run();
+
+        final InOrder inOrder = inOrder(identityAPI, userProfilesCache);
+        inOrder.verify(identityAPI).importOrganizationWithWarnings(ORGANIZATION_CONTENT, ImportPolicy.MERGE_DUPLICATES);
+        inOrder.verify(userProfilesCache).invalidateAll();
+    }
+
+    @Test
+    public void should_not_invalidate_cached_user_profiles_when_import_fails() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+        doThrow(new InvalidOrganizationFileFormatException("invalid format")).when(identityAPI).importOrganizationWithWarnings(anyString(), any());
+
+        try {
+            organizationImportService.run();
+            fail("the import should fail");
+        } catch (final ServiceException e) {
+            verifyZeroInteractions(userProfilesCache);
+        }
+    }
+
+    @Test
+    public void should_genrate_429_when_too_many_jobs_are_running() throws Exception {
+        havingOrganizationFile(ORGANIZATION_CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(null).when(organizationImportService).getParameter("importPolicy");
+        doReturn("true").when(organizationImportService).getParameter("async");
+        final ServiceServletCall caller = mock(ServiceServletCall.class);
+        when(caller.getHttpSession()).thenReturn(mock(HttpSession.class));
+        organizationImportService.setCaller(caller);
+        when(jobManager.submit(any(), anyString(), any(JobTask.class))).thenThrow(new RejectedExecutionException());
+
+        try {
+            organizationImportService.run();
+            fail("the import should be rejected");
+        } catch (final ServiceException e) {
+            verify(httpServletResponse).setStatus(429);
+        }
+    }
 }
@@ -1,28 +1,56 @@
 package org.bonitasoft.console.server.servlet;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.apache.commons.io.IOUtils;
 import org.bonitasoft.console.common.server.i18n.I18n;
+import org.bonitasoft.console.common.server.job.Job;
+import org.bonitasoft.console.common.server.job.JobManager;
+import org.bonitasoft.console.common.server.job.JobTask;
+import org.bonitasoft.console.common.server.preferences.properties.ConsoleProperties;
 import org.bonitasoft.engine.api.ApplicationAPI;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
 import org.bonitasoft.engine.exception.ServerAPIException;
 import org.bonitasoft.engine.exception.UnknownAPITypeException;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.engine.session.InvalidSessionException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 public class BonitaExportServletTest {
 
@@ -38,6 +66,9 @@ public class BonitaExportServletTest {
     @Mock
     private ApplicationAPI applicationAPI;
 
+    @Mock
+    private JobManager jobManager;
+
     @Spy
     private ApplicationsExportServlet spiedApplicationsExportServlet;
 
@@ -50,6 +81,12 @@ public class BonitaExportServletTest {
     public void init() throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException, UnknownAPITypeException {
         MockitoAnnotations.initMocks(this);
         Mockito.doReturn(applicationAPI).when(spiedApplicationsExportServlet).getApplicationAPI(any(APISession.class));
+        BonitaExportServlet.resetExportPermits();
+    }
+
+    @After
+    public void tearDown() {
+        BonitaExportServlet.resetExportPermits();
     }
 
     @Test
@@ -93,4 +130,273 @@ public class BonitaExportServletTest {
         spiedApplicationsExportServlet.doGet(hsRequest, hsResponse);
     }
 
+    @Test
+    public void should_stream_a_2GB_export_without_holding_it_in_memory() throws Exception {
+        final long exportSize = 2L * 1024 * 1024 * 1024;
+        final CountingServletOutputStream responseOutputStream = new CountingServletOutputStream();
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(responseOutputStream);
+        final FakeExportServlet exportServlet = new FakeExportServlet(exportSize, responseOutputStream);
+
+        exportServlet.doGet(new MockHttpServletRequest(), response);
+
+        assertThat(responseOutputStream.count).isEqualTo(exportSize);
+        //each chunk produced by the exporter reaches the response before the next one is produced
+        assertThat(exportServlet.maxPendingBytes).isLessThanOrEqualTo(FakeExportServlet.CHUNK_SIZE);
+        assertThat(responseOutputStream.closed).isTrue();
+    }
+
+    @Test
+    public void should_gzip_export_when_client_accepts_it() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final FakeExportServlet exportServlet = new FakeExportServlet(100_000L, null);
+
+        exportServlet.doGet(request, response);
+
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        final byte[] content = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        assertThat(content).hasSize(100_000);
+        assertThat(response.getContentAsByteArray().length).isLessThan(100_000);
+    }
+
+    @Test
+    public void should_not_gzip_export_when_client_refuses_it_with_a_zero_quality() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "deflate, gzip;q=0");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new FakeExportServlet(100_000L, null).doGet(request, response);
+
+        assertThat(response.getHeader("Content-Encoding")).isNull();
+        assertThat(response.getContentAsByteArray()).hasSize(100_000);
+    }
+
+    @Test
+    public void should_parse_the_quality_values_of_the_accepted_encodings() throws Exception {
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("gzip;q=0.5"))).isTrue();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("GZIP ; Q=1.0, identity"))).isTrue();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("*"))).isTrue();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("gzip; q=0.000"))).isFalse();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("*, gzip;q=0"))).isFalse();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("*;q=0"))).isFalse();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("gzip;q=abc"))).isFalse();
+        assertThat(BonitaExportServlet.acceptsGzip(requestAcceptingEncoding("deflate, br"))).isFalse();
+        assertThat(BonitaExportServlet.acceptsGzip(new MockHttpServletRequest())).isFalse();
+    }
+
+    @Test
+    public void should_not_set_content_length_so_that_export_is_chunked() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new FakeExportServlet(100_000L, null).doGet(new MockHttpServletRequest(), response);
+
+        assertThat(response.getHeader("Content-Length")).isNull();
+        assertThat(response.getHeader("Content-Encoding")).isNull();
+        assertThat(response.getContentAsByteArray()).hasSize(100_000);
+    }
+
+    @Test
+    public void should_send_401_when_session_expires_before_anything_is_exported() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final FakeExportServlet exportServlet = new FakeExportServlet(100_000L, null);
+        exportServlet.failure = new InvalidSessionException("session expired");
+
+        exportServlet.doGet(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_UNAUTHORIZED);
+        assertThat(response.getHeader("Content-Encoding")).isNull();
+        assertThat(response.getHeader("Content-Disposition")).isNull();
+    }
+
+    @Test
+    public void should_send_404_when_export_file_is_not_found_before_anything_is_exported() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final FakeExportServlet exportServlet = new FakeExportServlet(100_000L, null);
+        exportServlet.failure = new FileNotFoundException("no access control file");
+
+        exportServlet.doGet(new MockHttpServletRequest(), response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    public void should_not_commit_response_when_export_fails_before_anything_is_exported() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final FakeExportServlet exportServlet = new FakeExportServlet(100_000L, null);
+        exportServlet.failure = new IOException("export failed");
+
+        try {
+            exportServlet.doGet(request, response);
+            fail("the export failure should be thrown");
+        } catch (final ServletException e) {
+            assertThat(e).hasMessage("export failed");
+        }
+
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getHeader("Content-Disposition")).isNull();
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    public void should_refuse_export_with_429_when_too_many_exports_are_running() throws Exception {
+        final FakeExportServlet exportServlet = new FakeExportServlet(100L, null);
+        final Semaphore exportPermits = exportServlet.getExportPermits();
+        exportPermits.acquire(2);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        exportServlet.doGet(new MockHttpServletRequest(), response);
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isNotNull();
+        assertThat(exportServlet.exported).isFalse();
+        exportPermits.release(2);
+    }
+
+    @Test
+    public void should_release_export_permit_when_export_is_done() throws Exception {
+        final FakeExportServlet exportServlet = new FakeExportServlet(100L, null);
+
+        exportServlet.doGet(new MockHttpServletRequest(), new MockHttpServletResponse());
+        exportServlet.doGet(new MockHttpServletRequest(), new MockHttpServletResponse());
+        exportServlet.doGet(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertThat(exportServlet.getExportPermits().availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_run_export_as_a_background_job_when_asynchronous() throws Exception {
+        final APISession apiSession = mock(APISession.class);
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.getSession().setAttribute("apiSession", apiSession);
+        request.setParameter("async", "true");
+        request.setParameter("id", "1,2");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        Mockito.doReturn(jobManager).when(spiedApplicationsExportServlet).getJobManager();
+        final Job job = mock(Job.class);
+        when(job.getId()).thenReturn("exportJobId");
+        final ArgumentCaptor<JobTask> exportTask = ArgumentCaptor.forClass(JobTask.class);
+        when(jobManager.submit(eq(apiSession), anyString(), exportTask.capture())).thenReturn(job);
+        given(applicationAPI.exportApplications(new long[] { 1, 2 })).willReturn("<applications/>".getBytes());
+
+        spiedApplicationsExportServlet.doGet(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_ACCEPTED);
+        assertThat(response.getContentAsString()).isEqualTo("{\"jobId\":\"exportJobId\"}");
+
+        final ByteArrayOutputStream resultFile = new ByteArrayOutputStream();
+        when(job.openResultFile("applicationDescriptorFile.xml")).thenReturn(resultFile);
+        exportTask.getValue().execute(job);
+
+        verify(applicationAPI).exportApplications(new long[] { 1, 2 });
+        assertThat(resultFile.toString()).isEqualTo("<applications/>");
+    }
+
+    private MockHttpServletRequest requestAcceptingEncoding(final String acceptEncoding) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", acceptEncoding);
+        return request;
+    }
+
+    private static class FakeExportServlet extends BonitaExportServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int CHUNK_SIZE = 64 * 1024;
+
+        private final long exportSize;
+
+        private final CountingServletOutputStream responseOutputStream;
+
+        private long maxPendingBytes;
+
+        private boolean exported;
+
+        /**
+         * thrown by the export before writing anything
+         */
+        private Exception failure;
+
+        private FakeExportServlet(final long exportSize, final CountingServletOutputStream responseOutputStream) {
+            this.exportSize = exportSize;
+            this.responseOutputStream = responseOutputStream;
+        }
+
+        @Override
+        protected void exportResources(final HttpServletRequest request, final OutputStream out) throws IOException {
+            exported = true;
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            final byte[] chunk = new byte[CHUNK_SIZE];
+            Arrays.fill(chunk, (byte) 'a');
+            long written = 0;
+            while (written < exportSize) {
+                final int length = (int) Math.min(CHUNK_SIZE, exportSize - written);
+                out.write(chunk, 0, length);
+                written += length;
+                if (responseOutputStream != null) {
+                    maxPendingBytes = Math.max(maxPendingBytes, written - responseOutputStream.count);
+                }
+            }
+        }
+
+        @Override
+        protected ConsoleProperties getConsoleProperties() {
+            final ConsoleProperties consoleProperties = mock(ConsoleProperties.class);
+            when(consoleProperties.getMaxConcurrentExports()).thenReturn(2);
+            return consoleProperties;
+        }
+
+        @Override
+        protected String getFileExportName() {
+            return "export.xml";
+        }
+
+        @Override
+        protected Logger getLogger() {
+            return LoggerFactory.getLogger(FakeExportServlet.class.getName());
+        }
+    }
+
+    private static class CountingServletOutputStream extends ServletOutputStream {
+
+        private long count;
+
+        private boolean closed;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+        }
+    }
+
 }
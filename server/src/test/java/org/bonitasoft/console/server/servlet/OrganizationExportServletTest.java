@@ -0,0 +1,83 @@
+package org.bonitasoft.console.server.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.bonitasoft.console.common.server.i18n.I18n;
+import org.bonitasoft.console.common.server.utils.SessionUtil;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
+import org.bonitasoft.engine.exception.ServerAPIException;
+import org.bonitasoft.engine.exception.UnknownAPITypeException;
+import org.bonitasoft.engine.session.APISession;
+import org.bonitasoft.engine.session.InvalidSessionException;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class OrganizationExportServletTest {
+
+    @Mock
+    APISession session;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    @Spy
+    private OrganizationExportServlet spiedOrganizationExportServlet;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    @BeforeClass
+    public static void initEnvironnement() {
+        I18n.getInstance();
+    }
+
+    @Before
+    public void init() throws InvalidSessionException, BonitaHomeNotSetException, ServerAPIException, UnknownAPITypeException {
+        MockitoAnnotations.initMocks(this);
+        Mockito.doReturn(identityAPI).when(spiedOrganizationExportServlet).getIdentityAPI(any(APISession.class));
+        request.getSession().setAttribute(SessionUtil.API_SESSION_PARAM_KEY, session);
+    }
+
+    @Test
+    public void should_write_the_organization_exported_by_the_engine_to_the_output_stream_in_UTF8() throws Exception {
+        when(identityAPI.exportOrganization()).thenReturn("<organization><user userName=\"hélène\"/></organization>");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        spiedOrganizationExportServlet.exportResources(request, out);
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("<organization><user userName=\"hélène\"/></organization>");
+    }
+
+    @Test
+    public void should_write_nothing_when_the_engine_exports_no_organization() throws Exception {
+        when(identityAPI.exportOrganization()).thenReturn(null);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        spiedOrganizationExportServlet.exportResources(request, out);
+
+        assertThat(out.toByteArray()).isEmpty();
+    }
+
+    @Test
+    public void should_logger_log_with_name_of_the_Servlet() throws Exception {
+        assertThat(spiedOrganizationExportServlet.getLogger().getName()).isEqualTo("org.bonitasoft.console.server.servlet.OrganizationExportServlet");
+    }
+
+    @Test
+    public void should_getFileExportName_return_a_valide_file_name() throws Exception {
+        assertThat(spiedOrganizationExportServlet.getFileExportName()).isEqualTo("Organization_Data.xml");
+    }
+
+}
@@ -4,12 +4,15 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.time.Clock;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.bonitasoft.console.common.server.utils.UserProfilesCache;
 import org.bonitasoft.engine.api.ApplicationAPI;
 import org.bonitasoft.engine.api.PageAPI;
 import org.bonitasoft.engine.api.ProfileAPI;
@@ -68,7 +71,8 @@ public class ApplicationModelTest {
     @Before
     public void beforeEach() throws Exception {
         application.setId(1L);
-        model = new ApplicationModel(applicationApi, pageApi, profileApi, application, factory);
+        model = new ApplicationModel(applicationApi, pageApi, profileApi, application, factory,
+                new UserProfilesCache(Clock.systemUTC(), 60000L));
     }
 
     @Test
@@ -135,6 +139,22 @@ public class ApplicationModelTest {
         assertThat(model.authorize(session)).isFalse();
     }
 
+    @Test
+    public void should_retrieve_the_user_profiles_once_for_several_authorizations_of_a_session() throws Exception {
+        final ProfileImpl profile = new ProfileImpl("user");
+        profile.setId(2L);
+        given(profileApi.getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC))
+        .willReturn(asList((Profile) profile));
+        given(session.getUserId()).willReturn(1L);
+        application.setProfileId(2L);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(model.authorize(session)).isTrue();
+        }
+
+        verify(profileApi, times(1)).getProfilesForUser(1L, 0, Integer.MAX_VALUE, ProfileCriterion.ID_ASC);
+    }
+
     private void givenSearchApplicationMenusWillReturns(final List<ApplicationMenu> menuList) throws Exception {
         given(applicationApi.searchApplicationMenus(any(SearchOptions.class))).willReturn(
                 new SearchResultImpl<>(menuList.size(), menuList));
@@ -0,0 +1,82 @@
+package org.bonitasoft.livingapps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ApplicationRouterParsedRequestTest {
+
+    private static final String BADLY_FORMED = "URI badly formed.";
+
+    @Parameters(name = "{0}{1}{2}")
+    public static Collection<Object[]> urls() {
+        return Arrays.asList(new Object[][] {
+                { "/bonita", "/apps", "/HumanResources" },
+                { "/bonita", "/apps", "/HumanResources/" },
+                { "/bonita", "/apps", "/HumanResources/home" },
+                { "/bonita", "/apps", "/HumanResources/home/" },
+                { "/bonita", "/apps", "/HumanResources/home/css/style.css" },
+                { "/bonita", "/apps", "/HumanResources/theme/theme.css" },
+                { "/bonita", "/apps", "/HumanResources/API/bpm/process?p=0" },
+                { "/bonita", "/apps", "/HumanResources//home" },
+                { "/bonita", "/apps", "/HumanResources//" },
+                { "/bonita", "/apps", "//HumanResources/home" },
+                { "/bonita", "/apps", "/" },
+                { "/bonita", "/apps", "///" },
+                { "/bonita", "/apps", "/Human%20Resources/home%2Fpage/" },
+                { "/bonita", "/apps", "/HumanResources/home\n" },
+                { "/bonita", "/apps", "/Human\nResources/home" },
+                { "/bonita", "/apps", null },
+                { "/bonita", "/app", "/HumanResources/home/" },
+                { "", "/apps", "/HumanResources/home/" },
+                { "/bonita", "/apps/", "HumanResources" },
+        });
+    }
+
+    @Parameterized.Parameter(0)
+    public String context;
+
+    @Parameterized.Parameter(1)
+    public String servletPath;
+
+    @Parameterized.Parameter(2)
+    public String pathInfo;
+
+    @Test
+    public void should_route_like_the_regular_expression_parser() {
+        assertThat(parse(context, servletPath, pathInfo)).isEqualTo(parseWithRegularExpression(context, servletPath, pathInfo));
+    }
+
+    private String parse(final String context, final String servletPath, final String pathInfo) {
+        try {
+            final ApplicationRouter.ParsedRequest parsedRequest = ApplicationRouter.ParsedRequest.parse(context, servletPath, pathInfo);
+            return parsedRequest.getApplicationName() + " | " + parsedRequest.getPageToken();
+        } catch (final RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * previous implementation of the parsing, used as reference
+     */
+    private String parseWithRegularExpression(final String context, final String servletPath, final String pathInfo) {
+        final Matcher matcher = Pattern.compile("^" + context + "/apps/(.*)$").matcher(context + servletPath + pathInfo);
+        if (!matcher.find()) {
+            return BADLY_FORMED;
+        }
+        final String[] fragments = matcher.group(1).split("/");
+        if (fragments.length == 0) {
+            return BADLY_FORMED;
+        }
+        return fragments[0] + " | " + (fragments.length > 1 ? fragments[1] : null);
+    }
+}
@@ -3,12 +3,22 @@ package org.bonitasoft.livingapps.menu;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.bonitasoft.engine.api.ApplicationAPI;
 import org.bonitasoft.engine.business.application.ApplicationMenu;
+import org.bonitasoft.engine.business.application.ApplicationPage;
 import org.bonitasoft.engine.business.application.impl.ApplicationMenuImpl;
 import org.bonitasoft.engine.business.application.impl.ApplicationPageImpl;
-import org.bonitasoft.livingapps.menu.MenuFactory;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.impl.SearchResultImpl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -72,4 +82,52 @@ public class MenuFactoryTest {
                         .append("<li><a href=\"token\">nested-link</a></li>")
                         .append("</ul></li>").toString());
     }
+
+    @Test
+    public void should_retrieve_the_page_tokens_of_all_the_menus_with_a_single_search() throws Exception {
+        final List<ApplicationMenu> menus = new ArrayList<>();
+        final List<ApplicationPage> pages = new ArrayList<>();
+        final StringBuilder expectedHtml = new StringBuilder();
+        long menuId = 100L;
+        for (int container = 0; container < 50; container++) {
+            final ApplicationMenuImpl menuContainer = new ApplicationMenuImpl("container" + container, 1L, null, container);
+            menuContainer.setId(menuId++);
+            menus.add(menuContainer);
+            expectedHtml.append("<li class=\"dropdown\"><a href=\"#\" class=\"dropdown-toggle\" data-toggle=\"dropdown\">container")
+                    .append(container).append(" <span class=\"caret\"></span></a><ul class=\"dropdown-menu\" role=\"menu\">");
+            for (int link = 0; link < 9; link++) {
+                final long pageId = 1000L + container * 9 + link;
+                final ApplicationMenuImpl menuLink = new ApplicationMenuImpl("link" + pageId, 1L, pageId, link);
+                menuLink.setId(menuId++);
+                menuLink.setParentId(menuContainer.getId());
+                menus.add(menuLink);
+                final ApplicationPageImpl page = new ApplicationPageImpl(1L, 2L, "token" + pageId);
+                page.setId(pageId);
+                pages.add(page);
+                expectedHtml.append("<li><a href=\"token").append(pageId).append("\">link").append(pageId).append("</a></li>");
+            }
+            expectedHtml.append("</ul></li>");
+        }
+        given(applicationApi.searchApplicationPages(any(SearchOptions.class))).willReturn(new SearchResultImpl<>(pages.size(), pages));
+        MenuFactory factory = new MenuFactory(applicationApi);
+
+        final StringBuilder html = new StringBuilder();
+        for (final Menu menu : factory.create(menus)) {
+            html.append(menu.getHtml());
+        }
+
+        assertThat(menus).hasSize(500);
+        assertThat(html.toString()).isEqualTo(expectedHtml.toString());
+        verify(applicationApi, times(1)).searchApplicationPages(any(SearchOptions.class));
+        verify(applicationApi, never()).getApplicationPage(anyLong());
+    }
+
+    @Test
+    public void should_not_search_pages_when_there_is_no_menu_link() throws Exception {
+        MenuFactory factory = new MenuFactory(applicationApi);
+
+        factory.create(asList((ApplicationMenu) aMenuContainer));
+
+        verify(applicationApi, never()).searchApplicationPages(any(SearchOptions.class));
+    }
 }
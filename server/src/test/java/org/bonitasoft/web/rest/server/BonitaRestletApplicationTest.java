@@ -1,6 +1,16 @@
 package org.bonitasoft.web.rest.server;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataQueryResource;
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataReferenceResource;
@@ -13,6 +23,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
 
 @RunWith(MockitoJUnitRunner.class)
 public class BonitaRestletApplicationTest {
@@ -63,4 +76,34 @@ public class BonitaRestletApplicationTest {
         Mockito.verify(finderFactory).create(I18nTranslationResource.class);
     }
 
+    @Test
+    public void should_configure_logging_once_and_not_for_each_request() throws Exception {
+        final BonitaRestletApplication bonitaRestletApplication = spy(new BonitaRestletApplication(new FinderFactory(), bonitaJacksonConverter));
+        bonitaRestletApplication.start();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Request>> handledRequests = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                handledRequests.add(executor.submit(new Callable<Request>() {
+
+                    @Override
+                    public Request call() {
+                        final Request request = new Request(Method.GET, "http://localhost/bonita/API/unknown");
+                        bonitaRestletApplication.handle(request, new Response(request));
+                        return request;
+                    }
+                }));
+            }
+
+            for (final Future<Request> handledRequest : handledRequests) {
+                assertThat(handledRequest.get().isLoggable()).isFalse();
+            }
+        } finally {
+            executor.shutdownNow();
+            bonitaRestletApplication.stop();
+        }
+
+        verify(bonitaRestletApplication, times(1)).configureLogging();
+    }
+
 }
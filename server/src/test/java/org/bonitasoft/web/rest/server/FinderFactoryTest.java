@@ -14,12 +14,22 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bonitasoft.engine.api.BusinessDataAPI;
 import org.bonitasoft.engine.api.CommandAPI;
 import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.business.data.BusinessDataReference;
+import org.bonitasoft.engine.business.data.impl.MultipleBusinessDataReferenceImpl;
+import org.bonitasoft.engine.business.data.impl.SimpleBusinessDataReferenceImpl;
 import org.bonitasoft.engine.session.APISession;
+import org.bonitasoft.web.rest.server.api.bdm.BusinessDataFindByIdsResource;
+import org.bonitasoft.web.rest.server.api.bdm.BusinessDataFindByIdsResourceFinder;
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataQueryResource;
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataQueryResourceFinder;
 import org.bonitasoft.web.rest.server.api.bdm.BusinessDataReferenceResource;
@@ -184,10 +194,20 @@ public class FinderFactoryTest {
     public void should_return_BusinessDataResource_for_BusinessDataResourceFinder() {
         final BusinessDataResourceFinder businessDataResourceFinder = spy(new BusinessDataResourceFinder());
         doReturn(commandAPI).when(businessDataResourceFinder).getCommandAPI(any(Request.class));
+        doReturn(apiSession).when(businessDataResourceFinder).getAPISession(any(Request.class));
         final ServerResource serverResource = businessDataResourceFinder.create(request, response);
         assertThat(serverResource).isInstanceOf(BusinessDataResource.class);
     }
 
+    @Test
+    public void should_return_BusinessDataFindByIdsResource_for_BusinessDataFindByIdsResourceFinder() {
+        final BusinessDataFindByIdsResourceFinder businessDataFindByIdsResourceFinder = spy(new BusinessDataFindByIdsResourceFinder());
+        doReturn(commandAPI).when(businessDataFindByIdsResourceFinder).getCommandAPI(any(Request.class));
+        doReturn(apiSession).when(businessDataFindByIdsResourceFinder).getAPISession(any(Request.class));
+        final ServerResource serverResource = businessDataFindByIdsResourceFinder.create(request, response);
+        assertThat(serverResource).isInstanceOf(BusinessDataFindByIdsResource.class);
+    }
+
     @Test
     public void should_return_TaskContractResource_for_TaskContractResourceFinder() {
         final UserTaskContractResourceFinder userTaskContractResourceFinder = spy(new UserTaskContractResourceFinder());
@@ -267,4 +287,74 @@ public class FinderFactoryTest {
         assertThat(objectA).isEqualTo("objectA");
     }
 
+    @Test
+    public void should_resolve_the_same_finders_as_a_scan_of_all_the_finders() {
+        final Serializable[] contextResources = { new SimpleBusinessDataReferenceImpl("ticket", "com.acme.Ticket", 8L),
+                new MultipleBusinessDataReferenceImpl("tickets", "com.acme.Ticket", Arrays.asList(7L, 8L)),
+                "aString", 12L, new Date(), new HashMap<String, Serializable>() };
+
+        for (final Serializable contextResource : contextResources) {
+            ResourceFinder scannedResourceFinder = null;
+            for (final ResourceFinder resourceFinder : factory.resourceFinders) {
+                if (resourceFinder.handlesResource(contextResource)) {
+                    scannedResourceFinder = resourceFinder;
+                    break;
+                }
+            }
+            assertThat(factory.getResourceFinderFor(contextResource)).isSameAs(scannedResourceFinder);
+        }
+        assertThat(factory.getResourceFinderFor(contextResources[0])).isInstanceOf(BusinessDataReferenceResourceFinder.class);
+        assertThat(factory.getResourceFinderFor(null)).isNull();
+        assertThat(factory.untypedResourceFinders).isEmpty();
+    }
+
+    @Test
+    public void should_only_ask_the_finder_of_the_resource_type() {
+        final Map<Class<? extends ServerResource>, ResourceFinder> finders = new HashMap<>();
+        final AtomicInteger otherFindersCalls = new AtomicInteger();
+        finders.put(ActivityVariableResource.class, new CountingResourceFinder(Long.class, otherFindersCalls));
+        finders.put(TimerEventTriggerResource.class, new CountingResourceFinder(Date.class, otherFindersCalls));
+        finders.put(BPMMessageResource.class, new CountingResourceFinder(CharSequence.class, otherFindersCalls));
+        finders.put(FormMappingResource.class, new CountingResourceFinder(Number.class, otherFindersCalls));
+        final AtomicInteger businessDataFinderCalls = new AtomicInteger();
+        final CountingResourceFinder businessDataFinder = new CountingResourceFinder(BusinessDataReference.class,
+                businessDataFinderCalls);
+        finders.put(BusinessDataReferenceResource.class, businessDataFinder);
+        final FinderFactory finderFactory = new FinderFactory(finders);
+
+        for (long i = 0; i < 1000; i++) {
+            assertThat(finderFactory.getResourceFinderFor(new SimpleBusinessDataReferenceImpl("ticket", "com.acme.Ticket", i)))
+                    .isSameAs(businessDataFinder);
+        }
+
+        assertThat(businessDataFinderCalls.get()).isEqualTo(1000);
+        assertThat(otherFindersCalls.get()).isZero();
+        assertThat(finderFactory.getResourceFinderFor(12L).getHandledResourceType()).isEqualTo(Long.class);
+        assertThat(finderFactory.getResourceFinderFor(12).getHandledResourceType()).isEqualTo(Number.class);
+        assertThat(finderFactory.getResourceFinderFor("aString").getHandledResourceType()).isEqualTo(CharSequence.class);
+    }
+
+    private static class CountingResourceFinder extends ResourceFinder {
+
+        private final Class<?> handledResourceType;
+
+        private final AtomicInteger calls;
+
+        private CountingResourceFinder(final Class<?> handledResourceType, final AtomicInteger calls) {
+            this.handledResourceType = handledResourceType;
+            this.calls = calls;
+        }
+
+        @Override
+        public Class<?> getHandledResourceType() {
+            return handledResourceType;
+        }
+
+        @Override
+        public boolean handlesResource(final Serializable object) {
+            calls.incrementAndGet();
+            return super.handlesResource(object);
+        }
+    }
+
 }
@@ -1,10 +1,12 @@
 package org.bonitasoft.web.rest.server.api.bdm;
 
 import static org.bonitasoft.web.rest.server.utils.ResponseAssert.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,9 +28,12 @@ public class BusinessDataFindByIdsResourceTest extends RestletTest {
     @Mock
     private CommandAPI commandAPI;
 
+    @Mock
+    private BusinessDataLookupBatcher lookupBatcher;
+
     @Override
     protected ServerResource configureResource() {
-        return new BusinessDataFindByIdsResource(commandAPI);
+        return new BusinessDataFindByIdsResource(commandAPI, lookupBatcher, 12L);
     }
 
 	@Test
@@ -48,4 +53,17 @@ public class BusinessDataFindByIdsResourceTest extends RestletTest {
         assertThat(response).hasJsonEntityEqualTo("[{\"id\":1983},{\"id\":547862}]");
 	}
 
+    @Test
+    public void findByIds_should_lookup_business_objects_with_the_batcher_when_enabled() throws Exception {
+        when(lookupBatcher.isEnabled()).thenReturn(true);
+        when(lookupBatcher.getBusinessDataByIds(commandAPI, 12L, "org.bonitasoft.pojo.Employee", Arrays.asList(1983L, 547862L)))
+                .thenReturn("[{\"id\":1983},{\"id\":547862}]");
+
+        final Response response = request("/bdm/businessData/org.bonitasoft.pojo.Employee/findByIds?ids=1983,547862").get();
+
+        assertThat(response).hasStatus(Status.SUCCESS_OK);
+        assertThat(response).hasJsonEntityEqualTo("[{\"id\":1983},{\"id\":547862}]");
+        verifyZeroInteractions(commandAPI);
+    }
+
 }
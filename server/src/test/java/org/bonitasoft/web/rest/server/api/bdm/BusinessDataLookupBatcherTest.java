@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2022 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.rest.server.api.bdm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bonitasoft.engine.api.CommandAPI;
+import org.bonitasoft.engine.bpm.data.DataNotFoundException;
+import org.bonitasoft.engine.command.CommandExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+@SuppressWarnings("unchecked")
+public class BusinessDataLookupBatcherTest {
+
+    private static final String EMPLOYEE = "org.bonitasoft.pojo.Employee";
+
+    private static final long MISSING_ID = 404L;
+
+    @Mock
+    private CommandAPI commandAPI;
+
+    /**
+     * ids of each command executed
+     */
+    private final List<List<Long>> executedCommands = new CopyOnWriteArrayList<>();
+
+    private final BusinessDataLookupBatcher lookupBatcher = new BusinessDataLookupBatcher(50L);
+
+    @Before
+    public void setUp() throws Exception {
+        when(commandAPI.execute(eq(BusinessDataLookupBatcher.COMMAND_NAME), anyMapOf(String.class, Serializable.class)))
+                .then(new Answer<Serializable>() {
+
+                    @Override
+                    public Serializable answer(final InvocationOnMock invocation) throws Throwable {
+                        final Map<String, Serializable> parameters = (Map<String, Serializable>) invocation.getArguments()[1];
+                        assertThat(parameters).containsEntry("entityClassName", EMPLOYEE)
+                                .containsEntry("businessDataURIPattern", BusinessDataFieldValue.URI_PATTERN);
+                        final List<Long> ids = (List<Long>) parameters.get("businessDataIds");
+                        executedCommands.add(ids);
+                        final StringBuilder json = new StringBuilder("[");
+                        for (final Long id : ids) {
+                            if (id != MISSING_ID) {
+                                json.append(json.length() > 1 ? "," : "").append(employee(id));
+                            }
+                        }
+                        return json.append("]").toString();
+                    }
+                });
+    }
+
+    @Test
+    public void should_merge_concurrent_lookups_into_a_few_commands() throws Exception {
+        final List<Callable<String>> lookups = new ArrayList<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 100; i++) {
+            final long id = i;
+            lookups.add(() -> {
+                start.await();
+                return lookupBatcher.getBusinessDataById(commandAPI, 1L, EMPLOYEE, id);
+            });
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(100);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (final Callable<String> lookup : lookups) {
+                results.add(executor.submit(lookup));
+            }
+            start.countDown();
+
+            for (int i = 0; i < 100; i++) {
+                assertThat(results.get(i).get()).isEqualTo(employee(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(executedCommands.size()).isBetween(1, 5);
+    }
+
+    @Test
+    public void should_not_merge_lookups_of_different_sessions() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> firstSessionLookup = executor
+                    .submit(() -> lookupBatcher.getBusinessDataById(commandAPI, 1L, EMPLOYEE, 1L));
+            final Future<String> secondSessionLookup = executor
+                    .submit(() -> lookupBatcher.getBusinessDataById(commandAPI, 2L, EMPLOYEE, 2L));
+
+            assertThat(firstSessionLookup.get()).isEqualTo(employee(1L));
+            assertThat(secondSessionLookup.get()).isEqualTo(employee(2L));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(executedCommands).containsOnly(Arrays.asList(1L), Arrays.asList(2L));
+    }
+
+    @Test
+    public void should_return_null_when_business_data_does_not_exist() throws Exception {
+        assertThat(lookupBatcher.getBusinessDataById(commandAPI, 1L, EMPLOYEE, MISSING_ID)).isNull();
+    }
+
+    @Test
+    public void should_return_business_data_in_the_order_of_the_ids() throws Exception {
+        final String businessData = lookupBatcher.getBusinessDataByIds(commandAPI, 1L, EMPLOYEE,
+                Arrays.asList(3L, MISSING_ID, 1L, 3L));
+
+        assertThat(businessData).isEqualTo("[" + employee(3L) + "," + employee(1L) + "]");
+    }
+
+    @Test
+    public void should_keep_the_decimal_numbers_of_the_business_data_as_written_by_the_engine() throws Exception {
+        final String invoice = "{\"persistenceId\":1,\"amount\":12345678901234567.123456789,\"rate\":1.10,"
+                + "\"reference\":123456789012345678901234567890}";
+        doReturn("[" + invoice + "]").when(commandAPI)
+                .execute(eq(BusinessDataLookupBatcher.COMMAND_NAME), anyMapOf(String.class, Serializable.class));
+
+        assertThat(lookupBatcher.getBusinessDataById(commandAPI, 1L, EMPLOYEE, 1L)).isEqualTo(invoice);
+        assertThat(lookupBatcher.getBusinessDataByIds(commandAPI, 1L, EMPLOYEE, Arrays.asList(1L)))
+                .isEqualTo("[" + invoice + "]");
+    }
+
+    @Test
+    public void should_retrieve_the_business_data_by_id_when_the_command_of_the_batch_fails() throws Exception {
+        doThrow(new CommandExecutionException("server error")).when(commandAPI)
+                .execute(eq(BusinessDataLookupBatcher.COMMAND_NAME), anyMapOf(String.class, Serializable.class));
+        havingBusinessDataByIdCommand();
+
+        assertThat(lookupBatcher.getBusinessDataById(commandAPI, 1L, EMPLOYEE, 1L)).isEqualTo(employee(1L));
+        assertThat(lookupBatcher.getBusinessDataByIds(commandAPI, 1L, EMPLOYEE, Arrays.asList(3L, MISSING_ID, 1L)))
+                .isEqualTo("[" + employee(3L) + "," + employee(1L) + "]");
+    }
+
+    @Test
+    public void should_throw_the_exception_of_the_lookup_by_id_when_the_command_of_the_batch_fails() throws Exception {
+        doThrow(new CommandExecutionException("server error")).when(commandAPI)
+                .execute(eq(BusinessDataLookupBatcher.COMMAND_NAME), anyMapOf(String.class, Serializable.class));
+        doThrow(new CommandExecutionException(new DataNotFoundException(new IllegalStateException())))
+                .when(commandAPI).execute(eq(BusinessDataLookupBatcher.BY_ID_COMMAND_NAME), anyMapOf(String.class, Serializable.class));
+
+        try {
+            lookupBatcher.getBusinessDataById(commandAPI, 1L, EMPLOYEE, 1L);
+            fail("the exception of the lookup by id should be thrown");
+        } catch (final CommandExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(DataNotFoundException.class);
+        }
+    }
+
+    @Test
+    public void should_be_disabled_without_window() throws Exception {
+        assertThat(new BusinessDataLookupBatcher(0L).isEnabled()).isFalse();
+        assertThat(lookupBatcher.isEnabled()).isTrue();
+    }
+
+    private void havingBusinessDataByIdCommand() throws Exception {
+        when(commandAPI.execute(eq(BusinessDataLookupBatcher.BY_ID_COMMAND_NAME), anyMapOf(String.class, Serializable.class)))
+                .then(new Answer<Serializable>() {
+
+                    @Override
+                    public Serializable answer(final InvocationOnMock invocation) throws Throwable {
+                        final Map<String, Serializable> parameters = (Map<String, Serializable>) invocation.getArguments()[1];
+                        final Long id = (Long) parameters.get("businessDataId");
+                        if (id == MISSING_ID) {
+                            throw new CommandExecutionException(new DataNotFoundException(new IllegalStateException()));
+                        }
+                        return employee(id);
+                    }
+                });
+    }
+
+    private String employee(final long id) {
+        return "{\"persistenceId\":" + id + ",\"name\":\"employee " + id + "\"}";
+    }
+
+}
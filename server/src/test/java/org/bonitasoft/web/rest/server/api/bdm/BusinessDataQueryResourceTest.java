@@ -21,9 +21,14 @@ import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
 
 import org.bonitasoft.engine.api.CommandAPI;
 import org.bonitasoft.engine.bpm.businessdata.impl.BusinessDataQueryMetadataImpl;
@@ -39,9 +44,13 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 import org.restlet.Response;
+import org.restlet.data.ClientInfo;
 import org.restlet.data.Conditions;
+import org.restlet.data.Encoding;
 import org.restlet.data.Header;
+import org.restlet.data.Preference;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
 import org.restlet.resource.ServerResource;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -98,6 +107,98 @@ public class BusinessDataQueryResourceTest extends RestletTest {
                 .hasHeader(expectedContentTypeHeader);
     }
 
+    @Test
+    public void should_write_large_results_as_they_are() throws Exception {
+        final StringBuilder jsonResults = new StringBuilder("[");
+        while (jsonResults.length() < 50 * 1024 * 1024) {
+            jsonResults.append("{\"name\":\"Matti\",\"country\":\"Suomi\",\"persistenceId\":").append(jsonResults.length()).append("},");
+        }
+        jsonResults.setCharAt(jsonResults.length() - 1, ']');
+        final String json = jsonResults.toString();
+        when(commandAPI.execute(anyString(), anyMapOf(String.class, Serializable.class)))
+                .thenReturn(new BusinessDataQueryResultImpl(json, new BusinessDataQueryMetadataImpl(1, 2, 4L)));
+
+        final Response response = request(VALID_BDM_REQUEST).get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+        assertThat(response.getEntity().getSize()).isEqualTo(json.getBytes(StandardCharsets.UTF_8).length);
+        long writtenSize = 0;
+        try (InputStream entityStream = response.getEntity().getStream()) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = entityStream.read(buffer)) != -1) {
+                writtenSize += read;
+            }
+        }
+        assertThat(writtenSize).isEqualTo(response.getEntity().getSize());
+    }
+
+    @Test
+    public void should_return_not_modified_when_results_are_unchanged() throws Exception {
+        when(commandAPI.execute(anyString(), anyMapOf(String.class, Serializable.class)))
+                .thenReturn(new BusinessDataQueryResultImpl(JSON_RESPONSE, new BusinessDataQueryMetadataImpl(1, 2, 4L)));
+        final Tag tag = request(VALID_BDM_REQUEST).get().getEntity().getTag();
+        assertThat(tag.isWeak()).isTrue();
+
+        final Conditions conditions = new Conditions();
+        conditions.getNoneMatch().add(tag);
+        final Response response = request(VALID_BDM_REQUEST).setConditions(conditions).get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.REDIRECTION_NOT_MODIFIED);
+    }
+
+    @Test
+    public void should_return_results_when_they_have_changed() throws Exception {
+        when(commandAPI.execute(anyString(), anyMapOf(String.class, Serializable.class)))
+                .thenReturn(new BusinessDataQueryResultImpl(JSON_RESPONSE, new BusinessDataQueryMetadataImpl(1, 2, 4L)));
+        final Tag tag = request(VALID_BDM_REQUEST).get().getEntity().getTag();
+        when(commandAPI.execute(anyString(), anyMapOf(String.class, Serializable.class)))
+                .thenReturn(new BusinessDataQueryResultImpl("{\"name\":\"Jaakko\"}", new BusinessDataQueryMetadataImpl(1, 2, 4L)));
+
+        final Conditions conditions = new Conditions();
+        conditions.getNoneMatch().add(tag);
+        final Response response = request(VALID_BDM_REQUEST).setConditions(conditions).get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+        assertThat(response.getEntity().getTag()).isNotEqualTo(tag);
+        assertThat(response.getEntityAsText()).isEqualTo("{\"name\":\"Jaakko\"}");
+    }
+
+    @Test
+    public void should_not_match_the_results_of_another_query() throws Exception {
+        when(commandAPI.execute(anyString(), anyMapOf(String.class, Serializable.class)))
+                .thenReturn(new BusinessDataQueryResultImpl(JSON_RESPONSE, new BusinessDataQueryMetadataImpl(1, 2, 4L)));
+        final Tag tag = request(VALID_BDM_REQUEST).get().getEntity().getTag();
+
+        final Conditions conditions = new Conditions();
+        conditions.getNoneMatch().add(tag);
+        final Response response = request(VALID_BDM_REQUEST.replace("p=3", "p=4")).setConditions(conditions).get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+    }
+
+    @Test
+    public void should_return_gzip_content_when_accepted() throws Exception {
+        final StringBuilder jsonResults = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            jsonResults.append("{\"name\":\"Matti\",\"persistenceId\":").append(i).append("},");
+        }
+        jsonResults.setCharAt(jsonResults.length() - 1, ']');
+        final String json = jsonResults.toString();
+        when(commandAPI.execute(anyString(), anyMapOf(String.class, Serializable.class)))
+                .thenReturn(new BusinessDataQueryResultImpl(json, new BusinessDataQueryMetadataImpl(1, 2, 4L)));
+
+        final ClientInfo clientInfo = new ClientInfo();
+        clientInfo.getAcceptedEncodings().add(new Preference<>(Encoding.GZIP));
+        final Response response = request(VALID_BDM_REQUEST).setClientInfo(clientInfo).get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+        assertThat(response.getEntity().getEncodings()).contains(Encoding.GZIP);
+        try (GZIPInputStream gzipStream = new GZIPInputStream(response.getEntity().getStream())) {
+            assertThat(new String(IOUtils.toByteArray(gzipStream), StandardCharsets.UTF_8)).isEqualTo(json);
+        }
+    }
+
     @Test
     public void should_throw_exception_when_missing_count() throws Exception {
         // when
@@ -18,6 +18,7 @@ package org.bonitasoft.web.rest.server.api.bdm;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
@@ -45,9 +46,12 @@ public class BusinessDataResourceTest extends RestletTest {
     @Mock
     protected CommandAPI commandAPI;
 
+    @Mock
+    private BusinessDataLookupBatcher lookupBatcher;
+
     @Override
     protected ServerResource configureResource() {
-        return new BusinessDataResource(commandAPI);
+        return new BusinessDataResource(commandAPI, lookupBatcher, 12L);
     }
 
     @Test
@@ -114,4 +118,26 @@ public class BusinessDataResourceTest extends RestletTest {
         assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
         assertThat(response.getEntityAsText()).isEqualTo("{\"name\":\"Matti\"}");
     }
+
+    @Test
+    public void should_lookup_business_data_with_the_batcher_when_enabled() throws Exception {
+        when(lookupBatcher.isEnabled()).thenReturn(true);
+        when(lookupBatcher.getBusinessDataById(commandAPI, 12L, "org.bonitasoft.pojo.Employee", 1983L))
+                .thenReturn("{\"name\":\"Matti\"}");
+
+        final Response response = request("/bdm/businessData/org.bonitasoft.pojo.Employee/1983").get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+        assertThat(response.getEntityAsText()).isEqualTo("{\"name\":\"Matti\"}");
+        verifyZeroInteractions(commandAPI);
+    }
+
+    @Test
+    public void should_return_a_not_found_status_when_batched_business_data_does_not_exist() throws Exception {
+        when(lookupBatcher.isEnabled()).thenReturn(true);
+
+        final Response response = request("/bdm/businessData/org.bonitasoft.pojo.Employee/1983").get();
+
+        assertThat(response.getStatus()).isEqualTo(Status.CLIENT_ERROR_NOT_FOUND);
+    }
 }
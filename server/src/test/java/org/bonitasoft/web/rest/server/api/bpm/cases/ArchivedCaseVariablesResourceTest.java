@@ -3,12 +3,16 @@ package org.bonitasoft.web.rest.server.api.bpm.cases;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.rest.server.api.bpm.cases.ArchivedDataInstanceBuilder.anArchivedDataInstance;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.data.ArchivedDataInstance;
 import org.bonitasoft.web.rest.model.bpm.cases.ArchivedCaseVariable;
 import org.bonitasoft.web.rest.model.bpm.cases.ArchivedVariable;
 import org.bonitasoft.web.rest.server.BonitaRestletApplication;
@@ -84,11 +88,10 @@ public class ArchivedCaseVariablesResourceTest extends RestletTest {
 
 	@Test
 	public void should_return_archived_variable_with_200_status() throws Exception {
-		when(processApi.getArchivedProcessDataInstances(Mockito.eq(12L), Mockito.anyInt(), Mockito.anyInt()))
-				.thenReturn(List.of(anArchivedDataInstance("myVar").build(),
-						anArchivedDataInstance("myVar2").build(),
-						anArchivedDataInstance("myVar3").build(), 
-						anArchivedDataInstance("myVar4").build()));
+		givenArchivedDataInstances(12L, List.of(anArchivedDataInstance("myVar").build(),
+				anArchivedDataInstance("myVar2").build(),
+				anArchivedDataInstance("myVar3").build(),
+				anArchivedDataInstance("myVar4").build()));
 
 		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=1&c=2")
 				.get();
@@ -102,4 +105,133 @@ public class ArchivedCaseVariablesResourceTest extends RestletTest {
 		assertThat(archivedVariables).hasSize(2).extracting(ArchivedVariable::getName).containsOnly("myVar3", "myVar4");
 	}
 
+	@Test
+	public void should_fetch_the_requested_page_and_count_the_following_variables_in_batches() throws Exception {
+		givenArchivedDataInstances(12L, archivedDataInstances(2500));
+
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=3&c=10")
+				.get();
+
+		assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+		assertThat(response.getHeaders().getFirst("Content-range").getValue()).isEqualTo("3-10/2500");
+		List<ArchivedCaseVariable> archivedVariables = objectMapper.readValue(response.getEntityAsText(),
+				new TypeReference<>() {
+				});
+		assertThat(archivedVariables).extracting(ArchivedVariable::getName).containsExactly("myVar30", "myVar31",
+				"myVar32", "myVar33", "myVar34", "myVar35", "myVar36", "myVar37", "myVar38", "myVar39");
+		verify(processApi).getArchivedProcessDataInstances(12L, 30, 10);
+		verify(processApi).getArchivedProcessDataInstances(12L, 40, ArchivedCaseVariablesResource.BATCH_SIZE);
+		verify(processApi).getArchivedProcessDataInstances(12L, 1040, ArchivedCaseVariablesResource.BATCH_SIZE);
+		verify(processApi).getArchivedProcessDataInstances(12L, 2040, ArchivedCaseVariablesResource.BATCH_SIZE);
+		verifyNoMoreInteractions(processApi);
+	}
+
+	@Test
+	public void should_report_the_exact_total_when_there_are_many_variables_to_count() throws Exception {
+		givenArchivedDataInstances(12L, archivedDataInstances(50000));
+
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=3&c=10")
+				.get();
+
+		assertThat(response.getStatus()).isEqualTo(Status.SUCCESS_OK);
+		assertThat(response.getHeaders().getFirst("Content-range").getValue()).isEqualTo("3-10/50000");
+		verify(processApi).getArchivedProcessDataInstances(12L, 30, 10);
+		for (int startIndex = 40; startIndex <= 50000; startIndex += ArchivedCaseVariablesResource.BATCH_SIZE) {
+			verify(processApi).getArchivedProcessDataInstances(12L, startIndex, ArchivedCaseVariablesResource.BATCH_SIZE);
+		}
+		verifyNoMoreInteractions(processApi);
+	}
+
+	@Test
+	public void should_respond_400_when_page_start_index_is_too_large() throws Exception {
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=1000000&c=10000")
+				.get();
+
+		assertThat(response.getStatus()).isEqualTo(Status.CLIENT_ERROR_BAD_REQUEST);
+		verifyNoMoreInteractions(processApi);
+	}
+
+	@Test
+	public void should_count_archived_variables_without_fetching_them_when_last_page_is_not_full() throws Exception {
+		givenArchivedDataInstances(12L, List.of(anArchivedDataInstance("myVar").build(),
+				anArchivedDataInstance("myVar2").build(),
+				anArchivedDataInstance("myVar3").build()));
+
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=1&c=2")
+				.get();
+
+		assertThat(response.getHeaders().getFirst("Content-range").getValue()).isEqualTo("1-2/3");
+		verify(processApi).getArchivedProcessDataInstances(12L, 2, 2);
+		verifyNoMoreInteractions(processApi);
+	}
+
+	@Test
+	public void should_return_archived_variables_sorted_by_name() throws Exception {
+		givenArchivedDataInstances(12L, List.of(anArchivedDataInstance("b").build(),
+				anArchivedDataInstance("d").build(),
+				anArchivedDataInstance("a").build(),
+				anArchivedDataInstance("c").build()));
+
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=0&c=3&o=name%20DESC")
+				.get();
+
+		assertThat(response.getHeaders().getFirst("Content-range").getValue()).isEqualTo("0-3/4");
+		List<ArchivedCaseVariable> archivedVariables = objectMapper.readValue(response.getEntityAsText(),
+				new TypeReference<>() {
+				});
+		assertThat(archivedVariables).extracting(ArchivedVariable::getName).containsExactly("d", "c", "b");
+	}
+
+	@Test
+	public void should_return_the_requested_sorted_page_when_variables_are_fetched_in_several_batches() throws Exception {
+		List<ArchivedDataInstance> instances = new ArrayList<>();
+		for (int i = 0; i < 2500; i++) {
+			instances.add(anArchivedDataInstance(String.format("myVar%04d", (i * 7) % 2500))
+					.withType(i % 2 == 0 ? "java.lang.String" : "java.lang.Long").build());
+		}
+		givenArchivedDataInstances(12L, instances);
+
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL
+				+ "?f=case_id=12&p=2&c=5&o=type%20DESC,name%20ASC").get();
+
+		assertThat(response.getHeaders().getFirst("Content-range").getValue()).isEqualTo("2-5/2500");
+		List<ArchivedCaseVariable> archivedVariables = objectMapper.readValue(response.getEntityAsText(),
+				new TypeReference<>() {
+				});
+		assertThat(archivedVariables).extracting(ArchivedVariable::getName).containsExactly("myVar0020", "myVar0022",
+				"myVar0024", "myVar0026", "myVar0028");
+		verify(processApi).getArchivedProcessDataInstances(12L, 0, ArchivedCaseVariablesResource.BATCH_SIZE);
+		verify(processApi).getArchivedProcessDataInstances(12L, 1000, ArchivedCaseVariablesResource.BATCH_SIZE);
+		verify(processApi).getArchivedProcessDataInstances(12L, 2000, ArchivedCaseVariablesResource.BATCH_SIZE);
+		verifyNoMoreInteractions(processApi);
+	}
+
+	@Test
+	public void should_respond_400_when_sorting_on_an_unknown_attribute() throws Exception {
+		givenArchivedDataInstances(12L, List.of(anArchivedDataInstance("myVar").build()));
+
+		Response response = request(BonitaRestletApplication.BPM_ARCHIVED_CASE_VARIABLE_URL + "?f=case_id=12&p=0&c=3&o=unknown")
+				.get();
+
+		assertThat(response.getStatus()).isEqualTo(Status.CLIENT_ERROR_BAD_REQUEST);
+	}
+
+	private List<ArchivedDataInstance> archivedDataInstances(int number) {
+		List<ArchivedDataInstance> instances = new ArrayList<>();
+		for (int i = 0; i < number; i++) {
+			instances.add(anArchivedDataInstance("myVar" + i).build());
+		}
+		return instances;
+	}
+
+	private void givenArchivedDataInstances(long caseId, List<ArchivedDataInstance> instances) {
+		when(processApi.getArchivedProcessDataInstances(Mockito.eq(caseId), Mockito.anyInt(), Mockito.anyInt()))
+				.thenAnswer(invocation -> {
+					int startIndex = (int) invocation.getArguments()[1];
+					int maxResults = (int) invocation.getArguments()[2];
+					return instances.subList(Math.min(startIndex, instances.size()),
+							(int) Math.min((long) startIndex + maxResults, instances.size()));
+				});
+	}
+
 }
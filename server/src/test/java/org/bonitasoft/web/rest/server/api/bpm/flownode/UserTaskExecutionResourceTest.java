@@ -28,10 +28,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.bonitasoft.console.common.server.utils.ContractDefinitionCache;
 import org.bonitasoft.engine.api.ProcessAPI;
 import org.bonitasoft.engine.bpm.contract.ContractDefinition;
 import org.bonitasoft.engine.bpm.contract.ContractViolationException;
+import org.bonitasoft.engine.bpm.flownode.ActivityInstanceNotFoundException;
 import org.bonitasoft.engine.bpm.flownode.FlowNodeExecutionException;
+import org.bonitasoft.engine.bpm.flownode.HumanTaskInstance;
 import org.bonitasoft.engine.bpm.flownode.UserTaskNotFoundException;
 import org.bonitasoft.engine.exception.UpdateException;
 import org.bonitasoft.engine.session.APISession;
@@ -71,13 +74,20 @@ public class UserTaskExecutionResourceTest extends RestletTest {
     @Mock
     private ContractDefinition contractDefinition;
 
+    @Mock
+    private HumanTaskInstance humanTaskInstance;
+
     @Before
-    public void initializeMocks() {
+    public void initializeMocks() throws Exception {
         userTaskExecutionResource = spy(new UserTaskExecutionResource(processAPI, apiSession));
         doReturn(null).when(userTaskExecutionResource).getAttribute("assign");
         // this allows us to track method calls on this internal dependency
         userTaskExecutionResource.typeConverterUtil = spy(userTaskExecutionResource.typeConverterUtil);
         when(contractDefinition.getInputs()).thenReturn(emptyList());
+        when(humanTaskInstance.getProcessDefinitionId()).thenReturn(10L);
+        when(humanTaskInstance.getFlownodeDefinitionId()).thenReturn(20L);
+        when(processAPI.getHumanTaskInstance(anyLong())).thenReturn(humanTaskInstance);
+        ContractDefinitionCache.clearCachedContracts();
     }
 
     @Override
@@ -234,4 +244,30 @@ public class UserTaskExecutionResourceTest extends RestletTest {
 
     }
 
+    @Test
+    public void should_retrieve_the_task_contract_once_per_task_definition() throws Exception {
+        when(processAPI.getUserTaskContract(anyLong())).thenReturn(contractDefinition);
+        doReturn(response).when(userTaskExecutionResource).getResponse();
+
+        for (long taskId = 1; taskId <= 1000; taskId++) {
+            doReturn(taskId).when(userTaskExecutionResource).getTaskIdParameter();
+            final Map<String, Serializable> inputs = new HashMap<>();
+            inputs.put("testKey", "testValue");
+            userTaskExecutionResource.executeTask(inputs);
+        }
+
+        verify(processAPI, times(1)).getUserTaskContract(anyLong());
+        verify(processAPI, times(1000)).executeUserTask(anyLong(), anyLong(), anyMapOf(String.class, Serializable.class));
+    }
+
+    @Test
+    public void should_respond_404_Not_found_when_task_instance_is_not_found() throws Exception {
+        when(processAPI.getHumanTaskInstance(2L)).thenThrow(new ActivityInstanceNotFoundException(2L));
+
+        final Response response = request("/bpm/userTask/2/execution").post(VALID_POST_BODY);
+
+        assertThat(response).hasStatus(Status.CLIENT_ERROR_NOT_FOUND);
+        verify(processAPI, never()).executeUserTask(anyLong(), anyLong(), anyMapOf(String.class, Serializable.class));
+    }
+
 }
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.console.common.server.i18n.I18n;
+import org.bonitasoft.console.common.server.utils.ContractDefinitionCache;
 import org.bonitasoft.engine.api.ProcessAPI;
 import org.bonitasoft.engine.bpm.contract.ContractDefinition;
 import org.bonitasoft.engine.bpm.contract.ContractViolationException;
@@ -82,15 +83,16 @@ public class ProcessInstantiationResourceTest extends RestletTest {
 
     @Before
     public void initializeMocks() {
-        processInstantiationResource = spy(new ProcessInstantiationResource(processAPI));
+        processInstantiationResource = spy(new ProcessInstantiationResource(processAPI, apiSession));
         // this allows us to track method calls on this internal dependency
         processInstantiationResource.typeConverterUtil = spy(processInstantiationResource.typeConverterUtil);
         when(contractDefinition.getInputs()).thenReturn(Collections.<InputDefinition> emptyList());
+        ContractDefinitionCache.clearCachedContracts();
     }
 
     @Override
     protected ServerResource configureResource() {
-        return new ProcessInstantiationResource(processAPI);
+        return new ProcessInstantiationResource(processAPI, apiSession);
     }
 
     private Map<String, Serializable> aComplexInput() {
@@ -240,4 +242,21 @@ public class ProcessInstantiationResourceTest extends RestletTest {
         }
 
     }
+    @Test
+    public void should_retrieve_the_process_contract_once_for_several_instantiations() throws Exception {
+        doReturn(Long.toString(PROCESS_DEFINITION_ID)).when(processInstantiationResource).getAttribute(ProcessInstantiationResource.PROCESS_DEFINITION_ID);
+        doReturn(contractDefinition).when(processAPI).getProcessContract(PROCESS_DEFINITION_ID);
+        doReturn(response).when(processInstantiationResource).getResponse();
+        when(processAPI.startProcessWithInputs(anyLong(), anyMapOf(String.class, Serializable.class))).thenReturn(processInstance);
+
+        for (int i = 0; i < 1000; i++) {
+            final Map<String, Serializable> inputs = new HashMap<>();
+            inputs.put("testKey", "testValue" + i);
+            processInstantiationResource.instantiateProcess(inputs);
+        }
+
+        verify(processAPI, times(1)).getProcessContract(PROCESS_DEFINITION_ID);
+        verify(processAPI, times(1000)).startProcessWithInputs(anyLong(), anyMapOf(String.class, Serializable.class));
+    }
+
 }
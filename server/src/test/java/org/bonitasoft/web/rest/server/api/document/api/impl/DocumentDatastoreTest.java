@@ -1,16 +1,40 @@
 package org.bonitasoft.web.rest.server.api.document.api.impl;
 
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
+import org.bonitasoft.console.common.server.preferences.properties.ConsoleProperties;
 import org.bonitasoft.console.common.server.utils.BonitaHomeFolderAccessor;
 import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.document.Document;
+import org.bonitasoft.engine.bpm.process.ProcessDeploymentInfo;
+import org.bonitasoft.engine.bpm.process.ProcessInstance;
+import org.bonitasoft.engine.bpm.process.ProcessInstanceNotFoundException;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.impl.SearchResultImpl;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.model.document.DocumentItem;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -33,6 +57,12 @@ public class DocumentDatastoreTest {
     @Mock
     private BonitaHomeFolderAccessor tenantFolder;
 
+    @Mock
+    private ConsoleProperties consoleProperties;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void should_verify_authorisation_for_the_given_document_path() throws
     Exception {
@@ -44,4 +74,99 @@ public class DocumentDatastoreTest {
         assertNotNull(item);
     }
 
+    @Test
+    public void should_attach_uploaded_file_with_a_single_process_api_lookup() throws Exception {
+        documentDatastore = spy(new DocumentDatastore(session));
+        doReturn(processAPI).when(documentDatastore).getProcessAPI();
+        doReturn(consoleProperties).when(documentDatastore).getConsoleProperties();
+        when(consoleProperties.getMaxSize()).thenReturn(15L);
+        final File uploadedFile = temporaryFolder.newFile("doc.txt");
+        final long fileSize = 10L * 1048576;
+        try (RandomAccessFile file = new RandomAccessFile(uploadedFile, "rw")) {
+            file.setLength(fileSize);
+        }
+        doReturn(uploadedFile).when(tenantFolder).getTempFile("docPath");
+        final Document document = mock(Document.class);
+        when(document.getName()).thenReturn("docName");
+        when(processAPI.attachDocument(eq(1L), eq("docName"), anyString(), anyString(), any(byte[].class))).thenReturn(document);
+        when(processAPI.getProcessInstance(anyLong())).thenThrow(new ProcessInstanceNotFoundException("not found"));
+
+        final DocumentItem item = documentDatastore.createDocument(1L, "docName", DocumentDatastore.CREATE_NEW_DOCUMENT, "docPath",
+                tenantFolder);
+
+        final ArgumentCaptor<byte[]> content = ArgumentCaptor.forClass(byte[].class);
+        verify(processAPI).attachDocument(eq(1L), eq("docName"), eq("doc.txt"), eq("text/plain"), content.capture());
+        assertThat(content.getValue()).hasSize((int) fileSize);
+        assertThat(item.getDocumentName()).isEqualTo("docName");
+        verify(documentDatastore, times(1)).getProcessAPI();
+    }
+
+    @Test
+    public void should_share_the_mime_types_table_between_datastores() {
+        final DocumentDatastore datastore = new DocumentDatastore(session);
+
+        assertThat(datastore.getFileTypeMap()).isSameAs(new DocumentDatastore(session).getFileTypeMap());
+        assertThat(datastore.getFileTypeMap().getContentType("doc.txt")).isEqualTo("text/plain");
+    }
+
+    @Test
+    public void should_map_a_page_of_documents_with_one_search_of_cases_and_one_search_of_processes() throws Exception {
+        documentDatastore = spy(new DocumentDatastore(session));
+        doReturn(processAPI).when(documentDatastore).getProcessAPI();
+        final ProcessInstance case1 = processInstance(1L, "case 1", 10L);
+        final ProcessInstance case2 = processInstance(2L, "case 2", 20L);
+        final ProcessDeploymentInfo process10 = processDeploymentInfo(10L, "Process 10", "1.0");
+        final ProcessDeploymentInfo process20 = processDeploymentInfo(20L, "Process 20", "2.0");
+        when(processAPI.searchProcessInstances(any(SearchOptions.class))).thenReturn(new SearchResultImpl<>(2, asList(case1, case2)));
+        when(processAPI.searchProcessDeploymentInfos(any(SearchOptions.class)))
+                .thenReturn(new SearchResultImpl<>(2, asList(process10, process20)));
+        when(processAPI.getProcessInstance(1L)).thenReturn(case1);
+        when(processAPI.getProcessInstance(2L)).thenReturn(case2);
+        when(processAPI.getProcessInstance(3L)).thenThrow(new ProcessInstanceNotFoundException("archived"));
+        when(processAPI.getProcessDeploymentInfo(10L)).thenReturn(process10);
+        when(processAPI.getProcessDeploymentInfo(20L)).thenReturn(process20);
+        final List<Document> documents = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            documents.add(document(i, i % 3 + 1));
+        }
+        final List<Map<String, String>> expectedItems = new ArrayList<>();
+        for (final Document document : documents) {
+            expectedItems.add(documentDatastore.mapToDocumentItem(document).getAttributes(false));
+        }
+
+        final List<Map<String, String>> items = new ArrayList<>();
+        for (final DocumentItem item : documentDatastore.mapToDocumentItems(documents)) {
+            items.add(item.getAttributes(false));
+        }
+        documentDatastore.mapToDocumentItems(documents.subList(0, 10));
+
+        assertThat(items).containsExactlyElementsOf(expectedItems);
+        verify(processAPI, times(1)).searchProcessInstances(any(SearchOptions.class));
+        verify(processAPI, times(1)).searchProcessDeploymentInfos(any(SearchOptions.class));
+    }
+
+    private Document document(final long id, final long caseId) {
+        final Document document = mock(Document.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getName()).thenReturn("document" + id);
+        when(document.getProcessInstanceId()).thenReturn(caseId);
+        return document;
+    }
+
+    private ProcessInstance processInstance(final long id, final String name, final long processDefinitionId) {
+        final ProcessInstance processInstance = mock(ProcessInstance.class);
+        when(processInstance.getId()).thenReturn(id);
+        when(processInstance.getName()).thenReturn(name);
+        when(processInstance.getProcessDefinitionId()).thenReturn(processDefinitionId);
+        return processInstance;
+    }
+
+    private ProcessDeploymentInfo processDeploymentInfo(final long processDefinitionId, final String displayName, final String version) {
+        final ProcessDeploymentInfo processDeploymentInfo = mock(ProcessDeploymentInfo.class);
+        when(processDeploymentInfo.getProcessId()).thenReturn(processDefinitionId);
+        when(processDeploymentInfo.getDisplayName()).thenReturn(displayName);
+        when(processDeploymentInfo.getVersion()).thenReturn(version);
+        return processDeploymentInfo;
+    }
+
 }
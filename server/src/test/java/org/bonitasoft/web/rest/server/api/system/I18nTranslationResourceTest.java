@@ -15,24 +15,37 @@
 package org.bonitasoft.web.rest.server.api.system;
 
 import static net.javacrumbs.jsonunit.JsonAssert.assertJsonEquals;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.rest.server.utils.ResponseAssert.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import net.javacrumbs.jsonunit.JsonAssert;
 import net.javacrumbs.jsonunit.core.Option;
+import org.apache.commons.io.IOUtils;
 
 import org.bonitasoft.console.common.server.i18n.I18n;
 import org.bonitasoft.web.rest.server.utils.RestletTest;
 import org.bonitasoft.web.toolkit.client.common.i18n.AbstractI18n;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.restlet.Response;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Conditions;
+import org.restlet.data.Encoding;
+import org.restlet.data.Preference;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
 import org.restlet.resource.ServerResource;
 
 /**
@@ -49,6 +62,11 @@ public class I18nTranslationResourceTest extends RestletTest {
         return new I18nTranslationResource(i18n);
     }
 
+    @Before
+    public void clearCache() {
+        I18nTranslationResource.clearSerializedTranslations();
+    }
+
 
     @Test
     public void should_return_translation_for_the_given_local() throws Exception {
@@ -90,4 +108,76 @@ public class I18nTranslationResourceTest extends RestletTest {
 
     }
 
+    @Test
+    public void should_return_identical_content_with_strong_etag() throws Exception {
+        when(i18n.getLocale(AbstractI18n.LOCALE.fr)).thenReturn(translations());
+
+        Response firstResponse = request("/system/i18ntranslation?f=locale%3Dfr").get();
+        final byte[] firstContent = IOUtils.toByteArray(firstResponse.getEntity().getStream());
+        final Tag firstTag = firstResponse.getEntity().getTag();
+        Response secondResponse = request("/system/i18ntranslation?f=locale%3Dfr").get();
+
+        assertThat(secondResponse).hasStatus(Status.SUCCESS_OK);
+        assertThat(firstTag).isNotNull();
+        assertThat(firstTag.isWeak()).isFalse();
+        assertThat(secondResponse.getEntity().getTag()).isEqualTo(firstTag);
+        assertThat(IOUtils.toByteArray(secondResponse.getEntity().getStream())).isEqualTo(firstContent);
+        assertJsonEquals("[{\"key\": \"key1\", \"value\": \"message 1\"},{\"key\": \"key2\", \"value\": \"message 2\"}]",
+                new String(firstContent, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_return_304_without_serializing_translations_again_when_etag_matches() throws Exception {
+        final Map<String, String> translations = spy(translations());
+        when(i18n.getLocale(AbstractI18n.LOCALE.fr)).thenReturn(translations);
+        final Tag tag = request("/system/i18ntranslation?f=locale%3Dfr").get().getEntity().getTag();
+
+        Conditions conditions = new Conditions();
+        conditions.getNoneMatch().add(tag);
+        Response response = request("/system/i18ntranslation?f=locale%3Dfr").setConditions(conditions).get();
+
+        assertThat(response).hasStatus(Status.REDIRECTION_NOT_MODIFIED);
+        verify(translations, times(1)).entrySet();
+    }
+
+    @Test
+    public void should_serialize_translations_again_when_they_are_reloaded() throws Exception {
+        when(i18n.getLocale(AbstractI18n.LOCALE.fr)).thenReturn(translations());
+        final Tag tag = request("/system/i18ntranslation?f=locale%3Dfr").get().getEntity().getTag();
+        final Map<String, String> reloadedTranslations = translations();
+        reloadedTranslations.put("key3", "message 3");
+        when(i18n.getLocale(AbstractI18n.LOCALE.fr)).thenReturn(reloadedTranslations);
+
+        Conditions conditions = new Conditions();
+        conditions.getNoneMatch().add(tag);
+        Response response = request("/system/i18ntranslation?f=locale%3Dfr").setConditions(conditions).get();
+
+        assertThat(response).hasStatus(Status.SUCCESS_OK);
+        assertThat(response.getEntity().getTag()).isNotEqualTo(tag);
+        assertThat(response.getEntityAsText()).contains("message 3");
+    }
+
+    @Test
+    public void should_return_gzip_content_when_accepted() throws Exception {
+        when(i18n.getLocale(AbstractI18n.LOCALE.fr)).thenReturn(translations());
+        final String content = request("/system/i18ntranslation?f=locale%3Dfr").get().getEntityAsText();
+
+        final ClientInfo clientInfo = new ClientInfo();
+        clientInfo.getAcceptedEncodings().add(new Preference<>(Encoding.GZIP));
+        Response response = request("/system/i18ntranslation?f=locale%3Dfr").setClientInfo(clientInfo).get();
+
+        assertThat(response).hasStatus(Status.SUCCESS_OK);
+        assertThat(response.getEntity().getEncodings()).contains(Encoding.GZIP);
+        try (GZIPInputStream gzipStream = new GZIPInputStream(response.getEntity().getStream())) {
+            assertThat(new String(IOUtils.toByteArray(gzipStream), StandardCharsets.UTF_8)).isEqualTo(content);
+        }
+    }
+
+    private Map<String, String> translations() {
+        Map<String, String> translations = new HashMap<>();
+        translations.put("key1", "message 1");
+        translations.put("key2", "message 2");
+        return translations;
+    }
+
 }
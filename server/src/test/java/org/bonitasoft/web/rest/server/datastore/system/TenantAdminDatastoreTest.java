@@ -1,5 +1,6 @@
 package org.bonitasoft.web.rest.server.datastore.system;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
@@ -9,14 +10,18 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.bonitasoft.console.common.server.utils.TenantLifecycleHooks;
 import org.bonitasoft.engine.api.TenantAdministrationAPI;
 import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.web.rest.model.system.TenantAdminItem;
 import org.bonitasoft.web.rest.server.engineclient.TenantManagementEngineClient;
 import org.bonitasoft.web.toolkit.client.data.APIID;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -26,13 +31,24 @@ public class TenantAdminDatastoreTest {
 
     private TenantAdministrationAPI tenantAdministrationAPI;
 
+    private final List<String> tenantStatusChanges = new ArrayList<>();
+
     @Before
     public void setUp() throws Exception {
         tenantAdministrationAPI = mock(TenantAdministrationAPI.class);
-        tenantAdminDatastore = spy(new TenantAdminDatastore(mock(APISession.class)));
+        final APISession apiSession = mock(APISession.class);
+        when(apiSession.getTenantId()).thenReturn(12L);
+        tenantAdminDatastore = spy(new TenantAdminDatastore(apiSession));
+        TenantLifecycleHooks.onTenantPaused(tenantId -> tenantStatusChanges.add("paused " + tenantId));
+        TenantLifecycleHooks.onTenantResumed(tenantId -> tenantStatusChanges.add("resumed " + tenantId));
         doReturn(new TenantManagementEngineClient(tenantAdministrationAPI)).when(tenantAdminDatastore).getTenantManagementEngineClient();
     }
 
+    @After
+    public void tearDown() {
+        TenantLifecycleHooks.clear();
+    }
+
     @Test
     public void testUpdateAlreadyInMaintenance() throws Exception {
         when(tenantAdministrationAPI.isPaused()).thenReturn(true);
@@ -72,6 +88,7 @@ public class TenantAdminDatastoreTest {
         verify(tenantAdministrationAPI, times(1)).isPaused();
         verify(tenantAdministrationAPI, times(1)).pause();
         assertTrue(tenantAdminItem.isPaused());
+        assertThat(tenantStatusChanges).containsExactly("paused 12");
     }
 
     @Test
@@ -86,6 +103,7 @@ public class TenantAdminDatastoreTest {
         verify(tenantAdministrationAPI, times(1)).isPaused();
         verify(tenantAdministrationAPI, times(1)).resume();
         assertFalse(tenantAdminItem.isPaused());
+        assertThat(tenantStatusChanges).containsExactly("resumed 12");
     }
 
     @Test
@@ -11,6 +11,7 @@ package org.bonitasoft.web.rest.server.utils;
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.ClientInfo;
 import org.restlet.data.Conditions;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
@@ -30,6 +31,11 @@ public class RequestBuilder {
         return this;
     }
     
+    public RequestBuilder setClientInfo(ClientInfo clientInfo) {
+        request.setClientInfo(clientInfo);
+        return this;
+    }
+
     public Response get() {
         final Client client = new Client(Protocol.HTTP);
         request.setMethod(Method.GET);